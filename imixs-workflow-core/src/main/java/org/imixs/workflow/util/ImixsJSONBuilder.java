@@ -28,14 +28,25 @@
 
 package org.imixs.workflow.util;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
+import java.io.Writer;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import org.imixs.workflow.ItemCollection;
 
 /**
@@ -50,7 +61,9 @@ import org.imixs.workflow.ItemCollection;
  */
 public class ImixsJSONBuilder {
 
-    public static final String ISO8601DATEFORMAT = "yyyy-MM-dd'T'HH:mm:ssZ";
+    public static final String ISO8601DATEFORMAT = "yyyy-MM-dd'T'HH:mm:ss.SSSXXX";
+    // type of an embedded map or list
+    public static final String ITEM_TYPE = "item";
 
     /**
      * This method builds a typed JSON output stream from a Imixs ItemCollection.
@@ -76,31 +89,105 @@ public class ImixsJSONBuilder {
      * @throws ParseException
      * @throws UnsupportedEncodingException
      */
-    @SuppressWarnings("unchecked")
     public final static String build(final ItemCollection workitem)
             throws ParseException, UnsupportedEncodingException {
+        StringWriter out = new StringWriter();
+        try {
+            write(workitem, workitem.getItemNames(), out);
+        } catch (IOException e) {
+            // a StringWriter throws no IOException
+            throw new UnsupportedEncodingException(e.getMessage());
+        }
+        return out.toString();
+    }
 
-        StringBuffer out = new StringBuffer();
-        out.append("{\"item\":[");
-
-        // iterate over all items...
-        List<String> itemNames = workitem.getItemNames();
-
+    /**
+     * This method writes a typed JSON object of a Imixs ItemCollection directly
+     * into a Writer. The format is the same as produced by the method build().
+     * <p>
+     * The items are written in the order of the given item name list. If no item
+     * name list is provided, all items are written sorted by name. The
+     * ItemCollection is not copied.
+     * 
+     * @param workitem  - ItemCollection to be translated into JSON
+     * @param itemNames - optional list of items to be written
+     * @param out       - the writer
+     * @throws IOException
+     */
+    public final static void write(final ItemCollection workitem, List<String> itemNames, final Writer out)
+            throws IOException {
+        if (itemNames == null || itemNames.isEmpty()) {
+            itemNames = new ArrayList<String>(workitem.getItemNames());
+            Collections.sort(itemNames);
+        }
+        out.write("{\"item\":[");
         for (int i = 0; i < itemNames.size(); i++) {
-
             String itemName = itemNames.get(i);
-            out.append("{\"name\":\"" + itemName + "\",\"value\":");
-            List<Object> values = workitem.getItemValue(itemName);
-            buildValues(values, out);
-
+            out.write("{\"name\":");
+            writeString(itemName, out);
+            out.write(",\"value\":");
+            writeValues(workitem.getItemValue(itemName), out);
+            out.write("}");
             // add comma?
             if (i < (itemNames.size() - 1)) {
-                out.append(",");
+                out.write(",");
             }
         }
-        out.append("]}");
+        out.write("]}");
+    }
 
-        return out.toString();
+    /**
+     * This method writes a collection of ItemCollections as a typed JSON data
+     * structure directly into a Writer. Each document is written as soon as it is
+     * provided by the iterator, so the collection need not be held in memory.
+     * <p>
+     * The result can be parsed by the ImixsJSONParser:
+     * 
+     * <code>
+     * {"data":[
+     *    {"item":[...]},
+     *    {"item":[...]}
+     * ]}
+     * </code>
+     * 
+     * @param documents - the documents to be written
+     * @param itemNames - optional list of items to be written
+     * @param out       - the writer
+     * @throws IOException
+     */
+    public final static void write(final Iterable<ItemCollection> documents, List<String> itemNames,
+            final Writer out) throws IOException {
+        out.write("{\"" + ImixsJSONParser.DATA_ELEMENT + "\":[");
+        boolean first = true;
+        for (ItemCollection document : documents) {
+            if (document == null) {
+                continue;
+            }
+            if (!first) {
+                out.write(",");
+            }
+            write(document, itemNames, out);
+            first = false;
+        }
+        out.write("]}");
+    }
+
+    /**
+     * This method writes a collection of ItemCollections as a typed JSON data
+     * structure into an OutputStream. The stream is encoded in UTF-8. The stream
+     * is flushed but not closed.
+     * 
+     * @see #write(Iterable, List, Writer)
+     * @param documents - the documents to be written
+     * @param itemNames - optional list of items to be written
+     * @param out       - the output stream
+     * @throws IOException
+     */
+    public final static void write(final Iterable<ItemCollection> documents, List<String> itemNames,
+            final OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        write(documents, itemNames, writer);
+        writer.flush();
     }
 
     /**
@@ -120,91 +207,183 @@ public class ImixsJSONBuilder {
      *  </code>
      * 
      * @param token
-     * @throws ParseException
+     * @throws IOException
      */
-    private static void buildValues(List<Object> values, StringBuffer out) {
+    private static void writeValues(List<?> values, Writer out) throws IOException {
         if (values == null || values.size() == 0) {
-            out.append("{}");
+            out.write("{}");
             return;
         }
         if (values.size() > 1) {
-            out.append("[");
+            out.write("[");
         }
 
         // print each output...
         for (int i = 0; i < values.size(); i++) {
-            out.append("{");
-            // {"@type":"xs:string","$":"worklist"}
-            Object valueObject = values.get(i);
-            String type = "";
-            // test raw types first
-            if (valueObject instanceof String) {
-                type = "\"@type\":\"xs:string\"";
-            }
-            if (valueObject instanceof Boolean) {
-                type = "\"@type\":\"xs:boolean\"";
-            }
-            if (valueObject instanceof Short) {
-                type = "\"@type\":\"xs:short\"";
-            }
-            if (valueObject instanceof Integer) {
-                type = "\"@type\":\"xs:int\"";
-            }
-            if (valueObject instanceof Long) {
-                type = "\"@type\":\"xs:long\"";
-            }
-            if (valueObject instanceof Float) {
-                type = "\"@type\":\"xs:floatt\"";
-            }
-            if (valueObject instanceof Double) {
-                type = "\"@type\":\"xs:double\"";
-            }
-            if (valueObject instanceof Date || valueObject instanceof Calendar) {
-                type = "\"@type\":\"xs:dateTime\"";
-            }
-            if (valueObject instanceof BigInteger) {
-                type = "\"@type\":\"xs:integer\"";
-            }
-            if (valueObject instanceof BigDecimal) {
-                type = "\"@type\":\"xs:decimal\"";
+            writeValue(values.get(i), out);
+            // add comma?
+            if ((i) < (values.size() - 1)) {
+                out.write(",");
             }
+        }
 
-            out.append(type + ",");
+        if (values.size() > 1) {
+            out.write("]");
+        }
+    }
 
-            // print the value...
-            // "$":"worklist"}
-            String valueString = null;
-            if (valueObject instanceof Date || valueObject instanceof Calendar) {
-                // convert 2013-10-07T22:18:55.476+02:00
-                Date date = null;
-                if (valueObject instanceof Calendar) {
-                    date = ((Calendar) valueObject).getTime();
+    /**
+     * Writes a single typed value object. Like the XMLItem, embedded maps and
+     * ItemCollections are written as a list of nested items and embedded lists as a
+     * nameless item. A byte array is written base64 encoded.
+     * <p>
+     * e.g.
+     * <p>
+     * <code>
+     * {"@type":"xs:string","$":"worklist"}
+     * {"@type":"item","item":[{"name":"a","value":{"@type":"xs:int","$":"1"}}]}
+     * {"@type":"item","value":[{"@type":"xs:string","$":"A"},{"@type":"xs:string","$":"B"}]}
+     * {"@type":"xs:base64Binary","$":"SW1peHM="}
+     * </code>
+     */
+    private static void writeValue(Object valueObject, Writer out) throws IOException {
+        if (valueObject == null) {
+            out.write("{}");
+            return;
+        }
+        if (valueObject instanceof ItemCollection) {
+            valueObject = ((ItemCollection) valueObject).getAllItems();
+        }
+        if (valueObject instanceof Map) {
+            out.write("{\"@type\":\"" + ITEM_TYPE + "\",\"item\":[");
+            boolean first = true;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) valueObject).entrySet()) {
+                if (!first) {
+                    out.write(",");
+                }
+                out.write("{\"name\":");
+                writeString(String.valueOf(entry.getKey()), out);
+                out.write(",\"value\":");
+                if (entry.getValue() instanceof List) {
+                    writeValues((List<?>) entry.getValue(), out);
                 } else {
-                    date = (Date) valueObject;
+                    writeValues(Collections.singletonList(entry.getValue()), out);
                 }
-                SimpleDateFormat sdf = new SimpleDateFormat(ISO8601DATEFORMAT);
-                // sdf.setTimeZone(TimeZone.getTimeZone("CET"));
-                valueString = sdf.format(date);
-            } else {
-                // simple convert to string
-                valueString = valueObject.toString();
+                out.write("}");
+                first = false;
             }
+            out.write("]}");
+            return;
+        }
+        if (valueObject instanceof List) {
+            out.write("{\"@type\":\"" + ITEM_TYPE + "\",\"value\":");
+            writeValues((List<?>) valueObject, out);
+            out.write("}");
+            return;
+        }
 
-            out.append("\"$\":\"" + valueString + "\"");
-
-            out.append("}");
-            // add comma?
-            if ((i) < (values.size() - 1)) {
-                out.append(",");
+        // {"@type":"xs:string","$":"worklist"}
+        out.write("{");
+        String type = getType(valueObject);
+        if (type != null) {
+            out.write("\"@type\":\"" + type + "\",");
+        }
+        // print the value...
+        out.write("\"$\":");
+        if (valueObject instanceof Date || valueObject instanceof Calendar) {
+            // convert 2013-10-07T22:18:55.476+02:00
+            Date date = null;
+            if (valueObject instanceof Calendar) {
+                date = ((Calendar) valueObject).getTime();
+            } else {
+                date = (Date) valueObject;
             }
+            SimpleDateFormat sdf = new SimpleDateFormat(ISO8601DATEFORMAT);
+            writeString(sdf.format(date), out);
+        } else if (valueObject instanceof byte[]) {
+            writeString(Base64.getEncoder().encodeToString((byte[]) valueObject), out);
+        } else {
+            // simple convert to string
+            writeString(valueObject.toString(), out);
         }
+        out.write("}");
+    }
 
-        if (values.size() > 1) {
-            out.append("]");
-
+    /**
+     * Returns the xml schema type of a value object or null if the type is not a
+     * basic type.
+     */
+    private static String getType(Object valueObject) {
+        // test raw types first
+        if (valueObject instanceof String) {
+            return "xs:string";
+        }
+        if (valueObject instanceof Boolean) {
+            return "xs:boolean";
+        }
+        if (valueObject instanceof Short) {
+            return "xs:short";
+        }
+        if (valueObject instanceof Integer) {
+            return "xs:int";
+        }
+        if (valueObject instanceof Long) {
+            return "xs:long";
+        }
+        if (valueObject instanceof Float) {
+            return "xs:float";
+        }
+        if (valueObject instanceof Double) {
+            return "xs:double";
         }
+        if (valueObject instanceof Date || valueObject instanceof Calendar) {
+            return "xs:dateTime";
+        }
+        if (valueObject instanceof BigInteger) {
+            return "xs:integer";
+        }
+        if (valueObject instanceof BigDecimal) {
+            return "xs:decimal";
+        }
+        if (valueObject instanceof byte[]) {
+            return "xs:base64Binary";
+        }
+        return null;
+    }
 
-        out.append("}");
+    /**
+     * Writes a quoted json string. Quotes, backslashes and control characters are
+     * escaped.
+     */
+    private static void writeString(String value, Writer out) throws IOException {
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+            case '"':
+                out.write("\\\"");
+                break;
+            case '\\':
+                out.write("\\\\");
+                break;
+            case '\n':
+                out.write("\\n");
+                break;
+            case '\r':
+                out.write("\\r");
+                break;
+            case '\t':
+                out.write("\\t");
+                break;
+            default:
+                if (c < 0x20) {
+                    out.write(String.format("\\u%04x", (int) c));
+                } else {
+                    out.write(c);
+                }
+            }
+        }
+        out.write('"');
     }
 
 }
@@ -32,8 +32,12 @@ import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.function.Consumer;
 import javax.json.Json;
 import javax.json.stream.JsonLocation;
 import javax.json.stream.JsonParser;
@@ -47,12 +51,18 @@ import org.imixs.workflow.ItemCollection;
  * <p>
  * The method 'parse()' returns in any case a collection of ItemCollection.
  * <p>
+ * To process large collections of documents the method 'parse(InputStream,
+ * Consumer)' can be used. In this case each document is passed to the consumer
+ * immediately after it was parsed, so the documents need not be held in
+ * memory.
+ * <p>
  * 
  * @author rsoika
  */
 public class ImixsJSONParser {
 
     public static final String DATA_ELEMENT = "data";
+    public static final String DOCUMENT_ELEMENT = "document";
     public static final String ITEM_ELEMENT = "item";
     public static final String NAME_ELEMENT = "name";
     public static final String VALUE_ELEMENT = "value";
@@ -100,7 +110,9 @@ public class ImixsJSONParser {
     	]
        }
      * </code>
-     * 
+     * <p>
+     * The collection element can also be named 'document', as in the JSON
+     * representation of a XMLDataCollection.
      * 
      * @param requestBodyStream
      * @param encoding          - default encoding use to parse the stream
@@ -110,11 +122,35 @@ public class ImixsJSONParser {
      */
     public final static List<ItemCollection> parse(final InputStream jsonDataStream)
             throws ParseException, UnsupportedEncodingException {
+        List<ItemCollection> result = new ArrayList<ItemCollection>();
+        if (parse(jsonDataStream, result::add) < 0) {
+            return null;
+        }
+        return result;
+    }
+
+    /**
+     * This method parses an Imixs JSON input stream and passes each document to
+     * the given consumer as soon as the document was parsed. The method supports
+     * the same structures as the method parse(InputStream).
+     * <p>
+     * The method returns the number of parsed documents or -1 if the stream
+     * contains no Imixs JSON structure or ends unexpectedly. Note that in the
+     * later case documents parsed before may already be consumed.
+     * 
+     * @param jsonDataStream - the json input stream
+     * @param consumer       - consumer called for each document
+     * @return number of parsed documents or -1
+     * @throws ParseException
+     */
+    public final static int parse(final InputStream jsonDataStream, final Consumer<ItemCollection> consumer)
+            throws ParseException {
         boolean isarray = false;
-        List<ItemCollection> result = null;
+        boolean hasData = false;
+        int count = 0;
 
         if (jsonDataStream == null) {
-            return null;
+            return -1;
         }
 
         JsonParser parser = Json.createParser(jsonDataStream);
@@ -124,7 +160,7 @@ public class ImixsJSONParser {
             try {
                 event = parser.next(); // START_OBJECT
                 if (event == null) {
-                    return null;
+                    return -1;
                 }
 
                 if (event.name().equals(Event.START_ARRAY.toString())) {
@@ -135,29 +171,25 @@ public class ImixsJSONParser {
                 if (event.name().equals(Event.KEY_NAME.toString())) {
                     String jsonkey = parser.getString();
                     // data element?
-                    if (DATA_ELEMENT.equals(jsonkey)) {
-                        if (result != null) {
+                    if (DATA_ELEMENT.equals(jsonkey) || DOCUMENT_ELEMENT.equals(jsonkey)) {
+                        if (hasData) {
                             // we do not expect a second data element!
                             JsonLocation location = parser.getLocation();
                             throw new ParseException(
-                                    "Invalid JSON Data Structure - element 'data' not expected (line: "
+                                    "Invalid JSON Data Structure - element '" + jsonkey + "' not expected (line: "
                                             + location.getLineNumber() + " column: " + location.getColumnNumber() + ")",
                                     (int) location.getStreamOffset());
-                        } else {
-                            // create result List
-                            result = new ArrayList<ItemCollection>();
                         }
+                        hasData = true;
                     }
 
                     // item element?
                     if (ITEM_ELEMENT.equals(jsonkey)) {
                         ItemCollection document = new ItemCollection();
                         parseDocument(parser, document);
-                        // late init of collection?
-                        if (result == null) {
-                            result = new ArrayList<ItemCollection>();
-                        }
-                        result.add(document);
+                        hasData = true;
+                        count++;
+                        consumer.accept(document);
                     }
                 }
 
@@ -169,11 +201,11 @@ public class ImixsJSONParser {
                 }
 
             } catch (NoSuchElementException e) {
-                return null;
+                return -1;
             }
         }
 
-        return result;
+        return hasData ? count : -1;
     }
 
     /**
@@ -247,11 +279,18 @@ public class ImixsJSONParser {
      * parsing an item value fragment: <code>
     			"value":{"@type":"xs:boolean","$":"true"},
      * </code>
+     * <p>
+     * Embedded maps and lists written by the ImixsJSONBuilder are parsed into a
+     * Map or List value. A value of the type xs:base64Binary is decoded into a
+     * byte array.
+     * 
+     * @see ImixsJSONBuilder
      **/
     private static List<Object> parseValue(JsonParser parser, ItemCollection document) {
         String type = null;
         String stringValue = null;
         Object value = null;
+        Object embeddedValue = null;
         Boolean isarray = false;
         List<Object> valueList = new ArrayList<Object>();
         while (true) {
@@ -275,12 +314,25 @@ public class ImixsJSONParser {
                         stringValue = parser.getString();
                         continue;
                     }
+                    // embedded map
+                    if (ITEM_ELEMENT.equals(jsonkey)) {
+                        embeddedValue = parseMap(parser, document);
+                        continue;
+                    }
+                    // embedded list
+                    if (VALUE_ELEMENT.equals(jsonkey)) {
+                        embeddedValue = parseValue(parser, document);
+                        continue;
+                    }
                 }
 
                 // END of Object?
                 if (event.name().equals(Event.END_OBJECT.toString())) {
 
                     // convert value to Object Type
+                    if (embeddedValue != null) {
+                        value = embeddedValue;
+                    }
                     if ("xs:boolean".equalsIgnoreCase(type)) {
                         value = Boolean.parseBoolean(stringValue);
                     }
@@ -296,6 +348,9 @@ public class ImixsJSONParser {
                     if ("xs:double".equalsIgnoreCase(type)) {
                         value = new Double(stringValue);
                     }
+                    if ("xs:base64Binary".equalsIgnoreCase(type) && stringValue != null) {
+                        value = Base64.getDecoder().decode(stringValue);
+                    }
                     // default to string
                     if (value == null) {
                         value = stringValue;
@@ -303,6 +358,9 @@ public class ImixsJSONParser {
 
                     valueList.add(value);
                     value = null;
+                    embeddedValue = null;
+                    type = null;
+                    stringValue = null;
                     if (!isarray) {
                         return valueList;
                     }
@@ -320,4 +378,47 @@ public class ImixsJSONParser {
         return null;
     }
 
+    /**
+     * parsing an embedded map fragment: <code>
+    			"item":[{"name":"a","value":{"@type":"xs:int","$":"1"}}]
+     * </code>
+     * <p>
+     * The names of the embedded items are not converted into lower case.
+     **/
+    private static Map<String, List<Object>> parseMap(JsonParser parser, ItemCollection document) {
+        Map<String, List<Object>> result = new HashMap<String, List<Object>>();
+        String itemName = null;
+        List<Object> itemValue = null;
+        while (true) {
+            try {
+                Event event = parser.next();
+                if (event.name().equals(Event.KEY_NAME.toString())) {
+                    String jsonkey = parser.getString();
+                    if (NAME_ELEMENT.equals(jsonkey)) {
+                        parser.next();
+                        itemName = parser.getString();
+                        continue;
+                    }
+                    if (VALUE_ELEMENT.equals(jsonkey)) {
+                        itemValue = parseValue(parser, document);
+                        continue;
+                    }
+                }
+                if (event.name().equals(Event.END_OBJECT.toString())) {
+                    if (itemName != null && itemValue != null) {
+                        result.put(itemName, itemValue);
+                    }
+                    itemName = null;
+                    itemValue = null;
+                }
+                if (event.name().equals(Event.END_ARRAY.toString())) {
+                    return result;
+                }
+            } catch (NoSuchElementException e) {
+                break;
+            }
+        }
+        return result;
+    }
+
 }
@@ -28,20 +28,22 @@
 
 package org.imixs.workflow.util;
 
-import java.io.BufferedReader;
-import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.StringReader;
 import java.io.UnsupportedEncodingException;
 import java.text.ParseException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.json.Json;
+import javax.json.JsonException;
+import javax.json.stream.JsonLocation;
 import javax.json.stream.JsonParser;
 import javax.json.stream.JsonParser.Event;
+import javax.json.stream.JsonParsingException;
 import org.imixs.workflow.ItemCollection;
 
 /**
@@ -52,6 +54,10 @@ import org.imixs.workflow.ItemCollection;
  * <p>
  * The method parseWorkitem translates a JSON structure containing a Imixs
  * Document into a ItemCollection.
+ * <p>
+ * The method getValue extracts a value by its path (e.g. 'response',
+ * 'numFound'). All methods read the JSON structure in one single pass by a
+ * streaming parser. Values not part of the requested path are skipped.
  * 
  * @author rsoika
  */
@@ -75,60 +81,72 @@ public class JSONParser {
         if (json == null || json.isEmpty()) {
             return null;
         }
-        String result = null;
-        // now extract the key
-        JsonParser parser = Json.createParser(new StringReader(json));
         // {"key":"b38b84614af36f874ba4f08dd4ea40c4e66e0607"}
+        try (JsonParser parser = Json.createParser(new StringReader(json))) {
+            while (parser.hasNext()) {
+                Event event = parser.next();
+                if (event == Event.KEY_NAME && key.equals(parser.getString())) {
+                    return readValue(parser, parser.next());
+                }
+            }
+        } catch (JsonException | NoSuchElementException e) {
+            logger.warning("getKey - invalid json structure: " + e.getMessage());
+        }
+        return null;
+    }
 
-        Event event = null;
-        while (true) {
-
-            try {
-                event = parser.next(); // START_OBJECT
-                if (event == null) {
+    /**
+     * This method extracts a value from a JSON structure by its path. Each element
+     * of the path is the key of a nested JSON object, starting with the root
+     * object. For example the path 'response', 'numFound' returns the value 42 from
+     * the following structure:
+     * 
+     * <code>
+     * {"responseHeader":{...},"response":{"numFound":42,"docs":[]}}
+     * </code>
+     * <p>
+     * In different to the method getKey only the requested path is evaluated.
+     * Nested objects and arrays not part of the path are skipped without being
+     * materialized.
+     * 
+     * @param json - the json structure
+     * @param path - list of keys
+     * @return the json value or the json object for the path, or null if the path
+     *         does not exist
+     */
+    public static String getValue(String json, String... path) {
+        if (json == null || json.isEmpty() || path == null || path.length == 0) {
+            return null;
+        }
+        try (JsonParser parser = Json.createParser(new StringReader(json))) {
+            if (!parser.hasNext() || parser.next() != Event.START_OBJECT) {
+                return null;
+            }
+            int depth = 0;
+            while (parser.hasNext()) {
+                Event event = parser.next();
+                if (event != Event.KEY_NAME) {
+                    // end of the current object - path not found
                     return null;
                 }
-                if (event.name().equals(Event.KEY_NAME.toString())) {
-                    String jsonkey = parser.getString();
-                    if (key.equals(jsonkey)) {
-                        event = parser.next(); // value
-                        if (event.name().equals(Event.VALUE_STRING.toString())) {
-                            result = parser.getString();
-                            break;
-                        }
-                        if (event.name().equals(Event.VALUE_NUMBER.toString())) {
-                            result = parser.getBigDecimal() + "";
-                            break;
-                        }
-                        if (event.name().equals(Event.VALUE_TRUE.toString())) {
-                            result = "true";
-                            break;
-                        }
-                        if (event.name().equals(Event.VALUE_FALSE.toString())) {
-                            result = "false";
-                            break;
-                        }
-                        if (event.name().equals(Event.VALUE_NULL.toString())) {
-                            result = null;
-                            break;
-                        }
-                        if (event.name().equals(Event.START_OBJECT.toString())) {
-                            // just return the next json object here
-                            result = parser.getObject().toString();
-                            break;
-                        }
-                        if (event.name().equals(Event.START_ARRAY.toString())) {
-                            // just return the next json object here
-                            result = parser.getArray().toString();
-                            break;
-                        }
+                String jsonkey = parser.getString();
+                event = parser.next();
+                if (path[depth].equals(jsonkey)) {
+                    if (depth == path.length - 1) {
+                        return readValue(parser, event);
+                    }
+                    if (event != Event.START_OBJECT) {
+                        return null;
                     }
+                    depth++;
+                } else {
+                    skipValue(parser, event);
                 }
-            } catch (NoSuchElementException e) {
-                return null;
             }
+        } catch (JsonException | NoSuchElementException e) {
+            logger.warning("getValue - invalid json structure: " + e.getMessage());
         }
-        return result;
+        return null;
     }
 
     /**
@@ -150,6 +168,9 @@ public class JSONParser {
     		]
     	}
      * </code>
+     * <p>
+     * The stream is parsed in one single pass. An item with more than one 'name' or
+     * 'value' element is not accepted.
      * 
      * @param requestBodyStream
      * @param encoding          - default encoding use to parse the stream
@@ -176,258 +197,206 @@ public class JSONParser {
             encoding = "UTF-8";
         }
 
-        // Vector<String> vMultiValueFieldNames = new Vector<String>();
-        BufferedReader in = new BufferedReader(new InputStreamReader(requestBodyStream, encoding));
-
-        String inputLine;
         ItemCollection workitem = new ItemCollection();
-
-        String content = null;
-        String token = null;
-        String name = null;
-        StringBuffer stringBuffer = new StringBuffer();
-        int iPos = -1;
-        int iStart = -1;
-        int iEnd = -1;
+        JsonParser parser = Json.createParser(new InputStreamReader(requestBodyStream, encoding));
         try {
-            // first we concat all lines
-            while ((inputLine = in.readLine()) != null) {
-                stringBuffer.append(inputLine);
-                if (debug) {
-                    logger.finest("......parseWorkitem - read line:" + inputLine + "");
-                }
-            }
-            content = stringBuffer.toString();
-
             // find start ...."item":[...
-            content = content.substring(content.indexOf('[') + 0);
-            if (debug) {
-                logger.finest("......parseWorkitem - start parsing...");
-            }
-            while (content != null) {
-
-                // find name => "name" : "$isauthor" ,
-                iPos = content.indexOf(':');
-                content = content.substring(iPos);
-
-                token = content.substring(0, content.indexOf(','));
-                iStart = token.indexOf('"') + 1;
-                iEnd = token.lastIndexOf('"');
-                if (iEnd < iStart)
-                    throw new java.text.ParseException("Unexpected position of '}", iEnd);
-
-                name = token.substring(iStart, iEnd);
-
-                content = content.substring(token.length());
-                if (!isValueArray(content)) {
-                    // now find the value token =>
-                    // "value":{"@type":"xs:boolean","$":"true"}},
-                    iStart = findNextChar(content, '{') + 1;
-                    iEnd = findNextChar(content, '}');
-                    if (iEnd < iStart)
-                        throw new java.text.ParseException("Unexpected position of '}", iEnd);
-                    token = content.substring(iStart, iEnd);
-                    content = content.substring(iEnd + 1);
-                    storeValue(name, token, workitem);
-                } else {
-                    // get content of array
-                    iStart = findNextChar(content, '[') + 1;
-                    iEnd = findNextChar(content, ']');
-                    if (iEnd < iStart)
-                        throw new java.text.ParseException("Unexpected position of '}", iEnd);
-
-                    String arrayContent = content.substring(iStart, iEnd);
-                    content = content.substring(iEnd + 1);
-                    // parse array values....
-                    while (arrayContent != null) {
-                        // now find the value token =>
-                        // "value":{"@type":"xs:boolean","$":"true"}},
-                        iStart = findNextChar(arrayContent, '{') + 1;
-                        iEnd = findNextChar(arrayContent, '}');
-                        if (iEnd < iStart)
-                            throw new java.text.ParseException("Unexpected position of '}", iEnd);
-
-                        token = arrayContent.substring(iStart, iEnd);
-                        arrayContent = arrayContent.substring(iEnd + 1);
-                        storeValue(name, token, workitem);
-
-                        if (!arrayContent.contains("{"))
-                            break;
+            while (parser.hasNext()) {
+                Event event = parser.next();
+                if (event == Event.KEY_NAME && ImixsJSONParser.ITEM_ELEMENT.equals(parser.getString())) {
+                    if (parser.next() != Event.START_ARRAY) {
+                        throw createParseException("element 'item' must be an array", parser);
                     }
-
+                    parseItems(parser, workitem);
+                    return workitem;
                 }
-
-                if (!content.contains("{"))
-                    break;
-
             }
-        } catch (IOException e1) {
-            // logger.severe("Unable to parse workitem data!");
-            e1.printStackTrace();
+            throw new ParseException("Invalid JSON Data Structure - element 'item' not found", -1);
+        } catch (JsonParsingException e) {
+            throw createParseException(e.getMessage(), parser);
+        } catch (NoSuchElementException e) {
+            throw createParseException("unexpected end of data", parser);
+        } catch (JsonException e) {
+            logger.severe("parseWorkitem - unable to read workitem data: " + e.getMessage());
             return null;
         } finally {
             try {
-                in.close();
-            } catch (IOException e) {
-                e.printStackTrace();
+                parser.close();
+            } catch (JsonException e) {
+                logger.warning("parseWorkitem - failed to close input stream: " + e.getMessage());
             }
-
         }
+    }
 
-        return workitem;
+    /**
+     * Parses the item array of a document. The parser is expected to be positioned
+     * at the start of the array.
+     */
+    private static void parseItems(JsonParser parser, ItemCollection workitem) throws ParseException {
+        while (true) {
+            Event event = parser.next();
+            if (event == Event.END_ARRAY) {
+                return;
+            }
+            if (event == Event.START_OBJECT) {
+                parseItem(parser, workitem);
+            } else {
+                skipValue(parser, event);
+            }
+        }
     }
 
     /**
-     * This helper method extracts the type and value of a token and stores the
-     * value into the workitem
+     * Parses a single item object and stores the values into the workitem. If the
+     * workitem already contains the item, the values are appended.
      * 
      * e.g.
      * 
      * {"name":"$isauthor","value":{"@type":"xs:boolean","$":true}},
-     * {"name":"$readaccess","value":{"@type":"xs:string","$":"Anna"}},
-     * {"name":"txtmessage","value":{"@type":"xs:string","$":"worklist"}},
-     * {"name":"$activityid","value":{"@type":"xs:int","$":10}},
-     * {"name":"XXXX","value":{"$":10,"@type":"xs:int"}},
-     * {"name":"$processid","value":{"@type":"xs:int","$":100}}
-     * 
-     * @param token
-     * @throws ParseException
+     * {"name":"txtlog","value":[{"@type":"xs:string","$":"A"},{"@type":"xs:string","$":"B"}]}
      */
     @SuppressWarnings({ "rawtypes", "unchecked" })
-    private static void storeValue(String name, String token, ItemCollection workitem) throws ParseException {
-        boolean debug = logger.isLoggable(Level.FINE);
-        int iPos, iStart, iEnd;
-        Object value;
-        String type = null;
-
-        // check if "@type" exists
-        iPos = token.indexOf("\"@type\"");
-        if (iPos > -1) {
-            iStart = token.indexOf('"', iPos + "\"@type\"".length() + 1) + 1;
-            iEnd = token.indexOf('"', iStart);
-            if (iEnd < iStart)
-                throw new ParseException("Unexpected position of '}", iEnd);
-
-            type = token.substring(iStart, iEnd);
-            // token = token.substring(iEnd + 1);
-        }
-
-        // check if "$" exists
-        String stringValue = null;
-        iPos = token.indexOf("\"$\"");
-        if (iPos > -1) {
-            iStart = token.indexOf('"', iPos + "\"$\"".length() + 1) + 0;
-
-            // check for ,
-            int commaPos = token.indexOf(',', iStart);
-            if (commaPos > -1) {
-                stringValue = token.substring(iStart, commaPos);
+    private static void parseItem(JsonParser parser, ItemCollection workitem) throws ParseException {
+        String name = null;
+        List<Object> values = null;
+        while (true) {
+            Event event = parser.next();
+            if (event == Event.END_OBJECT) {
+                break;
+            }
+            // KEY_NAME
+            String jsonkey = parser.getString();
+            event = parser.next();
+            if (ImixsJSONParser.NAME_ELEMENT.equals(jsonkey)) {
+                if (name != null) {
+                    throw createParseException("element 'name' not expected", parser);
+                }
+                name = parser.getString();
+            } else if (ImixsJSONParser.VALUE_ELEMENT.equals(jsonkey)) {
+                if (values != null) {
+                    throw createParseException("element 'value' not expected", parser);
+                }
+                values = new ArrayList<Object>();
+                if (event == Event.START_ARRAY) {
+                    while ((event = parser.next()) != Event.END_ARRAY) {
+                        parseValue(parser, event, values);
+                    }
+                } else {
+                    parseValue(parser, event, values);
+                }
             } else {
-                stringValue = token.substring(iStart);
+                skipValue(parser, event);
             }
         }
 
-        // remove " from string value
-        if (stringValue.startsWith("\"")) {
-            stringValue = stringValue.substring(1);
-        }
-        if (stringValue.endsWith("\"")) {
-            stringValue = stringValue.substring(0, stringValue.length() - 1);
+        if (name == null || values == null) {
+            return;
         }
-
-        value = stringValue;
-
-        // convert value to Object Type
-        if ("xs:boolean".equalsIgnoreCase(type)) {
-            value = Boolean.parseBoolean(stringValue);
-            if (debug) {
-                logger.finest("......storeValue - datatype=xs:boolean");
-            }
+        if (!workitem.hasItem(name)) {
+            workitem.replaceItemValue(name, values);
+        } else {
+            // add values
+            List valueList = workitem.getItemValue(name);
+            valueList.addAll(values);
+            workitem.replaceItemValue(name, valueList);
         }
-        if ("xs:integer".equalsIgnoreCase(type) || "xs:int".equalsIgnoreCase(type)) {
-            value = Integer.parseInt(stringValue);
-            if (debug) {
-                logger.finest("......storeValue - datatype=xs:integer");
-            }
+        if (logger.isLoggable(Level.FINEST)) {
+            logger.finest("......storeValue: '" + name + "' = '" + values + "'");
         }
-        if ("xs:long".equalsIgnoreCase(type)) {
-            value = Long.parseLong(stringValue);
-            if (debug) {
-                logger.finest("......storeValue - datatype=xs:long");
-            }
+    }
+
+    /**
+     * Parses a typed value object and adds the value to the value list.
+     * 
+     * e.g.
+     * 
+     * {"@type":"xs:int","$":10}
+     */
+    private static void parseValue(JsonParser parser, Event event, List<Object> values) throws ParseException {
+        if (event != Event.START_OBJECT) {
+            skipValue(parser, event);
+            return;
         }
-        if ("xs:float".equalsIgnoreCase(type)) {
-            value = new Float(stringValue);
-            if (debug) {
-                logger.finest("......storeValue - datatype=xs:float");
+        String type = null;
+        String stringValue = null;
+        while ((event = parser.next()) != Event.END_OBJECT) {
+            // KEY_NAME
+            String jsonkey = parser.getString();
+            event = parser.next();
+            if ("@type".equals(jsonkey)) {
+                type = parser.getString();
+            } else if ("$".equals(jsonkey)) {
+                stringValue = readValue(parser, event);
+            } else {
+                skipValue(parser, event);
             }
         }
-        if ("xs:double".equalsIgnoreCase(type)) {
-            value = new Double(stringValue);
-            if (debug) {
-                logger.finest("......storeValue - datatype=xs:double");
-            }
+        if (stringValue == null) {
+            return;
         }
 
-        // store value
-        if (!workitem.hasItem(name)) {
-            // frist value
-            workitem.replaceItemValue(name, value);
-            if (debug) {
-                logger.finest("......storeValue: '" + name + "' = '" + value + "'");
-            }
-        } else {
-            // add value
-            List valueList = workitem.getItemValue(name);
-            valueList.add(value);
-            workitem.replaceItemValue(name, valueList);
-            if (debug) {
-                logger.finest("......store multivalue: '" + name + "' = '" + value + "'");
+        // convert value to Object Type
+        try {
+            if ("xs:boolean".equalsIgnoreCase(type)) {
+                values.add(Boolean.parseBoolean(stringValue));
+            } else if ("xs:integer".equalsIgnoreCase(type) || "xs:int".equalsIgnoreCase(type)) {
+                values.add(Integer.parseInt(stringValue));
+            } else if ("xs:long".equalsIgnoreCase(type)) {
+                values.add(Long.parseLong(stringValue));
+            } else if ("xs:float".equalsIgnoreCase(type)) {
+                values.add(new Float(stringValue));
+            } else if ("xs:double".equalsIgnoreCase(type)) {
+                values.add(new Double(stringValue));
+            } else {
+                values.add(stringValue);
             }
+        } catch (NumberFormatException e) {
+            throw createParseException("invalid value '" + stringValue + "' for type " + type, parser);
         }
-
     }
 
     /**
-     * Checks if the value is an array of values
-     * 
-     * ,"value":[ {"@type":"xs:string","$":"A"},
-     * 
-     * @param token
-     * @return
+     * Returns the current value of the parser as a string. JSON objects and arrays
+     * are returned as JSON string.
      */
-    private static boolean isValueArray(String token) {
-        int b1 = findNextChar(token, '[');
-        int b2 = findNextChar(token, '{');
-        if (b1 > -1 && b1 < b2)
-            return true;
-        else
-            return false;
+    private static String readValue(JsonParser parser, Event event) {
+        switch (event) {
+        case VALUE_STRING:
+            return parser.getString();
+        case VALUE_NUMBER:
+            return parser.getBigDecimal() + "";
+        case VALUE_TRUE:
+            return "true";
+        case VALUE_FALSE:
+            return "false";
+        case START_OBJECT:
+            return parser.getObject().toString();
+        case START_ARRAY:
+            return parser.getArray().toString();
+        default:
+            return null;
+        }
     }
 
     /**
-     * This method finds the next position of a char. The method scips excapte
-     * characters like '\"' or '\['
-     * 
-     * @param token
-     * @param c
-     * @return
+     * Skips the current value. In case of a JSON object or array the parser is
+     * advanced to the corresponding end event.
      */
-    private static int findNextChar(String token, char c) {
-        int iPos = token.indexOf(c);
-
-        if (iPos <= 0)
-            return iPos;
-
-        // check if the char before is a \
-        while ((token.charAt(iPos - 1)) == '\\') {
-            iPos = token.indexOf(c, iPos + 2);
-            if (iPos == -1)
-                break;
+    private static void skipValue(JsonParser parser, Event event) {
+        if (event == Event.START_OBJECT) {
+            parser.skipObject();
+        } else if (event == Event.START_ARRAY) {
+            parser.skipArray();
         }
+    }
 
-        return iPos;
-
+    /**
+     * Creates a ParseException with the current location of the parser.
+     */
+    private static ParseException createParseException(String message, JsonParser parser) {
+        JsonLocation location = parser.getLocation();
+        return new ParseException("Invalid JSON Data Structure - " + message + " (line: " + location.getLineNumber()
+                + " column: " + location.getColumnNumber() + ")", (int) location.getStreamOffset());
     }
 
 }
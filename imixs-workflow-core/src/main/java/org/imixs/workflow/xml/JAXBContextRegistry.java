@@ -0,0 +1,132 @@
+/*  
+ *  Imixs-Workflow 
+ *  
+ *  Copyright (C) 2001-2020 Imixs Software Solutions GmbH,  
+ *  http://www.imixs.com
+ *  
+ *  This program is free software; you can redistribute it and/or 
+ *  modify it under the terms of the GNU General Public License 
+ *  as published by the Free Software Foundation; either version 2 
+ *  of the License, or (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful, 
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ *  General Public License for more details.
+ *  
+ *  You can receive a copy of the GNU General Public
+ *  License at http://www.gnu.org/licenses/gpl.html
+ *  
+ *  Project: 
+ *      https://www.imixs.org
+ *      https://github.com/imixs/imixs-workflow
+ *  
+ *  Contributors:  
+ *      Imixs Software Solutions GmbH - Project Management
+ *      Ralph Soika - Software Developer
+ */
+
+package org.imixs.workflow.xml;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+
+/**
+ * The JAXBContextRegistry holds the JAXBContext instances of the Imixs XML
+ * classes XMLDocument, XMLDataCollection, XMLItem and DocumentTable. The
+ * creation of a JAXBContext is expensive. A JAXBContext is thread safe, so each
+ * context is created only once and shared by all callers.
+ * <p>
+ * Marshaller and Unmarshaller instances are not thread safe. The registry
+ * provides one instance per thread and class. A Marshaller is reset to the
+ * default properties (encoding UTF-8, no fragment, no formatted output) each
+ * time it is returned. A caller must not hold a Marshaller obtained by the
+ * registry across calls which may use the registry again. In this case a new
+ * Marshaller should be created from the shared context.
+ * 
+ * @author imixs.com - Ralph Soika
+ * @version 1.0
+ */
+public class JAXBContextRegistry {
+
+    private static final Map<Class<?>, JAXBContext> contexts = new ConcurrentHashMap<Class<?>, JAXBContext>();
+
+    private static final ThreadLocal<Map<Class<?>, Marshaller>> marshallers = new ThreadLocal<Map<Class<?>, Marshaller>>() {
+        @Override
+        protected Map<Class<?>, Marshaller> initialValue() {
+            return new HashMap<Class<?>, Marshaller>();
+        }
+    };
+
+    private static final ThreadLocal<Map<Class<?>, Unmarshaller>> unmarshallers = new ThreadLocal<Map<Class<?>, Unmarshaller>>() {
+        @Override
+        protected Map<Class<?>, Unmarshaller> initialValue() {
+            return new HashMap<Class<?>, Unmarshaller>();
+        }
+    };
+
+    private JAXBContextRegistry() {
+    }
+
+    /**
+     * Returns the shared JAXBContext for the given class. The context is created
+     * on the first call.
+     * 
+     * @param type - the root class, e.g. XMLDocument.class
+     * @return JAXBContext
+     * @throws JAXBException
+     */
+    public static JAXBContext getContext(Class<?> type) throws JAXBException {
+        JAXBContext context = contexts.get(type);
+        if (context == null) {
+            // a concurrent first call may create a second context which is simply
+            // replaced
+            context = JAXBContext.newInstance(type);
+            contexts.put(type, context);
+        }
+        return context;
+    }
+
+    /**
+     * Returns the Marshaller of the current thread for the given class.
+     * 
+     * @param type - the root class, e.g. XMLDocument.class
+     * @return Marshaller with default properties
+     * @throws JAXBException
+     */
+    public static Marshaller getMarshaller(Class<?> type) throws JAXBException {
+        Map<Class<?>, Marshaller> threadMarshallers = marshallers.get();
+        Marshaller marshaller = threadMarshallers.get(type);
+        if (marshaller == null) {
+            marshaller = getContext(type).createMarshaller();
+            threadMarshallers.put(type, marshaller);
+        }
+        // reset properties set by a previous caller
+        marshaller.setProperty(Marshaller.JAXB_ENCODING, "UTF-8");
+        marshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.FALSE);
+        marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.FALSE);
+        return marshaller;
+    }
+
+    /**
+     * Returns the Unmarshaller of the current thread for the given class.
+     * 
+     * @param type - the root class, e.g. XMLDocument.class
+     * @return Unmarshaller
+     * @throws JAXBException
+     */
+    public static Unmarshaller getUnmarshaller(Class<?> type) throws JAXBException {
+        Map<Class<?>, Unmarshaller> threadUnmarshallers = unmarshallers.get();
+        Unmarshaller unmarshaller = threadUnmarshallers.get(type);
+        if (unmarshaller == null) {
+            unmarshaller = getContext(type).createUnmarshaller();
+            threadUnmarshallers.put(type, unmarshaller);
+        }
+        return unmarshaller;
+    }
+}
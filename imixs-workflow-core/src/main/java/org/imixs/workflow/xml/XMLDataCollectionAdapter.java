@@ -37,12 +37,15 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
 import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import org.imixs.workflow.ItemCollection;
 
 /**
@@ -57,6 +60,7 @@ import org.imixs.workflow.ItemCollection;
 
 public class XMLDataCollectionAdapter {
     private static Logger logger = Logger.getLogger(XMLDataCollectionAdapter.class.getName());
+    private static final XMLInputFactory xmlInputFactory = createXMLInputFactory();
 
     /**
      * This Method converts a <code>org.imixs.workflow.xml.DocumentCollection</code>
@@ -103,6 +107,23 @@ public class XMLDataCollectionAdapter {
      */
     public static XMLDataCollection getDataCollection(final Collection<ItemCollection> documents,
             final List<String> itemNames) {
+        return getDataCollection(documents, itemNames, true);
+    }
+
+    /**
+     * This method transforms a Collection<ItemCollection> into a
+     * XMLDocumentCollection. If the param sortItems is false, the items of each
+     * document are not sorted by name.
+     * 
+     * @see XMLDocumentAdapter#getDocument(ItemCollection, List, boolean)
+     * @param documents - collection of ItemCollection objects to be converted
+     * @param itemNames - optional list of item names to be converted. If null all
+     *                  items will be converted
+     * @param sortItems - if true the items are sorted by name
+     * @return
+     */
+    public static XMLDataCollection getDataCollection(final Collection<ItemCollection> documents,
+            final List<String> itemNames, final boolean sortItems) {
         XMLDataCollection entiCol = new XMLDataCollection();
         Iterator<ItemCollection> it = documents.iterator();
         int max = documents.size();
@@ -111,7 +132,7 @@ public class XMLDataCollectionAdapter {
         while (it.hasNext()) {
             ItemCollection icw = (ItemCollection) it.next();
             if (icw != null) {
-                XMLDocument entity = XMLDocumentAdapter.getDocument(icw, itemNames);
+                XMLDocument entity = XMLDocumentAdapter.getDocument(icw, itemNames, sortItems);
                 entities[i] = entity;
                 i++;
             }
@@ -185,8 +206,7 @@ public class XMLDataCollectionAdapter {
         if (debug) {
             logger.finest("......readCollection importXmlEntityData - verifing  content....");
         }
-        JAXBContext context = JAXBContext.newInstance(XMLDataCollection.class);
-        Unmarshaller m = context.createUnmarshaller();
+        Unmarshaller m = JAXBContextRegistry.getUnmarshaller(XMLDataCollection.class);
 
         ByteArrayInputStream input = new ByteArrayInputStream(byteInput);
         Object jaxbObject = m.unmarshal(input);
@@ -209,6 +229,46 @@ public class XMLDataCollectionAdapter {
 
     }
 
+    /**
+     * This method reads an xml data stream and passes each document to the given
+     * consumer as soon as the document was read. The stream is not loaded into
+     * memory, so the method can be used for large collections.
+     * <p>
+     * The stream may contain a XMLDataCollection or a single XMLDocument.
+     * 
+     * @param inputStream - xml input stream
+     * @param consumer    - consumer called for each document
+     * @return number of read documents
+     * @throws JAXBException
+     * @throws XMLStreamException
+     */
+    public static int readCollection(final InputStream inputStream, final Consumer<ItemCollection> consumer)
+            throws JAXBException, XMLStreamException {
+        if (inputStream == null) {
+            return 0;
+        }
+        // the consumer may use the registry, so we do not use the thread local
+        // unmarshaller here
+        Unmarshaller m = JAXBContextRegistry.getContext(XMLDocument.class).createUnmarshaller();
+        XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(inputStream);
+        int count = 0;
+        try {
+            while (reader.hasNext()) {
+                if (reader.isStartElement() && "document".equals(reader.getLocalName())) {
+                    // the reader is positioned after the document element
+                    XMLDocument xmlDocument = m.unmarshal(reader, XMLDocument.class).getValue();
+                    count++;
+                    consumer.accept(XMLDocumentAdapter.putDocument(xmlDocument));
+                } else {
+                    reader.next();
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return count;
+    }
+
     /**
      * This method writes a collection of ItemCollection into a Byte array
      * representing a XMLDataCollection
@@ -225,8 +285,7 @@ public class XMLDataCollectionAdapter {
         }
         XMLDataCollection ecol = XMLDataCollectionAdapter.getDataCollection(documents);
         StringWriter writer = new StringWriter();
-        JAXBContext context = JAXBContext.newInstance(XMLDataCollection.class);
-        Marshaller m = context.createMarshaller();
+        Marshaller m = JAXBContextRegistry.getMarshaller(XMLDataCollection.class);
         m.marshal(ecol, writer);
         return writer.toString().getBytes();
     }
@@ -246,12 +305,21 @@ public class XMLDataCollectionAdapter {
         }
         XMLDataCollection ecol = XMLDataCollectionAdapter.getDataCollection(document);
         StringWriter writer = new StringWriter();
-        JAXBContext context = JAXBContext.newInstance(XMLDataCollection.class);
-        Marshaller m = context.createMarshaller();
+        Marshaller m = JAXBContextRegistry.getMarshaller(XMLDataCollection.class);
         m.marshal(ecol, writer);
         return writer.toString().getBytes();
     }
 
+    /**
+     * Creates a XMLInputFactory with disabled DTD and external entity support.
+     */
+    private static XMLInputFactory createXMLInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
     public static byte[] getBytesFromStream(InputStream is) throws IOException {
         ByteArrayOutputStream buffer = new ByteArrayOutputStream();
         int nRead;
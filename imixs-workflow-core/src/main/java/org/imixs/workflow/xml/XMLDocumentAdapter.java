@@ -42,7 +42,6 @@ import java.util.Map.Entry;
 import java.util.Vector;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
 import javax.xml.bind.Unmarshaller;
@@ -120,11 +119,35 @@ public class XMLDocumentAdapter {
      * @param itemNames - optional list of item names to be converted. If null all
      *                  items will be converted
      */
-    @SuppressWarnings({ "unchecked" })
     public static XMLDocument getDocument(final ItemCollection document, final List<String> itemNames) {
+        return getDocument(document, itemNames, true);
+    }
 
-        // create a deep copy of the source
-        ItemCollection aItemCollection = (ItemCollection) document.clone();
+    /**
+     * This Method converts a <code> org.imixs.workflow.ItemCollection</code> into a
+     * <code>XMLDocument</code>
+     * 
+     * <p>
+     * The method verifies if the values stored are basic java types. If not these
+     * values will not be converted!
+     * <p>
+     * If the param sortItems is false, the items are not sorted by name. In this
+     * case the items are returned in the order of the given item name list or in
+     * the order of the source document. This is faster for clients not depending
+     * on the order of items.
+     * <p>
+     * The source document is not modified and not copied.
+     * 
+     * @param document  instance of a ItemCollection to be converted
+     * @param itemNames - optional list of item names to be converted. If null all
+     *                  items will be converted
+     * @param sortItems - if true the items are sorted by name
+     */
+    @SuppressWarnings({ "unchecked" })
+    public static XMLDocument getDocument(final ItemCollection document, final List<String> itemNames,
+            final boolean sortItems) {
+
+        ItemCollection aItemCollection = document;
 
         String itemName = null;
         XMLDocument entity = new XMLDocument();
@@ -177,7 +200,9 @@ public class XMLDocumentAdapter {
             entity.setItem(items);
         }
 
-        entity = sortItemsByName(entity);
+        if (sortItems) {
+            entity = sortItemsByName(entity);
+        }
 
         return entity;
     }
@@ -272,8 +297,7 @@ public class XMLDocumentAdapter {
         if (debug) {
             logger.finest("......importXmlEntityData - verifing content....");
         }
-        JAXBContext context = JAXBContext.newInstance(XMLDocument.class);
-        Unmarshaller m = context.createUnmarshaller();
+        Unmarshaller m = JAXBContextRegistry.getUnmarshaller(XMLDocument.class);
 
         ByteArrayInputStream input = new ByteArrayInputStream(byteInput);
         Object jaxbObject = m.unmarshal(input);
@@ -304,8 +328,7 @@ public class XMLDocumentAdapter {
 
         XMLDocument ecol = XMLDocumentAdapter.getDocument(document);
         StringWriter writer = new StringWriter();
-        JAXBContext context = JAXBContext.newInstance(XMLDocument.class);
-        Marshaller m = context.createMarshaller();
+        Marshaller m = JAXBContextRegistry.getMarshaller(XMLDocument.class);
         m.marshal(ecol, writer);
         return writer.toString().getBytes();
     }
@@ -153,23 +153,32 @@ public class XMLItem implements Serializable {
      * <a href="http://www.w3.org/TR/2000/REC-xml-20001006#NT-Char">the
      * standard</a>. This method will return an empty String if the input is null or
      * empty.
+     * <p>
+     * The method first verifies the characters. If no invalid character is found,
+     * the given String is returned without creating a copy.
      *
      * @param itemValue The String whose non-valid characters we want to remove.
-     * @param itemName  - the item name used just for logging
      * @return The in String, stripped of non-valid characters.
      */
     private String stripNonValidXMLCharacters(String itemValue) {
-        StringBuffer out = new StringBuffer(); // Used to hold the output.
-        char current; // Used to reference the current character.
-
-        if (itemValue == null || ("".equals(itemValue)))
+        if (itemValue == null || itemValue.isEmpty()) {
             return ""; // vacancy test.
-        for (int i = 0; i < itemValue.length(); i++) {
-            current = itemValue.charAt(i); // NOTE: No IndexOutOfBoundsException caught here; it should
-                                           // not happen.
-            if ((current == 0x9) || (current == 0xA) || (current == 0xD) || ((current >= 0x20) && (current <= 0xD7FF))
-                    || ((current >= 0xE000) && (current <= 0xFFFD))
-                    || ((current >= 0x10000) && (current <= 0x10FFFF))) {
+        }
+        int length = itemValue.length();
+        int i = 0;
+        // find the first invalid character
+        while (i < length && isValidXMLCharacter(itemValue.charAt(i))) {
+            i++;
+        }
+        if (i == length) {
+            return itemValue;
+        }
+        // copy the valid characters only
+        StringBuilder out = new StringBuilder(length);
+        out.append(itemValue, 0, i);
+        for (; i < length; i++) {
+            char current = itemValue.charAt(i);
+            if (isValidXMLCharacter(current)) {
                 out.append(current);
             } else {
                 logger.warning("invalid xml character at position " + i + " in item '" + name + "'");
@@ -178,6 +187,14 @@ public class XMLItem implements Serializable {
         return out.toString();
     }
 
+    /**
+     * Returns true if the character is a valid XML 1.0 character.
+     */
+    private static boolean isValidXMLCharacter(char current) {
+        return (current == 0x9) || (current == 0xA) || (current == 0xD) || ((current >= 0x20) && (current <= 0xD7FF))
+                || ((current >= 0xE000) && (current <= 0xFFFD));
+    }
+
     /**
      * This method returns a transformed version of the XMLItem value array.
      * <p>
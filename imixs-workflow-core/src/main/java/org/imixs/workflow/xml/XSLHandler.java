@@ -37,13 +37,11 @@ import java.io.UnsupportedEncodingException;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
 import javax.xml.transform.Source;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
 import org.imixs.workflow.ItemCollection;
@@ -52,7 +50,8 @@ import org.imixs.workflow.ItemCollection;
  * This class can be used to transform xml by XSL template.
  * 
  * The class is used by the ReportRestService to execute a report and also by
- * the MailPluign to transform the mail body
+ * the MailPluign to transform the mail body. The compiled XSL templates are
+ * cached by the XSLTemplateCache.
  * 
  * @author imixs.com - Ralph Soika
  * @version 1.0
@@ -80,7 +79,6 @@ public class XSLHandler {
             if (encoding == null || encoding.isEmpty()) {
                 encoding = "UTF-8";
             }
-            TransformerFactory transFact = TransformerFactory.newInstance();
             if (debug) {
                 logger.finest("......xslTransformation: encoding=" + encoding);
             }
@@ -92,12 +90,8 @@ public class XSLHandler {
 
             Source xmlSrc = new StreamSource(isreaderXML);
 
-            // generate XSL InputStream Reader with encoding
-            ByteArrayInputStream baisXSL = new ByteArrayInputStream(xslSource.getBytes());
-            InputStreamReader isreaderXSL = new InputStreamReader(baisXSL, encoding);
-            Source xslSrc = new StreamSource(isreaderXSL);
-
-            Transformer trans = transFact.newTransformer(xslSrc);
+            // the compiled stylesheet is taken from the XSLTemplateCache
+            Transformer trans = XSLTemplateCache.getTemplates(xslSource, encoding).newTransformer();
             trans.transform(xmlSrc, new StreamResult(output));
 
         } finally {
@@ -129,8 +123,7 @@ public class XSLHandler {
 
         StringWriter writer = new StringWriter();
 
-        JAXBContext context = JAXBContext.newInstance(XMLDataCollection.class);
-        Marshaller m = context.createMarshaller();
+        Marshaller m = JAXBContextRegistry.getMarshaller(XMLDataCollection.class);
         m.setProperty("jaxb.encoding", encoding);
         m.marshal(xmlDataCollection, writer);
 
@@ -161,8 +154,7 @@ public class XSLHandler {
 
         StringWriter writer = new StringWriter();
 
-        JAXBContext context = JAXBContext.newInstance(XMLDocument.class);
-        Marshaller m = context.createMarshaller();
+        Marshaller m = JAXBContextRegistry.getMarshaller(XMLDocument.class);
         m.setProperty("jaxb.encoding", encoding);
         m.marshal(xmlDocument, writer);
 
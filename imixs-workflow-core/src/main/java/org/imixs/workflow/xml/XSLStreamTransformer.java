@@ -0,0 +1,162 @@
+/*  
+ *  Imixs-Workflow 
+ *  
+ *  Copyright (C) 2001-2020 Imixs Software Solutions GmbH,  
+ *  http://www.imixs.com
+ *  
+ *  This program is free software; you can redistribute it and/or 
+ *  modify it under the terms of the GNU General Public License 
+ *  as published by the Free Software Foundation; either version 2 
+ *  of the License, or (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful, 
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ *  General Public License for more details.
+ *  
+ *  You can receive a copy of the GNU General Public
+ *  License at http://www.gnu.org/licenses/gpl.html
+ *  
+ *  Project: 
+ *      https://www.imixs.org
+ *      https://github.com/imixs/imixs-workflow
+ *  
+ *  Contributors:  
+ *      Imixs Software Solutions GmbH - Project Management
+ *      Ralph Soika - Software Developer
+ */
+
+package org.imixs.workflow.xml;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.transform.Result;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXTransformerFactory;
+import javax.xml.transform.sax.TransformerHandler;
+import javax.xml.transform.stream.StreamResult;
+import org.imixs.workflow.ItemCollection;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * The XSLStreamTransformer transforms a sequence of documents by a XSL template
+ * without building the XML representation of the whole data collection in
+ * memory.
+ * <p>
+ * The documents are emitted as SAX events in the format of a XMLDataCollection
+ * and are piped directly through the compiled XSL template into the result.
+ * Each document is marshaled as a single fragment, so only the current
+ * document is hold in memory. This allows to transform large reports page by
+ * page:
+ * 
+ * <pre>
+ * XSLStreamTransformer transformer = new XSLStreamTransformer(xsl, "UTF-8", output);
+ * transformer.start();
+ * for (ItemCollection document : page) {
+ *     transformer.write(document);
+ * }
+ * transformer.finish();
+ * </pre>
+ * 
+ * @see XSLHandler
+ * @see XSLTemplateCache
+ * @author imixs.com - Ralph Soika
+ * @version 1.0
+ */
+public class XSLStreamTransformer {
+
+    private static final String DATA_ELEMENT = "data";
+
+    private TransformerHandler handler;
+    private Marshaller marshaller;
+
+    /**
+     * Creates a XSLStreamTransformer writing the transformation result into an
+     * output stream.
+     * 
+     * @param xslSource - the XSL template
+     * @param encoding  - encoding of the XSL template (default UTF-8)
+     * @param output    - the output stream
+     * @throws TransformerException
+     * @throws JAXBException
+     * @throws IOException
+     */
+    public XSLStreamTransformer(String xslSource, String encoding, OutputStream output)
+            throws TransformerException, JAXBException, IOException {
+        this(xslSource, encoding, new StreamResult(output));
+    }
+
+    /**
+     * Creates a XSLStreamTransformer writing the transformation result into a
+     * transformation Result. E.g. a SAXResult to pipe the result into a FOP
+     * processor.
+     * 
+     * @param xslSource - the XSL template
+     * @param encoding  - encoding of the XSL template (default UTF-8)
+     * @param result    - the transformation result
+     * @throws TransformerException
+     * @throws JAXBException
+     * @throws IOException
+     */
+    public XSLStreamTransformer(String xslSource, String encoding, Result result)
+            throws TransformerException, JAXBException, IOException {
+        if (encoding == null || encoding.isEmpty()) {
+            encoding = "UTF-8";
+        }
+        SAXTransformerFactory factory = (SAXTransformerFactory) TransformerFactory.newInstance();
+        handler = factory.newTransformerHandler(XSLTemplateCache.getTemplates(xslSource, encoding));
+        handler.setResult(result);
+
+        // a separate marshaller is used because it is hold for the whole
+        // transformation
+        marshaller = JAXBContextRegistry.getContext(XMLDocument.class).createMarshaller();
+        marshaller.setProperty("jaxb.encoding", encoding);
+        marshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
+    }
+
+    /**
+     * Starts the transformation and emits the root element of the data
+     * collection.
+     * 
+     * @throws TransformerException
+     */
+    public void start() throws TransformerException {
+        try {
+            handler.startDocument();
+            handler.startElement("", DATA_ELEMENT, DATA_ELEMENT, new AttributesImpl());
+        } catch (SAXException e) {
+            throw new TransformerException(e);
+        }
+    }
+
+    /**
+     * Emits a single document.
+     * 
+     * @param document
+     * @throws JAXBException
+     */
+    public void write(ItemCollection document) throws JAXBException {
+        if (document != null) {
+            marshaller.marshal(XMLDocumentAdapter.getDocument(document), handler);
+        }
+    }
+
+    /**
+     * Closes the root element of the data collection and completes the
+     * transformation.
+     * 
+     * @throws TransformerException
+     */
+    public void finish() throws TransformerException {
+        try {
+            handler.endElement("", DATA_ELEMENT, DATA_ELEMENT);
+            handler.endDocument();
+        } catch (SAXException e) {
+            throw new TransformerException(e);
+        }
+    }
+}
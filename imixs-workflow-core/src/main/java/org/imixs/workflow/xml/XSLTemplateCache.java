@@ -0,0 +1,153 @@
+/*  
+ *  Imixs-Workflow 
+ *  
+ *  Copyright (C) 2001-2020 Imixs Software Solutions GmbH,  
+ *  http://www.imixs.com
+ *  
+ *  This program is free software; you can redistribute it and/or 
+ *  modify it under the terms of the GNU General Public License 
+ *  as published by the Free Software Foundation; either version 2 
+ *  of the License, or (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful, 
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ *  General Public License for more details.
+ *  
+ *  You can receive a copy of the GNU General Public
+ *  License at http://www.gnu.org/licenses/gpl.html
+ *  
+ *  Project: 
+ *      https://www.imixs.org
+ *      https://github.com/imixs/imixs-workflow
+ *  
+ *  Contributors:  
+ *      Imixs Software Solutions GmbH - Project Management
+ *      Ralph Soika - Software Developer
+ */
+
+package org.imixs.workflow.xml;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamSource;
+
+/**
+ * The XSLTemplateCache holds compiled XSL stylesheets (Templates). A Templates
+ * object is thread safe and can create any number of Transformer instances, so
+ * a stylesheet is compiled only once.
+ * <p>
+ * The key of a cache entry is the SHA-256 hash of the stylesheet and the
+ * encoding. A changed stylesheet results in a new key. The cache is limited to
+ * MAX_SIZE entries, the least recently used entries are removed first.
+ * <p>
+ * The cache is used by the XSLHandler, so reports, mail bodies and documents
+ * composed by an XSL template share the same compiled stylesheets.
+ * 
+ * @see XSLHandler
+ * @author imixs.com - Ralph Soika
+ * @version 1.0
+ */
+public class XSLTemplateCache {
+
+    public static final int MAX_SIZE = 100;
+
+    private static Logger logger = Logger.getLogger(XSLTemplateCache.class.getName());
+
+    @SuppressWarnings("serial")
+    private static final Map<String, Templates> cache = new LinkedHashMap<String, Templates>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Templates> eldest) {
+            return size() > MAX_SIZE;
+        }
+    };
+
+    private XSLTemplateCache() {
+    }
+
+    /**
+     * Returns the compiled Templates of a XSL stylesheet. If the stylesheet is not
+     * yet cached, it will be compiled and added into the cache.
+     * 
+     * @param xslSource - the XSL stylesheet
+     * @param encoding  - encoding of the stylesheet (default UTF-8)
+     * @return compiled Templates
+     * @throws TransformerConfigurationException if the stylesheet is invalid
+     * @throws UnsupportedEncodingException
+     */
+    public static Templates getTemplates(String xslSource, String encoding)
+            throws TransformerConfigurationException, UnsupportedEncodingException {
+        if (encoding == null || encoding.isEmpty()) {
+            encoding = "UTF-8";
+        }
+        String key = computeKey(xslSource) + ":" + encoding;
+        synchronized (cache) {
+            Templates templates = cache.get(key);
+            if (templates != null) {
+                logger.finest("......xsl templates found in cache");
+                return templates;
+            }
+        }
+        // compile outside the lock - a concurrent compile of the same stylesheet
+        // results only in a duplicate put.
+        ByteArrayInputStream baisXSL = new ByteArrayInputStream(xslSource.getBytes());
+        Source xslSrc = new StreamSource(new InputStreamReader(baisXSL, encoding));
+        Templates templates = TransformerFactory.newInstance().newTemplates(xslSrc);
+        synchronized (cache) {
+            cache.put(key, templates);
+        }
+        return templates;
+    }
+
+    /**
+     * Removes all compiled Templates of the given XSL stylesheet from the cache.
+     * 
+     * @param xslSource - the XSL stylesheet
+     */
+    public static void invalidate(String xslSource) {
+        if (xslSource == null || xslSource.isEmpty()) {
+            return;
+        }
+        String prefix = computeKey(xslSource) + ":";
+        synchronized (cache) {
+            cache.keySet().removeIf(key -> key.startsWith(prefix));
+        }
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public static void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Computes the SHA-256 hash of a stylesheet.
+     */
+    private static String computeKey(String xslSource) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(xslSource.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder();
+            for (byte b : hash) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is supported by each java platform
+            throw new IllegalStateException(e);
+        }
+    }
+}
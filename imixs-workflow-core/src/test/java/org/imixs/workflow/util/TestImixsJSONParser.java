@@ -1,9 +1,12 @@
 package org.imixs.workflow.util;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.text.ParseException;
+import java.util.ArrayList;
 import java.util.List;
 import org.imixs.workflow.ItemCollection;
 import org.junit.Test;
@@ -149,4 +152,82 @@ public class TestImixsJSONParser {
 
   }
 
+  /**
+   * test the callback parser with a collection of documents
+   * 
+   * @throws ParseException
+   */
+  @Test
+  public void testParseCallback() throws ParseException {
+    InputStream inputStream = getClass().getResourceAsStream("/json/multidocuments.json");
+    List<ItemCollection> result = new ArrayList<ItemCollection>();
+    int count = ImixsJSONParser.parse(inputStream, document -> result.add(document));
+    Assert.assertEquals(2, count);
+    Assert.assertEquals(2, result.size());
+    Assert.assertEquals("Anna", result.get(0).getItemValueString("$readaccess"));
+    Assert.assertEquals("Tom", result.get(1).getItemValueString("$readaccess"));
+
+    // invalid structure
+    count = ImixsJSONParser.parse(new ByteArrayInputStream("{\"name\":\"abc\"}".getBytes()),
+        document -> Assert.fail());
+    Assert.assertEquals(-1, count);
+  }
+
+  /**
+   * test a collection with the element 'document' as written by the JSON representation of a
+   * XMLDataCollection
+   * 
+   * @throws ParseException
+   */
+  @Test
+  public void testParseDocumentElement() throws ParseException {
+    String json = "{\"document\":[{\"item\":[{\"name\":\"txtname\",\"value\":"
+        + "{\"@type\":\"xs:string\",\"$\":\"Anna\"}}]}]}";
+    List<ItemCollection> result = new ArrayList<ItemCollection>();
+    int count = ImixsJSONParser.parse(new ByteArrayInputStream(json.getBytes()),
+        document -> result.add(document));
+    Assert.assertEquals(1, count);
+    Assert.assertEquals("Anna", result.get(0).getItemValueString("txtname"));
+
+    // empty collection
+    count = ImixsJSONParser.parse(new ByteArrayInputStream("{\"document\":[]}".getBytes()),
+        document -> Assert.fail());
+    Assert.assertEquals(0, count);
+  }
+
+  /**
+   * test writing a collection of documents with the ImixsJSONBuilder and parsing the result with
+   * the callback parser
+   * 
+   * @throws ParseException
+   * @throws IOException
+   */
+  @Test
+  public void testWriteAndParseCollection() throws ParseException, IOException {
+    List<ItemCollection> documents = new ArrayList<ItemCollection>();
+    for (int i = 0; i < 250; i++) {
+      ItemCollection document = new ItemCollection();
+      document.replaceItemValue("txtname", "document-" + i);
+      document.replaceItemValue("_amount", i);
+      documents.add(document);
+    }
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ImixsJSONBuilder.write(documents, null, out);
+
+    List<ItemCollection> result = new ArrayList<ItemCollection>();
+    int count = ImixsJSONParser.parse(new ByteArrayInputStream(out.toByteArray()),
+        document -> result.add(document));
+    Assert.assertEquals(250, count);
+    Assert.assertEquals("document-0", result.get(0).getItemValueString("txtname"));
+    Assert.assertEquals("document-249", result.get(249).getItemValueString("txtname"));
+    Assert.assertEquals(249, result.get(249).getItemValueInteger("_amount"));
+
+    // empty collection
+    out = new ByteArrayOutputStream();
+    ImixsJSONBuilder.write(new ArrayList<ItemCollection>(), null, out);
+    Assert.assertEquals("{\"data\":[]}", out.toString("UTF-8"));
+    Assert.assertEquals(0, ImixsJSONParser.parse(new ByteArrayInputStream(out.toByteArray()),
+        document -> Assert.fail()));
+  }
+
 }
@@ -1,12 +1,18 @@
 package org.imixs.workflow.util;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
+import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
 import java.util.logging.Logger;
 
+import org.imixs.workflow.FileData;
 import org.imixs.workflow.ItemCollection;
 import org.junit.Test;
 
@@ -97,4 +103,62 @@ public class TestJSONBuilder {
 
 	}
 
+	/**
+	 * Test the write method with an item list. The items are written in the order
+	 * of the item list. Special characters are escaped.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testWriteItemList() throws IOException {
+		ItemCollection workitem = new ItemCollection();
+		workitem.setItemValue("txtname", "Anna \"A\"");
+		workitem.setItemValue("count", 42);
+		workitem.setItemValue("$readaccess", "Anna");
+
+		StringWriter writer = new StringWriter();
+		ImixsJSONBuilder.write(workitem, Arrays.asList("txtname", "count", "missing"), writer);
+		Assert.assertEquals("{\"item\":[" //
+				+ "{\"name\":\"txtname\",\"value\":{\"@type\":\"xs:string\",\"$\":\"Anna \\\"A\\\"\"}}," //
+				+ "{\"name\":\"count\",\"value\":{\"@type\":\"xs:int\",\"$\":\"42\"}}," //
+				+ "{\"name\":\"missing\",\"value\":{}}" //
+				+ "]}", writer.toString());
+
+		// all items sorted by name
+		writer = new StringWriter();
+		ImixsJSONBuilder.write(workitem, null, writer);
+		Assert.assertTrue(writer.toString().startsWith("{\"item\":[{\"name\":\"$readaccess\""));
+	}
+
+	/**
+	 * Test an item $file. The file map is written as embedded items and the file
+	 * content base64 encoded, so the file data can be parsed back by the
+	 * ImixsJSONParser. Dates are written with milliseconds.
+	 * 
+	 * @throws IOException
+	 * @throws ParseException
+	 */
+	@Test
+	public void testFileData() throws IOException, ParseException {
+		ItemCollection workitem = new ItemCollection();
+		byte[] content = "Imixs-Workflow".getBytes("UTF-8");
+		workitem.addFileData(new FileData("test.txt", content, "text/plain", null));
+		workitem.setItemValue("$created", new Date(1234567890123L));
+
+		StringWriter writer = new StringWriter();
+		ImixsJSONBuilder.write(workitem, null, writer);
+		String jsonResult = writer.toString();
+		logger.info(jsonResult);
+		Assert.assertTrue(jsonResult.contains("{\"@type\":\"xs:base64Binary\",\"$\":\"SW1peHMtV29ya2Zsb3c=\"}"));
+		Assert.assertTrue(jsonResult.contains(".123"));
+
+		List<ItemCollection> result = ImixsJSONParser
+				.parse(new ByteArrayInputStream(jsonResult.getBytes(StandardCharsets.UTF_8)));
+		Assert.assertEquals(1, result.size());
+		FileData fileData = result.get(0).getFileData("test.txt");
+		Assert.assertNotNull(fileData);
+		Assert.assertEquals("text/plain", fileData.getContentType());
+		Assert.assertTrue(Arrays.equals(content, fileData.getContent()));
+	}
+
 }
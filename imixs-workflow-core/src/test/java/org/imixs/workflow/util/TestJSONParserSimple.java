@@ -31,6 +31,26 @@ public class TestJSONParserSimple {
 		Assert.assertEquals("b38b84614af36f874ba4f08dd4ea40c4e66e0a607", key);
 	}
 
+	/**
+	 * Extract values by a path. Values not part of the path are skipped.
+	 */
+	@Test
+	public void testFindValueByPath() {
+
+		String json = "{\"responseHeader\":{\"status\":0,\"params\":{\"numFound\":\"x\",\"q\":\"a\"}},"
+				+ "\"docs\":[{\"numFound\":1}],"
+				+ "\"response\":{\"numFound\":42,\"start\":0,\"docs\":[]}}";
+		Assert.assertEquals("42", JSONParser.getValue(json, "response", "numFound"));
+		Assert.assertEquals("a", JSONParser.getValue(json, "responseHeader", "params", "q"));
+		Assert.assertEquals("[]", JSONParser.getValue(json, "response", "docs"));
+		Assert.assertNull(JSONParser.getValue(json, "numFound"));
+		Assert.assertNull(JSONParser.getValue(json, "response", "numFound", "abc"));
+		Assert.assertNull(JSONParser.getValue(json, "response", "xyz"));
+		Assert.assertNull(JSONParser.getValue(null, "response"));
+		// getKey returns the first match
+		Assert.assertEquals("x", JSONParser.getKey("numFound", json));
+	}
+
 	@Test
 	public void testWorkitem() throws ParseException {
 
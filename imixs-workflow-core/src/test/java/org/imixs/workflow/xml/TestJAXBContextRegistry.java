@@ -0,0 +1,77 @@
+package org.imixs.workflow.xml;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+
+import org.imixs.workflow.ItemCollection;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test class for JAXBContextRegistry
+ * 
+ * @author rsoika
+ * 
+ */
+public class TestJAXBContextRegistry {
+
+	/**
+	 * A context is created only once
+	 */
+	@Test
+	public void testSharedContext() throws JAXBException {
+		Assert.assertSame(JAXBContextRegistry.getContext(XMLDocument.class),
+				JAXBContextRegistry.getContext(XMLDocument.class));
+		Assert.assertNotSame(JAXBContextRegistry.getContext(XMLDocument.class),
+				JAXBContextRegistry.getContext(XMLDataCollection.class));
+	}
+
+	/**
+	 * A thread gets always the same marshaller with the default properties
+	 */
+	@Test
+	public void testMarshallerPerThread() throws JAXBException, InterruptedException {
+		Marshaller marshaller = JAXBContextRegistry.getMarshaller(XMLDocument.class);
+		marshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
+		marshaller.setProperty(Marshaller.JAXB_ENCODING, "ISO-8859-1");
+
+		Marshaller other = JAXBContextRegistry.getMarshaller(XMLDocument.class);
+		Assert.assertSame(marshaller, other);
+		Assert.assertEquals(Boolean.FALSE, other.getProperty(Marshaller.JAXB_FRAGMENT));
+		Assert.assertEquals("UTF-8", other.getProperty(Marshaller.JAXB_ENCODING));
+
+		// another thread gets a different instance
+		final List<Marshaller> result = new ArrayList<Marshaller>();
+		Thread thread = new Thread() {
+			public void run() {
+				try {
+					result.add(JAXBContextRegistry.getMarshaller(XMLDocument.class));
+				} catch (JAXBException e) {
+					e.printStackTrace();
+				}
+			}
+		};
+		thread.start();
+		thread.join();
+		Assert.assertEquals(1, result.size());
+		Assert.assertNotSame(marshaller, result.get(0));
+	}
+
+	/**
+	 * Write and read a document with the registry
+	 */
+	@Test
+	public void testWriteReadItemCollection() throws Exception {
+		ItemCollection document = new ItemCollection();
+		document.replaceItemValue("txtname", "Anna");
+		document.replaceItemValue("numage", 42);
+		for (int i = 0; i < 2; i++) {
+			byte[] data = XMLDocumentAdapter.writeItemCollection(document);
+			ItemCollection result = XMLDocumentAdapter.readItemCollection(data);
+			Assert.assertEquals("Anna", result.getItemValueString("txtname"));
+			Assert.assertEquals(42, result.getItemValueInteger("numage"));
+		}
+	}
+}
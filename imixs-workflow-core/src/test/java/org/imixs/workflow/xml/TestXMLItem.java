@@ -393,6 +393,23 @@ public class TestXMLItem {
 		}
 	}
 
+	/**
+	 * Test the removal of invalid xml characters. A valid string is not copied.
+	 */
+	@Test
+	public void testInvalidXMLCharacters() {
+		XMLItem xmlItem = new XMLItem();
+		xmlItem.setName("name");
+
+		String valid = "Hello\tWorld\n\u00e4\u20ac";
+		xmlItem.setValue(new Object[] { valid, "a\u0000b\u0001c\uFFFE", "\u0007" });
+
+		Assert.assertEquals(3, xmlItem.getValue().length);
+		Assert.assertSame(valid, xmlItem.getValue()[0]);
+		Assert.assertEquals("abc", xmlItem.getValue()[1]);
+		Assert.assertEquals("", xmlItem.getValue()[2]);
+	}
+
 	/**
 	 * This helper method simpliy tries to marshal the XMLItem object. It verifies
 	 * if the object can be converted by Jaxb
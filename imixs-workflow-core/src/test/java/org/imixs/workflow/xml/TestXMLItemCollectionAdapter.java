@@ -1,5 +1,6 @@
 package org.imixs.workflow.xml;
 
+import java.io.ByteArrayInputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
@@ -44,6 +45,58 @@ public class TestXMLItemCollectionAdapter {
 		Assert.assertEquals(col2.getItemValueString("txttitel"), "Hello");
 	}
 
+	/**
+	 * Test the conversion with and without sorting items by name.
+	 */
+	@Test
+	public void testSortItems() {
+		ItemCollection itemCollection = new ItemCollection();
+		itemCollection.replaceItemValue("c", "3");
+		itemCollection.replaceItemValue("a", "1");
+		itemCollection.replaceItemValue("b", "2");
+
+		List<String> itemNames = Arrays.asList("c", "a", "b");
+		XMLDocument xmlDocument = XMLDocumentAdapter.getDocument(itemCollection, itemNames);
+		Assert.assertEquals("a", xmlDocument.getItem()[0].getName());
+		Assert.assertEquals("c", xmlDocument.getItem()[2].getName());
+
+		xmlDocument = XMLDocumentAdapter.getDocument(itemCollection, itemNames, false);
+		Assert.assertEquals("c", xmlDocument.getItem()[0].getName());
+		Assert.assertEquals("a", xmlDocument.getItem()[1].getName());
+		Assert.assertEquals("b", xmlDocument.getItem()[2].getName());
+
+		ItemCollection result = XMLDocumentAdapter.putDocument(xmlDocument);
+		Assert.assertEquals("3", result.getItemValueString("c"));
+		Assert.assertEquals("1", result.getItemValueString("a"));
+	}
+
+	/**
+	 * Test reading a collection from a stream document by document.
+	 */
+	@Test
+	public void testReadCollectionFromStream() {
+		List<ItemCollection> documents = new ArrayList<ItemCollection>();
+		for (int i = 0; i < 3; i++) {
+			ItemCollection document = new ItemCollection();
+			document.replaceItemValue("txtName", "Document " + i);
+			document.replaceItemValue("numIndex", i);
+			documents.add(document);
+		}
+
+		List<ItemCollection> result = new ArrayList<ItemCollection>();
+		try {
+			byte[] data = XMLDataCollectionAdapter.writeItemCollection(documents);
+			int count = XMLDataCollectionAdapter.readCollection(new ByteArrayInputStream(data), result::add);
+			Assert.assertEquals(3, count);
+		} catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail();
+		}
+		Assert.assertEquals(3, result.size());
+		Assert.assertEquals("Document 0", result.get(0).getItemValueString("txtName"));
+		Assert.assertEquals(2, result.get(2).getItemValueInteger("numIndex"));
+	}
+
 	/**
 	 * test convertion of date values
 	 */
@@ -0,0 +1,69 @@
+package org.imixs.workflow.xml;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.xml.bind.JAXBException;
+import javax.xml.transform.TransformerException;
+
+import org.imixs.workflow.ItemCollection;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test class for XSLStreamTransformer
+ * 
+ * @author rsoika
+ * 
+ */
+public class TestXSLStreamTransformer {
+
+	static final String XSL = "<xsl:stylesheet version=\"1.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">"
+			+ "<xsl:output method=\"text\" />"
+			+ "<xsl:template match=\"/\"><xsl:for-each select=\"/data/document\">"
+			+ "<xsl:value-of select=\"item[@name='txtname']/value\" />;"
+			+ "<xsl:value-of select=\"item[@name='numvalue']/value\" />|</xsl:for-each></xsl:template>"
+			+ "</xsl:stylesheet>";
+
+	/**
+	 * The streamed transformation must produce the same result as the
+	 * transformation of a XMLDataCollection
+	 */
+	@Test
+	public void testStreamTransformation() throws JAXBException, TransformerException, IOException {
+		List<ItemCollection> data = new ArrayList<ItemCollection>();
+		for (int i = 0; i < 3; i++) {
+			ItemCollection document = new ItemCollection();
+			document.replaceItemValue("txtname", "Document " + i);
+			document.replaceItemValue("numvalue", i);
+			data.add(document);
+		}
+
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		XSLHandler.transform(data, XSL, "UTF-8", expected);
+
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		XSLStreamTransformer transformer = new XSLStreamTransformer(XSL, "UTF-8", output);
+		transformer.start();
+		for (ItemCollection document : data) {
+			transformer.write(document);
+		}
+		transformer.finish();
+
+		Assert.assertEquals("Document 0;0|Document 1;1|Document 2;2|", expected.toString("UTF-8"));
+		Assert.assertEquals(expected.toString("UTF-8"), output.toString("UTF-8"));
+	}
+
+	/**
+	 * An empty data source results in an empty data collection
+	 */
+	@Test
+	public void testEmptyDataSource() throws JAXBException, TransformerException, IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		XSLStreamTransformer transformer = new XSLStreamTransformer(XSL, "UTF-8", output);
+		transformer.start();
+		transformer.finish();
+		Assert.assertEquals("", output.toString("UTF-8"));
+	}
+}
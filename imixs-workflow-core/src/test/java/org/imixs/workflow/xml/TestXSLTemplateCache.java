@@ -0,0 +1,67 @@
+package org.imixs.workflow.xml;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import javax.xml.bind.JAXBException;
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerException;
+
+import org.imixs.workflow.ItemCollection;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test class for XSLTemplateCache
+ * 
+ * @author rsoika
+ * 
+ */
+public class TestXSLTemplateCache {
+
+	static final String XSL = "<xsl:stylesheet version=\"1.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">"
+			+ "<xsl:output method=\"text\" />"
+			+ "<xsl:template match=\"/\"><xsl:value-of select=\"/document/item[@name='txtname']/value\" /></xsl:template>"
+			+ "</xsl:stylesheet>";
+
+	@Before
+	public void setup() {
+		XSLTemplateCache.clear();
+	}
+
+	/**
+	 * A stylesheet is compiled only once
+	 */
+	@Test
+	public void testCachedTemplates() throws TransformerException, IOException {
+		Templates templates = XSLTemplateCache.getTemplates(XSL, "UTF-8");
+		Assert.assertNotNull(templates);
+		Assert.assertSame(templates, XSLTemplateCache.getTemplates(XSL, "UTF-8"));
+		// different encoding
+		Assert.assertNotSame(templates, XSLTemplateCache.getTemplates(XSL, "ISO-8859-1"));
+	}
+
+	/**
+	 * An invalidated stylesheet is compiled again
+	 */
+	@Test
+	public void testInvalidate() throws TransformerException, IOException {
+		Templates templates = XSLTemplateCache.getTemplates(XSL, "UTF-8");
+		XSLTemplateCache.invalidate(XSL);
+		Assert.assertNotSame(templates, XSLTemplateCache.getTemplates(XSL, "UTF-8"));
+	}
+
+	/**
+	 * The XSLHandler uses the cached stylesheet
+	 */
+	@Test
+	public void testTransform() throws JAXBException, TransformerException, IOException {
+		ItemCollection document = new ItemCollection();
+		document.replaceItemValue("txtname", "Anna");
+		for (int i = 0; i < 2; i++) {
+			ByteArrayOutputStream output = new ByteArrayOutputStream();
+			XSLHandler.transform(document, XSL, "UTF-8", output);
+			Assert.assertEquals("Anna", output.toString("UTF-8"));
+		}
+	}
+}
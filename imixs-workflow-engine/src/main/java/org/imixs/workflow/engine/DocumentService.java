@@ -32,15 +32,22 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.Vector;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.annotation.Resource;
@@ -51,6 +58,7 @@ import javax.ejb.SessionContext;
 import javax.ejb.Stateless;
 import javax.ejb.TransactionAttribute;
 import javax.ejb.TransactionAttributeType;
+import javax.enterprise.concurrent.ManagedExecutorService;
 import javax.enterprise.event.Event;
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
@@ -60,11 +68,17 @@ import javax.persistence.Query;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.imixs.workflow.ItemCollection;
 import org.imixs.workflow.WorkflowKernel;
+import org.imixs.workflow.engine.backup.BackupReader;
+import org.imixs.workflow.engine.backup.BackupWriter;
 import org.imixs.workflow.engine.index.DefaultOperator;
+import org.imixs.workflow.engine.index.QueryTemplate;
+import org.imixs.workflow.engine.index.SchemaService;
 import org.imixs.workflow.engine.index.SearchService;
 import org.imixs.workflow.engine.index.SortOrder;
 import org.imixs.workflow.engine.index.UpdateService;
 import org.imixs.workflow.engine.jpa.Document;
+import org.imixs.workflow.engine.jpa.ItemDataCodec;
+import org.imixs.workflow.engine.jpa.ItemDataMap;
 import org.imixs.workflow.exceptions.AccessDeniedException;
 import org.imixs.workflow.exceptions.InvalidAccessException;
 import org.imixs.workflow.exceptions.PluginException;
@@ -155,9 +169,24 @@ public class DocumentService {
     public static final String INVALID_PARAMETER = "INVALID_PARAMETER";
     public static final String INVALID_UNIQUEID = "INVALID_UNIQUEID";
 
+    /**
+     * $uniqueid of the document written by the AdminP job 'MIGRATION' after the
+     * meta columns of all documents are updated.
+     */
+    public static final String METACOLUMNS_MIGRATION_ID = "metacolumns-migration";
+
+    private static volatile boolean metaColumnsMigrated = false;
+
+    private static final int BACKUP_BLOCK_SIZE = 500;
+    private static final int RESTORE_BLOCK_SIZE = 100;
+    private static final int RESTORE_PARTITION_SIZE = 25;
+
     @Resource
     SessionContext ctx;
 
+    @Resource
+    private ManagedExecutorService managedExecutorService;
+
     @Resource(name = "ACCESS_ROLES")
     private String accessRoles = "";
 
@@ -165,7 +194,7 @@ public class DocumentService {
     private Boolean disableOptimisticLocking = false;
 
     @PersistenceContext(unitName = "org.imixs.workflow.jpa")
-    private EntityManager manager;
+    EntityManager manager;
 
     @Inject
     private UpdateService indexUpdateService;
@@ -174,7 +203,7 @@ public class DocumentService {
     private SearchService indexSearchService;
 
     @Inject
-    private EventLogService eventLogService;
+    EventLogService eventLogService;
 
     @Inject
     protected Event<DocumentEvent> documentEvents;
@@ -186,6 +215,43 @@ public class DocumentService {
     @ConfigProperty(name = "index.defaultOperator", defaultValue = "AND")
     private String indexDefaultOperator;
 
+    @Inject
+    @ConfigProperty(name = "document.metacolumns.enabled", defaultValue = "false")
+    private boolean metaColumnsEnabled;
+
+    @Inject
+    @ConfigProperty(name = "index.skipunchanged", defaultValue = "false")
+    boolean skipUnchangedIndex;
+
+    @Inject
+    SchemaService schemaService;
+
+    /**
+     * Returns true if the promoted meta columns of the Document entity can be used
+     * to select documents. The meta columns are updated on each save. Existing
+     * documents are updated by the AdminP job 'MIGRATION'. The meta columns are
+     * only used if the property 'document.metacolumns.enabled' is set and the job
+     * was completed. Otherwise documents not yet migrated would be missing in the
+     * result.
+     * 
+     * @see org.imixs.workflow.engine.jpa.Document
+     * @see org.imixs.workflow.engine.adminp.JobHandlerMigrateData
+     * @return true if the meta columns are enabled
+     */
+    public boolean isMetaColumnsEnabled() {
+        if (!metaColumnsEnabled) {
+            return false;
+        }
+        if (!metaColumnsMigrated) {
+            // the job writes a marker document after all documents are migrated
+            metaColumnsMigrated = manager.find(Document.class, METACOLUMNS_MIGRATION_ID) != null;
+            if (!metaColumnsMigrated) {
+                logger.fine("...meta columns not yet migrated - documents are selected by the search index");
+            }
+        }
+        return metaColumnsMigrated;
+    }
+
     /**
      * Returns a comma separated list of additional Access-Roles defined for this
      * service
@@ -466,6 +532,8 @@ public class DocumentService {
         // finally update the data field by cloning the map object (deep copy)
         ItemCollection clone = (ItemCollection) document.clone();
         persistedDocument.setData(clone.getAllItems());
+        // update the promoted meta columns
+        persistedDocument.updateMetaColumns(clone.getAllItems());
 
         /*
          * Issue #220
@@ -490,9 +558,17 @@ public class DocumentService {
 
         // add/update document into lucene index
         if (!document.getItemValueBoolean(NOINDEX)) {
-            addDocumentToIndex(document);
+            String fingerprint = computeIndexFingerprint(document);
+            if (fingerprint == null || !fingerprint.equals(persistedDocument.getIndexFingerprint())) {
+                addDocumentToIndex(document);
+                // the fingerprint is only updated together with the event log entry
+                persistedDocument.setIndexFingerprint(fingerprint);
+            } else {
+                logger.finest("......index items of '" + document.getUniqueID() + "' unchanged - skip index update");
+            }
         } else {
             // remove from index
+            persistedDocument.setIndexFingerprint(null);
             removeDocumentFromIndex(document.getUniqueID());
         }
 
@@ -511,6 +587,25 @@ public class DocumentService {
         return document;
     }
 
+    /**
+     * Returns the fingerprint of the index schema items of a document. If the
+     * fingerprint did not change since the document was indexed last time, the
+     * index update can be skipped.
+     * <p>
+     * The fingerprint is only computed if the property 'index.skipunchanged' is
+     * true. Otherwise the method returns null.
+     * 
+     * @see SchemaService#computeFingerprint(ItemCollection)
+     * @param document - the document to be indexed
+     * @return fingerprint or null
+     */
+    private String computeIndexFingerprint(ItemCollection document) {
+        if (!skipUnchangedIndex) {
+            return null;
+        }
+        return schemaService.computeFingerprint(document);
+    }
+
     /**
      * This method adds a single document into the to the Lucene index. Before the
      * document is added to the index, a new eventLog is created. The document will
@@ -600,6 +695,54 @@ public class DocumentService {
      * 
      */
     public ItemCollection load(String id) {
+        return load(id, null);
+    }
+
+    /**
+     * This method loads a projection of an ItemCollection from the Database. Only
+     * the given items are copied into the returned ItemCollection. The item
+     * $uniqueid and the metadata items are always part of the result.
+     * <p>
+     * The item values of a document stored in the compact item data format are
+     * decoded on demand. So only the requested items are decoded and copied,
+     * which is much faster than loading the full document for large documents.
+     * <p>
+     * The method checks the read access in the same way as the method load(id).
+     * 
+     * @param id        - the $uniqueid of the ItemCollection to be loaded
+     * @param itemNames - list of items to be loaded. If null or empty the full
+     *                  document is loaded.
+     * @return ItemCollection object or null if the Document dose not exist or the
+     *         CallerPrincipal hat insufficient read access.
+     * @see #load(String)
+     */
+    public ItemCollection load(String id, Collection<String> itemNames) {
+        return load(id, itemNames, null);
+    }
+
+    /**
+     * This method loads a projection of an ItemCollection containing only the
+     * given files of the item $file. The content of all other files attached to
+     * the document is not decoded. The item $uniqueid and the metadata items are
+     * always part of the result.
+     * <p>
+     * The method checks the read access in the same way as the method load(id).
+     * 
+     * @param id        - the $uniqueid of the ItemCollection to be loaded
+     * @param fileNames - list of file names to be loaded
+     * @return ItemCollection object or null if the Document dose not exist or the
+     *         CallerPrincipal hat insufficient read access.
+     * @see #load(String, Collection)
+     */
+    public ItemCollection loadFileData(String id, Collection<String> fileNames) {
+        return load(id, Collections.singletonList("$file"), fileNames);
+    }
+
+    /**
+     * Loads a document or a projection of a document. If a list of file names is
+     * given, only those files of the item $file are copied into the projection.
+     */
+    private ItemCollection load(String id, Collection<String> itemNames, Collection<String> fileNames) {
         boolean debug = logger.isLoggable(Level.FINE);
         long lLoadTime = System.currentTimeMillis();
         Document persistedDocument = null;
@@ -613,7 +756,12 @@ public class DocumentService {
         if (persistedDocument != null && isCallerReader(persistedDocument)) {
 
             ItemCollection result = null;// new ItemCollection();
-            if (persistedDocument.isPending()) {
+            if (itemNames != null && !itemNames.isEmpty()) {
+                result = createProjection(persistedDocument, itemNames, fileNames);
+                if (!persistedDocument.isPending()) {
+                    manager.detach(persistedDocument);
+                }
+            } else if (persistedDocument.isPending()) {
                 // we clone but do not detach
                 if (debug) {
                     logger.finest(
@@ -729,6 +877,39 @@ public class DocumentService {
         return indexSearchService.getTotalHits(sSearchTerm, maxResult, null);
     }
 
+    /**
+     * Returns the version of the search index. The event log is flushed before, so
+     * the version reflects all documents saved before. The version changes each
+     * time the index is updated and can be used to validate cached search results.
+     * 
+     * @see SearchService#getIndexVersion()
+     * @return version of the search index or -1 if not available
+     */
+    public long getIndexVersion() {
+        indexUpdateService.updateIndex();
+        return indexSearchService.getIndexVersion();
+    }
+
+    /**
+     * Returns the facet counts of a list of fields for a given search query. For
+     * each field the method returns the values and the number of documents
+     * containing the value. All counts are computed in one search. The method
+     * counts only documents which are accessible by the CallerPrincipal.
+     * 
+     * @see SearchService#getFacets(String, List, int, DefaultOperator)
+     * 
+     * @param searchTerm
+     * @param fieldNames - list of facet fields
+     * @param maxValues  - max number of values per field
+     * @return map of field names and their value counts, ordered by count
+     * @throws QueryException in case the searchterm is not understandable.
+     */
+    public Map<String, Map<String, Integer>> getFacets(String searchTerm, List<String> fieldNames, int maxValues)
+            throws QueryException {
+        indexUpdateService.updateIndex();
+        return indexSearchService.getFacets(searchTerm, fieldNames, maxValues, null);
+    }
+
     /**
      * Returns the total pages for a given search term and a given page size.
      * 
@@ -876,6 +1057,56 @@ public class DocumentService {
 
     }
 
+    /**
+     * The method returns a sorted list of ItemCollections matching the given
+     * QueryTemplate. In difference to the method find(String...) the query is
+     * build directly from the template without parsing a search term.
+     * <p>
+     * The method returns only ItemCollections which are readable by the
+     * CallerPrincipal.
+     * 
+     * @param template    - query template
+     * @param pageSize    - total docs per page
+     * @param pageIndex   - number of page to start (default = 0)
+     * @param sortBy      -optional field to sort the result
+     * @param sortReverse - optional sort direction
+     * @return list of ItemCollection elements
+     * @throws QueryException
+     * 
+     * @see org.imixs.workflow.engine.index.QueryTemplate
+     */
+    public List<ItemCollection> find(QueryTemplate template, int pageSize, int pageIndex, String sortBy,
+            boolean sortReverse) throws QueryException {
+        return findByTemplate(template, pageSize, pageIndex, sortBy, sortReverse, false);
+    }
+
+    /**
+     * The method returns a sorted list of Document Stubs matching the given
+     * QueryTemplate.
+     * 
+     * @see #find(QueryTemplate, int, int, String, boolean)
+     * @see #findStubs(String, int, int, String, boolean)
+     */
+    public List<ItemCollection> findStubs(QueryTemplate template, int pageSize, int pageIndex, String sortBy,
+            boolean sortReverse) throws QueryException {
+        return findByTemplate(template, pageSize, pageIndex, sortBy, sortReverse, true);
+    }
+
+    private List<ItemCollection> findByTemplate(QueryTemplate template, int pageSize, int pageIndex, String sortBy,
+            boolean sortReverse, boolean loadStubs) throws QueryException {
+        if (logger.isLoggable(Level.FINE)) {
+            logger.finest("......find - QueryTemplate=" + template + "  , pageSize=" + pageSize + " pageNumber="
+                    + pageIndex + " , sortBy=" + sortBy + " reverse=" + sortReverse);
+        }
+        SortOrder sortOrder = null;
+        if (sortBy != null && !sortBy.isEmpty()) {
+            sortOrder = new SortOrder(sortBy, sortReverse);
+        }
+        // flush eventlog (see issue #411)
+        indexUpdateService.updateIndex();
+        return indexSearchService.search(template, pageSize, pageIndex, sortOrder, loadStubs);
+    }
+
     /**
      * The method returns a collection of ItemCollections referred by a $uniqueid.
      * <p>
@@ -951,9 +1182,58 @@ public class DocumentService {
      * 
      */
     public List<ItemCollection> getDocumentsByQuery(String query, int firstResult, int maxResult) {
+        return getDocumentsByQuery(query, firstResult, maxResult, null);
+    }
+
+    /**
+     * Returns all documents of by JPQL statement. The result contains only a
+     * projection of the given items.
+     * 
+     * @param query       - JPQL statement
+     * @param firstResult - index of the first result
+     * @param maxResult   - maximum result set
+     * @param itemNames   - list of items to be loaded. If null or empty the full
+     *                    documents are loaded.
+     * @return list of ItemCollections
+     * @see #load(String, Collection)
+     */
+    public List<ItemCollection> getDocumentsByQuery(String query, int firstResult, int maxResult,
+            Collection<String> itemNames) {
+        return getDocumentsByQuery(query, null, firstResult, maxResult, itemNames);
+    }
+
+    /**
+     * Returns all documents of by JPQL statement with named parameters. The method
+     * can be used to select documents by the promoted meta columns of the Document
+     * entity without the search index.
+     * <p>
+     * Example:
+     * 
+     * <pre>
+     * {@code
+     * SELECT document FROM Document AS document WHERE document.taskId = :taskid
+     * }
+     * </pre>
+     * 
+     * @param query       - JPQL statement
+     * @param parameters  - named parameters of the query, can be null
+     * @param firstResult - index of the first result
+     * @param maxResult   - maximum result set
+     * @param itemNames   - list of items to be loaded. If null or empty the full
+     *                    documents are loaded.
+     * @return list of ItemCollections
+     * @see org.imixs.workflow.engine.jpa.Document
+     */
+    public List<ItemCollection> getDocumentsByQuery(String query, Map<String, Object> parameters, int firstResult,
+            int maxResult, Collection<String> itemNames) {
         boolean debug = logger.isLoggable(Level.FINE);
         List<ItemCollection> result = new ArrayList<ItemCollection>();
         Query q = manager.createQuery(query);
+        if (parameters != null) {
+            for (Map.Entry<String, Object> parameter : parameters.entrySet()) {
+                q.setParameter(parameter.getKey(), parameter.getValue());
+            }
+        }
 
         // setMaxResults ?
         if (maxResult > 0) {
@@ -978,26 +1258,7 @@ public class DocumentService {
         // filter result set by read access
         for (Document doc : documentList) {
             if (isCallerReader(doc)) {
-
-                ItemCollection _tmp = null;
-
-                if (doc.isPending()) {
-                    // we clone but do not detach
-                    if (debug) {
-                        logger.finest(
-                                "......clone manged entity '" + doc.getId() + "' pending status=" + doc.isPending());
-                    }
-                    _tmp = new ItemCollection(doc.getData());
-                } else {
-                    // the document is not managed, so we detach it
-                    _tmp = new ItemCollection();
-                    _tmp.setAllItems(doc.getData());
-                    manager.detach(doc);
-                }
-
-                updateMetaData(_tmp, doc);
-
-                result.add(_tmp);
+                result.add(createItemCollection(doc, itemNames));
             }
         }
         if (debug) {
@@ -1007,12 +1268,135 @@ public class DocumentService {
         return result;
     }
 
+    /**
+     * Returns a page of documents selected by a JPQL statement with named
+     * parameters. In difference to the method getDocumentsByQuery the page is
+     * computed on the documents the caller has read access for. The database
+     * does not know the read access of a document, so the documents are read
+     * block by block until the page is complete.
+     * 
+     * @param query      - JPQL statement
+     * @param parameters - named parameters of the query, can be null
+     * @param pageSize   - page size
+     * @param pageIndex  - page index
+     * @param itemNames  - list of items to be loaded. If null or empty the full
+     *                   documents are loaded.
+     * @return list of ItemCollections
+     * @see #getDocumentsByQuery(String, Map, int, int, Collection)
+     */
+    public List<ItemCollection> getDocumentPageByQuery(String query, Map<String, Object> parameters, int pageSize,
+            int pageIndex, Collection<String> itemNames) {
+        if (pageSize <= 0 || ctx.isCallerInRole(ACCESSLEVEL_MANAGERACCESS)) {
+            // all documents are readable
+            return getDocumentsByQuery(query, parameters, pageSize > 0 ? pageIndex * pageSize : 0, pageSize,
+                    itemNames);
+        }
+        List<ItemCollection> result = new ArrayList<ItemCollection>();
+        if (ctx.isCallerInRole(ACCESSLEVEL_NOACCESS)) {
+            return result;
+        }
+        Query q = manager.createQuery(query);
+        if (parameters != null) {
+            for (Map.Entry<String, Object> parameter : parameters.entrySet()) {
+                q.setParameter(parameter.getKey(), parameter.getValue());
+            }
+        }
+        q.setMaxResults(pageSize);
+        int skip = pageIndex * pageSize;
+        int position = 0;
+        while (result.size() < pageSize) {
+            q.setFirstResult(position);
+            @SuppressWarnings("unchecked")
+            List<Document> documentList = q.getResultList();
+            for (Document doc : documentList) {
+                if (result.size() < pageSize && isCallerReader(doc) && skip-- <= 0) {
+                    result.add(createItemCollection(doc, itemNames));
+                } else if (!doc.isPending()) {
+                    manager.detach(doc);
+                }
+            }
+            if (documentList.size() < pageSize) {
+                break;
+            }
+            position += pageSize;
+        }
+        return result;
+    }
+
+    /**
+     * This method creates a backup of all documents stored in the database. The
+     * documents are read directly from the document table ordered by their id
+     * (keyset pagination) and written in a compressed backup format. Data already
+     * stored in the compact item data format is copied without decoding.
+     * <p>
+     * Documents the caller has no read access for are skipped.
+     * 
+     * @see BackupWriter
+     * @param filePath - target file
+     * @throws IOException
+     */
+    @SuppressWarnings("unchecked")
+    public void backup(String filePath) throws IOException {
+        logger.info("backup - starting...");
+        logger.info("backup - target=" + filePath);
+        if (filePath == null || filePath.isEmpty()) {
+            logger.severe("Invalid FilePath!");
+            return;
+        }
+        boolean isManager = ctx.isCallerInRole(ACCESSLEVEL_MANAGERACCESS);
+        long l = System.currentTimeMillis();
+        long skipped = 0;
+        String lastID = "";
+        try (BackupWriter writer = new BackupWriter(new FileOutputStream(filePath))) {
+            while (true) {
+                Query q = manager.createNativeQuery("SELECT ID, DATA FROM DOCUMENT WHERE ID > ?1 ORDER BY ID");
+                q.setParameter(1, lastID);
+                q.setMaxResults(BACKUP_BLOCK_SIZE);
+                List<Object[]> rows = q.getResultList();
+                if (rows.isEmpty()) {
+                    break;
+                }
+                for (Object[] row : rows) {
+                    lastID = (String) row[0];
+                    byte[] data = ItemDataCodec.readLob(row[1]);
+                    if (data == null) {
+                        continue;
+                    }
+                    Map<String, List<Object>> items = null;
+                    if (ItemDataCodec.isLegacyFormat(data)) {
+                        items = ItemDataCodec.decode(data);
+                        data = ItemDataCodec.encode(items);
+                    }
+                    if (!isManager) {
+                        // verify read access
+                        Document document = new Document(lastID);
+                        document.setData(items != null ? items : new ItemDataMap(data));
+                        if (!isCallerReader(document)) {
+                            skipped++;
+                            continue;
+                        }
+                    }
+                    writer.write(data);
+                }
+                logger.info("backup - processing...... " + writer.getCount() + " documents written in "
+                        + (System.currentTimeMillis() - l) + "ms....");
+            }
+            writer.finish();
+            logger.info("backup - finished: " + writer.getCount() + " documents written, " + skipped
+                    + " documents skipped in " + (System.currentTimeMillis() - l) + "ms");
+        }
+    }
+
     /**
      * This method creates a backup of the result set form a Lucene search query.
      * The document list will be stored into the file system. The method stores the
      * Map from the ItemCollection to be independent from version upgrades. To
      * manage large dataSets the method reads the documents in smaller blocks
+     * <p>
+     * To backup all documents the method backup(filePath) should be used which
+     * reads the document table directly.
      * 
+     * @see #backup(String)
      * @param entities
      * @throws IOException
      * @throws QueryException
@@ -1020,9 +1404,7 @@ public class DocumentService {
     public void backup(String query, String filePath) throws IOException, QueryException {
         boolean hasMoreData = true;
         int JUNK_SIZE = 100;
-        long totalcount = 0;
         int pageIndex = 0;
-        int icount = 0;
 
         logger.info("backup - starting...");
         logger.info("backup - query=" + query);
@@ -1033,44 +1415,231 @@ public class DocumentService {
             return;
         }
 
-        FileOutputStream fos = new FileOutputStream(filePath);
-        ObjectOutputStream out = new ObjectOutputStream(fos);
-        while (hasMoreData) {
-            // read a junk....
-
-            Collection<ItemCollection> col = find(query, JUNK_SIZE, pageIndex);
-            totalcount = totalcount + col.size();
-            logger.info("backup - processing...... " + col.size() + " documents read....");
+        try (BackupWriter writer = new BackupWriter(new FileOutputStream(filePath))) {
+            while (hasMoreData) {
+                // read a junk....
+                Collection<ItemCollection> col = find(query, JUNK_SIZE, pageIndex);
+                logger.info("backup - processing...... " + col.size() + " documents read....");
 
-            if (col.size() < JUNK_SIZE) {
-                hasMoreData = false;
-                logger.finest("......all data read.");
-            } else {
-                pageIndex++;
-                logger.finest("......next page...");
-            }
+                if (col.size() < JUNK_SIZE) {
+                    hasMoreData = false;
+                    logger.finest("......all data read.");
+                } else {
+                    pageIndex++;
+                    logger.finest("......next page...");
+                }
 
-            for (ItemCollection aworkitem : col) {
-                // get serialized data
-                Map<?, ?> hmap = aworkitem.getAllItems();
-                // write object
-                out.writeObject(hmap);
-                icount++;
+                for (ItemCollection aworkitem : col) {
+                    writer.write(aworkitem.getAllItems());
+                }
             }
+            writer.finish();
+            logger.info("backup - finished: " + writer.getCount() + " documents read totaly.");
         }
-        out.close();
-        logger.info("backup - finished: " + icount + " documents read totaly.");
     }
 
     /**
      * This method restores a backup from the file system and imports the Documents
      * into the database.
+     * <p>
+     * The records of the backup are saved in blocks of 100 documents, each block
+     * in a new transaction. The records of a block are decoded in parallel by the
+     * ManagedExecutorService of the container. If a block fails, the
+     * documents of this block are saved one by one to isolate the invalid
+     * document. Records with a checksum error are skipped.
+     * <p>
+     * Backups written in the legacy java serialization format are still
+     * supported.
      * 
      * @param filepath
      * @throws IOException
      */
-    @SuppressWarnings({ "rawtypes", "unchecked" })
     public void restore(String filePath) throws IOException {
+        byte[] header = new byte[2];
+        try (FileInputStream fis = new FileInputStream(filePath)) {
+            if (fis.read(header) < header.length) {
+                header = null;
+            }
+        }
+        if (!BackupReader.isBackupFormat(header)) {
+            restoreLegacy(filePath);
+            return;
+        }
+
+        logger.info("...starting restore form file " + filePath + "...");
+        AtomicLong errorCount = new AtomicLong();
+        long totalcount = 0;
+        long l = System.currentTimeMillis();
+        DocumentService service = ctx.getBusinessObject(DocumentService.class);
+        try (BackupReader reader = new BackupReader(new FileInputStream(filePath))) {
+            List<byte[]> block = new ArrayList<byte[]>(RESTORE_BLOCK_SIZE);
+            boolean hasMoreData = true;
+            while (hasMoreData) {
+                try {
+                    byte[] data = reader.read();
+                    if (data == null) {
+                        hasMoreData = false;
+                    } else {
+                        block.add(data);
+                    }
+                } catch (BackupReader.CorruptedRecordException e) {
+                    errorCount.incrementAndGet();
+                    logger.warning("...error importing workitem at position " + reader.getCount() + " Error: "
+                            + e.getMessage());
+                }
+                if (block.size() >= RESTORE_BLOCK_SIZE || (!hasMoreData && !block.isEmpty())) {
+                    List<ItemCollection> documents = decodeBlock(block, errorCount);
+                    block.clear();
+
+                    totalcount += restoreBlock(service, documents, errorCount);
+                    long time = System.currentTimeMillis() - l;
+                    logger.info("...restored " + totalcount + " documents in " + time + "ms ("
+                            + (time > 0 ? (totalcount * 1000 / time) : totalcount) + " documents/sec, "
+                            + errorCount.get() + " errors)....");
+                }
+            }
+        }
+
+        String loginfo = "Import successfull! " + totalcount + " Entities imported. " + errorCount.get()
+                + " Errors.  Import FileName:" + filePath;
+        logger.info(loginfo);
+    }
+
+    /**
+     * Decodes a block of backup records. The block is split into partitions. The
+     * first partition is decoded by the calling thread, the others by the
+     * ManagedExecutorService of the container. Without an executor all records
+     * are decoded by the calling thread. The order of the records is preserved.
+     * 
+     * @param block      - encoded backup records
+     * @param errorCount - counter for records which can not be decoded
+     * @return list of decoded documents
+     */
+    private List<ItemCollection> decodeBlock(List<byte[]> block, AtomicLong errorCount) {
+        int partitionSize = managedExecutorService == null ? block.size()
+                : Math.max(RESTORE_PARTITION_SIZE,
+                        (block.size() + Runtime.getRuntime().availableProcessors() - 1)
+                                / Runtime.getRuntime().availableProcessors());
+        List<Future<List<ItemCollection>>> futures = new ArrayList<Future<List<ItemCollection>>>();
+        for (int i = partitionSize; i < block.size(); i += partitionSize) {
+            final List<byte[]> partition = block.subList(i, Math.min(i + partitionSize, block.size()));
+            futures.add(managedExecutorService.submit(() -> decodePartition(partition, errorCount)));
+        }
+        List<ItemCollection> documents = new ArrayList<ItemCollection>(block.size());
+        documents.addAll(decodePartition(block.subList(0, Math.min(partitionSize, block.size())), errorCount));
+        // collect the partitions in the order of the backup
+        for (Future<List<ItemCollection>> future : futures) {
+            try {
+                documents.addAll(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InvalidAccessException(INVALID_PARAMETER, "restore interrupted", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new InvalidAccessException(INVALID_PARAMETER, "error decoding backup block", e);
+            }
+        }
+        return documents;
+    }
+
+    /**
+     * Decodes a partition of backup records. Records which can not be decoded are
+     * skipped.
+     */
+    private List<ItemCollection> decodePartition(List<byte[]> partition, AtomicLong errorCount) {
+        List<ItemCollection> documents = new ArrayList<ItemCollection>(partition.size());
+        for (byte[] data : partition) {
+            try {
+                ItemCollection document = new ItemCollection();
+                document.setAllItems(ItemDataCodec.decode(data));
+                // remove the $version property!
+                document.removeItem(VERSION);
+                documents.add(document);
+            } catch (InvalidAccessException e) {
+                errorCount.incrementAndGet();
+                logger.warning("...error decoding workitem: " + e.getMessage());
+            }
+        }
+        return documents;
+    }
+
+    /**
+     * Saves a list of documents in one single new transaction.
+     * 
+     * @param documents
+     * @throws AccessDeniedException
+     */
+    @TransactionAttribute(value = TransactionAttributeType.REQUIRES_NEW)
+    public void saveAllByNewTransaction(List<ItemCollection> documents) throws AccessDeniedException {
+        for (ItemCollection document : documents) {
+            save(document);
+        }
+    }
+
+    /**
+     * Imports a block of documents. The documents are saved in one new
+     * transaction. If the transaction fails, the documents are saved one by one
+     * in separate transactions so that only invalid documents are skipped.
+     * <p>
+     * Existing documents with the same $uniqueid are replaced. The $version of
+     * the imported documents is ignored.
+     * <p>
+     * The method is used for bulk imports where documents are processed in blocks
+     * as they arrive.
+     * 
+     * @param documents - block of documents to be imported
+     * @return number of imported documents
+     */
+    public long importDocuments(List<ItemCollection> documents) {
+        for (ItemCollection document : documents) {
+            document.removeItem(VERSION);
+        }
+        AtomicLong errorCount = new AtomicLong();
+        long count = restoreBlock(ctx.getBusinessObject(DocumentService.class), documents, errorCount);
+        if (errorCount.get() > 0) {
+            logger.warning("..." + errorCount.get() + " documents of " + documents.size() + " not imported!");
+        }
+        return count;
+    }
+
+    /**
+     * Saves a block of documents in a new transaction. If the transaction fails,
+     * the documents are saved one by one.
+     * 
+     * @return number of saved documents
+     */
+    private long restoreBlock(DocumentService service, List<ItemCollection> documents, AtomicLong errorCount) {
+        try {
+            service.saveAllByNewTransaction(documents);
+            return documents.size();
+        } catch (RuntimeException e) {
+            logger.warning("...restore block failed - saving documents one by one: " + e.getMessage());
+        }
+        long count = 0;
+        for (ItemCollection document : documents) {
+            try {
+                service.saveByNewTransaction(document);
+                count++;
+            } catch (RuntimeException e) {
+                errorCount.incrementAndGet();
+                logger.warning("...error importing workitem '" + document.getUniqueID() + "' Error: "
+                        + e.getMessage());
+            }
+        }
+        return count;
+    }
+
+    /**
+     * This method restores a backup written in the legacy java serialization
+     * format.
+     * 
+     * @param filepath
+     * @throws IOException
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private void restoreLegacy(String filePath) throws IOException {
         int JUNK_SIZE = 100;
         long totalcount = 0;
         long errorCount = 0;
@@ -1120,6 +1689,37 @@ public class DocumentService {
         logger.info(loginfo);
     }
 
+    /**
+     * Returns a Predicate to verify if the caller has write access to a list of
+     * ItemCollections. The access level and the user name list of the caller are
+     * resolved only once. The predicate can be used to compute the $isauthor flag
+     * of a search result.
+     * 
+     * @see #isAuthor(ItemCollection)
+     * @return author check
+     */
+    @SuppressWarnings("unchecked")
+    public Predicate<ItemCollection> createAuthorCheck() {
+        if (ctx.isCallerInRole(ACCESSLEVEL_NOACCESS)) {
+            return itemcol -> false;
+        }
+        if (ctx.isCallerInRole(ACCESSLEVEL_MANAGERACCESS) || ctx.isCallerInRole(ACCESSLEVEL_EDITORACCESS)) {
+            return itemcol -> true;
+        }
+        if (!ctx.isCallerInRole(ACCESSLEVEL_AUTHORACCESS)) {
+            return itemcol -> false;
+        }
+        final Set<String> userNames = new HashSet<String>(getUserNameList());
+        return itemcol -> {
+            for (String aName : (List<String>) itemcol.getItemValue(WRITEACCESS)) {
+                if (aName != null && !aName.isEmpty() && userNames.contains(aName)) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+
     /**
      * Verifies if the caller has write access to the current ItemCollection
      * 
@@ -1189,6 +1789,90 @@ public class DocumentService {
         itemColection.replaceItemValue(ISAUTHOR, isCallerAuthor(doc));
     }
 
+    /**
+     * Creates a new ItemCollection from a document entity selected by a query. If
+     * the document is not pending, the entity is detached.
+     * 
+     * @param doc       - document entity
+     * @param itemNames - optional list of items to be loaded
+     * @return new ItemCollection
+     */
+    private ItemCollection createItemCollection(Document doc, Collection<String> itemNames) {
+        ItemCollection result = null;
+        if (itemNames != null && !itemNames.isEmpty()) {
+            result = createProjection(doc, itemNames, null);
+            if (!doc.isPending()) {
+                manager.detach(doc);
+            }
+        } else if (doc.isPending()) {
+            // we clone but do not detach
+            if (logger.isLoggable(Level.FINE)) {
+                logger.finest("......clone manged entity '" + doc.getId() + "' pending status=" + doc.isPending());
+            }
+            result = new ItemCollection(doc.getData());
+        } else {
+            // the document is not managed, so we detach it
+            result = new ItemCollection();
+            result.setAllItems(doc.getData());
+            manager.detach(doc);
+        }
+        updateMetaData(result, doc);
+        return result;
+    }
+
+    /**
+     * Creates a new ItemCollection containing a copy of the given items of a
+     * document entity. The item $uniqueid is always copied. If a list of file
+     * names is given, only those files of the item $file are copied.
+     * 
+     * @param doc       - document entity
+     * @param itemNames - list of item names
+     * @param fileNames - optional list of file names
+     * @return new ItemCollection
+     */
+    private ItemCollection createProjection(Document doc, Collection<String> itemNames,
+            Collection<String> fileNames) {
+        List<String> names = new ArrayList<String>();
+        names.add(WorkflowKernel.UNIQUEID);
+        for (String itemName : itemNames) {
+            if (itemName != null && !itemName.trim().isEmpty()) {
+                names.add(itemName.toLowerCase().trim());
+            }
+        }
+        ItemCollection result = new ItemCollection();
+        Map<String, List<Object>> data = doc.getData();
+        if (fileNames != null) {
+            names.remove("$file");
+        }
+        if (data instanceof ItemDataMap) {
+            // decode only the requested items
+            result.setAllItems(((ItemDataMap) data).copyOf(names));
+            if (fileNames != null) {
+                // decode only the requested files
+                List<Object> files = ((ItemDataMap) data).copyOf("$file", fileNames);
+                if (files != null) {
+                    result.replaceItemValue("$file", files);
+                }
+            }
+        } else {
+            Map<String, List<Object>> items = new Hashtable<String, List<Object>>();
+            for (String name : names) {
+                List<Object> value = data.get(name);
+                if (value != null) {
+                    items.put(name, value);
+                }
+            }
+            result.replaceAllItems(items);
+            if (fileNames != null) {
+                ItemCollection document = ItemCollection.createByReference(data);
+                for (String fileName : fileNames) {
+                    result.addFileData(document.getFileData(fileName));
+                }
+            }
+        }
+        return result;
+    }
+
     /**
      * This method checks if the Caller Principal has read access for the document.
      * 
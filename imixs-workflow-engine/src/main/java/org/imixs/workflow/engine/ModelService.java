@@ -33,6 +33,7 @@ import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -54,6 +55,7 @@ import org.imixs.workflow.ModelManager;
 import org.imixs.workflow.WorkflowKernel;
 import org.imixs.workflow.bpmn.BPMNModel;
 import org.imixs.workflow.bpmn.BPMNParser;
+import org.imixs.workflow.engine.attachments.AttachmentService;
 import org.imixs.workflow.exceptions.AccessDeniedException;
 import org.imixs.workflow.exceptions.InvalidAccessException;
 import org.imixs.workflow.exceptions.ModelException;
@@ -88,9 +90,12 @@ import org.imixs.workflow.exceptions.ModelException;
 public class ModelService implements ModelManager {
 
     private Map<String, Model> modelStore = null;
+    private Map<String, Long> modelTimestamps = new HashMap<String, Long>();
     private static Logger logger = Logger.getLogger(ModelService.class.getName());
     @Inject
     private DocumentService documentService;
+    @Inject
+    private AttachmentService attachmentService;
     @Resource
     private SessionContext ctx;
 
@@ -122,6 +127,10 @@ public class ModelService implements ModelManager {
                     logger.finest("......loading file:" + file.getName());
                 }
                 byte[] rawData = file.getContent();
+                if (attachmentService != null) {
+                    // the model file may be stored in the attachment store
+                    rawData = attachmentService.loadContent(file);
+                }
                 InputStream bpmnInputStream = new ByteArrayInputStream(rawData);
                 try {
                     Model model = BPMNParser.parseModel(bpmnInputStream, "UTF-8");
@@ -162,6 +171,7 @@ public class ModelService implements ModelManager {
         }
         logger.info("⟳ updated model version: '" + model.getVersion() + "'");
         getModelStore().put(modelVersion, model);
+        modelTimestamps.put(modelVersion, System.currentTimeMillis());
     }
 
     /**
@@ -175,11 +185,27 @@ public class ModelService implements ModelManager {
     public void removeModel(String modelversion) {
         boolean debug = logger.isLoggable(Level.FINE);
         getModelStore().remove(modelversion);
+        modelTimestamps.remove(modelversion);
         if (debug) {
             logger.finest("......removed BPMNModel '" + modelversion + "'...");
         }
     }
 
+    /**
+     * Returns the time a model version was added into the internal model store.
+     * The timestamp changes each time the model is updated and can be used to
+     * validate cached model data. The method returns 0 if the model version does
+     * not exist.
+     * 
+     * @param version - model version
+     * @return timestamp in milliseconds or 0
+     */
+    public long getModelTimestamp(String version) {
+        getModelStore();
+        Long timestamp = modelTimestamps.get(version);
+        return timestamp != null ? timestamp : 0;
+    }
+
     /**
      * Returns a Model by version. In case no matching model version exits, the
      * method throws a ModelException.
@@ -62,6 +62,7 @@ import org.imixs.workflow.exceptions.PluginException;
 import org.imixs.workflow.exceptions.QueryException;
 import org.imixs.workflow.util.XMLParser;
 import org.imixs.workflow.xml.XSLHandler;
+import org.imixs.workflow.xml.XSLTemplateCache;
 
 /**
  * The ReportService supports methods to create, process and find report
@@ -168,13 +169,28 @@ public class ReportService {
             ItemCollection oldReport = findReport(sReportName);
             if (oldReport != null) {
                 // old Report exists allready
+                invalidateTemplates(oldReport);
                 aReport = updateReport(aReport, oldReport);
             }
+        } else {
+            invalidateTemplates(documentService.load(sUniqueID));
         }
 
         documentService.save(aReport);
     }
 
+    /**
+     * Removes the compiled XSL templates of a stored report from the
+     * XSLTemplateCache.
+     * 
+     * @param report - the stored report, can be null
+     */
+    private void invalidateTemplates(ItemCollection report) {
+        if (report != null) {
+            XSLTemplateCache.invalidate(report.getItemValueString("xsl").trim());
+        }
+    }
+
     /**
      * Returns the data source defined by a report.
      * <p>
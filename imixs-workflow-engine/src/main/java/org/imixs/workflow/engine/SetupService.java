@@ -48,7 +48,6 @@ import javax.ejb.Startup;
 import javax.ejb.Timer;
 import javax.enterprise.event.Event;
 import javax.inject.Inject;
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Unmarshaller;
 import javax.xml.parsers.ParserConfigurationException;
@@ -62,6 +61,7 @@ import org.imixs.workflow.exceptions.AccessDeniedException;
 import org.imixs.workflow.exceptions.InvalidAccessException;
 import org.imixs.workflow.exceptions.ModelException;
 import org.imixs.workflow.exceptions.QueryException;
+import org.imixs.workflow.xml.JAXBContextRegistry;
 import org.imixs.workflow.xml.XMLDataCollection;
 import org.imixs.workflow.xml.XMLDocument;
 import org.imixs.workflow.xml.XMLDocumentAdapter;
@@ -289,13 +289,11 @@ public class SetupService {
             XMLDataCollection ecol = null;
             logger.fine("importXmlEntityData - importModel, verifing file content....");
 
-            JAXBContext context;
             Object jaxbObject = null;
             // unmarshall the model file
             ByteArrayInputStream input = new ByteArrayInputStream(filestream);
             try {
-                context = JAXBContext.newInstance(XMLDataCollection.class);
-                Unmarshaller m = context.createUnmarshaller();
+                Unmarshaller m = JAXBContextRegistry.getUnmarshaller(XMLDataCollection.class);
                 jaxbObject = m.unmarshal(input);
             } catch (JAXBException e) {
                 throw new ModelException(ModelException.INVALID_MODEL,
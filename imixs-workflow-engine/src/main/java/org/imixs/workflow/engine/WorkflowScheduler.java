@@ -33,7 +33,9 @@ import java.util.Calendar;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Vector;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -440,16 +442,29 @@ public class WorkflowScheduler implements Scheduler {
         // test if we have a custom selector
         searchTerm = event.getItemValueString("txtscheduledview");
 
-        if (searchTerm.isEmpty()) {
-            // build the default selector....
-            // searchTerm = "($taskid:\"" + taskID + "\" AND $modelversion:\"" +
-            // modelVersionEvent + "\")";
-            // we are build the default selector based on workflowgroup (see isseu #482)....
-            searchTerm = "($taskid:\"" + taskID + "\" AND $workflowgroup:\"" + workflowGroup + "\")";
+        Collection<ItemCollection> worklist = null;
+        if (searchTerm.isEmpty() && documentService.isMetaColumnsEnabled()) {
+            // select the workitems by the meta columns - no need to flush the index
+            Map<String, Object> params = new HashMap<String, Object>();
+            params.put("taskid", taskID);
+            params.put("group", workflowGroup);
+            schedulerService.logMessage("...selector = $taskid:" + taskID + " $workflowgroup:" + workflowGroup
+                    + " (meta columns) ...", configItemCollection, null);
+            String query = "SELECT document FROM Document AS document"
+                    + " WHERE document.taskId = :taskid AND document.workflowGroup = :group"
+                    + " ORDER BY document.modified";
+            worklist = documentService.getDocumentsByQuery(query, params, 0, 1000, null);
+        } else {
+            if (searchTerm.isEmpty()) {
+                // build the default selector....
+                // searchTerm = "($taskid:\"" + taskID + "\" AND $modelversion:\"" +
+                // modelVersionEvent + "\")";
+                // we are build the default selector based on workflowgroup (see isseu #482)....
+                searchTerm = "($taskid:\"" + taskID + "\" AND $workflowgroup:\"" + workflowGroup + "\")";
+            }
+            schedulerService.logMessage("...selector = " + searchTerm + " ...", configItemCollection, null);
+            worklist = documentService.find(searchTerm, 1000, 0);
         }
-
-        schedulerService.logMessage("...selector = " + searchTerm + " ...", configItemCollection, null);
-        Collection<ItemCollection> worklist = documentService.find(searchTerm, 1000, 0);
         logger.finest("......" + worklist.size() + " workitems found");
         for (ItemCollection workitem : worklist) {
 
@@ -62,8 +62,11 @@ import org.imixs.workflow.Plugin;
 import org.imixs.workflow.WorkflowContext;
 import org.imixs.workflow.WorkflowKernel;
 import org.imixs.workflow.WorkflowManager;
+import org.imixs.workflow.engine.index.QueryTemplate;
+import org.imixs.workflow.engine.index.SchemaService;
 import org.imixs.workflow.engine.plugins.ResultPlugin;
 import org.imixs.workflow.exceptions.AccessDeniedException;
+import org.imixs.workflow.exceptions.ImixsExceptionHandler;
 import org.imixs.workflow.exceptions.InvalidAccessException;
 import org.imixs.workflow.exceptions.ModelException;
 import org.imixs.workflow.exceptions.PluginException;
@@ -124,6 +127,9 @@ public class WorkflowService implements WorkflowManager, WorkflowContext {
     @Inject
     ReportService reportService;
 
+    @Inject
+    SchemaService schemaService;
+
     @Resource
     SessionContext ctx;
 
@@ -160,21 +166,41 @@ public class WorkflowService implements WorkflowManager, WorkflowContext {
      * @return List of workitems
      * 
      */
-    public List<ItemCollection> getWorkListByOwner(String name, String type, int pageSize, int pageIndex, String sortBy,
-            boolean sortReverse) {
+    public List<ItemCollection> getWorkListByOwner(String name, String type, int pageSize, int pageIndex,
+            String sortBy, boolean sortReverse) {
+        return getWorkListByOwner(name, type, pageSize, pageIndex, sortBy, sortReverse, null);
+    }
+
+    /**
+     * Returns the worklist as document stubs if the given item list is covered by
+     * the items stored in the search index.
+     * 
+     * @see #getWorkListByOwner(String, String, int, int, String, boolean)
+     * @param items - optional list of items to be returned
+     * @return List of workitems
+     */
+    public List<ItemCollection> getWorkListByOwner(String name, String type, int pageSize, int pageIndex,
+            String sortBy, boolean sortReverse, List<String> items) {
 
         if (name == null || "".equals(name))
             name = ctx.getCallerPrincipal().getName();
 
-        String searchTerm = "(";
-        if (type != null && !"".equals(type)) {
-            searchTerm += " type:\"" + type + "\" AND ";
+        QueryTemplate template = createWorkListTemplate(type);
+
+        if (documentService.isMetaColumnsEnabled()) {
+            Map<String, Object> params = new HashMap<String, Object>();
+            params.put("owner", name);
+            List<ItemCollection> result = findByMetaColumns(":owner MEMBER OF document.owners", params, type,
+                    pageSize, pageIndex, sortBy, sortReverse);
+            if (result != null) {
+                return result;
+            }
         }
 
         // support deprecated namowner field
-        searchTerm += " (namowner:\"" + name + "\" OR owner:\"" + name + "\") )";
+        template.addTerm(name, "namowner", "owner");
         try {
-            return documentService.find(searchTerm, pageSize, pageIndex, sortBy, sortReverse);
+            return findWorkList(template, pageSize, pageIndex, sortBy, sortReverse, items);
         } catch (QueryException e) {
             logger.severe("getWorkListByOwner - invalid param: " + e.getMessage());
             return null;
@@ -202,18 +228,27 @@ public class WorkflowService implements WorkflowManager, WorkflowContext {
      */
     public List<ItemCollection> getWorkListByAuthor(String name, String type, int pageSize, int pageIndex,
             String sortBy, boolean sortReverse) {
+        return getWorkListByAuthor(name, type, pageSize, pageIndex, sortBy, sortReverse, null);
+    }
+
+    /**
+     * Returns the worklist as document stubs if the given item list is covered by
+     * the items stored in the search index.
+     * 
+     * @see #getWorkListByAuthor(String, String, int, int, String, boolean)
+     * @param items - optional list of items to be returned
+     * @return List of workitems
+     */
+    public List<ItemCollection> getWorkListByAuthor(String name, String type, int pageSize, int pageIndex,
+            String sortBy, boolean sortReverse, List<String> items) {
 
         if (name == null || "".equals(name))
             name = ctx.getCallerPrincipal().getName();
 
-        String searchTerm = "(";
-        if (type != null && !"".equals(type)) {
-            searchTerm += " type:\"" + type + "\" AND ";
-        }
-        searchTerm += " $writeaccess:\"" + name + "\" )";
-
+        QueryTemplate template = createWorkListTemplate(type);
+        template.addTerm(name, "$writeaccess");
         try {
-            return documentService.find(searchTerm, pageSize, pageIndex, sortBy, sortReverse);
+            return findWorkList(template, pageSize, pageIndex, sortBy, sortReverse, items);
         } catch (QueryException e) {
             logger.severe("getWorkListByAuthor - invalid param: " + e.getMessage());
             return null;
@@ -239,17 +274,27 @@ public class WorkflowService implements WorkflowManager, WorkflowContext {
      */
     public List<ItemCollection> getWorkListByCreator(String name, String type, int pageSize, int pageIndex,
             String sortBy, boolean sortReverse) {
+        return getWorkListByCreator(name, type, pageSize, pageIndex, sortBy, sortReverse, null);
+    }
+
+    /**
+     * Returns the worklist as document stubs if the given item list is covered by
+     * the items stored in the search index.
+     * 
+     * @see #getWorkListByCreator(String, String, int, int, String, boolean)
+     * @param items - optional list of items to be returned
+     * @return List of workitems
+     */
+    public List<ItemCollection> getWorkListByCreator(String name, String type, int pageSize, int pageIndex,
+            String sortBy, boolean sortReverse, List<String> items) {
 
         if (name == null || "".equals(name))
             name = ctx.getCallerPrincipal().getName();
 
-        String searchTerm = "(";
-        if (type != null && !"".equals(type)) {
-            searchTerm += " type:\"" + type + "\" AND ";
-        }
-        searchTerm += " $creator:\"" + name + "\" )";
+        QueryTemplate template = createWorkListTemplate(type);
+        template.addTerm(name, "$creator");
         try {
-            return documentService.find(searchTerm, pageSize, pageIndex, sortBy, sortReverse);
+            return findWorkList(template, pageSize, pageIndex, sortBy, sortReverse, items);
         } catch (QueryException e) {
             logger.severe("getWorkListByCreator - invalid param: " + e.getMessage());
             return null;
@@ -326,17 +371,37 @@ public class WorkflowService implements WorkflowManager, WorkflowContext {
      * @return
      */
 
-    public List<ItemCollection> getWorkListByGroup(String name, String type, int pageSize, int pageIndex, String sortBy,
-            boolean sortReverse) {
+    public List<ItemCollection> getWorkListByGroup(String name, String type, int pageSize, int pageIndex,
+            String sortBy, boolean sortReverse) {
+        return getWorkListByGroup(name, type, pageSize, pageIndex, sortBy, sortReverse, null);
+    }
 
-        String searchTerm = "(";
-        if (type != null && !"".equals(type)) {
-            searchTerm += " type:\"" + type + "\" AND ";
+    /**
+     * Returns the worklist as document stubs if the given item list is covered by
+     * the items stored in the search index.
+     * 
+     * @see #getWorkListByGroup(String, String, int, int, String, boolean)
+     * @param items - optional list of items to be returned
+     * @return List of workitems
+     */
+    public List<ItemCollection> getWorkListByGroup(String name, String type, int pageSize, int pageIndex,
+            String sortBy, boolean sortReverse, List<String> items) {
+
+        QueryTemplate template = createWorkListTemplate(type);
+        if (documentService.isMetaColumnsEnabled()) {
+            Map<String, Object> params = new HashMap<String, Object>();
+            params.put("group", name);
+            List<ItemCollection> result = findByMetaColumns("document.workflowGroup = :group", params, type,
+                    pageSize, pageIndex, sortBy, sortReverse);
+            if (result != null) {
+                return result;
+            }
         }
+
         // we support still the deprecated txtworkflowgroup
-        searchTerm += " ($workflowgroup:\"" + name + "\" OR txtworkflowgroup:\"" + name + "\") )";
+        template.addTerm(name, "$workflowgroup", "txtworkflowgroup");
         try {
-            return documentService.find(searchTerm, pageSize, pageIndex, sortBy, sortReverse);
+            return findWorkList(template, pageSize, pageIndex, sortBy, sortReverse, items);
         } catch (QueryException e) {
             logger.severe("getWorkListByGroup - invalid param: " + e.getMessage());
             return null;
@@ -358,17 +423,37 @@ public class WorkflowService implements WorkflowManager, WorkflowContext {
      * @return List of workitems
      * 
      */
-    public List<ItemCollection> getWorkListByProcessID(int aid, String type, int pageSize, int pageIndex, String sortBy,
-            boolean sortReverse) {
+    public List<ItemCollection> getWorkListByProcessID(int aid, String type, int pageSize, int pageIndex,
+            String sortBy, boolean sortReverse) {
+        return getWorkListByProcessID(aid, type, pageSize, pageIndex, sortBy, sortReverse, null);
+    }
 
-        String searchTerm = "(";
-        if (type != null && !"".equals(type)) {
-            searchTerm += " type:\"" + type + "\" AND ";
+    /**
+     * Returns the worklist as document stubs if the given item list is covered by
+     * the items stored in the search index.
+     * 
+     * @see #getWorkListByProcessID(int, String, int, int, String, boolean)
+     * @param items - optional list of items to be returned
+     * @return List of workitems
+     */
+    public List<ItemCollection> getWorkListByProcessID(int aid, String type, int pageSize, int pageIndex,
+            String sortBy, boolean sortReverse, List<String> items) {
+
+        QueryTemplate template = createWorkListTemplate(type);
+        if (documentService.isMetaColumnsEnabled()) {
+            Map<String, Object> params = new HashMap<String, Object>();
+            params.put("taskid", aid);
+            List<ItemCollection> result = findByMetaColumns("document.taskId = :taskid", params, type, pageSize,
+                    pageIndex, sortBy, sortReverse);
+            if (result != null) {
+                return result;
+            }
         }
+
         // need to be fixed during slow migration issue #384
-        searchTerm += " $processid:\"" + aid + "\" )";
+        template.addTerm(String.valueOf(aid), "$processid");
         try {
-            return documentService.find(searchTerm, pageSize, pageIndex, sortBy, sortReverse);
+            return findWorkList(template, pageSize, pageIndex, sortBy, sortReverse, items);
         } catch (QueryException e) {
             logger.severe("getWorkListByProcessID - invalid param: " + e.getMessage());
             return null;
@@ -391,16 +476,35 @@ public class WorkflowService implements WorkflowManager, WorkflowContext {
      * 
      * @return List of workitems
      */
-    public List<ItemCollection> getWorkListByRef(String aref, String type, int pageSize, int pageIndex, String sortBy,
-            boolean sortReverse) {
+    public List<ItemCollection> getWorkListByRef(String aref, String type, int pageSize, int pageIndex,
+            String sortBy, boolean sortReverse) {
+        return getWorkListByRef(aref, type, pageSize, pageIndex, sortBy, sortReverse, null);
+    }
 
-        String searchTerm = "(";
-        if (type != null && !"".equals(type)) {
-            searchTerm += " type:\"" + type + "\" AND ";
+    /**
+     * Returns the worklist as document stubs if the given item list is covered by
+     * the items stored in the search index.
+     * 
+     * @see #getWorkListByRef(String, String, int, int, String, boolean)
+     * @param items - optional list of items to be returned
+     * @return List of workitems
+     */
+    public List<ItemCollection> getWorkListByRef(String aref, String type, int pageSize, int pageIndex,
+            String sortBy, boolean sortReverse, List<String> items) {
+
+        QueryTemplate template = createWorkListTemplate(type);
+        if (documentService.isMetaColumnsEnabled()) {
+            Map<String, Object> params = new HashMap<String, Object>();
+            params.put("ref", aref);
+            List<ItemCollection> result = findByMetaColumns(":ref MEMBER OF document.uniqueIdRefs", params, type,
+                    pageSize, pageIndex, sortBy, sortReverse);
+            if (result != null) {
+                return result;
+            }
         }
-        searchTerm += " $uniqueidref:\"" + aref + "\" )";
+        template.addTerm(aref, "$uniqueidref");
         try {
-            return documentService.find(searchTerm, pageSize, pageIndex, sortBy, sortReverse);
+            return findWorkList(template, pageSize, pageIndex, sortBy, sortReverse, items);
         } catch (QueryException e) {
             logger.severe("getWorkListByRef - invalid param: " + e.getMessage());
             return null;
@@ -417,6 +521,70 @@ public class WorkflowService implements WorkflowManager, WorkflowContext {
         return getWorkListByRef(aref, null, 0, 0, null, false);
     }
 
+    /**
+     * Finds the workitems of a worklist. If all items of the given item list are
+     * stored in the search index, the method returns document stubs without
+     * loading the documents from the database.
+     * 
+     * @see SchemaService#isStoredItemList(List)
+     */
+    private List<ItemCollection> findWorkList(QueryTemplate template, int pageSize, int pageIndex, String sortBy,
+            boolean sortReverse, List<String> items) throws QueryException {
+        if (items != null && schemaService.isStoredItemList(items)) {
+            return documentService.findStubs(template, pageSize, pageIndex, sortBy, sortReverse);
+        }
+        return documentService.find(template, pageSize, pageIndex, sortBy, sortReverse);
+    }
+
+    /**
+     * Creates a QueryTemplate for a worklist restricted to the given type.
+     * 
+     * @param type - optional document type
+     * @return query template
+     */
+    private QueryTemplate createWorkListTemplate(String type) {
+        QueryTemplate template = new QueryTemplate();
+        if (type != null && !"".equals(type)) {
+            template.addTerm(type, "type");
+        }
+        return template;
+    }
+
+    /**
+     * Selects workitems by the promoted meta columns of the Document entity using
+     * a JPQL query instead of the search index. The result is sorted by $modified
+     * or $created. If no sort order or a different sort order is requested the
+     * method returns null and the caller should fall back to the search index. So
+     * the default order of a worklist does not depend on the selection.
+     * 
+     * @param condition   - JPQL condition on the document entity
+     * @param params      - named query parameters
+     * @param type        - optional type
+     * @param pageSize    - page size
+     * @param pageIndex   - page index
+     * @param sortBy      - optional sort item ($modified or $created)
+     * @param sortReverse - sort direction
+     * @return List of workitems or null if the sort order is not supported
+     */
+    private List<ItemCollection> findByMetaColumns(String condition, Map<String, Object> params, String type,
+            int pageSize, int pageIndex, String sortBy, boolean sortReverse) {
+        String orderBy = null;
+        if ("$modified".equalsIgnoreCase(sortBy)) {
+            orderBy = "document.modified" + (sortReverse ? " DESC" : " ASC");
+        } else if ("$created".equalsIgnoreCase(sortBy)) {
+            orderBy = "document.created" + (sortReverse ? " DESC" : " ASC");
+        } else {
+            return null;
+        }
+        String query = "SELECT document FROM Document AS document WHERE " + condition;
+        if (type != null && !"".equals(type)) {
+            query += " AND document.type = :type";
+            params.put("type", type);
+        }
+        query += " ORDER BY " + orderBy;
+        return documentService.getDocumentPageByQuery(query, params, pageSize, pageIndex, null);
+    }
+
     /**
      * This returns a list of workflow events assigned to a given workitem. The
      * method evaluates the events for the current $modelversion and $taskid. The
@@ -707,6 +875,70 @@ public class WorkflowService implements WorkflowManager, WorkflowContext {
         return processWorkItem(workitem);
     }
 
+    /**
+     * This method processes a list of workitems in one new transaction. If the
+     * processing of one workitem fails, the complete transaction is rolled back.
+     * 
+     * @param workitems - the workItems to be processed
+     * @return list of the processed workItems
+     * @throws ModelException
+     * @throws PluginException
+     * @throws ProcessingErrorException
+     * @throws AccessDeniedException
+     */
+    @TransactionAttribute(value = TransactionAttributeType.REQUIRES_NEW)
+    public List<ItemCollection> processWorkItemsByNewTransaction(List<ItemCollection> workitems)
+            throws AccessDeniedException, ProcessingErrorException, PluginException, ModelException {
+        List<ItemCollection> result = new ArrayList<ItemCollection>(workitems.size());
+        for (ItemCollection workitem : workitems) {
+            try {
+                result.add(processWorkItem(workitem));
+            } catch (ModelException e) {
+                // a checked exception does not mark the transaction for rollback
+                ctx.setRollbackOnly();
+                throw e;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * This method processes a block of workitems. The workitems are processed in
+     * one new transaction. If the transaction fails, the workitems are processed
+     * one by one in separate transactions so that only the invalid workitems are
+     * rejected.
+     * <p>
+     * The given workitems are not changed by the processing, except for workitems
+     * which could not be processed. These workitems are returned with the items
+     * '$error_code' and '$error_message'.
+     * 
+     * @param workitems - block of workitems to be processed
+     * @return list of the processed workitems or the rejected workitems in the
+     *         order of the given list
+     */
+    public List<ItemCollection> processWorkItems(List<ItemCollection> workitems) {
+        WorkflowService service = ctx.getBusinessObject(WorkflowService.class);
+        List<ItemCollection> block = new ArrayList<ItemCollection>(workitems.size());
+        for (ItemCollection workitem : workitems) {
+            block.add(new ItemCollection(workitem));
+        }
+        try {
+            return service.processWorkItemsByNewTransaction(block);
+        } catch (PluginException | ModelException | RuntimeException e) {
+            logger.warning("...processing block failed - processing workitems one by one: " + e.getMessage());
+        }
+        List<ItemCollection> result = new ArrayList<ItemCollection>(workitems.size());
+        for (ItemCollection workitem : workitems) {
+            try {
+                result.add(service.processWorkItemByNewTransaction(new ItemCollection(workitem)));
+            } catch (PluginException | ModelException | RuntimeException e) {
+                logger.warning("...processing workitem '" + workitem.getUniqueID() + "' failed: " + e.getMessage());
+                result.add(ImixsExceptionHandler.addErrorMessage(e, workitem));
+            }
+        }
+        return result;
+    }
+
     public void removeWorkItem(ItemCollection aworkitem) throws AccessDeniedException {
         documentService.remove(aworkitem);
     }
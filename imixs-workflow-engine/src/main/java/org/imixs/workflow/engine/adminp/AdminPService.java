@@ -107,6 +107,9 @@ public class AdminPService {
     @Inject
     JobHandlerRebuildIndex jobHandlerRebuildIndex;
 
+    @Inject
+    JobHandlerMigrateData jobHandlerMigrateData;
+
     @Inject
     @Any
     private Instance<JobHandler> jobHandlers;
@@ -236,6 +239,10 @@ public class AdminPService {
                 jobHandler = jobHandlerRebuildIndex;
             }
 
+            if (job.equals(JOB_MIGRATION)) {
+                jobHandler = jobHandlerMigrateData;
+            }
+
             if (jobHandler == null) {
                 // try to find the jobHandler by CDI .....
                 jobHandler = findJobHandlerByName(job);
@@ -0,0 +1,249 @@
+/*  
+ *  Imixs-Workflow 
+ *  
+ *  Copyright (C) 2001-2020 Imixs Software Solutions GmbH,  
+ *  http://www.imixs.com
+ *  
+ *  This program is free software; you can redistribute it and/or 
+ *  modify it under the terms of the GNU General Public License 
+ *  as published by the Free Software Foundation; either version 2 
+ *  of the License, or (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful, 
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ *  General Public License for more details.
+ *  
+ *  You can receive a copy of the GNU General Public
+ *  License at http://www.gnu.org/licenses/gpl.html
+ *  
+ *  Project: 
+ *      https://www.imixs.org
+ *      https://github.com/imixs/imixs-workflow
+ *  
+ *  Contributors:  
+ *      Imixs Software Solutions GmbH - Project Management
+ *      Ralph Soika - Software Developer
+ */
+
+package org.imixs.workflow.engine.adminp;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+import javax.annotation.security.DeclareRoles;
+import javax.annotation.security.RunAs;
+import javax.ejb.LocalBean;
+import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.imixs.workflow.ItemCollection;
+import org.imixs.workflow.WorkflowKernel;
+import org.imixs.workflow.engine.DocumentService;
+import org.imixs.workflow.engine.jpa.Document;
+import org.imixs.workflow.engine.jpa.ItemDataCodec;
+import org.imixs.workflow.engine.jpa.ItemDataMap;
+
+/**
+ * JobHandler to migrate the data of all Document entities from the legacy java
+ * serialization format into the compact item data format. In addition the job
+ * updates the promoted meta columns of each document.
+ * <p>
+ * The job reads the raw data of the document table in blocks ordered by the
+ * document id. Only rows still written in the legacy format are converted. The
+ * row is updated by a native statement so that the version and the
+ * modification timestamp of the document are not touched. If a document was
+ * updated concurrently, the row is skipped because it was already written in
+ * the new format by the DocumentService.
+ * <p>
+ * The block size and the timeout of one run are defined by the properties
+ * 'migration.block_size' and 'migration.time_out'. The job is suspended after
+ * the timeout and continued with the next timer event. After all documents are
+ * migrated, the job writes a marker document. From then on the meta columns are
+ * used to select worklists.
+ *
+ * @see org.imixs.workflow.engine.jpa.ItemDataConverter
+ * @author rsoika
+ *
+ */
+@DeclareRoles({ "org.imixs.ACCESSLEVEL.MANAGERACCESS" })
+@Stateless
+@RunAs("org.imixs.ACCESSLEVEL.MANAGERACCESS")
+@LocalBean
+public class JobHandlerMigrateData implements JobHandler {
+
+    private static final String BLOCK_SIZE_DEFAULT = "100";
+    private static final String TIMEOUT_DEFAULT = "120";
+
+    public final static String ITEM_LASTID = "_lastid";
+
+    @Inject
+    @ConfigProperty(name = "migration.block_size", defaultValue = BLOCK_SIZE_DEFAULT)
+    int block_size;
+
+    @Inject
+    @ConfigProperty(name = "migration.time_out", defaultValue = TIMEOUT_DEFAULT)
+    int time_out;
+
+    @PersistenceContext(unitName = "org.imixs.workflow.jpa")
+    private EntityManager manager;
+
+    private static Logger logger = Logger.getLogger(JobHandlerMigrateData.class.getName());
+
+    /**
+     * This method runs the data migration. The job starts with the lowest document
+     * id and reads the documents in blocks. The last processed id is stored in the
+     * job description in the item '_lastid'.
+     * <p>
+     * After the run method is finished, the properties numUpdates and numProcessed
+     * are updated.
+     *
+     * @param adminp
+     * @return updated job description
+     */
+    @Override
+    @TransactionAttribute(value = TransactionAttributeType.REQUIRES_NEW)
+    public ItemCollection run(ItemCollection adminp) throws AdminPException {
+        long lProfiler = System.currentTimeMillis();
+        String lastID = adminp.getItemValueString(ITEM_LASTID);
+        int totalCount = adminp.getItemValueInteger("numProcessed");
+        int updateCount = adminp.getItemValueInteger("numUpdates");
+
+        logger.info("...Job " + AdminPService.JOB_MIGRATION + " (" + adminp.getUniqueID() + ") - block_size="
+                + block_size + " time_out=" + time_out);
+
+        try {
+            while (true) {
+                List<Object[]> rows = findNextRows(lastID);
+                if (rows.isEmpty()) {
+                    break;
+                }
+                for (Object[] row : rows) {
+                    lastID = (String) row[0];
+                    byte[] data = ItemDataCodec.readLob(row[1]);
+                    if (data != null) {
+                        updateCount += migrate(lastID, row[2], data);
+                    }
+                    totalCount++;
+                }
+
+                // suspend job?
+                long time = (System.currentTimeMillis() - lProfiler) / 1000;
+                if (time > time_out) {
+                    logger.info("...Job " + AdminPService.JOB_MIGRATION + " (" + adminp.getUniqueID()
+                            + ") - suspended: " + totalCount + " documents processed, " + updateCount
+                            + " documents migrated in " + time + " sec. ");
+                    adminp.replaceItemValue(ITEM_LASTID, lastID);
+                    adminp.replaceItemValue(JobHandler.ISCOMPLETED, false);
+                    adminp.replaceItemValue("numUpdates", updateCount);
+                    adminp.replaceItemValue("numProcessed", totalCount);
+                    return adminp;
+                }
+            }
+        } catch (IOException e) {
+            throw new AdminPException(AdminPException.INVALID_PARAMS,
+                    "data migration failed at document '" + lastID + "': " + e.getMessage(), e);
+        }
+
+        long time = (System.currentTimeMillis() - lProfiler) / 1000;
+        logger.info("...Job " + AdminPService.JOB_MIGRATION + " (" + adminp.getUniqueID() + ") - Finished: "
+                + totalCount + " documents processed, " + updateCount + " documents migrated in " + time + " sec. ");
+
+        writeMigrationMarker();
+        adminp.replaceItemValue(ITEM_LASTID, lastID);
+        adminp.replaceItemValue(JobHandler.ISCOMPLETED, true);
+        adminp.replaceItemValue("numUpdates", updateCount);
+        adminp.replaceItemValue("numProcessed", totalCount);
+        return adminp;
+    }
+
+    /**
+     * Migrates a single row. Legacy data is converted into the item data format.
+     * The meta columns are updated in any case.
+     * 
+     * @return 1 if the row was updated, 0 if the row was changed concurrently
+     */
+    private int migrate(String id, Object version, byte[] data) {
+        Map<String, List<Object>> items = null;
+        boolean legacy = ItemDataCodec.isLegacyFormat(data);
+        if (legacy) {
+            items = ItemDataCodec.decode(data);
+        } else {
+            // decode only the meta items
+            items = new ItemDataMap(data);
+        }
+        Document meta = new Document(id);
+        meta.updateMetaColumns(items);
+
+        Query update = manager.createNativeQuery("UPDATE DOCUMENT SET DATA = ?1, TASKID = ?2, WORKFLOWGROUP = ?3,"
+                + " MODELVERSION = ?4 WHERE ID = ?5 AND VERSION = ?6");
+        update.setParameter(1, legacy ? ItemDataCodec.encode(items) : data);
+        update.setParameter(2, meta.getTaskId());
+        update.setParameter(3, meta.getWorkflowGroup());
+        update.setParameter(4, meta.getModelVersion());
+        update.setParameter(5, id);
+        update.setParameter(6, version);
+        if (update.executeUpdate() == 0) {
+            return 0;
+        }
+        updateSideTable("DOCUMENT_REF", "REF", id, meta.getUniqueIdRefs());
+        updateSideTable("DOCUMENT_OWNER", "OWNER", id, meta.getOwners());
+        return 1;
+    }
+
+    /**
+     * Writes the document marking the completed migration. The DocumentService
+     * uses the meta columns only if this document exists.
+     * 
+     * @see DocumentService#isMetaColumnsEnabled()
+     */
+    private void writeMigrationMarker() {
+        if (manager.find(Document.class, DocumentService.METACOLUMNS_MIGRATION_ID) != null) {
+            return;
+        }
+        ItemCollection marker = new ItemCollection();
+        marker.replaceItemValue(WorkflowKernel.UNIQUEID, DocumentService.METACOLUMNS_MIGRATION_ID);
+        marker.replaceItemValue("type", "configuration");
+        marker.replaceItemValue("job", AdminPService.JOB_MIGRATION);
+        Document document = new Document(DocumentService.METACOLUMNS_MIGRATION_ID);
+        document.setType("configuration");
+        document.setData(marker.getAllItems());
+        manager.persist(document);
+    }
+
+    /**
+     * Replaces the values of a side table of the Document entity.
+     */
+    private void updateSideTable(String table, String column, String id, Set<String> values) {
+        Query delete = manager.createNativeQuery("DELETE FROM " + table + " WHERE DOCUMENT_ID = ?1");
+        delete.setParameter(1, id);
+        delete.executeUpdate();
+        for (String value : values) {
+            Query insert = manager
+                    .createNativeQuery("INSERT INTO " + table + " (DOCUMENT_ID, " + column + ") VALUES (?1, ?2)");
+            insert.setParameter(1, id);
+            insert.setParameter(2, value);
+            insert.executeUpdate();
+        }
+    }
+
+    /**
+     * Returns the next block of raw document rows (id, data, version) following the
+     * given id.
+     */
+    @SuppressWarnings("unchecked")
+    private List<Object[]> findNextRows(String lastID) {
+        Query q = manager.createNativeQuery("SELECT ID, DATA, VERSION FROM DOCUMENT WHERE ID > ?1 ORDER BY ID");
+        q.setParameter(1, lastID);
+        q.setMaxResults(block_size);
+        return q.getResultList();
+    }
+
+}
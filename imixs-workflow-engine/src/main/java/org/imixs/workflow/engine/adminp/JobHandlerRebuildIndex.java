@@ -31,6 +31,7 @@ package org.imixs.workflow.engine.adminp;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
 import java.util.logging.Logger;
@@ -44,6 +45,7 @@ import javax.inject.Inject;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.Query;
+import javax.persistence.TemporalType;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.imixs.workflow.ItemCollection;
 import org.imixs.workflow.engine.index.UpdateService;
@@ -56,6 +58,19 @@ import org.imixs.workflow.exceptions.PluginException;
  * JobHandler to rebuild the lucene fulltext index.
  * 
  * The job starts at 1970/01/01 and reads documents in sequence.
+ * <p>
+ * If the job item 'numpartitions' or the property 'lucene.rebuild.partitions'
+ * is greater than 1, the documents are split into partitions by their creation
+ * date. The job reads the next block of each partition and updates the index
+ * with all blocks in one step. The progress of each partition is stored in the
+ * job description, so a suspended or failed job continues with the last
+ * syncpoint of each partition.
+ * <p>
+ * If the job item 'shadowindex' or the property 'lucene.rebuild.shadow' is
+ * true, the index is rebuilt into a shadow index. The current index is still
+ * used for searching until the job is completed. Documents modified since the
+ * start of the job are indexed again before the shadow index becomes the
+ * current index.
  * 
  * @author rsoika
  *
@@ -68,6 +83,8 @@ public class JobHandlerRebuildIndex implements JobHandler {
 
     private static final String BLOCK_SIZE_DEFAULT = "500";
     private static final String TIMEOUT_DEFAULT = "120";
+    private static final String PARTITIONS_DEFAULT = "1";
+    private static final String SHADOW_DEFAULT = "false";
 
     @Inject
     @ConfigProperty(name = "lucene.rebuild.block_size", defaultValue = BLOCK_SIZE_DEFAULT)
@@ -77,10 +94,24 @@ public class JobHandlerRebuildIndex implements JobHandler {
     @ConfigProperty(name = "lucene.rebuild.time_out", defaultValue = TIMEOUT_DEFAULT)
     int time_out;
 
+    @Inject
+    @ConfigProperty(name = "lucene.rebuild.partitions", defaultValue = PARTITIONS_DEFAULT)
+    int partitions;
+
+    @Inject
+    @ConfigProperty(name = "lucene.rebuild.shadow", defaultValue = SHADOW_DEFAULT)
+    boolean shadow;
+
     private static final int READ_AHEAD = 32;
     public final static String ITEM_SYNCPOINT = "syncpoint";
     public final static String ITEM_SYNCDATE = "syncdate";
     public static final String SNAPSHOT_TYPE_PRAFIX = "snapshot-";
+    public final static String ITEM_PARTITIONS = "numpartitions";
+    public final static String ITEM_PARTITION_SYNCPOINTS = "_partitionsyncpoints";
+    public final static String ITEM_PARTITION_ENDS = "_partitionends";
+    public final static String ITEM_SHADOWINDEX = "shadowindex";
+    public final static String ITEM_SHADOW = "_shadow";
+    public final static String ITEM_REBUILD_START = "_rebuildstart";
 
     @PersistenceContext(unitName = "org.imixs.workflow.jpa")
     private EntityManager manager;
@@ -110,6 +141,22 @@ public class JobHandlerRebuildIndex implements JobHandler {
     @TransactionAttribute(value = TransactionAttributeType.REQUIRES_NEW)
     public ItemCollection run(ItemCollection adminp) throws AdminPException {
         long lProfiler = System.currentTimeMillis();
+        if (!adminp.hasItem(ITEM_REBUILD_START)) {
+            // first run
+            adminp.replaceItemValue(ITEM_REBUILD_START, lProfiler);
+            boolean shadowIndex = adminp.hasItem(ITEM_SHADOWINDEX) ? adminp.getItemValueBoolean(ITEM_SHADOWINDEX)
+                    : shadow;
+            if (shadowIndex) {
+                adminp.replaceItemValue(ITEM_SHADOW, updateService.beginRebuild());
+            }
+        }
+        int numPartitions = adminp.getItemValueInteger(ITEM_PARTITIONS);
+        if (numPartitions <= 0) {
+            numPartitions = partitions;
+        }
+        if (numPartitions > 1) {
+            return runPartitions(adminp, numPartitions);
+        }
         long syncPoint = adminp.getItemValueLong("_syncpoint");
         int totalCount = adminp.getItemValueInteger("numUpdates");
         int blockCount = 0;
@@ -123,7 +170,7 @@ public class JobHandlerRebuildIndex implements JobHandler {
         try {
             while (true) {
                 List<ItemCollection> resultList = new ArrayList<ItemCollection>();
-                List<Document> documents = findNextDocumentsBySyncPoint(syncPoint);
+                List<Document> documents = findNextDocumentsBySyncPoint(syncPoint, 0, READ_AHEAD);
 
                 if (documents != null && documents.size() > 0) {
                     for (Document doc : documents) {
@@ -204,6 +251,7 @@ public class JobHandlerRebuildIndex implements JobHandler {
         logger.info("...Job " + AdminPService.JOB_REBUILD_INDEX + " (" + adminp.getUniqueID() + ") - Finished: "
                 + totalCount + " documents indexed in " + time + " sec. ");
 
+        finishRebuild(adminp);
         adminp.replaceItemValue(JobHandler.ISCOMPLETED, true);
         adminp.replaceItemValue("numUpdates", totalCount);
         adminp.replaceItemValue("numProcessed", totalCount);
@@ -212,6 +260,185 @@ public class JobHandlerRebuildIndex implements JobHandler {
 
     }
 
+    /**
+     * This method runs the job in the partition mode. On the first run, the range
+     * of creation dates is split into the given number of partitions. Each loop
+     * reads the next block of documents of each partition and updates the index
+     * with all documents in one step. The syncpoint of each partition is stored in
+     * the item '_partitionsyncpoints'.
+     * 
+     * @param adminp
+     * @param numPartitions
+     * @return updated job description
+     */
+    @SuppressWarnings("unchecked")
+    private ItemCollection runPartitions(ItemCollection adminp, int numPartitions) {
+        long lProfiler = System.currentTimeMillis();
+        int totalCount = adminp.getItemValueInteger("numUpdates");
+        if (!adminp.hasItem(ITEM_PARTITION_SYNCPOINTS)) {
+            createPartitions(adminp, numPartitions);
+        }
+        List<Long> syncPoints = new ArrayList<Long>();
+        List<Long> endPoints = new ArrayList<Long>();
+        for (Object value : adminp.getItemValue(ITEM_PARTITION_SYNCPOINTS)) {
+            syncPoints.add(((Number) value).longValue());
+        }
+        for (Object value : adminp.getItemValue(ITEM_PARTITION_ENDS)) {
+            endPoints.add(((Number) value).longValue());
+        }
+        int readAhead = Math.max(READ_AHEAD, block_size / Math.max(1, syncPoints.size()));
+
+        logger.info("...Job " + AdminPService.JOB_REBUILD_INDEX + " (" + adminp.getUniqueID() + ") - "
+                + syncPoints.size() + " partitions, block size per partition=" + readAhead);
+        try {
+            while (true) {
+                List<ItemCollection> resultList = new ArrayList<ItemCollection>();
+                for (int i = 0; i < syncPoints.size(); i++) {
+                    if (syncPoints.get(i) >= endPoints.get(i)) {
+                        // partition completed
+                        continue;
+                    }
+                    List<Document> documents = findNextDocumentsBySyncPoint(syncPoints.get(i), endPoints.get(i),
+                            readAhead);
+                    if (documents == null || documents.isEmpty()) {
+                        syncPoints.set(i, endPoints.get(i));
+                        continue;
+                    }
+                    for (Document doc : documents) {
+                        syncPoints.set(i, doc.getCreated().getTimeInMillis());
+                        try {
+                            resultList.add(new ItemCollection(doc.getData()));
+                        } catch (InvalidAccessException e) {
+                            logger.warning("...unable to index document '" + doc.getId() + "' " + e.getMessage());
+                        }
+                        // detach object!
+                        manager.detach(doc);
+                    }
+                }
+                if (resultList.isEmpty()) {
+                    // all partitions completed
+                    break;
+                }
+                // update the index
+                updateService.updateIndex(resultList);
+                manager.flush();
+                totalCount += resultList.size();
+
+                // suspend job?
+                long time = (System.currentTimeMillis() - lProfiler) / 1000;
+                if (time > time_out) {
+                    logger.info("...Job " + AdminPService.JOB_REBUILD_INDEX + " (" + adminp.getUniqueID()
+                            + ") - suspended: " + totalCount + " documents indexed in " + time + " sec. ");
+                    adminp.replaceItemValue(ITEM_PARTITION_SYNCPOINTS, syncPoints);
+                    adminp.replaceItemValue(JobHandler.ISCOMPLETED, false);
+                    adminp.replaceItemValue("numUpdates", totalCount);
+                    adminp.replaceItemValue("numProcessed", totalCount);
+                    adminp.replaceItemValue("numLastCount", 0);
+                    return adminp;
+                }
+            }
+        } catch (Exception e) {
+            // print exception and stop job
+            logger.severe("...Job " + AdminPService.JOB_REBUILD_INDEX + " (" + adminp.getUniqueID() + ") - failed - "
+                    + e.getMessage() + " - " + totalCount + "  documents reindexed....");
+            e.printStackTrace();
+            adminp.replaceItemValue(JobHandler.ISCOMPLETED, false);
+            adminp.replaceItemValue("error", e.getMessage());
+            adminp.replaceItemValue(ITEM_PARTITION_SYNCPOINTS, syncPoints);
+            adminp.replaceItemValue("numUpdates", totalCount);
+            adminp.replaceItemValue("numProcessed", totalCount);
+            adminp.replaceItemValue("numLastCount", 0);
+            return adminp;
+        }
+
+        long time = (System.currentTimeMillis() - lProfiler) / 1000;
+        logger.info("...Job " + AdminPService.JOB_REBUILD_INDEX + " (" + adminp.getUniqueID() + ") - Finished: "
+                + totalCount + " documents indexed in " + time + " sec. ");
+        adminp.replaceItemValue(ITEM_PARTITION_SYNCPOINTS, syncPoints);
+        finishRebuild(adminp);
+        adminp.replaceItemValue(JobHandler.ISCOMPLETED, true);
+        adminp.replaceItemValue("numUpdates", totalCount);
+        adminp.replaceItemValue("numProcessed", totalCount);
+        adminp.replaceItemValue("numLastCount", 0);
+        return adminp;
+    }
+
+    /**
+     * Finishes a rebuild into a shadow index. All documents modified since the
+     * start of the job are indexed again, because a document may have been read by
+     * the job before it was updated. Afterwards the shadow index becomes the
+     * current index.
+     * 
+     * @param adminp
+     */
+    @SuppressWarnings("unchecked")
+    private void finishRebuild(ItemCollection adminp) {
+        if (!adminp.getItemValueBoolean(ITEM_SHADOW)) {
+            return;
+        }
+        Date rebuildStart = new Date(adminp.getItemValueLong(ITEM_REBUILD_START));
+        String lastID = "";
+        int count = 0;
+        while (true) {
+            Query q = manager.createQuery("SELECT document FROM Document AS document"
+                    + " WHERE document.modified >= :modified AND document.id > :id"
+                    + " AND NOT document.type LIKE '" + SNAPSHOT_TYPE_PRAFIX + "%'"
+                    + " AND NOT document.type LIKE 'workitemlob%' AND document.type != 'event'"
+                    + " ORDER BY document.id ASC");
+            q.setParameter("modified", rebuildStart, TemporalType.TIMESTAMP);
+            q.setParameter("id", lastID);
+            q.setMaxResults(block_size);
+            List<Document> documents = q.getResultList();
+            if (documents.isEmpty()) {
+                break;
+            }
+            List<ItemCollection> resultList = new ArrayList<ItemCollection>();
+            for (Document doc : documents) {
+                lastID = doc.getId();
+                try {
+                    resultList.add(new ItemCollection(doc.getData()));
+                } catch (InvalidAccessException e) {
+                    logger.warning("...unable to index document '" + doc.getId() + "' " + e.getMessage());
+                }
+                manager.detach(doc);
+            }
+            updateService.updateIndex(resultList);
+            count += resultList.size();
+        }
+        logger.info("...Job " + AdminPService.JOB_REBUILD_INDEX + " (" + adminp.getUniqueID() + ") - " + count
+                + " modified documents indexed, switching shadow index...");
+        updateService.finishRebuild();
+        adminp.replaceItemValue(ITEM_SHADOW, false);
+    }
+
+    /**
+     * Splits the range of creation dates of all documents into partitions of equal
+     * time spans. The start (exclusive) and end (inclusive) of each partition are
+     * stored in the job description.
+     * 
+     * @param adminp
+     * @param numPartitions
+     */
+    private void createPartitions(ItemCollection adminp, int numPartitions) {
+        List<Long> syncPoints = new ArrayList<Long>();
+        List<Long> endPoints = new ArrayList<Long>();
+        Query q = manager.createQuery("SELECT MIN(document.created), MAX(document.created) FROM Document AS document");
+        Object[] range = (Object[]) q.getSingleResult();
+        if (range != null && range[0] != null && range[1] != null) {
+            long start = ((Calendar) range[0]).getTimeInMillis() - 1;
+            long end = ((Calendar) range[1]).getTimeInMillis();
+            long span = Math.max(1, (end - start) / numPartitions);
+            for (int i = 0; i < numPartitions; i++) {
+                syncPoints.add(start + i * span);
+                endPoints.add(i == numPartitions - 1 ? end : start + (i + 1) * span);
+            }
+        }
+        logger.info("...Job " + AdminPService.JOB_REBUILD_INDEX + " (" + adminp.getUniqueID() + ") - "
+                + syncPoints.size() + " partitions created");
+        adminp.replaceItemValue(ITEM_PARTITION_SYNCPOINTS, syncPoints);
+        adminp.replaceItemValue(ITEM_PARTITION_ENDS, endPoints);
+    }
+
     /**
      * Loads the next documents by a given symcpoint (timestamp in milis) compared
      * with the created timestamp of a document entity.
@@ -221,24 +448,30 @@ public class JobHandlerRebuildIndex implements JobHandler {
      * timestamp in a collection.
      * 
      * @param lSyncpoint
+     * @param lEndpoint  - optional upper limit (inclusive) of the creation
+     *                   timestamp, 0 if not limited
+     * @param readAhead  - max number of documents
      * @return a list of documents with the same creation timestamp after the given
      *         syncpoint. Returns null in case no more documents were found.
      */
     @SuppressWarnings("unchecked")
-    private List<Document> findNextDocumentsBySyncPoint(long lSyncpoint) {
+    private List<Document> findNextDocumentsBySyncPoint(long lSyncpoint, long lEndpoint, int readAhead) {
 
         Date syncpoint = new Date(lSyncpoint);
         // ISO date time format: '2016-08-25 01:23:46.0',
         DateFormat isoFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
         String query = "SELECT document FROM Document AS document ";
         query += " WHERE document.created > '" + isoFormat.format(syncpoint) + "'";
+        if (lEndpoint > 0) {
+            query += " AND document.created <= '" + isoFormat.format(new Date(lEndpoint)) + "'";
+        }
         query += " AND NOT document.type LIKE '" + SNAPSHOT_TYPE_PRAFIX + "%' ";
         query += " AND NOT document.type LIKE 'workitemlob%' ";
         query += " AND document.type != 'event' ";
         query += " ORDER BY document.created ASC";
         Query q = manager.createQuery(query);
         q.setFirstResult(0);
-        q.setMaxResults(READ_AHEAD);
+        q.setMaxResults(readAhead);
         List<Document> documentList = q.getResultList();
         if (documentList != null && documentList.size() > 0) {
             Document lastDocument = null;
@@ -246,9 +479,9 @@ public class JobHandlerRebuildIndex implements JobHandler {
 
             // test if we have two documents with the same creation date (in seldom cases
             // possible)
-            if (documentList.size() == READ_AHEAD) {
-                lastDocument = documentList.get(READ_AHEAD - 1);
-                nextToLastDocument = documentList.get(READ_AHEAD - 2);
+            if (documentList.size() == readAhead) {
+                lastDocument = documentList.get(readAhead - 1);
+                nextToLastDocument = documentList.get(readAhead - 2);
                 // now test if we have more than one document with the same timestamp at the end
                 // of the list
                 if (lastDocument != null && nextToLastDocument != null
@@ -269,7 +502,7 @@ public class JobHandlerRebuildIndex implements JobHandler {
                     return documentList;
 
                 } else {
-                    // we found exactly READ_AHEAD documents and the last two ones are not equal
+                    // we found exactly readAhead documents and the last two ones are not equal
                     // so we drop the last one of the result to avoid overlapping duplicates in the
                     // next block.
                     documentList.remove(lastDocument);
@@ -0,0 +1,363 @@
+/*  
+ *  Imixs-Workflow 
+ *  
+ *  Copyright (C) 2001-2020 Imixs Software Solutions GmbH,  
+ *  http://www.imixs.com
+ *  
+ *  This program is free software; you can redistribute it and/or 
+ *  modify it under the terms of the GNU General Public License 
+ *  as published by the Free Software Foundation; either version 2 
+ *  of the License, or (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful, 
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ *  General Public License for more details.
+ *  
+ *  You can receive a copy of the GNU General Public
+ *  License at http://www.gnu.org/licenses/gpl.html
+ *  
+ *  Project: 
+ *      https://www.imixs.org
+ *      https://github.com/imixs/imixs-workflow
+ *  
+ *  Contributors:  
+ *      Imixs Software Solutions GmbH - Project Management
+ *      Ralph Soika - Software Developer
+ */
+
+package org.imixs.workflow.engine.attachments;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.xml.bind.DatatypeConverter;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.imixs.workflow.FileData;
+import org.imixs.workflow.ItemCollection;
+import org.imixs.workflow.engine.DocumentEvent;
+import org.imixs.workflow.engine.jpa.Document;
+import org.imixs.workflow.exceptions.InvalidAccessException;
+
+/**
+ * The AttachmentService externalizes the content of file attachments stored in
+ * the item '$file' into an {@link AttachmentStore}.
+ * <p>
+ * If the service is enabled by the config property 'attachment.store.enabled',
+ * the service reacts on the DocumentEvent ON_DOCUMENT_SAVE. The content of each
+ * new file attachment is written into the AttachmentStore and removed from the
+ * document. The item '$file' only holds the meta data of the file. The content
+ * hash and size are stored in the file attributes '$contenthash' and
+ * '$contentsize'.
+ * <p>
+ * The content of an externalized file can be fetched lazily by the methods
+ * {@link #getFileData(ItemCollection, String)} or
+ * {@link #openContent(FileData)}. Files with inline content are returned
+ * unchanged, so existing documents are still supported.
+ * 
+ * @author rsoika
+ * @version 1.0
+ */
+@ApplicationScoped
+public class AttachmentService {
+
+    public static final String ATTRIBUTE_CONTENTHASH = "$contenthash";
+    public static final String ATTRIBUTE_CONTENTSIZE = "$contentsize";
+
+    public static final String ATTACHMENT_ERROR = "ATTACHMENT_ERROR";
+
+    @Inject
+    @ConfigProperty(name = "attachment.store.enabled", defaultValue = "false")
+    boolean storeEnabled;
+
+    @Inject
+    AttachmentStore attachmentStore;
+
+    @PersistenceContext(unitName = "org.imixs.workflow.jpa")
+    EntityManager manager;
+
+    private static Logger logger = Logger.getLogger(AttachmentService.class.getName());
+
+    /**
+     * DocumentEvent listener to externalize the file content of a document before
+     * the document is saved.
+     * <p>
+     * The attributes '$contenthash' and '$contentsize' are only accepted for a
+     * file without content if the stored version of the same document holds a
+     * file with this content hash. Otherwise the attributes are removed, so a
+     * client can not reference the content of another document in the shared
+     * AttachmentStore. This check is also performed if the store is disabled.
+     * 
+     * @param documentEvent
+     */
+    public void onDocumentEvent(@Observes DocumentEvent documentEvent) {
+        if (documentEvent == null || documentEvent.getEventType() != DocumentEvent.ON_DOCUMENT_SAVE) {
+            return;
+        }
+        ItemCollection document = documentEvent.getDocument();
+        if (!document.hasItem("$file")) {
+            return;
+        }
+        boolean debug = logger.isLoggable(Level.FINE);
+        List<FileData> storedFiles = null;
+        for (FileData fileData : document.getFileData()) {
+            byte[] content = fileData.getContent();
+            if (content == null || content.length == 0) {
+                // no content or already externalized
+                String hash = getContentHash(fileData);
+                if (hash != null || fileData.getAttribute(ATTRIBUTE_CONTENTSIZE) != null) {
+                    if (storedFiles == null) {
+                        storedFiles = getStoredFileData(document.getUniqueID());
+                    }
+                    verifyContentReference(document, fileData, storedFiles);
+                }
+                continue;
+            }
+            if (!storeEnabled) {
+                continue;
+            }
+            try {
+                String hash = computeHash(content);
+                attachmentStore.write(hash, content);
+                List<Object> hashValue = new ArrayList<Object>();
+                hashValue.add(hash);
+                List<Object> sizeValue = new ArrayList<Object>();
+                sizeValue.add(content.length);
+                fileData.setAttribute(ATTRIBUTE_CONTENTHASH, hashValue);
+                fileData.setAttribute(ATTRIBUTE_CONTENTSIZE, sizeValue);
+                fileData.setContent(new byte[0]);
+                document.addFileData(fileData);
+                if (debug) {
+                    logger.finest("......file '" + fileData.getName() + "' stored - hash=" + hash);
+                }
+            } catch (IOException | NoSuchAlgorithmException e) {
+                throw new InvalidAccessException(ATTACHMENT_ERROR,
+                        "unable to store file '" + fileData.getName() + "': " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Verifies the content hash of a file without content against the files of the
+     * stored version of the document. If no stored file has the same content hash,
+     * the attributes '$contenthash' and '$contentsize' are removed. Otherwise the
+     * size of the stored file is taken over.
+     */
+    @SuppressWarnings("unchecked")
+    private void verifyContentReference(ItemCollection document, FileData fileData, List<FileData> storedFiles) {
+        String hash = getContentHash(fileData);
+        if (hash != null) {
+            for (FileData storedFile : storedFiles) {
+                if (hash.equals(getContentHash(storedFile))) {
+                    List<Object> size = (List<Object>) storedFile.getAttribute(ATTRIBUTE_CONTENTSIZE);
+                    if (size != null) {
+                        fileData.setAttribute(ATTRIBUTE_CONTENTSIZE, size);
+                    } else {
+                        fileData.getAttributes().remove(ATTRIBUTE_CONTENTSIZE);
+                    }
+                    document.addFileData(fileData);
+                    return;
+                }
+            }
+        }
+        logger.warning("...content hash of file '" + fileData.getName() + "' in document '"
+                + document.getUniqueID() + "' does not match a stored file - attributes removed");
+        fileData.getAttributes().remove(ATTRIBUTE_CONTENTHASH);
+        fileData.getAttributes().remove(ATTRIBUTE_CONTENTSIZE);
+        document.addFileData(fileData);
+    }
+
+    /**
+     * Returns the files of the stored version of a document. The managed entity is
+     * read from the current persistence context, so during a save the data of the
+     * entity still holds the stored version.
+     */
+    private List<FileData> getStoredFileData(String uniqueId) {
+        Document entity = (uniqueId == null || uniqueId.isEmpty()) ? null : manager.find(Document.class, uniqueId);
+        if (entity == null || entity.getData() == null) {
+            return new ArrayList<FileData>();
+        }
+        return ItemCollection.createByReference(entity.getData()).getFileData();
+    }
+
+    /**
+     * Returns true if the content of the given file is stored in the
+     * AttachmentStore.
+     * 
+     * @param fileData
+     * @return true if the content is externalized
+     */
+    public boolean isExternal(FileData fileData) {
+        return fileData != null && (fileData.getContent() == null || fileData.getContent().length == 0)
+                && getContentHash(fileData) != null;
+    }
+
+    /**
+     * Returns the FileData object of a file attachment including its content. If
+     * the content is externalized, it is loaded from the AttachmentStore.
+     * 
+     * @param document - the document holding the file
+     * @param fileName - name of the file
+     * @return FileData object or null if not found
+     */
+    public FileData getFileData(ItemCollection document, String fileName) {
+        if (document == null) {
+            return null;
+        }
+        FileData fileData = document.getFileData(fileName);
+        if (fileData != null) {
+            fileData.setContent(loadContent(fileData));
+        }
+        return fileData;
+    }
+
+    /**
+     * Returns the content of a file attachment. If the content is externalized, it
+     * is loaded from the AttachmentStore.
+     * 
+     * @param fileData
+     * @return file content
+     */
+    public byte[] loadContent(FileData fileData) {
+        if (!isExternal(fileData)) {
+            return fileData.getContent();
+        }
+        try (InputStream in = openContent(fileData)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(getContentSize(fileData));
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new InvalidAccessException(ATTACHMENT_ERROR,
+                    "unable to load file '" + fileData.getName() + "': " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Opens a stream to read the content of a file attachment. The caller is
+     * responsible to close the stream.
+     * 
+     * @param fileData
+     * @return input stream
+     * @throws IOException if the content does not exist in the AttachmentStore
+     */
+    public InputStream openContent(FileData fileData) throws IOException {
+        if (!isExternal(fileData)) {
+            byte[] content = fileData.getContent();
+            return new ByteArrayInputStream(content != null ? content : new byte[0]);
+        }
+        String hash = getContentHash(fileData);
+        InputStream in = attachmentStore.read(hash);
+        if (in == null) {
+            throw new IOException("content '" + hash + "' not found in attachment store");
+        }
+        return in;
+    }
+
+    /**
+     * Opens a stream to read the content of a file attachment starting at the
+     * given offset. The caller is responsible to close the stream.
+     * 
+     * @param fileData
+     * @param offset   - number of bytes to skip
+     * @return input stream
+     * @throws IOException if the content does not exist in the AttachmentStore
+     */
+    public InputStream openContent(FileData fileData, long offset) throws IOException {
+        InputStream in = openContent(fileData);
+        long skipped = 0;
+        while (skipped < offset) {
+            long n = in.skip(offset - skipped);
+            if (n <= 0) {
+                // skip is not guaranteed to reach the offset, so we test the end of stream
+                if (in.read() == -1) {
+                    break;
+                }
+                n = 1;
+            }
+            skipped += n;
+        }
+        return in;
+    }
+
+    /**
+     * Returns a checksum of the content of a file attachment. For an externalized
+     * file the content hash is returned, so the content is not read from the
+     * AttachmentStore. Otherwise the MD5 checksum of the content is computed.
+     * 
+     * @param fileData
+     * @return checksum or null if the file has no content
+     */
+    public String getContentChecksum(FileData fileData) {
+        if (fileData == null) {
+            return null;
+        }
+        if (isExternal(fileData)) {
+            return getContentHash(fileData);
+        }
+        if (fileData.getContent() == null) {
+            return null;
+        }
+        try {
+            return fileData.generateMD5();
+        } catch (NoSuchAlgorithmException e) {
+            throw new InvalidAccessException(ATTACHMENT_ERROR,
+                    "unable to compute checksum of file '" + fileData.getName() + "': " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Returns the size of a file attachment without loading externalized content.
+     * 
+     * @param fileData
+     * @return size in bytes
+     */
+    public int getContentSize(FileData fileData) {
+        if (fileData == null) {
+            return 0;
+        }
+        if (isExternal(fileData)) {
+            List<?> size = (List<?>) fileData.getAttribute(ATTRIBUTE_CONTENTSIZE);
+            if (size != null && !size.isEmpty() && size.get(0) instanceof Number) {
+                return ((Number) size.get(0)).intValue();
+            }
+            return 0;
+        }
+        return fileData.getContent() != null ? fileData.getContent().length : 0;
+    }
+
+    /**
+     * Returns the content hash of an externalized file or null.
+     */
+    private String getContentHash(FileData fileData) {
+        List<?> hash = (List<?>) fileData.getAttribute(ATTRIBUTE_CONTENTHASH);
+        if (hash != null && !hash.isEmpty() && hash.get(0) instanceof String) {
+            return (String) hash.get(0);
+        }
+        return null;
+    }
+
+    /**
+     * Computes the SHA-256 hash of the given content.
+     */
+    static String computeHash(byte[] content) throws NoSuchAlgorithmException {
+        byte[] hash = MessageDigest.getInstance("SHA-256").digest(content);
+        return DatatypeConverter.printHexBinary(hash).toLowerCase();
+    }
+
+}
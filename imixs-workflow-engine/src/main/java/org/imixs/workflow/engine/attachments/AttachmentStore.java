@@ -0,0 +1,76 @@
+/*  
+ *  Imixs-Workflow 
+ *  
+ *  Copyright (C) 2001-2020 Imixs Software Solutions GmbH,  
+ *  http://www.imixs.com
+ *  
+ *  This program is free software; you can redistribute it and/or 
+ *  modify it under the terms of the GNU General Public License 
+ *  as published by the Free Software Foundation; either version 2 
+ *  of the License, or (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful, 
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ *  General Public License for more details.
+ *  
+ *  You can receive a copy of the GNU General Public
+ *  License at http://www.gnu.org/licenses/gpl.html
+ *  
+ *  Project: 
+ *      https://www.imixs.org
+ *      https://github.com/imixs/imixs-workflow
+ *  
+ *  Contributors:  
+ *      Imixs Software Solutions GmbH - Project Management
+ *      Ralph Soika - Software Developer
+ */
+
+package org.imixs.workflow.engine.attachments;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An AttachmentStore persists the content of file attachments outside of the
+ * document data. The content is addressed by its content hash. Equal content
+ * is stored only once.
+ * <p>
+ * The default implementation is the {@link FileSystemAttachmentStore}. A
+ * custom store can be provided as a CDI alternative.
+ * 
+ * @see AttachmentService
+ * @author rsoika
+ * @version 1.0
+ */
+public interface AttachmentStore {
+
+    /**
+     * Returns true if content with the given hash exists in the store.
+     * 
+     * @param hash - content hash
+     * @return true if the content exists
+     */
+    public boolean exists(String hash);
+
+    /**
+     * Stores the content under the given hash. If the content already exists the
+     * method returns without changes.
+     * 
+     * @param hash    - content hash
+     * @param content - file content
+     * @throws IOException
+     */
+    public void write(String hash, byte[] content) throws IOException;
+
+    /**
+     * Opens a stream to read the content of the given hash. The caller is
+     * responsible to close the stream.
+     * 
+     * @param hash - content hash
+     * @return input stream or null if the content does not exist
+     * @throws IOException
+     */
+    public InputStream read(String hash) throws IOException;
+
+}
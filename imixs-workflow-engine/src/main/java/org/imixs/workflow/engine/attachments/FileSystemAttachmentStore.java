@@ -0,0 +1,125 @@
+/*  
+ *  Imixs-Workflow 
+ *  
+ *  Copyright (C) 2001-2020 Imixs Software Solutions GmbH,  
+ *  http://www.imixs.com
+ *  
+ *  This program is free software; you can redistribute it and/or 
+ *  modify it under the terms of the GNU General Public License 
+ *  as published by the Free Software Foundation; either version 2 
+ *  of the License, or (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful, 
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ *  General Public License for more details.
+ *  
+ *  You can receive a copy of the GNU General Public
+ *  License at http://www.gnu.org/licenses/gpl.html
+ *  
+ *  Project: 
+ *      https://www.imixs.org
+ *      https://github.com/imixs/imixs-workflow
+ *  
+ *  Contributors:  
+ *      Imixs Software Solutions GmbH - Project Management
+ *      Ralph Soika - Software Developer
+ */
+
+package org.imixs.workflow.engine.attachments;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+import java.util.logging.Logger;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+/**
+ * The FileSystemAttachmentStore is the default implementation of the
+ * AttachmentStore. The content is stored in a content addressed directory
+ * defined by the config property 'attachment.store.path'.
+ * <p>
+ * Each content is written into a file named by its hash. The first four
+ * characters of the hash are used as sub directories to keep the number of
+ * files per directory small:
+ * <p>
+ * <code>{path}/3f/a2/3fa2...</code>
+ * <p>
+ * A new file is first written into a temp file and moved into its final
+ * location, so a reader never sees partial content.
+ * 
+ * @author rsoika
+ * @version 1.0
+ */
+@ApplicationScoped
+public class FileSystemAttachmentStore implements AttachmentStore {
+
+    @Inject
+    @ConfigProperty(name = "attachment.store.path")
+    Optional<String> storePath;
+
+    private static Logger logger = Logger.getLogger(FileSystemAttachmentStore.class.getName());
+
+    @Override
+    public boolean exists(String hash) {
+        try {
+            return Files.exists(resolve(hash));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void write(String hash, byte[] content) throws IOException {
+        Path target = resolve(hash);
+        if (Files.exists(target)) {
+            return;
+        }
+        Files.createDirectories(target.getParent());
+        Path tmp = Files.createTempFile(target.getParent(), hash, ".tmp");
+        try {
+            Files.write(tmp, content);
+            try {
+                Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, target);
+            }
+        } catch (FileAlreadyExistsException e) {
+            // written by a concurrent thread - equal hash means equal content
+            logger.finest("......content '" + hash + "' already stored");
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    @Override
+    public InputStream read(String hash) throws IOException {
+        Path path = resolve(hash);
+        if (!Files.exists(path)) {
+            return null;
+        }
+        return Files.newInputStream(path);
+    }
+
+    /**
+     * Returns the path of the given content hash.
+     */
+    private Path resolve(String hash) throws IOException {
+        if (!storePath.isPresent() || storePath.get().isEmpty()) {
+            throw new IOException("missing config property 'attachment.store.path'");
+        }
+        if (hash == null || hash.length() < 8 || !hash.matches("[0-9a-f]+")) {
+            throw new IOException("invalid content hash '" + hash + "'");
+        }
+        return Paths.get(storePath.get(), hash.substring(0, 2), hash.substring(2, 4), hash);
+    }
+
+}
@@ -0,0 +1,142 @@
+/*  
+ *  Imixs-Workflow 
+ *  
+ *  Copyright (C) 2001-2020 Imixs Software Solutions GmbH,  
+ *  http://www.imixs.com
+ *  
+ *  This program is free software; you can redistribute it and/or 
+ *  modify it under the terms of the GNU General Public License 
+ *  as published by the Free Software Foundation; either version 2 
+ *  of the License, or (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful, 
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ *  General Public License for more details.
+ *  
+ *  You can receive a copy of the GNU General Public
+ *  License at http://www.gnu.org/licenses/gpl.html
+ *  
+ *  Project: 
+ *      https://www.imixs.org
+ *      https://github.com/imixs/imixs-workflow
+ *  
+ *  Contributors:  
+ *      Imixs Software Solutions GmbH - Project Management
+ *      Ralph Soika - Software Developer
+ */
+
+package org.imixs.workflow.engine.backup;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * The BackupReader reads the records of a backup stream written by the
+ * {@link BackupWriter}. Each record is verified by its checksum. The records
+ * are returned in the compact item data format and can be decoded by the
+ * ItemDataCodec.
+ * 
+ * @see BackupWriter
+ * @author rsoika
+ * @version 1.0
+ */
+public class BackupReader implements Closeable {
+
+    private final DataInputStream in;
+    private final CRC32 crc = new CRC32();
+    private long count = 0;
+    private boolean finished = false;
+
+    public BackupReader(InputStream inputStream) throws IOException {
+        in = new DataInputStream(new GZIPInputStream(new BufferedInputStream(inputStream, 65536), 65536));
+        byte[] magic = new byte[BackupWriter.MAGIC.length];
+        in.readFully(magic);
+        if (!Arrays.equals(magic, BackupWriter.MAGIC)) {
+            throw new IOException("invalid backup format");
+        }
+        int version = in.readInt();
+        if (version != BackupWriter.VERSION) {
+            throw new IOException("unsupported backup version: " + version);
+        }
+    }
+
+    /**
+     * Returns true if the given file header is a gzip header. This indicates a
+     * backup in the current format. Backups of older versions are written as a
+     * plain java object stream.
+     * 
+     * @param header - first two bytes of a file
+     * @return true if the data is gzip compressed
+     */
+    public static boolean isBackupFormat(byte[] header) {
+        return header != null && header.length >= 2 && (header[0] & 0xff) == 0x1f && (header[1] & 0xff) == 0x8b;
+    }
+
+    /**
+     * Reads the next record.
+     * 
+     * @return item data of the next document or null if the end of the backup
+     *         is reached
+     * @throws CorruptedRecordException if the checksum of the record does not
+     *                                   match. The next record can still be read.
+     * @throws IOException               if the stream can not be read
+     */
+    public byte[] read() throws IOException {
+        if (finished) {
+            return null;
+        }
+        int length = in.readInt();
+        if (length < 0) {
+            finished = true;
+            long expected = in.readLong();
+            if (expected != count) {
+                throw new IOException("incomplete backup: " + count + " of " + expected + " records read");
+            }
+            return null;
+        }
+        byte[] data = new byte[length];
+        in.readFully(data);
+        long checksum = in.readLong();
+        count++;
+        crc.reset();
+        crc.update(data, 0, data.length);
+        if (crc.getValue() != checksum) {
+            throw new CorruptedRecordException("checksum error in record " + count);
+        }
+        return data;
+    }
+
+    /**
+     * Returns the number of records read so far.
+     * 
+     * @return count
+     */
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Signals a record with an invalid checksum. The reader is positioned at the
+     * next record.
+     */
+    public static class CorruptedRecordException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public CorruptedRecordException(String message) {
+            super(message);
+        }
+    }
+
+}
@@ -0,0 +1,130 @@
+/*  
+ *  Imixs-Workflow 
+ *  
+ *  Copyright (C) 2001-2020 Imixs Software Solutions GmbH,  
+ *  http://www.imixs.com
+ *  
+ *  This program is free software; you can redistribute it and/or 
+ *  modify it under the terms of the GNU General Public License 
+ *  as published by the Free Software Foundation; either version 2 
+ *  of the License, or (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful, 
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ *  General Public License for more details.
+ *  
+ *  You can receive a copy of the GNU General Public
+ *  License at http://www.gnu.org/licenses/gpl.html
+ *  
+ *  Project: 
+ *      https://www.imixs.org
+ *      https://github.com/imixs/imixs-workflow
+ *  
+ *  Contributors:  
+ *      Imixs Software Solutions GmbH - Project Management
+ *      Ralph Soika - Software Developer
+ */
+
+package org.imixs.workflow.engine.backup;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPOutputStream;
+import org.imixs.workflow.engine.jpa.ItemDataCodec;
+
+/**
+ * The BackupWriter writes documents into a compressed backup stream. The
+ * stream has the following layout:
+ * 
+ * <pre>
+ * magic ('I','X','B','K') | version | records... | end marker (-1) | record count
+ * </pre>
+ * 
+ * Each record holds the length of the document data, the data in the compact
+ * item data format and a CRC32 checksum of the data. The stream is gzip
+ * compressed.
+ * 
+ * @see BackupReader
+ * @see org.imixs.workflow.engine.jpa.ItemDataCodec
+ * @author rsoika
+ * @version 1.0
+ */
+public class BackupWriter implements Closeable {
+
+    public static final byte[] MAGIC = { 'I', 'X', 'B', 'K' };
+    public static final int VERSION = 1;
+
+    private final DataOutputStream out;
+    private final CRC32 crc = new CRC32();
+    private long count = 0;
+
+    public BackupWriter(OutputStream outputStream) throws IOException {
+        out = new DataOutputStream(new GZIPOutputStream(new BufferedOutputStream(outputStream, 65536), 65536));
+        out.write(MAGIC);
+        out.writeInt(VERSION);
+    }
+
+    /**
+     * Writes a single document.
+     * 
+     * @param items - item map of the document
+     * @throws IOException
+     */
+    public void write(Map<String, List<Object>> items) throws IOException {
+        write(ItemDataCodec.encode(items));
+    }
+
+    /**
+     * Writes a single document already encoded in the compact item data format.
+     * 
+     * @param data - encoded item data
+     * @throws IOException
+     */
+    public void write(byte[] data) throws IOException {
+        crc.reset();
+        crc.update(data, 0, data.length);
+        out.writeInt(data.length);
+        out.write(data);
+        out.writeLong(crc.getValue());
+        count++;
+    }
+
+    /**
+     * Returns the number of documents written so far.
+     * 
+     * @return count
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Writes the end marker and the record count. The method must be called after
+     * the last document was written successfully. A backup closed without the end
+     * marker is rejected by the {@link BackupReader} as incomplete.
+     * 
+     * @throws IOException
+     */
+    public void finish() throws IOException {
+        out.writeInt(-1);
+        out.writeLong(count);
+    }
+
+    /**
+     * Closes the stream. The end marker is not written.
+     * 
+     * @see #finish()
+     */
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+}
@@ -0,0 +1,132 @@
+/*  
+ *  Imixs-Workflow 
+ *  
+ *  Copyright (C) 2001-2020 Imixs Software Solutions GmbH,  
+ *  http://www.imixs.com
+ *  
+ *  This program is free software; you can redistribute it and/or 
+ *  modify it under the terms of the GNU General Public License 
+ *  as published by the Free Software Foundation; either version 2 
+ *  of the License, or (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful, 
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ *  General Public License for more details.
+ *  
+ *  You can receive a copy of the GNU General Public
+ *  License at http://www.gnu.org/licenses/gpl.html
+ *  
+ *  Project: 
+ *      https://www.imixs.org
+ *      https://github.com/imixs/imixs-workflow
+ *  
+ *  Contributors:  
+ *      Imixs Software Solutions GmbH - Project Management
+ *      Ralph Soika - Software Developer
+ */
+
+package org.imixs.workflow.engine.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A QueryTemplate defines a search query by a list of exact term clauses. All
+ * clauses must match. Each clause matches if one of its fields contains the
+ * term value. A QueryTemplate can be used for recurring queries like a
+ * worklist, so a SearchService can build the query without parsing a search
+ * term.
+ * <p>
+ * Example:
+ * 
+ * <pre>
+ * QueryTemplate template = new QueryTemplate().addTerm("workitem", "type").addTerm("anna", "$owner", "namowner");
+ * </pre>
+ * 
+ * The fields of a clause should be part of the field list
+ * 'index.fields.noanalyze' so the term is matched exactly.
+ * 
+ * @see SearchService#search(QueryTemplate, int, int, SortOrder, boolean)
+ * @version 1.0
+ * @author rsoika
+ */
+public class QueryTemplate {
+
+    private List<Clause> clauses = new ArrayList<Clause>();
+
+    /**
+     * Adds a clause matching the given value in at least one of the given fields.
+     * 
+     * @param value  - exact term value, null is treated as an empty value
+     * @param fields - one or more field names
+     * @return the QueryTemplate
+     */
+    public QueryTemplate addTerm(String value, String... fields) {
+        clauses.add(new Clause(value == null ? "" : value, Arrays.asList(fields)));
+        return this;
+    }
+
+    public List<Clause> getClauses() {
+        return Collections.unmodifiableList(clauses);
+    }
+
+    /**
+     * Returns the template as a search term. This term can be used by a
+     * SearchService not supporting QueryTemplates.
+     * 
+     * @return search term
+     */
+    public String toSearchTerm() {
+        StringBuilder searchTerm = new StringBuilder("(");
+        for (int i = 0; i < clauses.size(); i++) {
+            Clause clause = clauses.get(i);
+            if (i > 0) {
+                searchTerm.append(" AND");
+            }
+            searchTerm.append(" ");
+            if (clause.getFields().size() > 1) {
+                searchTerm.append("(");
+            }
+            for (int j = 0; j < clause.getFields().size(); j++) {
+                if (j > 0) {
+                    searchTerm.append(" OR ");
+                }
+                searchTerm.append(clause.getFields().get(j)).append(":\"").append(clause.getValue()).append("\"");
+            }
+            if (clause.getFields().size() > 1) {
+                searchTerm.append(")");
+            }
+        }
+        searchTerm.append(" )");
+        return searchTerm.toString();
+    }
+
+    @Override
+    public String toString() {
+        return toSearchTerm();
+    }
+
+    /**
+     * A single term clause of a QueryTemplate.
+     */
+    public static class Clause {
+        private String value;
+        private List<String> fields;
+
+        public Clause(String value, List<String> fields) {
+            this.value = value;
+            this.fields = fields;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public List<String> getFields() {
+            return fields;
+        }
+    }
+}
@@ -28,8 +28,14 @@
 
 package org.imixs.workflow.engine.index;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -43,6 +49,7 @@ import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.imixs.workflow.ItemCollection;
 import org.imixs.workflow.WorkflowKernel;
 import org.imixs.workflow.engine.DocumentService;
+import org.imixs.workflow.exceptions.IndexException;
 import org.imixs.workflow.exceptions.QueryException;
 
 /**
@@ -55,6 +62,10 @@ import org.imixs.workflow.exceptions.QueryException;
  * <li>index.fields.analyze - fields indexed as analyzed keyword fields</li>
  * <li>index.fields.noanalyze - fields indexed without analyze</li>
  * <li>index.fields.store - fields stored in the index</li>
+ * <li>index.fields.date - date fields indexed for range queries and sorting</li>
+ * <li>index.fields.number - number fields indexed for range queries and
+ * sorting</li>
+ * <li>index.fields.facet - fields indexed for facet counts</li>
  * <li>index.operator - default operator</li>
  * <li>index.splitwhitespace - split text on whitespace prior to analysis</li>
  * </ul>
@@ -92,6 +103,18 @@ public class SchemaService {
     @ConfigProperty(name = "index.fields.store", defaultValue = "")
     private String indexFieldsStore;
 
+    @Inject
+    @ConfigProperty(name = "index.fields.date", defaultValue = "")
+    private String indexFieldsDate;
+
+    @Inject
+    @ConfigProperty(name = "index.fields.number", defaultValue = "")
+    private String indexFieldsNumber;
+
+    @Inject
+    @ConfigProperty(name = "index.fields.facet", defaultValue = "")
+    private String indexFieldsFacet;
+
     @Inject
     private DocumentService documentService;
 
@@ -99,7 +122,11 @@ public class SchemaService {
     private List<String> fieldListAnalyze = null;
     private List<String> fieldListNoAnalyze = null;
     private List<String> fieldListStore = null;
+    private List<String> fieldListDate = null;
+    private List<String> fieldListNumber = null;
+    private List<String> fieldListFacet = null;
     private Set<String> uniqueFieldList = null;
+    private List<String> fingerprintFieldList = null;
 
     // default field lists
     public static List<String> DEFAULT_SEARCH_FIELD_LIST = Arrays.asList("$workflowsummary", "$workflowabstract");
@@ -111,6 +138,8 @@ public class SchemaService {
     public static List<String> DEFAULT_STORE_FIELD_LIST = Arrays.asList("type", "$taskid", "$writeaccess",
             "$workflowsummary", "$workflowabstract", "$workflowgroup", "$workflowstatus", "$modified", "$created",
             "$lasteventdate", "$creator", "$editor", "$lasteditor", "$owner", "namowner");
+    public static List<String> DEFAULT_FACET_FIELD_LIST = Arrays.asList("type", "$taskid", "$workflowgroup",
+            "$workflowstatus", "$owner", "$modelversion");
 
     private static Logger logger = Logger.getLogger(SchemaService.class.getName());
 
@@ -121,13 +150,16 @@ public class SchemaService {
      * 
      */
     @PostConstruct
-    void init() {
+    public void init() {
         boolean debug = logger.isLoggable(Level.FINE);
         if (debug) {
             logger.finest("......lucene FulltextFieldList=" + indexFields);
             logger.finest("......lucene IndexFieldListAnalyze=" + indexFieldsAnalyze);
             logger.finest("......lucene IndexFieldListNoAnalyze=" + indexFieldsNoAnalyze);
             logger.finest("......lucene IndexFieldListStore=" + indexFieldsStore);
+            logger.finest("......lucene IndexFieldListDate=" + indexFieldsDate);
+            logger.finest("......lucene IndexFieldListNumber=" + indexFieldsNumber);
+            logger.finest("......lucene IndexFieldListFacet=" + indexFieldsFacet);
         }
         // compute the normal search field list
         fieldList = new ArrayList<String>();
@@ -159,6 +191,31 @@ public class SchemaService {
             }
         }
 
+        // compute the typed field lists. A typed field is always part of the
+        // NOANALYZE field list
+        fieldListDate = parseFieldList(indexFieldsDate);
+        fieldListNumber = parseFieldList(indexFieldsNumber);
+        fieldListNumber.removeAll(fieldListDate);
+        for (String sName : fieldListDate) {
+            if (!fieldListNoAnalyze.contains(sName)) {
+                fieldListNoAnalyze.add(sName);
+            }
+        }
+        for (String sName : fieldListNumber) {
+            if (!fieldListNoAnalyze.contains(sName)) {
+                fieldListNoAnalyze.add(sName);
+            }
+        }
+
+        // compute the facet field list
+        fieldListFacet = new ArrayList<String>();
+        fieldListFacet.addAll(DEFAULT_FACET_FIELD_LIST);
+        for (String sName : parseFieldList(indexFieldsFacet)) {
+            if (!fieldListFacet.contains(sName)) {
+                fieldListFacet.add(sName);
+            }
+        }
+
         // finally compute Index ANALYZE field list
         fieldListAnalyze = new ArrayList<String>();
         if (indexFieldsAnalyze != null && !indexFieldsAnalyze.isEmpty()) {
@@ -208,6 +265,15 @@ public class SchemaService {
         uniqueFieldList.addAll(fieldListAnalyze);
         uniqueFieldList.addAll(fieldListNoAnalyze);
 
+        // the fingerprint covers all items written into the index. The item
+        // $modified is ignored because it is updated by each save.
+        Set<String> fingerprintFields = new HashSet<String>(uniqueFieldList);
+        fingerprintFields.addAll(fieldList);
+        fingerprintFields.addAll(fieldListFacet);
+        fingerprintFields.add("$readaccess");
+        fingerprintFields.remove(WorkflowKernel.MODIFIED);
+        fingerprintFieldList = new ArrayList<String>(fingerprintFields);
+        Collections.sort(fingerprintFieldList);
     }
 
     /**
@@ -249,6 +315,62 @@ public class SchemaService {
         return fieldListStore;
     }
 
+    /**
+     * Returns true if all items of the given item list are stored in the index. In
+     * this case a search result can be returned as document stubs without loading
+     * the documents from the database. The items '$uniqueid' and '$isauthor' are
+     * always part of a document stub.
+     * 
+     * @param itemNames - list of item names, can be null
+     * @return true if the item list is not empty and covered by the store field
+     *         list
+     */
+    public boolean isStoredItemList(List<String> itemNames) {
+        if (itemNames == null || itemNames.isEmpty()) {
+            return false;
+        }
+        for (String itemName : itemNames) {
+            String name = itemName.toLowerCase().trim();
+            if (!"$uniqueid".equals(name) && !DocumentService.ISAUTHOR.equalsIgnoreCase(name)
+                    && !fieldListStore.contains(name)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the list of date fields of the schema. The values of those items are
+     * indexed as numeric points and can be searched by a range query and sorted by
+     * their time value.
+     * 
+     * @return
+     */
+    public List<String> getFieldListDate() {
+        return fieldListDate;
+    }
+
+    /**
+     * Returns the list of number fields of the schema. The values of those items are
+     * indexed as numeric points and can be searched by a range query and sorted by
+     * their numeric value.
+     * 
+     * @return
+     */
+    public List<String> getFieldListNumber() {
+        return fieldListNumber;
+    }
+
+    /**
+     * Returns the list of facet fields of the schema. The values of those items can
+     * be counted by a facet search.
+     * 
+     * @return
+     */
+    public List<String> getFieldListFacet() {
+        return fieldListFacet;
+    }
+
     /**
      * Returns a unique list of all fields part of the index schema.
      * 
@@ -258,6 +380,50 @@ public class SchemaService {
         return uniqueFieldList;
     }
 
+    /**
+     * Computes a fingerprint over all items of a document which are part of the
+     * index schema, including the $readaccess. Items not written into the index
+     * are not part of the fingerprint. If the fingerprint of a document did not
+     * change since the document was indexed last time, the index update can be
+     * skipped.
+     * <p>
+     * The item $modified is not part of the fingerprint, as it is updated by each
+     * save. If the index update is skipped, the index keeps the $modified of the
+     * last indexed version.
+     * 
+     * @param document
+     * @return hex encoded fingerprint
+     */
+    public String computeFingerprint(ItemCollection document) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("MD5");
+            for (String itemName : fingerprintFieldList) {
+                List<?> values = document.getItemValue(itemName);
+                if (values.isEmpty()) {
+                    continue;
+                }
+                digest.update(itemName.getBytes(StandardCharsets.UTF_8));
+                for (Object value : values) {
+                    digest.update((byte) 0);
+                    if (value instanceof Date) {
+                        value = ((Date) value).getTime();
+                    } else if (value instanceof Calendar) {
+                        value = ((Calendar) value).getTimeInMillis();
+                    }
+                    digest.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+                }
+                digest.update((byte) 1);
+            }
+            StringBuilder result = new StringBuilder();
+            for (byte b : digest.digest()) {
+                result.append(String.format("%02x", b));
+            }
+            return result.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IndexException(IndexException.INVALID_INDEX, "Unable to compute index fingerprint", e);
+        }
+    }
+
     /**
      * Returns the Lucene schema configuration
      * 
@@ -270,15 +436,37 @@ public class SchemaService {
         config.replaceItemValue("lucence.indexFieldListAnalyze", fieldListAnalyze);
         config.replaceItemValue("lucence.indexFieldListNoAnalyze", fieldListNoAnalyze);
         config.replaceItemValue("lucence.indexFieldListStore", fieldListStore);
+        config.replaceItemValue("index.fields.date", fieldListDate);
+        config.replaceItemValue("index.fields.number", fieldListNumber);
+        config.replaceItemValue("index.fields.facet", fieldListFacet);
 
         return config;
     }
 
+    /**
+     * Splits a comma separated list of item names. Internal fields are ignored.
+     */
+    private List<String> parseFieldList(String fields) {
+        List<String> result = new ArrayList<String>();
+        if (fields != null && !fields.isEmpty()) {
+            StringTokenizer st = new StringTokenizer(fields, ",");
+            while (st.hasMoreElements()) {
+                String sName = st.nextToken().toLowerCase().trim();
+                if (!sName.isEmpty() && !"$uniqueid".equals(sName) && !"$readaccess".equals(sName)
+                        && !result.contains(sName)) {
+                    result.add(sName);
+                }
+            }
+        }
+        return result;
+    }
+
     /**
      * Returns the extended search term for a given query. The search term will be
      * extended with a users roles to test the read access level of each workitem
      * matching the search term.
      * 
+     * @see #getReadAccessList()
      * @param sSearchTerm
      * @return extended search term
      * @throws QueryException in case the searchtem is not understandable.
@@ -290,13 +478,12 @@ public class SchemaService {
             return "";
         }
         // extend the Search Term if user is not ACCESSLEVEL_MANAGERACCESS
-        if (!documentService.isUserInRole(DocumentService.ACCESSLEVEL_MANAGERACCESS)) {
-            // get user names list
-            List<String> userNameList = documentService.getUserNameList();
-            // create search term (always add ANONYMOUS)
+        List<String> readAccessList = getReadAccessList();
+        if (readAccessList != null) {
+            // create search term
             String sAccessTerm = "($readaccess:" + ANONYMOUS;
-            for (String aRole : userNameList) {
-                if (!"".equals(aRole))
+            for (String aRole : readAccessList) {
+                if (!ANONYMOUS.equals(aRole))
                     sAccessTerm += " OR $readaccess:\"" + aRole + "\"";
             }
             sAccessTerm += ") AND ";
@@ -307,6 +494,33 @@ public class SchemaService {
         return sSearchTerm;
     }
 
+    /**
+     * Returns the list of $readaccess values granting read access to the current
+     * user. The list contains the default entry 'ANONYMOUS' and the user names,
+     * roles and groups of the current user. If the user is in the role
+     * ACCESSLEVEL_MANAGERACCESS, the method returns null because no read access
+     * restriction is needed.
+     * <p>
+     * A search service can use this list to restrict a query by a filter instead
+     * of extending the search term.
+     * 
+     * @return list of read access values or null for a manager
+     */
+    public List<String> getReadAccessList() {
+        if (documentService.isUserInRole(DocumentService.ACCESSLEVEL_MANAGERACCESS)) {
+            return null;
+        }
+        List<String> result = new ArrayList<String>();
+        // always add ANONYMOUS
+        result.add(ANONYMOUS);
+        for (String aRole : documentService.getUserNameList()) {
+            if (!"".equals(aRole) && !result.contains(aRole)) {
+                result.add(aRole);
+            }
+        }
+        return result;
+    }
+
     /**
      * This helper method escapes special characters found in a lucene search term.
      * The method can be used by clients to prepare a search phrase.
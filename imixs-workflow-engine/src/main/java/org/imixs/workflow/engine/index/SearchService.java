@@ -29,6 +29,7 @@
 package org.imixs.workflow.engine.index;
 
 import java.util.List;
+import java.util.Map;
 import javax.ejb.Local;
 import org.imixs.workflow.ItemCollection;
 import org.imixs.workflow.exceptions.QueryException;
@@ -47,6 +48,7 @@ public interface SearchService {
                                                               // total
     // number of hits
     public static final int DEFAULT_PAGE_SIZE = 100; // default docs in one page
+    public static final int DEFAULT_MAX_FACET_VALUES = 100; // values per facet
 
     /**
      * Returns a collection of documents matching the provided search term. The term
@@ -76,6 +78,25 @@ public interface SearchService {
     public List<ItemCollection> search(String searchTerm, int pageSize, int pageIndex, SortOrder sortOrder,
             DefaultOperator defaultOperator, boolean loadStubs) throws QueryException;
 
+    /**
+     * Returns a collection of documents matching the provided QueryTemplate. The
+     * query will be restricted to the documents readable by the current user.
+     * <p>
+     * In difference to a search term a QueryTemplate did not need to be parsed.
+     * This method should be used for recurring queries like worklists.
+     * 
+     * @param template  - the query template
+     * @param pageSize  - docs per page
+     * @param pageIndex - page number
+     * @param sortOrder - optional to sort the result
+     * @param loadStubs - optional indicates of only the lucene document should be
+     *                  returned.
+     * @return collection of search result
+     * @throws QueryException in case the template is not valid.
+     */
+    public List<ItemCollection> search(QueryTemplate template, int pageSize, int pageIndex, SortOrder sortOrder,
+            boolean loadStubs) throws QueryException;
+
     /**
      * Returns the total hits for a given search term from the lucene index. The
      * method did not load any data. The provided search term will we extended with
@@ -94,4 +115,33 @@ public interface SearchService {
      */
     public int getTotalHits(final String _searchTerm, final int _maxResult, final DefaultOperator defaultOperator)
             throws QueryException;
+
+    /**
+     * Returns the facet counts of a list of fields for a given search term. For
+     * each field the method returns the values found in the documents matching
+     * the search term together with the number of documents containing the value.
+     * All fields are computed in one single search. The provided search term will
+     * we extended with a users roles to test the read access level of each
+     * workitem matching the search term.
+     * <p>
+     * Only non-analyzed fields can be used as facets.
+     * 
+     * @param searchTerm
+     * @param fieldNames      - list of facet fields
+     * @param maxValues       - max number of values per field
+     * @param defaultOperator - optional to change the default search operator
+     * @return map of field names and their value counts, ordered by count
+     * @throws QueryException in case the searchterm is not understandable.
+     */
+    public Map<String, Map<String, Integer>> getFacets(String searchTerm, List<String> fieldNames, int maxValues,
+            DefaultOperator defaultOperator) throws QueryException;
+
+    /**
+     * Returns the version of the current search index. The version changes each
+     * time the index is updated and can be used to validate cached search results.
+     * The method returns -1 if the version of the index is not available.
+     * 
+     * @return version of the search index or -1
+     */
+    public long getIndexVersion();
 }
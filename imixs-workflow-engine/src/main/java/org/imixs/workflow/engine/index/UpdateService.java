@@ -85,4 +85,26 @@ public interface UpdateService {
      * @see DocumentService
      */
     public void updateIndex();
+
+    /**
+     * This method starts a rebuild of the index into a shadow index. The current
+     * index is still used by the SearchService until the rebuild is finished. All
+     * documents passed to the method updateIndex(documents) are written into the
+     * shadow index. Updates from the eventLog are written into both indexes.
+     * <p>
+     * If a shadow index already exists, the rebuild is continued.
+     * 
+     * @return true if the shadow index is supported. If false, the documents are
+     *         written into the current index.
+     * @throws IndexException
+     */
+    public boolean beginRebuild();
+
+    /**
+     * This method finishes a rebuild started by the method beginRebuild(). The
+     * shadow index becomes the current index of the SearchService.
+     * 
+     * @throws IndexException
+     */
+    public void finishRebuild();
 }
@@ -29,12 +29,21 @@
 package org.imixs.workflow.engine.jpa;
 
 import java.util.Calendar;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import javax.persistence.Basic;
+import javax.persistence.CollectionTable;
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.ElementCollection;
 import javax.persistence.FetchType;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.JoinColumn;
 import javax.persistence.Lob;
+import javax.persistence.Table;
 import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
 import javax.persistence.Transient;
@@ -66,6 +75,17 @@ import org.imixs.workflow.exceptions.InvalidAccessException;
  * The data attribute is used to hold the ItemCollection data. It is mapped by a
  * OR-Mapper to a large object (Lob).
  * <p>
+ * The following items are promoted into indexed meta columns to select
+ * workitems by JPQL without the search index:
+ * <ul>
+ * <li>$taskid - column TASKID
+ * <li>$workflowgroup - column WORKFLOWGROUP
+ * <li>$modelversion - column MODELVERSION
+ * <li>$uniqueidref - table DOCUMENT_REF
+ * <li>$owner - table DOCUMENT_OWNER
+ * </ul>
+ * The meta columns are updated by the method updateMetaColumns.
+ * <p>
  * A Client should not work directly with an instance of the Document entity.
  * It's recommended to use the DocumentService which acts as a session facade to
  * manage instances of ItemCollection persisted in a database system.
@@ -78,6 +98,9 @@ import org.imixs.workflow.exceptions.InvalidAccessException;
  */
 
 @javax.persistence.Entity
+@Table(indexes = { @Index(name = "DOCUMENT_TASKID", columnList = "TASKID"),
+        @Index(name = "DOCUMENT_WORKFLOWGROUP", columnList = "WORKFLOWGROUP"),
+        @Index(name = "DOCUMENT_MODELVERSION", columnList = "MODELVERSION") })
 public class Document implements java.io.Serializable {
 
     private static final long serialVersionUID = 1L;
@@ -88,6 +111,12 @@ public class Document implements java.io.Serializable {
     private Calendar modified;
     private Map<String, List<Object>> data;
     private boolean pending;
+    private Integer taskId;
+    private String workflowGroup;
+    private String modelVersion;
+    private Set<String> uniqueIdRefs;
+    private Set<String> owners;
+    private String indexFingerprint;
 
     /**
      * A Document will be automatically initialized with a unique id and a creation
@@ -209,11 +238,16 @@ public class Document implements java.io.Serializable {
      * returns the data object part of the Entity represented by a java.util.Map
      * <p>
      * Data is loaded eager because it is read in any case by the DocumentService.
+     * <p>
+     * The data is stored in the compact item data format. Data written in the
+     * legacy java serialization format is still readable.
      *
+     * @see ItemDataConverter
      * @return Map
      */
     @Lob
     @Basic(fetch = FetchType.EAGER)
+    @Convert(converter = ItemDataConverter.class)
     public Map<String, List<Object>> getData() {
         return data;
     }
@@ -232,4 +266,164 @@ public class Document implements java.io.Serializable {
         this.data = itemCol;
     }
 
+    /**
+     * Returns the fingerprint of the index schema items of the last indexed
+     * version. The fingerprint is computed by the DocumentService and is not part
+     * of the data object.
+     * 
+     * @see org.imixs.workflow.engine.index.SchemaService#computeFingerprint
+     * @return fingerprint or null
+     */
+    @Column(name = "INDEXFINGERPRINT")
+    public String getIndexFingerprint() {
+        return indexFingerprint;
+    }
+
+    public void setIndexFingerprint(String indexFingerprint) {
+        this.indexFingerprint = indexFingerprint;
+    }
+
+    /**
+     * Returns the $taskid of a workitem. The value is promoted from the data
+     * object.
+     * 
+     * @see updateMetaColumns
+     * @return taskid or null
+     */
+    @Column(name = "TASKID")
+    public Integer getTaskId() {
+        return taskId;
+    }
+
+    public void setTaskId(Integer taskId) {
+        this.taskId = taskId;
+    }
+
+    /**
+     * Returns the $workflowgroup of a workitem. The value is promoted from the
+     * data object.
+     * 
+     * @see updateMetaColumns
+     * @return workflowgroup or null
+     */
+    @Column(name = "WORKFLOWGROUP")
+    public String getWorkflowGroup() {
+        return workflowGroup;
+    }
+
+    public void setWorkflowGroup(String workflowGroup) {
+        this.workflowGroup = workflowGroup;
+    }
+
+    /**
+     * Returns the $modelversion of a workitem. The value is promoted from the data
+     * object.
+     * 
+     * @see updateMetaColumns
+     * @return modelversion or null
+     */
+    @Column(name = "MODELVERSION")
+    public String getModelVersion() {
+        return modelVersion;
+    }
+
+    public void setModelVersion(String modelVersion) {
+        this.modelVersion = modelVersion;
+    }
+
+    /**
+     * Returns the values of the item $uniqueidref. The values are stored in the
+     * side table DOCUMENT_REF.
+     * 
+     * @see updateMetaColumns
+     * @return set of referred ids
+     */
+    @ElementCollection(fetch = FetchType.LAZY)
+    @CollectionTable(name = "DOCUMENT_REF", joinColumns = @JoinColumn(name = "DOCUMENT_ID"), indexes = {
+            @Index(name = "DOCUMENT_REF_REF", columnList = "REF") })
+    @Column(name = "REF")
+    public Set<String> getUniqueIdRefs() {
+        return uniqueIdRefs;
+    }
+
+    public void setUniqueIdRefs(Set<String> uniqueIdRefs) {
+        this.uniqueIdRefs = uniqueIdRefs;
+    }
+
+    /**
+     * Returns the values of the item $owner. The values are stored in the side
+     * table DOCUMENT_OWNER.
+     * 
+     * @see updateMetaColumns
+     * @return set of owners
+     */
+    @ElementCollection(fetch = FetchType.LAZY)
+    @CollectionTable(name = "DOCUMENT_OWNER", joinColumns = @JoinColumn(name = "DOCUMENT_ID"), indexes = {
+            @Index(name = "DOCUMENT_OWNER_OWNER", columnList = "OWNER") })
+    @Column(name = "OWNER")
+    public Set<String> getOwners() {
+        return owners;
+    }
+
+    public void setOwners(Set<String> owners) {
+        this.owners = owners;
+    }
+
+    /**
+     * Updates the meta columns from the given item map. The side tables are only
+     * replaced if the values have changed. The deprecated items $processid,
+     * txtworkflowgroup and namowner are evaluated if the current items are not
+     * set, as the worklists still support these items.
+     * 
+     * @param items - item map of the document
+     */
+    public void updateMetaColumns(Map<String, List<Object>> items) {
+        Object value = getFirstValue(items, "$taskid", "$processid");
+        setTaskId(value instanceof Number ? ((Number) value).intValue() : null);
+        value = getFirstValue(items, "$workflowgroup", "txtworkflowgroup");
+        setWorkflowGroup(value instanceof String ? (String) value : null);
+        value = getFirstValue(items, "$modelversion");
+        setModelVersion(value instanceof String ? (String) value : null);
+
+        Set<String> values = getStringValues(items, "$uniqueidref");
+        if (!values.equals(uniqueIdRefs)) {
+            setUniqueIdRefs(values);
+        }
+        values = getStringValues(items, "$owner", "namowner");
+        if (!values.equals(owners)) {
+            setOwners(values);
+        }
+    }
+
+    /**
+     * Returns the first value of the first item with a non empty value.
+     */
+    private static Object getFirstValue(Map<String, List<Object>> items, String... itemNames) {
+        for (String itemName : itemNames) {
+            List<Object> values = items.get(itemName);
+            if (values != null && !values.isEmpty() && values.get(0) != null && !"".equals(values.get(0))) {
+                return values.get(0);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns all non empty string values of the given items.
+     */
+    private static Set<String> getStringValues(Map<String, List<Object>> items, String... itemNames) {
+        Set<String> result = new HashSet<String>();
+        for (String itemName : itemNames) {
+            List<Object> values = items.get(itemName);
+            if (values != null) {
+                for (Object value : values) {
+                    if (value instanceof String && !((String) value).isEmpty()) {
+                        result.add((String) value);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
 }
@@ -32,6 +32,7 @@ import java.util.Calendar;
 import java.util.List;
 import java.util.Map;
 import javax.persistence.Basic;
+import javax.persistence.Convert;
 import javax.persistence.FetchType;
 import javax.persistence.Id;
 import javax.persistence.Lob;
@@ -178,11 +179,16 @@ public class EventLog implements java.io.Serializable {
      * returns the data object part of the Entity represented by a java.util.Map
      * <p>
      * Data is loaded eager because it is read in any case by the DocumentService.
+     * <p>
+     * The data is stored in the compact item data format. Data written in the
+     * legacy java serialization format is still readable.
      *
+     * @see ItemDataConverter
      * @return Map
      */
     @Lob
     @Basic(fetch = FetchType.EAGER)
+    @Convert(converter = ItemDataConverter.class)
     public Map<String, List<Object>> getData() {
         return data;
     }
@@ -0,0 +1,803 @@
+/*  
+ *  Imixs-Workflow 
+ *  
+ *  Copyright (C) 2001-2020 Imixs Software Solutions GmbH,  
+ *  http://www.imixs.com
+ *  
+ *  This program is free software; you can redistribute it and/or 
+ *  modify it under the terms of the GNU General Public License 
+ *  as published by the Free Software Foundation; either version 2 
+ *  of the License, or (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful, 
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ *  General Public License for more details.
+ *  
+ *  You can receive a copy of the GNU General Public
+ *  License at http://www.gnu.org/licenses/gpl.html
+ *  
+ *  Project: 
+ *      https://www.imixs.org
+ *      https://github.com/imixs/imixs-workflow
+ *  
+ *  Contributors:  
+ *      Imixs Software Solutions GmbH - Project Management
+ *      Ralph Soika - Software Developer
+ */
+
+package org.imixs.workflow.engine.jpa;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.Blob;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Hashtable;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.imixs.workflow.exceptions.InvalidAccessException;
+
+/**
+ * The ItemDataCodec encodes the item map of a Document or EventLog entity into
+ * a compact, versioned binary format and decodes it back.
+ * <p>
+ * The format replaces the default Java serialization of the
+ * <code>Map&lt;String, List&lt;Object&gt;&gt;</code> used by older versions. A
+ * data block has the following layout:
+ *
+ * <pre>
+ * magic ('I','X') | version | dictionary | item count | items
+ * </pre>
+ *
+ * The dictionary holds all short string values of the document only once
+ * (e.g. user ids repeated in $readaccess, $writeaccess and $owner). Each item
+ * is written as its name, the length of the encoded value block and the value
+ * block itself. Because of the length prefix a reader can skip items it is not
+ * interested in. Value types are marked by a type tag. All integral values and
+ * lengths are written as variable length integers. Strings are written in
+ * modified UTF-8 (as defined by java.io.DataOutput) so that any sequence of
+ * chars, including unpaired surrogates, is restored exactly. Data blocks of
+ * the version 1 with strings in standard UTF-8 are still supported.
+ * <p>
+ * The basic value types supported by the ItemCollection (String, Integer,
+ * Long, Double, Float, Boolean, Date, BigDecimal, byte[], List, Map...) are
+ * encoded natively. All other serializable values are embedded in Java
+ * serialization format, so the encoding is lossless.
+ * <p>
+ * Data blocks written in the legacy Java serialization format are detected by
+ * the serialization stream header and decoded transparently.
+ *
+ * @see ItemDataConverter
+ * @author rsoika
+ * @version 1.0
+ */
+public final class ItemDataCodec {
+
+    public static final int VERSION = 2;
+
+    static final byte MAGIC_0 = 'I';
+    static final byte MAGIC_1 = 'X';
+
+    // java serialization stream header (ObjectStreamConstants.STREAM_MAGIC)
+    static final byte LEGACY_MAGIC_0 = (byte) 0xAC;
+    static final byte LEGACY_MAGIC_1 = (byte) 0xED;
+
+    // strings up to this length are written into the dictionary
+    static final int MAX_DICTIONARY_STRING_LENGTH = 256;
+
+    // value type tags
+    static final int TAG_NULL = 0;
+    static final int TAG_STRING_REF = 1;
+    static final int TAG_STRING = 2;
+    static final int TAG_INTEGER = 3;
+    static final int TAG_LONG = 4;
+    static final int TAG_DOUBLE = 5;
+    static final int TAG_FLOAT = 6;
+    static final int TAG_TRUE = 7;
+    static final int TAG_FALSE = 8;
+    static final int TAG_DATE = 9;
+    static final int TAG_SHORT = 10;
+    static final int TAG_BYTE = 11;
+    static final int TAG_CHARACTER = 12;
+    static final int TAG_BIGDECIMAL = 13;
+    static final int TAG_BIGINTEGER = 14;
+    static final int TAG_BYTES = 15;
+    static final int TAG_LIST = 16;
+    static final int TAG_MAP = 17;
+    static final int TAG_SERIALIZED = 18;
+
+    public static final String INVALID_DATA = "INVALID_DATA";
+
+    private ItemDataCodec() {
+        // static helper
+    }
+
+    /**
+     * Returns true if the given data block is written in the compact item data
+     * format.
+     *
+     * @param data
+     * @return true if the data block starts with the item data header
+     */
+    public static boolean isItemDataFormat(byte[] data) {
+        return data != null && data.length >= 3 && data[0] == MAGIC_0 && data[1] == MAGIC_1;
+    }
+
+    /**
+     * Returns true if the given data block is written in the legacy Java
+     * serialization format.
+     *
+     * @param data
+     * @return true if the data block starts with a java serialization header
+     */
+    public static boolean isLegacyFormat(byte[] data) {
+        return data != null && data.length >= 2 && data[0] == LEGACY_MAGIC_0 && data[1] == LEGACY_MAGIC_1;
+    }
+
+    /**
+     * Returns the content of a raw LOB value read by a native query. Depending on
+     * the JDBC driver the value is returned as a byte array or a Blob.
+     *
+     * @param value - raw column value
+     * @return byte array or null
+     * @throws IOException
+     */
+    public static byte[] readLob(Object value) throws IOException {
+        if (value instanceof byte[]) {
+            return (byte[]) value;
+        }
+        if (value instanceof Blob) {
+            try (InputStream in = ((Blob) value).getBinaryStream()) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buffer = new byte[8192];
+                int n;
+                while ((n = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, n);
+                }
+                return out.toByteArray();
+            } catch (SQLException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Encodes a item map into the compact item data format.
+     *
+     * @param items - item map of a document
+     * @return encoded data block
+     */
+    public static byte[] encode(Map<String, List<Object>> items) {
+        if (items == null) {
+            return null;
+        }
+        try {
+            Map<String, Integer> dictionary = new LinkedHashMap<String, Integer>();
+            ByteBuilder body = new ByteBuilder(1024);
+            ByteBuilder valueBlock = new ByteBuilder(256);
+            body.writeVarInt(items.size());
+            for (Map.Entry<String, List<Object>> entry : items.entrySet()) {
+                valueBlock.reset();
+                writeValue(valueBlock, entry.getValue(), dictionary);
+                body.writeString(entry.getKey());
+                body.writeVarInt(valueBlock.size());
+                body.write(valueBlock);
+            }
+
+            ByteBuilder result = new ByteBuilder(body.size() + 16 * dictionary.size() + 8);
+            result.writeByte(MAGIC_0);
+            result.writeByte(MAGIC_1);
+            result.writeByte(VERSION);
+            result.writeVarInt(dictionary.size());
+            for (String value : dictionary.keySet()) {
+                result.writeString(value);
+            }
+            result.write(body);
+            return result.toByteArray();
+        } catch (IOException e) {
+            throw new InvalidAccessException(INVALID_DATA, "unable to encode item data: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Decodes a data block into a item map. The method accepts the compact item
+     * data format as well as the legacy Java serialization format.
+     *
+     * @param data - encoded data block
+     * @return item map
+     */
+    public static Map<String, List<Object>> decode(byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        if (isLegacyFormat(data)) {
+            return decodeLegacy(data);
+        }
+        ByteReader reader = openReader(data);
+        String[] dictionary = readDictionary(reader);
+        int count = reader.readVarInt();
+        Map<String, List<Object>> result = new Hashtable<String, List<Object>>(Math.max(11, count * 2));
+        for (int i = 0; i < count; i++) {
+            String name = reader.readString();
+            int length = reader.readVarInt();
+            int end = reader.position() + length;
+            List<Object> value = readItemValue(reader, dictionary);
+            reader.seek(end);
+            if (name != null && value != null) {
+                result.put(name, value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Decodes a data block written in the legacy Java serialization format.
+     *
+     * @param data
+     * @return item map
+     */
+    @SuppressWarnings("unchecked")
+    static Map<String, List<Object>> decodeLegacy(byte[] data) {
+        try (ObjectInputStream in = new ContextObjectInputStream(new ByteArrayInputStream(data))) {
+            return (Map<String, List<Object>>) in.readObject();
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            throw new InvalidAccessException(INVALID_DATA, "unable to decode legacy item data: " + e.getMessage(),
+                    e);
+        }
+    }
+
+    /**
+     * Verifies the header of a data block and returns a reader positioned behind
+     * the header.
+     */
+    static ByteReader openReader(byte[] data) {
+        if (!isItemDataFormat(data)) {
+            throw new InvalidAccessException(INVALID_DATA, "unknown item data format");
+        }
+        int version = data[2];
+        if (version < 1 || version > VERSION) {
+            throw new InvalidAccessException(INVALID_DATA, "unsupported item data version: " + version);
+        }
+        return new ByteReader(data, 3, version);
+    }
+
+    static String[] readDictionary(ByteReader reader) {
+        String[] dictionary = new String[reader.readVarInt()];
+        for (int i = 0; i < dictionary.length; i++) {
+            dictionary[i] = reader.readString();
+        }
+        return dictionary;
+    }
+
+    /**
+     * Reads a single item value. Item values are expected to be lists. Other
+     * values are wrapped into a list.
+     */
+    static List<Object> readItemValue(ByteReader reader, String[] dictionary) {
+        return readItemValue(reader, dictionary, null);
+    }
+
+    /**
+     * Reads a single item value containing maps, like the item $file. Only the
+     * map entries with the given keys are decoded, all other entries are skipped.
+     * Maps nested in a map value are read completely.
+     */
+    @SuppressWarnings("unchecked")
+    static List<Object> readItemValue(ByteReader reader, String[] dictionary, Collection<?> mapKeys) {
+        Object value = readValue(reader, dictionary, mapKeys);
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof List) {
+            return (List<Object>) value;
+        }
+        List<Object> list = new ArrayList<Object>(1);
+        list.add(value);
+        return list;
+    }
+
+    /**
+     * Creates a deep copy of a item value. The copy is created by encoding and
+     * decoding the value which is much faster than a java serialization round
+     * trip.
+     *
+     * @param value - item value
+     * @return copy of the value
+     */
+    static List<Object> copyItemValue(List<Object> value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            Map<String, Integer> dictionary = new LinkedHashMap<String, Integer>();
+            ByteBuilder out = new ByteBuilder(256);
+            writeValue(out, value, dictionary);
+            ByteReader reader = new ByteReader(out.toByteArray(), 0);
+            return readItemValue(reader, dictionary.keySet().toArray(new String[dictionary.size()]));
+        } catch (IOException e) {
+            throw new InvalidAccessException(INVALID_DATA, "unable to copy item value: " + e.getMessage(), e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void writeValue(ByteBuilder out, Object value, Map<String, Integer> dictionary)
+            throws IOException {
+        if (value == null) {
+            out.writeByte(TAG_NULL);
+            return;
+        }
+        Class<?> type = value.getClass();
+        if (type == String.class) {
+            String s = (String) value;
+            if (s.length() <= MAX_DICTIONARY_STRING_LENGTH) {
+                Integer index = dictionary.get(s);
+                if (index == null) {
+                    index = dictionary.size();
+                    dictionary.put(s, index);
+                }
+                out.writeByte(TAG_STRING_REF);
+                out.writeVarInt(index);
+            } else {
+                out.writeByte(TAG_STRING);
+                out.writeString(s);
+            }
+        } else if (type == Integer.class) {
+            out.writeByte(TAG_INTEGER);
+            out.writeVarLong(zigZag((Integer) value));
+        } else if (type == Long.class) {
+            out.writeByte(TAG_LONG);
+            out.writeVarLong(zigZag((Long) value));
+        } else if (type == Double.class) {
+            out.writeByte(TAG_DOUBLE);
+            out.writeFixedLong(Double.doubleToRawLongBits((Double) value));
+        } else if (type == Float.class) {
+            out.writeByte(TAG_FLOAT);
+            out.writeFixedInt(Float.floatToRawIntBits((Float) value));
+        } else if (type == Boolean.class) {
+            out.writeByte(((Boolean) value) ? TAG_TRUE : TAG_FALSE);
+        } else if (type == Date.class) {
+            out.writeByte(TAG_DATE);
+            out.writeVarLong(zigZag(((Date) value).getTime()));
+        } else if (type == Short.class) {
+            out.writeByte(TAG_SHORT);
+            out.writeVarLong(zigZag((Short) value));
+        } else if (type == Byte.class) {
+            out.writeByte(TAG_BYTE);
+            out.writeByte((Byte) value);
+        } else if (type == Character.class) {
+            out.writeByte(TAG_CHARACTER);
+            out.writeVarInt((Character) value);
+        } else if (type == BigDecimal.class) {
+            BigDecimal decimal = (BigDecimal) value;
+            out.writeByte(TAG_BIGDECIMAL);
+            out.writeVarLong(zigZag(decimal.scale()));
+            out.writeBytes(decimal.unscaledValue().toByteArray());
+        } else if (type == BigInteger.class) {
+            out.writeByte(TAG_BIGINTEGER);
+            out.writeBytes(((BigInteger) value).toByteArray());
+        } else if (type == byte[].class) {
+            out.writeByte(TAG_BYTES);
+            out.writeBytes((byte[]) value);
+        } else if (value instanceof List) {
+            List<Object> list = (List<Object>) value;
+            out.writeByte(TAG_LIST);
+            out.writeVarInt(list.size());
+            for (Object element : list) {
+                writeValue(out, element, dictionary);
+            }
+        } else if (value instanceof Map) {
+            Map<Object, Object> map = (Map<Object, Object>) value;
+            out.writeByte(TAG_MAP);
+            out.writeVarInt(map.size());
+            for (Map.Entry<Object, Object> entry : map.entrySet()) {
+                writeValue(out, entry.getKey(), dictionary);
+                writeValue(out, entry.getValue(), dictionary);
+            }
+        } else {
+            // fallback - embed java serialization for all other types
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+                oos.writeObject(value);
+            }
+            out.writeByte(TAG_SERIALIZED);
+            out.writeBytes(bos.toByteArray());
+        }
+    }
+
+    private static Object readValue(ByteReader in, String[] dictionary) {
+        return readValue(in, dictionary, null);
+    }
+
+    private static Object readValue(ByteReader in, String[] dictionary, Collection<?> mapKeys) {
+        int tag = in.readByte();
+        switch (tag) {
+        case TAG_NULL:
+            return null;
+        case TAG_STRING_REF:
+            return dictionary[in.readVarInt()];
+        case TAG_STRING:
+            return in.readString();
+        case TAG_INTEGER:
+            return Integer.valueOf((int) unZigZag(in.readVarLong()));
+        case TAG_LONG:
+            return Long.valueOf(unZigZag(in.readVarLong()));
+        case TAG_DOUBLE:
+            return Double.valueOf(Double.longBitsToDouble(in.readFixedLong()));
+        case TAG_FLOAT:
+            return Float.valueOf(Float.intBitsToFloat(in.readFixedInt()));
+        case TAG_TRUE:
+            return Boolean.TRUE;
+        case TAG_FALSE:
+            return Boolean.FALSE;
+        case TAG_DATE:
+            return new Date(unZigZag(in.readVarLong()));
+        case TAG_SHORT:
+            return Short.valueOf((short) unZigZag(in.readVarLong()));
+        case TAG_BYTE:
+            return Byte.valueOf((byte) in.readByte());
+        case TAG_CHARACTER:
+            return Character.valueOf((char) in.readVarInt());
+        case TAG_BIGDECIMAL:
+            int scale = (int) unZigZag(in.readVarLong());
+            return new BigDecimal(new BigInteger(in.readBytes()), scale);
+        case TAG_BIGINTEGER:
+            return new BigInteger(in.readBytes());
+        case TAG_BYTES:
+            return in.readBytes();
+        case TAG_LIST:
+            int size = in.readVarInt();
+            List<Object> list = new ArrayList<Object>(size);
+            for (int i = 0; i < size; i++) {
+                list.add(readValue(in, dictionary, mapKeys));
+            }
+            return list;
+        case TAG_MAP:
+            int entries = in.readVarInt();
+            Map<Object, Object> map = new LinkedHashMap<Object, Object>(Math.max(16, entries * 2));
+            for (int i = 0; i < entries; i++) {
+                Object key = readValue(in, dictionary);
+                if (mapKeys == null || mapKeys.contains(key)) {
+                    map.put(key, readValue(in, dictionary));
+                } else {
+                    skipValue(in);
+                }
+            }
+            return map;
+        case TAG_SERIALIZED:
+            try (ObjectInputStream ois = new ContextObjectInputStream(new ByteArrayInputStream(in.readBytes()))) {
+                return ois.readObject();
+            } catch (IOException | ClassNotFoundException e) {
+                throw new InvalidAccessException(INVALID_DATA, "unable to decode item value: " + e.getMessage(), e);
+            }
+        default:
+            throw new InvalidAccessException(INVALID_DATA, "unknown item data tag: " + tag);
+        }
+    }
+
+    /**
+     * Skips a value without decoding it.
+     */
+    private static void skipValue(ByteReader in) {
+        int tag = in.readByte();
+        switch (tag) {
+        case TAG_NULL:
+        case TAG_TRUE:
+        case TAG_FALSE:
+            break;
+        case TAG_STRING_REF:
+        case TAG_INTEGER:
+        case TAG_LONG:
+        case TAG_DATE:
+        case TAG_SHORT:
+        case TAG_CHARACTER:
+            in.readVarLong();
+            break;
+        case TAG_DOUBLE:
+            in.skip(8);
+            break;
+        case TAG_FLOAT:
+            in.skip(4);
+            break;
+        case TAG_BYTE:
+            in.skip(1);
+            break;
+        case TAG_BIGDECIMAL:
+            in.readVarLong();
+            in.skip(in.readVarInt());
+            break;
+        case TAG_STRING:
+        case TAG_BIGINTEGER:
+        case TAG_BYTES:
+        case TAG_SERIALIZED:
+            in.skip(in.readVarInt());
+            break;
+        case TAG_LIST:
+            int size = in.readVarInt();
+            for (int i = 0; i < size; i++) {
+                skipValue(in);
+            }
+            break;
+        case TAG_MAP:
+            int entries = in.readVarInt();
+            for (int i = 0; i < entries * 2; i++) {
+                skipValue(in);
+            }
+            break;
+        default:
+            throw new InvalidAccessException(INVALID_DATA, "unknown item data tag: " + tag);
+        }
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Unsynchronized growable byte buffer used to assemble a data block.
+     */
+    static final class ByteBuilder {
+        private byte[] buffer;
+        private int count;
+
+        ByteBuilder(int capacity) {
+            buffer = new byte[Math.max(16, capacity)];
+        }
+
+        int size() {
+            return count;
+        }
+
+        void reset() {
+            count = 0;
+        }
+
+        byte[] toByteArray() {
+            byte[] result = new byte[count];
+            System.arraycopy(buffer, 0, result, 0, count);
+            return result;
+        }
+
+        private void ensureCapacity(int additional) {
+            if (count + additional > buffer.length) {
+                byte[] newBuffer = new byte[Math.max(buffer.length * 2, count + additional)];
+                System.arraycopy(buffer, 0, newBuffer, 0, count);
+                buffer = newBuffer;
+            }
+        }
+
+        void writeByte(int b) {
+            ensureCapacity(1);
+            buffer[count++] = (byte) b;
+        }
+
+        void write(byte[] b, int off, int len) {
+            ensureCapacity(len);
+            System.arraycopy(b, off, buffer, count, len);
+            count += len;
+        }
+
+        void write(ByteBuilder other) {
+            write(other.buffer, 0, other.count);
+        }
+
+        void writeVarInt(int value) {
+            writeVarLong(value & 0xFFFFFFFFL);
+        }
+
+        void writeVarLong(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[count++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[count++] = (byte) value;
+        }
+
+        void writeFixedInt(int value) {
+            ensureCapacity(4);
+            buffer[count++] = (byte) (value >>> 24);
+            buffer[count++] = (byte) (value >>> 16);
+            buffer[count++] = (byte) (value >>> 8);
+            buffer[count++] = (byte) value;
+        }
+
+        void writeFixedLong(long value) {
+            writeFixedInt((int) (value >>> 32));
+            writeFixedInt((int) value);
+        }
+
+        void writeBytes(byte[] b) {
+            writeVarInt(b.length);
+            write(b, 0, b.length);
+        }
+
+        /**
+         * Writes a string in modified UTF-8. In difference to DataOutput.writeUTF
+         * the length is written as a variable length integer and is not limited.
+         */
+        void writeString(String s) {
+            int length = s.length();
+            int utfLength = length;
+            for (int i = 0; i < length; i++) {
+                char c = s.charAt(i);
+                if (c >= 0x800) {
+                    utfLength += 2;
+                } else if (c >= 0x80 || c == 0) {
+                    utfLength++;
+                }
+            }
+            writeVarInt(utfLength);
+            ensureCapacity(utfLength);
+            for (int i = 0; i < length; i++) {
+                char c = s.charAt(i);
+                if (c > 0 && c < 0x80) {
+                    buffer[count++] = (byte) c;
+                } else if (c < 0x800) {
+                    buffer[count++] = (byte) (0xC0 | (c >> 6));
+                    buffer[count++] = (byte) (0x80 | (c & 0x3F));
+                } else {
+                    buffer[count++] = (byte) (0xE0 | (c >> 12));
+                    buffer[count++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    buffer[count++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+        }
+    }
+
+    /**
+     * Reader for a data block supporting random positioning.
+     */
+    static final class ByteReader {
+        private final byte[] data;
+        private final int version;
+        private int pos;
+
+        ByteReader(byte[] data, int pos) {
+            this(data, pos, VERSION);
+        }
+
+        ByteReader(byte[] data, int pos, int version) {
+            this.data = data;
+            this.pos = pos;
+            this.version = version;
+        }
+
+        int version() {
+            return version;
+        }
+
+        int position() {
+            return pos;
+        }
+
+        void seek(int position) {
+            if (position < 0 || position > data.length) {
+                throw new InvalidAccessException(INVALID_DATA, "corrupted item data");
+            }
+            pos = position;
+        }
+
+        void skip(int length) {
+            if (length < 0) {
+                throw new InvalidAccessException(INVALID_DATA, "corrupted item data");
+            }
+            seek(pos + length);
+        }
+
+        int readByte() {
+            if (pos >= data.length) {
+                throw new InvalidAccessException(INVALID_DATA, "unexpected end of item data");
+            }
+            return data[pos++];
+        }
+
+        int readVarInt() {
+            return (int) readVarLong();
+        }
+
+        long readVarLong() {
+            long result = 0;
+            int shift = 0;
+            while (shift < 64) {
+                int b = readByte();
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+                shift += 7;
+            }
+            throw new InvalidAccessException(INVALID_DATA, "malformed varint in item data");
+        }
+
+        int readFixedInt() {
+            return ((readByte() & 0xFF) << 24) | ((readByte() & 0xFF) << 16) | ((readByte() & 0xFF) << 8)
+                    | (readByte() & 0xFF);
+        }
+
+        long readFixedLong() {
+            return ((long) readFixedInt() << 32) | (readFixedInt() & 0xFFFFFFFFL);
+        }
+
+        byte[] readBytes() {
+            int length = readVarInt();
+            if (length < 0 || pos + length > data.length) {
+                throw new InvalidAccessException(INVALID_DATA, "corrupted item data");
+            }
+            byte[] result = new byte[length];
+            System.arraycopy(data, pos, result, 0, length);
+            pos += length;
+            return result;
+        }
+
+        String readString() {
+            int length = readVarInt();
+            if (length < 0 || pos + length > data.length) {
+                throw new InvalidAccessException(INVALID_DATA, "corrupted item data");
+            }
+            if (version == 1) {
+                String result = new String(data, pos, length, StandardCharsets.UTF_8);
+                pos += length;
+                return result;
+            }
+            // modified UTF-8
+            char[] chars = new char[length];
+            int n = 0;
+            int end = pos + length;
+            while (pos < end) {
+                int b = data[pos++] & 0xFF;
+                if (b < 0x80) {
+                    chars[n++] = (char) b;
+                } else if ((b & 0xE0) == 0xC0 && pos < end) {
+                    chars[n++] = (char) (((b & 0x1F) << 6) | (data[pos++] & 0x3F));
+                } else if ((b & 0xF0) == 0xE0 && pos + 1 < end) {
+                    chars[n++] = (char) (((b & 0x0F) << 12) | ((data[pos++] & 0x3F) << 6) | (data[pos++] & 0x3F));
+                } else {
+                    throw new InvalidAccessException(INVALID_DATA, "malformed string in item data");
+                }
+            }
+            return new String(chars, 0, n);
+        }
+    }
+
+    /**
+     * ObjectInputStream resolving classes by the context class loader first. This
+     * is needed in application servers where the data classes (e.g. XMLItem) are
+     * not visible to the class loader of the engine.
+     */
+    static final class ContextObjectInputStream extends ObjectInputStream {
+
+        ContextObjectInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            ClassLoader loader = Thread.currentThread().getContextClassLoader();
+            if (loader != null) {
+                try {
+                    return Class.forName(desc.getName(), false, loader);
+                } catch (ClassNotFoundException e) {
+                    // fall back to the default resolution
+                }
+            }
+            return super.resolveClass(desc);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*  
+ *  Imixs-Workflow 
+ *  
+ *  Copyright (C) 2001-2020 Imixs Software Solutions GmbH,  
+ *  http://www.imixs.com
+ *  
+ *  This program is free software; you can redistribute it and/or 
+ *  modify it under the terms of the GNU General Public License 
+ *  as published by the Free Software Foundation; either version 2 
+ *  of the License, or (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful, 
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ *  General Public License for more details.
+ *  
+ *  You can receive a copy of the GNU General Public
+ *  License at http://www.gnu.org/licenses/gpl.html
+ *  
+ *  Project: 
+ *      https://www.imixs.org
+ *      https://github.com/imixs/imixs-workflow
+ *  
+ *  Contributors:  
+ *      Imixs Software Solutions GmbH - Project Management
+ *      Ralph Soika - Software Developer
+ */
+
+package org.imixs.workflow.engine.jpa;
+
+import java.util.List;
+import java.util.Map;
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+
+/**
+ * The ItemDataConverter converts the data map of a Document or EventLog entity
+ * into the compact binary item data format and back.
+ * <p>
+ * Existing rows written in the legacy Java serialization format are read
+ * transparently. New or updated rows are always written in the item data
+ * format. Existing data can be migrated with the AdminP job 'MIGRATION'.
+ *
+ * @see ItemDataCodec
+ * @see org.imixs.workflow.engine.adminp.JobHandlerMigrateData
+ * @author rsoika
+ * @version 1.0
+ */
+@Converter
+public class ItemDataConverter implements AttributeConverter<Map<String, List<Object>>, byte[]> {
+
+    @Override
+    public byte[] convertToDatabaseColumn(Map<String, List<Object>> data) {
+        if (data instanceof ItemDataMap) {
+            // no need to encode the map again if it was not touched
+            byte[] unchangedData = ((ItemDataMap) data).getUnchangedData();
+            if (unchangedData != null) {
+                return unchangedData;
+            }
+        }
+        return ItemDataCodec.encode(data);
+    }
+
+    /**
+     * Data in the item data format is returned as a lazy {@link ItemDataMap}.
+     * Legacy data is decoded completely.
+     */
+    @Override
+    public Map<String, List<Object>> convertToEntityAttribute(byte[] data) {
+        if (ItemDataCodec.isItemDataFormat(data)) {
+            return new ItemDataMap(data);
+        }
+        return ItemDataCodec.decode(data);
+    }
+
+}
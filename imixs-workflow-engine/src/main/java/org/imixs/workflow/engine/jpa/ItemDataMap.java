@@ -0,0 +1,328 @@
+/*  
+ *  Imixs-Workflow 
+ *  
+ *  Copyright (C) 2001-2020 Imixs Software Solutions GmbH,  
+ *  http://www.imixs.com
+ *  
+ *  This program is free software; you can redistribute it and/or 
+ *  modify it under the terms of the GNU General Public License 
+ *  as published by the Free Software Foundation; either version 2 
+ *  of the License, or (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful, 
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ *  General Public License for more details.
+ *  
+ *  You can receive a copy of the GNU General Public
+ *  License at http://www.gnu.org/licenses/gpl.html
+ *  
+ *  Project: 
+ *      https://www.imixs.org
+ *      https://github.com/imixs/imixs-workflow
+ *  
+ *  Contributors:  
+ *      Imixs Software Solutions GmbH - Project Management
+ *      Ralph Soika - Software Developer
+ */
+
+package org.imixs.workflow.engine.jpa;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The ItemDataMap is a lazy item map backed by a data block in the compact item
+ * data format. The map is returned by the {@link ItemDataConverter} when a
+ * Document or EventLog entity is loaded.
+ * <p>
+ * Only the item names are read when the map is created. A item value is
+ * decoded on first access. This allows to read single items like the
+ * $readaccess or to create a projection of a few items without decoding the
+ * whole document.
+ * <p>
+ * If no item was changed, the converter writes back the original data block
+ * without encoding the map again. Decoded values are compared with the data
+ * block to detect changes made directly to a value list.
+ * <p>
+ * Like the Hashtable used before, the map methods are synchronized. Iterators
+ * of the key and entry sets are not synchronized and must not be used
+ * concurrently with a modification of the map.
+ * <p>
+ * The map is serialized as a Hashtable containing all items.
+ *
+ * @see ItemDataCodec
+ * @author rsoika
+ * @version 1.0
+ */
+public class ItemDataMap extends AbstractMap<String, List<Object>> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final byte[] data;
+    private final int version;
+    private final String[] dictionary;
+    // the offsets of all item values in the data block
+    private final Map<String, Integer> offsets;
+    // holds the offset (Integer) of a undecoded value or the decoded value (List)
+    private final Map<String, Object> items;
+    private boolean modified = false;
+
+    /**
+     * Creates a new ItemDataMap from a data block in the compact item data format.
+     * 
+     * @param data - data block
+     */
+    public ItemDataMap(byte[] data) {
+        this.data = data;
+        ItemDataCodec.ByteReader reader = ItemDataCodec.openReader(data);
+        version = reader.version();
+        dictionary = ItemDataCodec.readDictionary(reader);
+        int count = reader.readVarInt();
+        offsets = new LinkedHashMap<String, Integer>(Math.max(16, count * 2));
+        for (int i = 0; i < count; i++) {
+            String name = reader.readString();
+            int length = reader.readVarInt();
+            if (name != null) {
+                offsets.put(name, reader.position());
+            }
+            reader.seek(reader.position() + length);
+        }
+        items = new LinkedHashMap<String, Object>(offsets);
+    }
+
+    /**
+     * Returns the original data block if no item was changed, otherwise null. A
+     * decoded value is compared with the value stored in the data block, as the
+     * value list may have been changed directly by the caller.
+     * 
+     * @return original data block or null
+     */
+    synchronized byte[] getUnchangedData() {
+        if (modified) {
+            return null;
+        }
+        for (Map.Entry<String, Object> entry : items.entrySet()) {
+            Object value = entry.getValue();
+            if (!(value instanceof Integer) && !value.equals(decode(offsets.get(entry.getKey())))) {
+                return null;
+            }
+        }
+        return data;
+    }
+
+    /**
+     * Returns a new item map containing a deep copy of the given items. Values not
+     * accessed before are decoded directly from the data block. Item names are
+     * expected in lower case. Unknown items are ignored.
+     * 
+     * @param itemNames - list of item names
+     * @return new item map
+     */
+    public synchronized Map<String, List<Object>> copyOf(Collection<String> itemNames) {
+        Map<String, List<Object>> result = new Hashtable<String, List<Object>>();
+        for (String name : itemNames) {
+            Object value = items.get(name);
+            List<Object> copy = null;
+            if (value instanceof Integer) {
+                copy = decode((Integer) value);
+            } else if (value != null) {
+                @SuppressWarnings("unchecked")
+                List<Object> list = (List<Object>) value;
+                copy = ItemDataCodec.copyItemValue(list);
+            }
+            if (copy != null) {
+                result.put(name, copy);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns a deep copy of a item value containing a map, like the item $file.
+     * Only the map entries with the given keys are copied. If the value was not
+     * accessed before, all other entries are skipped in the data block without
+     * decoding them. So a single file can be read without decoding the content of
+     * all other files.
+     *
+     * @param itemName - item name in lower case
+     * @param keys     - keys of the map entries to be copied
+     * @return copy of the item value or null if the item does not exist
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized List<Object> copyOf(String itemName, Collection<?> keys) {
+        Object value = items.get(itemName);
+        if (value instanceof Integer) {
+            ItemDataCodec.ByteReader reader = new ItemDataCodec.ByteReader(data, (Integer) value, version);
+            return ItemDataCodec.readItemValue(reader, dictionary, keys);
+        }
+        if (value == null) {
+            return null;
+        }
+        List<Object> list = new ArrayList<Object>();
+        for (Object element : (List<Object>) value) {
+            if (element instanceof Map) {
+                Map<Object, Object> map = new LinkedHashMap<Object, Object>();
+                for (Map.Entry<Object, Object> entry : ((Map<Object, Object>) element).entrySet()) {
+                    if (keys.contains(entry.getKey())) {
+                        map.put(entry.getKey(), entry.getValue());
+                    }
+                }
+                element = map;
+            }
+            list.add(element);
+        }
+        return ItemDataCodec.copyItemValue(list);
+    }
+
+    @Override
+    public synchronized int size() {
+        return items.size();
+    }
+
+    @Override
+    public synchronized boolean containsKey(Object key) {
+        return items.containsKey(key);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public synchronized List<Object> get(Object key) {
+        Object value = items.get(key);
+        if (value instanceof Integer) {
+            List<Object> list = decode((Integer) value);
+            items.put((String) key, list);
+            return list;
+        }
+        return (List<Object>) value;
+    }
+
+    @Override
+    public synchronized List<Object> put(String key, List<Object> value) {
+        List<Object> old = get(key);
+        items.put(key, value);
+        modified = true;
+        return old;
+    }
+
+    @Override
+    public synchronized List<Object> remove(Object key) {
+        List<Object> old = get(key);
+        items.remove(key);
+        modified = true;
+        return old;
+    }
+
+    @Override
+    public synchronized void clear() {
+        items.clear();
+        modified = true;
+    }
+
+    @Override
+    public Set<Entry<String, List<Object>>> entrySet() {
+        return new AbstractSet<Entry<String, List<Object>>>() {
+
+            @Override
+            public Iterator<Entry<String, List<Object>>> iterator() {
+                final Iterator<String> keys = items.keySet().iterator();
+                return new Iterator<Entry<String, List<Object>>>() {
+
+                    @Override
+                    public boolean hasNext() {
+                        return keys.hasNext();
+                    }
+
+                    @Override
+                    public Entry<String, List<Object>> next() {
+                        return new ItemEntry(keys.next());
+                    }
+
+                    @Override
+                    public void remove() {
+                        synchronized (ItemDataMap.this) {
+                            keys.remove();
+                            modified = true;
+                        }
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return ItemDataMap.this.size();
+            }
+        };
+    }
+
+    private List<Object> decode(int offset) {
+        ItemDataCodec.ByteReader reader = new ItemDataCodec.ByteReader(data, offset, version);
+        return ItemDataCodec.readItemValue(reader, dictionary);
+    }
+
+    /**
+     * The map is serialized as a Hashtable with all items decoded.
+     */
+    private synchronized Object writeReplace() throws ObjectStreamException {
+        return new Hashtable<String, List<Object>>(this);
+    }
+
+    /**
+     * A map entry decoding the item value on first access. So iterating over the
+     * key set does not decode any value.
+     */
+    private class ItemEntry implements Entry<String, List<Object>> {
+        private final String key;
+
+        ItemEntry(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public String getKey() {
+            return key;
+        }
+
+        @Override
+        public List<Object> getValue() {
+            return get(key);
+        }
+
+        @Override
+        public List<Object> setValue(List<Object> value) {
+            return put(key, value);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Entry)) {
+                return false;
+            }
+            Entry<?, ?> e = (Entry<?, ?>) o;
+            List<Object> value = getValue();
+            return key.equals(e.getKey()) && (value == null ? e.getValue() == null : value.equals(e.getValue()));
+        }
+
+        @Override
+        public int hashCode() {
+            List<Object> value = getValue();
+            return key.hashCode() ^ (value == null ? 0 : value.hashCode());
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + getValue();
+        }
+    }
+
+}
@@ -33,12 +33,12 @@ import java.io.IOException;
 import java.io.StringWriter;
 import java.util.List;
 import java.util.logging.Logger;
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.Marshaller;
 import org.imixs.workflow.ItemCollection;
 import org.imixs.workflow.WorkflowContext;
 import org.imixs.workflow.exceptions.ModelException;
 import org.imixs.workflow.exceptions.PluginException;
+import org.imixs.workflow.xml.JAXBContextRegistry;
 import org.imixs.workflow.xml.XMLDocument;
 import org.imixs.workflow.xml.XMLDocumentAdapter;
 import org.imixs.workflow.xml.XSLHandler;
@@ -169,8 +169,7 @@ public class DocumentComposerPlugin extends AbstractPlugin {
             xml = XMLDocumentAdapter.getDocument(documentContext);
             StringWriter writer = new StringWriter();
 
-            JAXBContext context = JAXBContext.newInstance(XMLDocument.class);
-            Marshaller m = context.createMarshaller();
+            Marshaller m = JAXBContextRegistry.getMarshaller(XMLDocument.class);
             m.setProperty("jaxb.encoding", encoding);
             m.marshal(xml, writer);
 
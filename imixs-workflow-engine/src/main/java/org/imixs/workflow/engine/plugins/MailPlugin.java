@@ -52,13 +52,13 @@ import javax.mail.internet.InternetAddress;
 import javax.mail.internet.MimeBodyPart;
 import javax.mail.internet.MimeMessage;
 import javax.mail.internet.MimeMultipart;
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
 import javax.xml.transform.TransformerException;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.imixs.workflow.ItemCollection;
 import org.imixs.workflow.exceptions.PluginException;
+import org.imixs.workflow.xml.JAXBContextRegistry;
 import org.imixs.workflow.xml.XMLDocument;
 import org.imixs.workflow.xml.XMLDocumentAdapter;
 import org.imixs.workflow.xml.XSLHandler;
@@ -495,8 +495,7 @@ public class MailPlugin extends AbstractPlugin {
             xml = XMLDocumentAdapter.getDocument(documentContext);
             StringWriter writer = new StringWriter();
 
-            JAXBContext context = JAXBContext.newInstance(XMLDocument.class);
-            Marshaller m = context.createMarshaller();
+            Marshaller m = JAXBContextRegistry.getMarshaller(XMLDocument.class);
             m.setProperty("jaxb.encoding", encoding);
             m.marshal(xml, writer);
 
@@ -32,11 +32,11 @@ import java.io.ByteArrayOutputStream;
 import java.io.FileOutputStream;
 import java.io.StringWriter;
 import java.util.logging.Logger;
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.Marshaller;
 import org.imixs.workflow.FileData;
 import org.imixs.workflow.ItemCollection;
 import org.imixs.workflow.exceptions.PluginException;
+import org.imixs.workflow.xml.JAXBContextRegistry;
 import org.imixs.workflow.xml.XMLDataCollection;
 import org.imixs.workflow.xml.XMLDocument;
 import org.imixs.workflow.xml.XMLDocumentAdapter;
@@ -128,8 +128,7 @@ public class ReportPlugin extends AbstractPlugin {
             XMLDocument xml = XMLDocumentAdapter.getDocument(adocumentContext);
             StringWriter writer = new StringWriter();
 
-            JAXBContext context = JAXBContext.newInstance(XMLDataCollection.class);
-            Marshaller m = context.createMarshaller();
+            Marshaller m = JAXBContextRegistry.getMarshaller(XMLDataCollection.class);
             m.setProperty("jaxb.encoding", encoding);
             m.marshal(xml, writer);
 
@@ -148,4 +148,18 @@ public class TestModelService extends WorkflowMockEnvironment {
 		Assert.assertNull(amodel);
 	}
 
+	/**
+	 * This test verifies the timestamp of a loaded model version. The timestamp is
+	 * used to compute the ETag of the model resources.
+	 */
+	@Test
+	public void testModelTimestamp() {
+		this.setModelPath("/bpmn/TestWorkflowService.bpmn");
+		this.loadModel();
+
+		Assert.assertTrue(modelService.getModelTimestamp(DEFAULT_MODEL_VERSION) > 0);
+		// unknown model version
+		Assert.assertEquals(0, modelService.getModelTimestamp("9.9.9"));
+	}
+
 }
@@ -0,0 +1,112 @@
+package org.imixs.workflow.engine;
+
+import static org.mockito.Mockito.when;
+
+import java.security.Principal;
+import java.util.Hashtable;
+import java.util.List;
+
+import javax.ejb.SessionContext;
+import javax.persistence.EntityManager;
+
+import org.imixs.workflow.ItemCollection;
+import org.imixs.workflow.engine.index.SchemaService;
+import org.imixs.workflow.engine.jpa.Document;
+import org.imixs.workflow.exceptions.AccessDeniedException;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import junit.framework.Assert;
+
+/**
+ * Test the property 'index.skipunchanged'. A document is only re-indexed if an
+ * item of the index schema has changed.
+ *
+ * @author rsoika
+ */
+public class TestSkipUnchangedIndex {
+
+	DocumentService documentService;
+	EventLogService eventLogService;
+	Document entity;
+
+	@Before
+	public void setup() {
+		SessionContext ctx = Mockito.mock(SessionContext.class);
+		Principal principal = Mockito.mock(Principal.class);
+		when(principal.getName()).thenReturn("manfred");
+		when(ctx.getCallerPrincipal()).thenReturn(principal);
+		when(ctx.isCallerInRole(DocumentService.ACCESSLEVEL_MANAGERACCESS)).thenReturn(true);
+
+		// the managed document entity
+		entity = new Document("test-1");
+		entity.setData(new Hashtable<String, List<Object>>());
+		EntityManager manager = Mockito.mock(EntityManager.class);
+		when(manager.find(Document.class, "test-1")).thenReturn(entity);
+
+		SchemaService schemaService = new SchemaService();
+		schemaService.init();
+
+		eventLogService = Mockito.mock(EventLogService.class);
+
+		documentService = new DocumentService();
+		documentService.ctx = ctx;
+		documentService.manager = manager;
+		documentService.eventLogService = eventLogService;
+		documentService.schemaService = schemaService;
+		documentService.skipUnchangedIndex = true;
+	}
+
+	/**
+	 * A save which only changes a item not part of the index schema does not write
+	 * an index event, even though the save updates $modified.
+	 */
+	@Test
+	public void testSkipUnchangedIndex() throws AccessDeniedException, InterruptedException {
+		ItemCollection document = new ItemCollection();
+		document.replaceItemValue("$uniqueid", "test-1");
+		document.replaceItemValue("txtname", "Anna");
+		document.replaceItemValue("_comment", "first");
+
+		documentService.save(document);
+		Mockito.verify(eventLogService, Mockito.times(1)).createEvent(DocumentService.EVENTLOG_TOPIC_INDEX_ADD,
+				"test-1");
+		String fingerprint = entity.getIndexFingerprint();
+		Assert.assertNotNull(fingerprint);
+
+		// change a non-indexed item - $modified is updated by the save
+		Thread.sleep(10);
+		document.replaceItemValue("_comment", "second");
+		documentService.save(document);
+		Mockito.verify(eventLogService, Mockito.times(1)).createEvent(DocumentService.EVENTLOG_TOPIC_INDEX_ADD,
+				"test-1");
+		Assert.assertEquals(fingerprint, entity.getIndexFingerprint());
+
+		// change an indexed item
+		document.replaceItemValue("txtname", "Manfred");
+		documentService.save(document);
+		Mockito.verify(eventLogService, Mockito.times(2)).createEvent(DocumentService.EVENTLOG_TOPIC_INDEX_ADD,
+				"test-1");
+		Assert.assertFalse(fingerprint.equals(entity.getIndexFingerprint()));
+	}
+
+	/**
+	 * Without the property each save writes an index event
+	 */
+	@Test
+	public void testIndexEachSave() throws AccessDeniedException {
+		documentService.skipUnchangedIndex = false;
+		ItemCollection document = new ItemCollection();
+		document.replaceItemValue("$uniqueid", "test-1");
+		document.replaceItemValue("_comment", "first");
+
+		documentService.save(document);
+		document.replaceItemValue("_comment", "second");
+		documentService.save(document);
+		Mockito.verify(eventLogService, Mockito.times(2)).createEvent(DocumentService.EVENTLOG_TOPIC_INDEX_ADD,
+				"test-1");
+		Assert.assertNull(entity.getIndexFingerprint());
+	}
+
+}
@@ -14,6 +14,7 @@ import org.imixs.workflow.exceptions.PluginException;
 import org.imixs.workflow.exceptions.ProcessingErrorException;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.Mockito;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 
@@ -65,6 +66,45 @@ public class TestWorkflowService {
 
 	}
 
+	/**
+	 * This test verifies the processing of a block of workitems. If one workitem
+	 * can not be processed, the block is processed one by one and only the invalid
+	 * workitem is rejected with an error code.
+	 * 
+	 * @throws ModelException
+	 * @throws PluginException
+	 */
+	@Test
+	public void testProcessWorkItems() throws PluginException, ModelException {
+		WorkflowService workflowService = workflowMockEnvironment.workflowService;
+		when(workflowMockEnvironment.ctx.getBusinessObject(WorkflowService.class)).thenReturn(workflowService);
+		when(workflowService.processWorkItems(Mockito.anyList())).thenCallRealMethod();
+		when(workflowService.processWorkItemsByNewTransaction(Mockito.anyList())).thenCallRealMethod();
+		when(workflowService.processWorkItemByNewTransaction(Mockito.any(ItemCollection.class)))
+				.thenCallRealMethod();
+
+		ItemCollection workitem = workflowMockEnvironment.database.get("W0000-00001");
+		workitem.replaceItemValue(WorkflowKernel.MODELVERSION, WorkflowMockEnvironment.DEFAULT_MODEL_VERSION);
+		workitem.setTaskID(100);
+		// undefined task
+		ItemCollection invalidWorkitem = new ItemCollection();
+		invalidWorkitem.replaceItemValue(WorkflowKernel.MODELVERSION, WorkflowMockEnvironment.DEFAULT_MODEL_VERSION);
+		invalidWorkitem.setTaskID(999);
+		invalidWorkitem.setEventID(10);
+
+		List<ItemCollection> workitems = new ArrayList<ItemCollection>();
+		workitems.add(workitem);
+		workitems.add(invalidWorkitem);
+		List<ItemCollection> result = workflowService.processWorkItems(workitems);
+
+		Assert.assertEquals(2, result.size());
+		Assert.assertFalse(result.get(0).hasItem("$error_code"));
+		Assert.assertEquals("1.0.0", result.get(0).getItemValueString("$ModelVersion"));
+		Assert.assertTrue(result.get(1).hasItem("$error_code"));
+		// the given workitem is not processed
+		Assert.assertFalse(workitem.hasItem(WorkflowKernel.LASTEVENT));
+	}
+
 	/**
 	 * test if the method getEvents returns correct lists of public events.
 	 */
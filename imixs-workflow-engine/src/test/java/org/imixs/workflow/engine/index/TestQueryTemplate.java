@@ -0,0 +1,46 @@
+package org.imixs.workflow.engine.index;
+
+import org.junit.Test;
+
+import junit.framework.Assert;
+
+/**
+ * Test the conversion of a QueryTemplate into a search term
+ *
+ * @author rsoika
+ *
+ */
+public class TestQueryTemplate {
+
+	/**
+	 * Test a template with a single field clause and a clause with two fields
+	 */
+	@Test
+	public void testToSearchTerm() {
+		QueryTemplate template = new QueryTemplate().addTerm("workitem", "type").addTerm("anna", "$owner",
+				"namowner");
+		Assert.assertEquals(2, template.getClauses().size());
+		Assert.assertEquals("( type:\"workitem\" AND ($owner:\"anna\" OR namowner:\"anna\") )",
+				template.toSearchTerm());
+		Assert.assertEquals(template.toSearchTerm(), template.toString());
+	}
+
+	/**
+	 * Test a null value, which is treated as an empty value
+	 */
+	@Test
+	public void testNullValue() {
+		QueryTemplate template = new QueryTemplate().addTerm(null, "$processid");
+		Assert.assertEquals("", template.getClauses().get(0).getValue());
+		Assert.assertEquals("( $processid:\"\" )", template.toSearchTerm());
+	}
+
+	/**
+	 * The clauses can not be changed from outside
+	 */
+	@Test(expected = UnsupportedOperationException.class)
+	public void testUnmodifiableClauses() {
+		new QueryTemplate().addTerm("workitem", "type").getClauses().clear();
+	}
+
+}
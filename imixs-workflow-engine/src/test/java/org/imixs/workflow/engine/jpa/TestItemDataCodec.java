@@ -0,0 +1,224 @@
+package org.imixs.workflow.engine.jpa;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import org.imixs.workflow.FileData;
+import org.imixs.workflow.ItemCollection;
+import org.imixs.workflow.exceptions.InvalidAccessException;
+import org.junit.Test;
+
+import junit.framework.Assert;
+
+/**
+ * Test the compact item data format of the ItemDataCodec
+ *
+ * @author rsoika
+ *
+ */
+public class TestItemDataCodec {
+
+	private static Logger logger = Logger.getLogger(TestItemDataCodec.class.getName());
+
+	/**
+	 * Test encoding and decoding of basic item values
+	 */
+	@Test
+	public void testBasicTypes() {
+		Date now = new Date();
+		ItemCollection doc = new ItemCollection();
+		doc.replaceItemValue("txtname", "Anna");
+		doc.replaceItemValue("$processid", 1000);
+		doc.replaceItemValue("$created", now);
+		doc.replaceItemValue("_amount", new BigDecimal("47.11"));
+		doc.replaceItemValue("_long", 99999999999l);
+		doc.replaceItemValue("_double", 3.14);
+		doc.replaceItemValue("_flag", true);
+		doc.replaceItemValue("_empty", null);
+		doc.appendItemValue("$readaccess", "anna");
+		doc.appendItemValue("$readaccess", "manfred");
+
+		byte[] data = ItemDataCodec.encode(doc.getAllItems());
+		Assert.assertTrue(ItemDataCodec.isItemDataFormat(data));
+		Assert.assertFalse(ItemDataCodec.isLegacyFormat(data));
+
+		ItemCollection result = new ItemCollection(ItemDataCodec.decode(data));
+		Assert.assertEquals("Anna", result.getItemValueString("txtname"));
+		Assert.assertEquals(1000, result.getItemValueInteger("$processid"));
+		Assert.assertEquals(now, result.getItemValueDate("$created"));
+		Assert.assertEquals(new BigDecimal("47.11"), result.getItemValue("_amount").get(0));
+		Assert.assertEquals(99999999999l, result.getItemValueLong("_long"));
+		Assert.assertEquals(3.14, result.getItemValueDouble("_double"));
+		Assert.assertTrue(result.getItemValueBoolean("_flag"));
+		Assert.assertTrue(result.hasItem("_empty"));
+		Assert.assertEquals(2, result.getItemValue("$readaccess").size());
+		Assert.assertEquals("manfred", result.getItemValue("$readaccess").get(1));
+	}
+
+	/**
+	 * Test encoding and decoding of file attachments stored in nested maps
+	 */
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testFileData() {
+		byte[] content = { 1, 2, 3, 4, 5 };
+		ItemCollection doc = new ItemCollection();
+		doc.addFileData(new org.imixs.workflow.FileData("test.txt", content, "text/plain", null));
+
+		ItemCollection result = new ItemCollection(ItemDataCodec.decode(ItemDataCodec.encode(doc.getAllItems())));
+		Assert.assertEquals(1, result.getFileNames().size());
+		Assert.assertEquals("text/plain", result.getFileData("test.txt").getContentType());
+		byte[] resultContent = result.getFileData("test.txt").getContent();
+		Assert.assertEquals(5, resultContent.length);
+		Assert.assertEquals(5, resultContent[4]);
+		Map<String, List<Object>> files = (Map<String, List<Object>>) result.getItemValue("$file").get(0);
+		Assert.assertNotNull(files.get("test.txt"));
+	}
+
+	/**
+	 * Test that data written in the legacy java serialization format can still be
+	 * read
+	 */
+	@Test
+	public void testLegacyFormat() throws IOException {
+		ItemCollection doc = new ItemCollection();
+		doc.replaceItemValue("txtname", "Anna");
+		doc.replaceItemValue("$processid", 1000);
+
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		ObjectOutputStream oos = new ObjectOutputStream(bos);
+		oos.writeObject(new Hashtable<String, List<Object>>(doc.getAllItems()));
+		oos.close();
+		byte[] legacyData = bos.toByteArray();
+
+		Assert.assertTrue(ItemDataCodec.isLegacyFormat(legacyData));
+		ItemCollection result = new ItemCollection(ItemDataCodec.decode(legacyData));
+		Assert.assertEquals("Anna", result.getItemValueString("txtname"));
+		Assert.assertEquals(1000, result.getItemValueInteger("$processid"));
+
+		// the compact format should be smaller than the legacy format
+		byte[] data = ItemDataCodec.encode(doc.getAllItems());
+		logger.info("legacy size=" + legacyData.length + " item data size=" + data.length);
+		Assert.assertTrue(data.length < legacyData.length);
+	}
+
+	/**
+	 * Test that strings are restored exactly, including unpaired surrogates and
+	 * characters outside the basic multilingual plane
+	 */
+	@Test
+	public void testStringEncoding() {
+		String[] values = { "Grüße", "\u0000null", "\ud83d\ude00 smiley", "lone \ud83d surrogate",
+				"lone \ude00 low surrogate" };
+		ItemCollection doc = new ItemCollection();
+		for (int i = 0; i < values.length; i++) {
+			doc.replaceItemValue("_value" + i, values[i]);
+		}
+		ItemCollection result = new ItemCollection(ItemDataCodec.decode(ItemDataCodec.encode(doc.getAllItems())));
+		for (int i = 0; i < values.length; i++) {
+			Assert.assertEquals(values[i], result.getItemValueString("_value" + i));
+		}
+
+		// data blocks of the version 1 are still readable
+		doc = new ItemCollection();
+		doc.replaceItemValue("txtname", "Grüße");
+		byte[] data = ItemDataCodec.encode(doc.getAllItems());
+		data[2] = 1;
+		result = new ItemCollection(ItemDataCodec.decode(data));
+		Assert.assertEquals("Grüße", result.getItemValueString("txtname"));
+	}
+
+	/**
+	 * Test the lazy ItemDataMap and the projection of items
+	 */
+	@Test
+	public void testItemDataMap() {
+		ItemCollection doc = new ItemCollection();
+		doc.replaceItemValue("txtname", "Anna");
+		doc.replaceItemValue("$processid", 1000);
+		doc.appendItemValue("$readaccess", "anna");
+		byte[] data = ItemDataCodec.encode(doc.getAllItems());
+
+		ItemDataMap lazyMap = new ItemDataMap(data);
+		Assert.assertEquals(3, lazyMap.size());
+		Assert.assertTrue(lazyMap.containsKey("txtname"));
+		// no value decoded - the original data block can be reused
+		Assert.assertSame(data, lazyMap.getUnchangedData());
+
+		// projection
+		Map<String, List<Object>> projection = lazyMap.copyOf(Arrays.asList("txtname", "unknown"));
+		Assert.assertEquals(1, projection.size());
+		Assert.assertEquals("Anna", projection.get("txtname").get(0));
+		Assert.assertSame(data, lazyMap.getUnchangedData());
+
+		// reading a value does not change the data block
+		Assert.assertEquals(1000, lazyMap.get("$processid").get(0));
+		Assert.assertSame(data, lazyMap.getUnchangedData());
+		Assert.assertEquals(doc.getAllItems(), lazyMap);
+
+		// a value list changed directly
+		lazyMap.get("$readaccess").add("manfred");
+		Assert.assertNull(lazyMap.getUnchangedData());
+
+		// a new item
+		lazyMap = new ItemDataMap(data);
+		lazyMap.put("txtname", Arrays.asList((Object) "Manfred"));
+		Assert.assertNull(lazyMap.getUnchangedData());
+
+		// a removed item
+		lazyMap = new ItemDataMap(data);
+		lazyMap.keySet().remove("txtname");
+		Assert.assertNull(lazyMap.getUnchangedData());
+		Assert.assertEquals(2, lazyMap.size());
+	}
+
+	/**
+	 * Test the projection of a single file of the item $file. All other files are
+	 * skipped in the data block.
+	 */
+	@Test
+	public void testFileProjection() {
+		ItemCollection doc = new ItemCollection();
+		doc.replaceItemValue("txtname", "Anna");
+		doc.addFileData(new FileData("a.txt", "Hello".getBytes(), "text/plain", null));
+		doc.addFileData(new FileData("b.pdf", new byte[1000], "application/pdf", null));
+		doc.addFileData(new FileData("c.txt", "World".getBytes(), "text/plain", null));
+		byte[] data = ItemDataCodec.encode(doc.getAllItems());
+
+		ItemDataMap lazyMap = new ItemDataMap(data);
+		ItemCollection result = new ItemCollection();
+		result.replaceItemValue("$file", lazyMap.copyOf("$file", Arrays.asList("c.txt", "unknown")));
+		Assert.assertEquals(1, result.getFileNames().size());
+		Assert.assertEquals("World", new String(result.getFileData("c.txt").getContent()));
+		Assert.assertEquals("text/plain", result.getFileData("c.txt").getContentType());
+		Assert.assertSame(data, lazyMap.getUnchangedData());
+
+		// a decoded value is filtered in memory
+		lazyMap.get("$file");
+		result.replaceItemValue("$file", lazyMap.copyOf("$file", Arrays.asList("a.txt")));
+		Assert.assertEquals(1, result.getFileNames().size());
+		Assert.assertEquals("Hello", new String(result.getFileData("a.txt").getContent()));
+		Assert.assertEquals(3, new ItemCollection(lazyMap).getFileNames().size());
+
+		Assert.assertNull(lazyMap.copyOf("unknown", Arrays.asList("a.txt")));
+	}
+
+	/**
+	 * Test corrupt data
+	 */
+	@Test(expected = InvalidAccessException.class)
+	public void testInvalidData() {
+		byte[] data = ItemDataCodec.encode(new ItemCollection().getAllItems());
+		data[2] = 99;
+		ItemDataCodec.decode(data);
+	}
+
+}
@@ -46,6 +46,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.Part;
 import org.imixs.workflow.FileData;
+import org.imixs.workflow.engine.attachments.AttachmentService;
 
 /**
  * The AjaxFileUploadServlet is a Multipart-Servlet 3.0. It is used by the
@@ -73,6 +74,9 @@ public class AjaxFileUploadServlet extends HttpServlet {
     @Inject
     FileUploadController fileUploadController;
 
+    @Inject
+    AttachmentService attachmentService;
+
     /**
      * Upload files to stored in the current user session
      */
@@ -213,7 +217,7 @@ public class AjaxFileUploadServlet extends HttpServlet {
     private void writeFileContent(ServletResponse response, FileData fileData) throws IOException {
         logger.finest("......write file content...");
         ServletOutputStream output = response.getOutputStream();
-        output.write(fileData.getContent());
+        output.write(attachmentService.loadContent(fileData));
         // now return json string of uploaded files....
         response.setContentType(fileData.getContentType());
         output.close();
@@ -345,7 +349,7 @@ public class AjaxFileUploadServlet extends HttpServlet {
                     result += "\"thumbnail_url\": \"\",";
                     result += "\"name\": \"" + fileData.getName() + "\",";
                     result += "\"type\": \"" + fileData.getContentType() + "\",";
-                    result += "\"size\": " + fileData.getContent().length + ",";
+                    result += "\"size\": " + attachmentService.getContentSize(fileData) + ",";
                     result += "\"delete_url\": \"\",";
                     result += "\"delete_type\": \"DELETE\"";
 
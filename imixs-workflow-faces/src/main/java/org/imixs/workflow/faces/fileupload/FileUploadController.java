@@ -44,6 +44,7 @@ import javax.inject.Named;
 import javax.servlet.http.HttpServletRequest;
 import org.imixs.workflow.FileData;
 import org.imixs.workflow.ItemCollection;
+import org.imixs.workflow.engine.attachments.AttachmentService;
 import org.imixs.workflow.faces.data.WorkflowEvent;
 
 /**
@@ -71,6 +72,9 @@ public class FileUploadController implements Serializable {
     @Inject
     private Conversation conversation;
 
+    @Inject
+    private AttachmentService attachmentService;
+
     /**
      * Setter method to get an instance of the current workitem the FileData should
      * be stored.
@@ -241,7 +245,7 @@ public class FileUploadController implements Serializable {
     public String getFileSize(String aFilename) {
         if (workitem != null) {
             FileData fileData = workitem.getFileData(aFilename);
-            double bytes = fileData.getContent().length;
+            double bytes = attachmentService.getContentSize(fileData);
             if (bytes >= 1000000000) {
                 bytes = (bytes / 1000000000);
                 return round(bytes) + " GB";
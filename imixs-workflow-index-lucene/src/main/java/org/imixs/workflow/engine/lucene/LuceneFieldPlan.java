@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * <pre>
+ *  Imixs Workflow 
+ *  Copyright (C) 2001-2020 Imixs Software Solutions GmbH,  
+ *  http://www.imixs.com
+ *  
+ *  This program is free software; you can redistribute it and/or 
+ *  modify it under the terms of the GNU General Public License 
+ *  as published by the Free Software Foundation; either version 2 
+ *  of the License, or (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful, 
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ *  General Public License for more details.
+ *  
+ *  You can receive a copy of the GNU General Public
+ *  License at http://www.gnu.org/licenses/gpl.html
+ *  
+ *  Project: 
+ *      https://www.imixs.org
+ *      https://github.com/imixs/imixs-workflow
+ *  
+ *  Contributors:  
+ *      Imixs Software Solutions GmbH - initial API and implementation
+ *      Ralph Soika - Software Developer
+ * </pre>
+ *******************************************************************************/
+
+package org.imixs.workflow.engine.lucene;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.apache.lucene.facet.FacetsConfig;
+import org.imixs.workflow.engine.index.SchemaService;
+
+/**
+ * The LuceneFieldPlan is a precompiled view of the index schema used to create a Lucene document.
+ * The plan resolves all field lists of the SchemaService once, so that the creation of a single
+ * document needs no list lookups.
+ * <p>
+ * The plan is immutable and can be shared.
+ * 
+ * @see LuceneIndexService#createDocument(org.imixs.workflow.ItemCollection)
+ * @author rsoika
+ * @version 1.0
+ */
+public class LuceneFieldPlan {
+
+  /**
+   * Describes how the values of a single item are added into a Lucene document.
+   */
+  public static class FieldEntry {
+    final String name;
+    final boolean analyze;
+    final boolean store;
+    final boolean date;
+    final boolean number;
+
+    FieldEntry(String name, boolean analyze, boolean store, boolean date, boolean number) {
+      this.name = name;
+      this.analyze = analyze;
+      this.store = store;
+      this.date = date;
+      this.number = number;
+    }
+  }
+
+  private final String[] contentFields;
+  private final FieldEntry[] fieldEntries;
+  private final String[] facetFields;
+  private final FacetsConfig facetsConfig;
+
+  /**
+   * Compiles the field plan for the current schema.
+   * 
+   * @param schemaService
+   */
+  public LuceneFieldPlan(SchemaService schemaService) {
+    contentFields = schemaService.getFieldList().toArray(new String[0]);
+
+    Set<String> storeSet = new HashSet<String>(schemaService.getFieldListStore());
+    Set<String> dateSet = new HashSet<String>(schemaService.getFieldListDate());
+    Set<String> numberSet = new HashSet<String>(schemaService.getFieldListNumber());
+    List<FieldEntry> entries = new ArrayList<FieldEntry>();
+    // analyzed...
+    for (String fieldName : schemaService.getFieldListAnalyze()) {
+      FieldEntry entry = createEntry(fieldName, true, storeSet, dateSet, numberSet);
+      entries.add(entry);
+      // avoid duplication.....
+      storeSet.remove(entry.name);
+    }
+    // ... and not analyzed...
+    for (String fieldName : schemaService.getFieldListNoAnalyze()) {
+      entries.add(createEntry(fieldName, false, storeSet, dateSet, numberSet));
+    }
+    fieldEntries = entries.toArray(new FieldEntry[entries.size()]);
+
+    facetFields = schemaService.getFieldListFacet().toArray(new String[0]);
+    facetsConfig = new FacetsConfig();
+    for (String fieldName : facetFields) {
+      facetsConfig.setMultiValued(fieldName, true);
+    }
+  }
+
+  private FieldEntry createEntry(String fieldName, boolean analyze, Set<String> storeSet,
+      Set<String> dateSet, Set<String> numberSet) {
+    // item name must be LowerCased and trimmed because of later usage in doc.add(...)
+    String name = fieldName.toLowerCase().trim();
+    boolean date = dateSet.contains(name);
+    boolean number = !date && numberSet.contains(name);
+    return new FieldEntry(name, analyze, storeSet.contains(name), date, number);
+  }
+
+  /**
+   * Returns the items to be added into the default search field 'content'.
+   */
+  public String[] getContentFields() {
+    return contentFields;
+  }
+
+  /**
+   * Returns the items to be added as separate fields.
+   */
+  public FieldEntry[] getFieldEntries() {
+    return fieldEntries;
+  }
+
+  /**
+   * Returns the items to be added as facets.
+   */
+  public String[] getFacetFields() {
+    return facetFields;
+  }
+
+  /**
+   * Returns the FacetsConfig for the facet fields.
+   */
+  public FacetsConfig getFacetsConfig() {
+    return facetsConfig;
+  }
+}
@@ -0,0 +1,125 @@
+/*******************************************************************************
+ * <pre>
+ *  Imixs Workflow 
+ *  Copyright (C) 2001-2020 Imixs Software Solutions GmbH,  
+ *  http://www.imixs.com
+ *  
+ *  This program is free software; you can redistribute it and/or 
+ *  modify it under the terms of the GNU General Public License 
+ *  as published by the Free Software Foundation; either version 2 
+ *  of the License, or (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful, 
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ *  General Public License for more details.
+ *  
+ *  You can receive a copy of the GNU General Public
+ *  License at http://www.gnu.org/licenses/gpl.html
+ *  
+ *  Project: 
+ *      https://www.imixs.org
+ *      https://github.com/imixs/imixs-workflow
+ *  
+ *  Contributors:  
+ *      Imixs Software Solutions GmbH - initial API and implementation
+ *      Ralph Soika - Software Developer
+ * </pre>
+ *******************************************************************************/
+
+package org.imixs.workflow.engine.lucene;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+/**
+ * The LuceneHitCountCache caches the total hits of a search query. The key of a cache entry is
+ * build from the search term and the read access roles of the current user. So the cache entries are
+ * separated by the principal groups.
+ * <p>
+ * All entries are bound to the version of the index they were computed for. If the version of the
+ * index changes, the cache is cleared. The max number of cache entries can be set by the property
+ * 'lucene.count.cache.size'. A size of 0 disables the cache.
+ * 
+ * @see LuceneSearchService#getTotalHits(String, int, org.imixs.workflow.engine.index.DefaultOperator)
+ * @author rsoika
+ * @version 1.0
+ */
+@ApplicationScoped
+public class LuceneHitCountCache {
+
+  public static final String DEFAULT_CACHE_SIZE = "256";
+
+  @Inject
+  @ConfigProperty(name = "lucene.count.cache.size", defaultValue = DEFAULT_CACHE_SIZE)
+  private int cacheSize;
+
+  private long indexVersion = -1;
+  private Map<String, Integer> cache = null;
+
+  private static Logger logger = Logger.getLogger(LuceneHitCountCache.class.getName());
+
+  /**
+   * Returns the cached total hits for a search term or null if no entry exists for the given index
+   * version.
+   * 
+   * @param searchTerm   - the search term including the read access roles
+   * @param indexVersion - the version of the current index reader
+   * @return total hits or null
+   */
+  public synchronized Integer get(String searchTerm, long indexVersion) {
+    if (cacheSize <= 0 || indexVersion != this.indexVersion || cache == null) {
+      return null;
+    }
+    Integer result = cache.get(searchTerm);
+    if (result != null) {
+      logger.finest("......total hits found in cache");
+    }
+    return result;
+  }
+
+  /**
+   * Puts the total hits of a search term into the cache. If the index version has changed, all
+   * existing entries are removed.
+   * 
+   * @param searchTerm   - the search term including the read access roles
+   * @param indexVersion - the version of the index reader the hits were computed for
+   * @param hits         - total hits
+   */
+  public synchronized void put(String searchTerm, long indexVersion, int hits) {
+    if (cacheSize <= 0) {
+      return;
+    }
+    if (cache == null || indexVersion != this.indexVersion) {
+      this.indexVersion = indexVersion;
+      cache = createCache();
+    }
+    cache.put(searchTerm, hits);
+  }
+
+  /**
+   * Removes all entries. This method is called if the index directory was switched.
+   */
+  public synchronized void clear() {
+    indexVersion = -1;
+    cache = null;
+  }
+
+  /**
+   * Creates a LRU map limited to the configured cache size.
+   */
+  @SuppressWarnings("serial")
+  private Map<String, Integer> createCache() {
+    return new LinkedHashMap<String, Integer>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+        return size() > cacheSize;
+      }
+    };
+  }
+
+}
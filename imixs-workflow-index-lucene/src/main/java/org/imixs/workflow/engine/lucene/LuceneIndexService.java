@@ -30,19 +30,27 @@
 package org.imixs.workflow.engine.lucene;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.text.SimpleDateFormat;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
-import java.util.Calendar;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Stream;
+import javax.annotation.Resource;
 import javax.ejb.LocalBean;
 import javax.ejb.Stateless;
 import javax.ejb.TransactionAttribute;
 import javax.ejb.TransactionAttributeType;
+import javax.enterprise.concurrent.ManagedExecutorService;
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
@@ -50,9 +58,12 @@ import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.standard.ClassicAnalyzer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.NumericDocValuesField;
 import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.StoredField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetField;
 import org.apache.lucene.index.CorruptIndexException;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexWriter;
@@ -87,11 +98,22 @@ public class LuceneIndexService {
   public static final String DEFAULT_ANALYZER =
       "org.apache.lucene.analysis.standard.ClassicAnalyzer";
   public static final String DEFAULT_INDEX_DIRECTORY = "imixs-workflow-index";
+  public static final String ACTIVE_INDEX_SUFFIX = ".active";
+  public static final String SHADOW_INDEX_SUFFIX = ".shadow";
+  public static final String RETIRED_INDEX_SUFFIX = ".retired";
+  // marks a lucene document holding type tagged stored values
+  public static final String STUB_FORMAT_FIELD = "$stubformat";
+  public static final String STUB_FORMAT_TYPED = "typed";
+  // minimum number of workitems indexed by one thread during a rebuild
+  public static final int MIN_PARTITION_SIZE = 50;
 
   @PersistenceContext(unitName = "org.imixs.workflow.jpa")
   private EntityManager manager;
 
-  private SimpleDateFormat luceneDateFormat = new SimpleDateFormat("yyyyMMddHHmmss");
+  @Resource
+  private ManagedExecutorService managedExecutorService;
+
+  private LuceneFieldPlan fieldPlan = null;
 
   @Inject
   @ConfigProperty(name = "lucence.indexDir", defaultValue = DEFAULT_INDEX_DIRECTORY)
@@ -104,6 +126,9 @@ public class LuceneIndexService {
   @Inject
   private LuceneItemAdapter luceneItemAdapter;
 
+  @Inject
+  private LuceneHitCountCache hitCountCache;
+
   private static Logger logger = Logger.getLogger(LuceneIndexService.class.getName());
 
   @Inject
@@ -115,9 +140,28 @@ public class LuceneIndexService {
   @Inject
   private SchemaService schemaService;
 
+  /**
+   * Returns the location of the active lucene index. If the index was rebuilt into a shadow
+   * directory, the active directory is read from the file '[indexDir].active'. Otherwise the
+   * configured index directory is returned.
+   *
+   * @return active index directory
+   */
   public String getLuceneIndexDir() {
     // issue #599
-    return luceneIndexDir.trim();
+    String baseDir = luceneIndexDir.trim();
+    String activeDir = readIndexPointer(baseDir + ACTIVE_INDEX_SUFFIX);
+    return activeDir != null ? activeDir : baseDir;
+  }
+
+  /**
+   * Returns the location of the shadow index or null if no index rebuild into a shadow directory is
+   * running.
+   *
+   * @return shadow index directory or null
+   */
+  public String getShadowIndexDir() {
+    return readIndexPointer(luceneIndexDir.trim() + SHADOW_INDEX_SUFFIX);
   }
 
   public void setLuceneIndexDir(String luceneIndexDir) {
@@ -193,11 +237,7 @@ public class LuceneIndexService {
   public void rebuildIndex(Directory indexDir) throws IOException {
     // create a IndexWriter Instance to make sure we have created the index
     // directory..
-    IndexWriterConfig indexWriterConfig;
-    indexWriterConfig = new IndexWriterConfig(new ClassicAnalyzer());
-    indexWriterConfig.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
-    IndexWriter indexWriter = new IndexWriter(indexDir, indexWriterConfig);
-    indexWriter.close();
+    createEmptyIndex(indexDir);
     // now starting index job....
     logger.info("...rebuild lucene index job created...");
     ItemCollection job = new ItemCollection();
@@ -206,13 +246,116 @@ public class LuceneIndexService {
     adminPService.createJob(job);
   }
 
+  /**
+   * Creates a new empty shadow index next to the active index. Until the shadow index is switched,
+   * all index updates are written into both indexes and the JobHandlerRebuildIndex writes into the
+   * shadow index only. If a shadow index already exists, the method does nothing.
+   *
+   * @throws IOException
+   */
+  public void createShadowIndex() throws IOException {
+    if (getShadowIndexDir() != null) {
+      logger.info("...shadow index '" + getShadowIndexDir() + "' already exists");
+      return;
+    }
+    deleteRetiredIndex();
+    String shadowDir = luceneIndexDir.trim() + "." + System.currentTimeMillis();
+    createEmptyIndex(FSDirectory.open(Paths.get(shadowDir)));
+    writeIndexPointer(luceneIndexDir.trim() + SHADOW_INDEX_SUFFIX, shadowDir);
+    logger.info("...shadow index '" + shadowDir + "' created");
+  }
+
+  /**
+   * Switches the active index to the shadow index. The pointer file is replaced by an atomic move,
+   * so the LuceneSearchService opens either the old or the new index. The old index directory is
+   * not deleted immediately, as a concurrent reader or writer may still use it. It is marked as
+   * retired in the file '[indexDir].retired' and deleted by the next rebuild or switch.
+   *
+   * @throws IOException
+   */
+  public void switchShadowIndex() throws IOException {
+    String shadowDir = getShadowIndexDir();
+    if (shadowDir == null) {
+      logger.warning("...no shadow index found!");
+      return;
+    }
+    deleteRetiredIndex();
+    String oldDir = getLuceneIndexDir();
+    writeIndexPointer(luceneIndexDir.trim() + ACTIVE_INDEX_SUFFIX, shadowDir);
+    Files.deleteIfExists(Paths.get(luceneIndexDir.trim() + SHADOW_INDEX_SUFFIX));
+    hitCountCache.clear();
+    logger.info("...switched lucene index to '" + shadowDir + "'");
+    if (!oldDir.equals(shadowDir)) {
+      writeIndexPointer(luceneIndexDir.trim() + RETIRED_INDEX_SUFFIX, oldDir);
+      logger.info("...old lucene index '" + oldDir + "' retired");
+    }
+  }
+
+  /**
+   * Deletes the index directory retired by the last switch of the shadow index.
+   *
+   * @throws IOException
+   */
+  public void deleteRetiredIndex() throws IOException {
+    String retiredDir = readIndexPointer(luceneIndexDir.trim() + RETIRED_INDEX_SUFFIX);
+    if (retiredDir != null && !retiredDir.equals(getLuceneIndexDir())
+        && !retiredDir.equals(getShadowIndexDir()) && Files.exists(Paths.get(retiredDir))) {
+      try (Stream<Path> paths = Files.walk(Paths.get(retiredDir))) {
+        paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+      }
+      logger.info("...retired lucene index '" + retiredDir + "' deleted");
+    }
+    Files.deleteIfExists(Paths.get(luceneIndexDir.trim() + RETIRED_INDEX_SUFFIX));
+  }
+
+  /**
+   * Creates the index directory with an empty index if it does not yet exist.
+   */
+  private void createEmptyIndex(Directory indexDir) throws IOException {
+    IndexWriterConfig indexWriterConfig;
+    indexWriterConfig = new IndexWriterConfig(new ClassicAnalyzer());
+    indexWriterConfig.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+    IndexWriter indexWriter = new IndexWriter(indexDir, indexWriterConfig);
+    indexWriter.close();
+  }
+
+  /**
+   * Reads an index directory from a pointer file. Returns null if the file does not exist.
+   */
+  private String readIndexPointer(String pointerFile) {
+    Path path = Paths.get(pointerFile);
+    if (!Files.exists(path)) {
+      return null;
+    }
+    try {
+      String dir = new String(Files.readAllBytes(path), StandardCharsets.UTF_8).trim();
+      return dir.isEmpty() ? null : dir;
+    } catch (IOException e) {
+      throw new IndexException(IndexException.INVALID_INDEX,
+          "Unable to read index pointer '" + pointerFile + "'", e);
+    }
+  }
+
+  /**
+   * Writes an index directory into a pointer file. The file is written into a temp file first and
+   * moved atomically.
+   */
+  private void writeIndexPointer(String pointerFile, String dir) throws IOException {
+    Path path = Paths.get(pointerFile);
+    Path tmp = Paths.get(pointerFile + ".tmp");
+    Files.write(tmp, dir.getBytes(StandardCharsets.UTF_8));
+    Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+  }
+
   /**
    * This method adds a collection of documents to the Lucene index. The documents are added
    * immediately to the index. Calling this method within a running transaction leads to a
    * uncommitted reads in the index. For transaction control, it is recommended to use instead the
    * the method updateDocumetns() which takes care of uncommitted reads.
    * <p>
-   * This method is used by the JobHandlerRebuildIndex only.
+   * This method is used by the JobHandlerRebuildIndex only. The lucene documents are created in
+   * parallel by the ManagedExecutorService of the container. If a shadow index exists, the
+   * documents are written into the shadow index.
    * 
    * @param documents of ItemCollections to be indexed
    * @throws IndexException
@@ -221,17 +364,52 @@ public class LuceneIndexService {
 
     IndexWriter awriter = null;
     long ltime = System.currentTimeMillis();
+    // compile the field plan before the documents are created in parallel
+    getFieldPlan();
     try {
-      awriter = createIndexWriter();
-      // add workitem to search index....
+      String shadowDir = getShadowIndexDir();
+      awriter = shadowDir != null ? createIndexWriter(shadowDir) : createIndexWriter();
+      final IndexWriter writer = awriter;
+      List<ItemCollection> workitems = new ArrayList<ItemCollection>(documents.size());
       for (ItemCollection workitem : documents) {
-
         if (!workitem.getItemValueBoolean(DocumentService.NOINDEX)) {
-          // create term
-          Term term = new Term("$uniqueid", workitem.getItemValueString("$uniqueid"));
-          logger.finest("......lucene add/update uncommitted workitem '"
-              + workitem.getItemValueString(WorkflowKernel.UNIQUEID) + "' to index...");
-          awriter.updateDocument(term, createDocument(workitem));
+          workitems.add(workitem);
+        }
+      }
+      // The workitems are split into partitions. The first partition is indexed by the calling
+      // thread, the others by the ManagedExecutorService. The IndexWriter is thread safe and
+      // indexes the documents of each thread in a separate segment.
+      int partitions = managedExecutorService == null ? 1
+          : Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(),
+              workitems.size() / MIN_PARTITION_SIZE));
+      int partitionSize = (workitems.size() + partitions - 1) / partitions;
+      List<Future<Void>> futures = new ArrayList<Future<Void>>();
+      for (int i = partitionSize; i < workitems.size(); i += partitionSize) {
+        final List<ItemCollection> partition =
+            workitems.subList(i, Math.min(i + partitionSize, workitems.size()));
+        futures.add(managedExecutorService.submit(() -> {
+          indexPartition(writer, partition);
+          return null;
+        }));
+      }
+      try {
+        indexPartition(writer, workitems.subList(0, Math.min(partitionSize, workitems.size())));
+      } finally {
+        // wait for all partitions before the writer is closed
+        for (Future<Void> future : futures) {
+          try {
+            future.get();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IndexException(IndexException.INVALID_INDEX,
+                "Unable to update lucene search index", e);
+          } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+              throw (IOException) e.getCause();
+            }
+            throw new IndexException(IndexException.INVALID_INDEX,
+                "Unable to update lucene search index", e.getCause());
+          }
         }
       }
     } catch (IOException luceneEx) {
@@ -260,9 +438,30 @@ public class LuceneIndexService {
     }
   }
 
+  /**
+   * Adds a partition of workitems to the index.
+   * 
+   * @param writer - index writer
+   * @param workitems - partition of workitems
+   * @throws IOException
+   */
+  private void indexPartition(IndexWriter writer, List<ItemCollection> workitems)
+      throws IOException {
+    for (ItemCollection workitem : workitems) {
+      // create term
+      Term term = new Term("$uniqueid", workitem.getItemValueString("$uniqueid"));
+      logger.finest("......lucene add/update uncommitted workitem '"
+          + workitem.getItemValueString(WorkflowKernel.UNIQUEID) + "' to index...");
+      writer.updateDocument(term, createDocument(workitem));
+    }
+  }
+
   /**
    * This method flushes a given count of eventLogEntries. The method return true if no more
    * eventLogEntries exist.
+   * <p>
+   * If a shadow index exists, the entries are also written into the shadow index so that no update
+   * is lost when the shadow index is switched.
    * 
    * @param count the max size of a eventLog engries to remove.
    * @return true if the cache was totally flushed.
@@ -271,6 +470,7 @@ public class LuceneIndexService {
     Date lastEventDate = null;
     boolean cacheIsEmpty = true;
     IndexWriter indexWriter = null;
+    IndexWriter shadowWriter = null;
     long l = System.currentTimeMillis();
     logger.finest("......flush eventlog cache....");
 
@@ -280,6 +480,10 @@ public class LuceneIndexService {
     if (events != null && events.size() > 0) {
       try {
         indexWriter = createIndexWriter();
+        String shadowDir = getShadowIndexDir();
+        if (shadowDir != null) {
+          shadowWriter = createIndexWriter(shadowDir);
+        }
         int _counter = 0;
         for (EventLog eventLogEntry : events) {
           Term term = new Term("$uniqueid", eventLogEntry.getRef());
@@ -296,13 +500,20 @@ public class LuceneIndexService {
             ItemCollection workitem = new ItemCollection();
             workitem.setAllItems(doc.getData());
             if (!workitem.getItemValueBoolean(DocumentService.NOINDEX)) {
-              indexWriter.updateDocument(term, createDocument(workitem));
+              Document luceneDoc = createDocument(workitem);
+              indexWriter.updateDocument(term, luceneDoc);
+              if (shadowWriter != null) {
+                shadowWriter.updateDocument(term, luceneDoc);
+              }
               logger.finest("......lucene add/update workitem '" + doc.getId() + "' to index in "
                   + (System.currentTimeMillis() - l2) + "ms");
             }
           } else {
             long l2 = System.currentTimeMillis();
             indexWriter.deleteDocuments(term);
+            if (shadowWriter != null) {
+              shadowWriter.deleteDocuments(term);
+            }
             logger.finest("......lucene remove workitem '" + term + "' from index in "
                 + (System.currentTimeMillis() - l2) + "ms");
           }
@@ -331,18 +542,8 @@ public class LuceneIndexService {
         return true;
       } finally {
         // close writer!
-        if (indexWriter != null) {
-          logger.finest("......lucene close IndexWriter...");
-          try {
-            indexWriter.close();
-          } catch (CorruptIndexException e) {
-            throw new IndexException(IndexException.INVALID_INDEX,
-                "Unable to close lucene IndexWriter: ", e);
-          } catch (IOException e) {
-            throw new IndexException(IndexException.INVALID_INDEX,
-                "Unable to close lucene IndexWriter: ", e);
-          }
-        }
+        closeIndexWriter(shadowWriter);
+        closeIndexWriter(indexWriter);
       }
     }
 
@@ -353,27 +554,44 @@ public class LuceneIndexService {
 
   }
 
+  /**
+   * Closes an IndexWriter. The writer may be null.
+   */
+  private void closeIndexWriter(IndexWriter indexWriter) {
+    if (indexWriter != null) {
+      logger.finest("......lucene close IndexWriter...");
+      try {
+        indexWriter.close();
+      } catch (CorruptIndexException e) {
+        throw new IndexException(IndexException.INVALID_INDEX,
+            "Unable to close lucene IndexWriter: ", e);
+      } catch (IOException e) {
+        throw new IndexException(IndexException.INVALID_INDEX,
+            "Unable to close lucene IndexWriter: ", e);
+      }
+    }
+  }
+
   /**
    * This method creates a lucene document based on a ItemCollection. The Method creates for each
    * field specified in the FieldList a separate index field for the lucene document.
    * 
    * The property 'AnalyzeIndexFields' defines if a indexfield value should by analyzed by the
    * Lucene Analyzer (default=false)
+   * <p>
+   * The fields are added as defined by the LuceneFieldPlan of the current schema.
    * 
    * @param aworkitem
    * @return
    */
   @SuppressWarnings("unchecked")
   protected Document createDocument(ItemCollection aworkitem) {
-    String sValue = null;
+    LuceneFieldPlan plan = getFieldPlan();
     Document doc = new Document();
     // combine all search fields from the search field list into one field
     // ('content') for the lucene document
-    String sContent = "";
-
-    List<String> searchFieldList = schemaService.getFieldList();
-    for (String aFieldname : searchFieldList) {
-      sValue = "";
+    StringBuilder content = new StringBuilder();
+    for (String aFieldname : plan.getContentFields()) {
       // check value list - skip empty fields
       List<?> vValues = aworkitem.getItemValue(aFieldname);
       if (vValues.size() == 0)
@@ -383,64 +601,56 @@ public class LuceneIndexService {
         if (o == null)
           // skip null values
           continue;
-
-        if (o instanceof Calendar || o instanceof Date) {
-          // convert calendar to string
-          String sDateValue;
-          if (o instanceof Calendar)
-            sDateValue = luceneDateFormat.format(((Calendar) o).getTime());
-          else
-            sDateValue = luceneDateFormat.format((Date) o);
-          sValue += sDateValue + ",";
-
-        } else
-          // simple string representation
-          sValue += o.toString() + ",";
-      }
-      if (sValue != null) {
-        sContent += sValue + ",";
+        // dates are converted into the lucene string representation
+        content.append(luceneItemAdapter.convertItemValue(o)).append(',');
       }
+      content.append(',');
     }
+    String sContent = content.toString();
     logger.finest("......add lucene field content=" + sContent);
     doc.add(new TextField("content", sContent, Store.NO));
 
     // add each field from the indexFieldList into the lucene document
-    List<String> _localFieldListStore = new ArrayList<String>();
-    _localFieldListStore.addAll(schemaService.getFieldListStore());
-
-    // analyzed...
-    List<String> indexFieldListAnalyze = schemaService.getFieldListAnalyze();
-    for (String aFieldname : indexFieldListAnalyze) {
-      addItemValues(doc, aworkitem, aFieldname, true, _localFieldListStore.contains(aFieldname));
-      // avoid duplication.....
-      _localFieldListStore.remove(aFieldname);
-    }
-    // ... and not analyzed...
-
-    List<String> indexFieldListNoAnalyze = schemaService.getFieldListNoAnalyze();
-    for (String aFieldname : indexFieldListNoAnalyze) {
-      addItemValues(doc, aworkitem, aFieldname, false, _localFieldListStore.contains(aFieldname));
+    for (LuceneFieldPlan.FieldEntry entry : plan.getFieldEntries()) {
+      addItemValues(doc, aworkitem, entry);
     }
 
     // add $uniqueid not analyzed
     doc.add(new StringField("$uniqueid", aworkitem.getItemValueString("$uniqueid"), Store.YES));
+    // stored values are type tagged
+    doc.add(new StoredField(STUB_FORMAT_FIELD, STUB_FORMAT_TYPED));
 
     // add $readAccess not analyzed
     List<String> vReadAccess = (List<String>) aworkitem.getItemValue("$readAccess");
     if (vReadAccess.size() == 0
         || (vReadAccess.size() == 1 && "".equals(vReadAccess.get(0).toString()))) {
       // if emtpy add the ANONYMOUS default entry
-      sValue = ANONYMOUS;
-      doc.add(new StringField("$readaccess", sValue, Store.NO));
+      doc.add(new StringField("$readaccess", ANONYMOUS, Store.NO));
     } else {
-      sValue = "";
       // add each role / username as a single field value
       for (String sReader : vReadAccess) {
         doc.add(new StringField("$readaccess", sReader, Store.NO));
       }
+    }
 
+    // add the facet values
+    for (String aFieldname : plan.getFacetFields()) {
+      for (Object o : aworkitem.getItemValue(aFieldname)) {
+        if (o != null) {
+          String facetValue = luceneItemAdapter.convertItemValue(o);
+          if (!facetValue.isEmpty()) {
+            doc.add(new SortedSetDocValuesFacetField(aFieldname, facetValue));
+          }
+        }
+      }
+    }
+    try {
+      return plan.getFacetsConfig().build(doc);
+    } catch (IOException e) {
+      throw new IndexException(IndexException.INVALID_INDEX,
+          "Unable to build facets for workitem '" + aworkitem.getUniqueID() + "': " + e.getMessage(),
+          e);
     }
-    return doc;
   }
 
   /**
@@ -455,16 +665,30 @@ public class LuceneIndexService {
    */
   protected void addItemValues(final Document doc, final ItemCollection workitem,
       final String _itemName, final boolean analyzeValue, final boolean store) {
-
-    String itemName = _itemName;
-
-    if (itemName == null) {
+    if (_itemName == null) {
       return;
     }
     // item name must be LowerCased and trimmed because of later usage in
     // doc.add(...)
-    itemName = itemName.toLowerCase().trim();
+    String itemName = _itemName.toLowerCase().trim();
+    // date and number fields are indexed as points and sorted by their numeric value
+    boolean isDate = schemaService.getFieldListDate().contains(itemName);
+    boolean isNumber = !isDate && schemaService.getFieldListNumber().contains(itemName);
+    addItemValues(doc, workitem,
+        new LuceneFieldPlan.FieldEntry(itemName, analyzeValue, store, isDate, isNumber));
+  }
 
+  /**
+   * adds the values of an item into a Lucene document as defined by a FieldEntry of the
+   * LuceneFieldPlan.
+   * 
+   * @param doc      an existing lucene document
+   * @param workitem the workitem containg the values
+   * @param entry    the field entry
+   */
+  private void addItemValues(final Document doc, final ItemCollection workitem,
+      final LuceneFieldPlan.FieldEntry entry) {
+    String itemName = entry.name;
     List<?> vValues = workitem.getItemValue(itemName);
     if (vValues.size() == 0) {
       return;
@@ -475,20 +699,29 @@ public class LuceneIndexService {
 
     boolean firstValue = true;
     for (Object singleValue : vValues) {
-      IndexableField indexableField = null;
-      if (store) {
-        indexableField =
-            luceneItemAdapter.adaptItemValue(itemName, singleValue, analyzeValue, Store.YES);
-      } else {
-        indexableField =
-            luceneItemAdapter.adaptItemValue(itemName, singleValue, analyzeValue, Store.NO);
+      doc.add(luceneItemAdapter.adaptItemValue(itemName, singleValue, entry.analyze, Store.NO));
+      // the value is stored separately with its type
+      if (entry.store) {
+        doc.add(luceneItemAdapter.adaptStoredItemValue(itemName, singleValue));
       }
-      doc.add(indexableField);
 
       // we only add the first value of a multiValue field into the
       // sort index, because it seems not to make any sense to sort a
       // result set by multi-values.
-      if (!analyzeValue && firstValue == true) {
+      if (entry.date || entry.number) {
+        IndexableField pointField =
+            luceneItemAdapter.adaptPointItemValue(itemName, singleValue, entry.date);
+        if (pointField != null) {
+          doc.add(pointField);
+        }
+        if (firstValue == true) {
+          NumericDocValuesField sortedDocField =
+              luceneItemAdapter.adaptNumericSortableItemValue(itemName, singleValue, entry.date);
+          if (sortedDocField != null) {
+            doc.add(sortedDocField);
+          }
+        }
+      } else if (!entry.analyze && firstValue == true) {
         SortedDocValuesField sortedDocField =
             luceneItemAdapter.adaptSortableItemValue(itemName, singleValue);
         doc.add(sortedDocField);
@@ -499,6 +732,18 @@ public class LuceneIndexService {
 
   }
 
+  /**
+   * Returns the LuceneFieldPlan of the current schema. The plan is compiled once.
+   * 
+   * @return field plan
+   */
+  protected LuceneFieldPlan getFieldPlan() {
+    if (fieldPlan == null) {
+      fieldPlan = new LuceneFieldPlan(schemaService);
+    }
+    return fieldPlan;
+  }
+
   /**
    * This method creates a new instance of a lucene IndexWriter.
    * 
@@ -508,10 +753,33 @@ public class LuceneIndexService {
    * @throws IOException
    */
   protected IndexWriter createIndexWriter() throws IOException {
+    return createIndexWriter(getLuceneIndexDir());
+  }
+
+  /**
+   * This method creates a new instance of a lucene IndexWriter for a given index directory.
+   * 
+   * @param dir - index directory
+   * @return
+   * @throws IOException
+   */
+  protected IndexWriter createIndexWriter(String dir) throws IOException {
+    // a directory which is neither the active nor the shadow index was retired by a switch of
+    // the shadow index and must not be initialized again
+    boolean retired = !dir.equals(getLuceneIndexDir()) && !dir.equals(getShadowIndexDir());
+    if (retired && !Files.exists(Paths.get(dir))) {
+      throw new IndexException(IndexException.INVALID_INDEX,
+          "Lucene index '" + dir + "' is no longer active");
+    }
     // create a IndexWriter Instance
-    Directory indexDir = FSDirectory.open(Paths.get(getLuceneIndexDir()));
+    Directory indexDir = FSDirectory.open(Paths.get(dir));
     // verify existence of index directory...
     if (!DirectoryReader.indexExists(indexDir)) {
+      if (retired) {
+        indexDir.close();
+        throw new IndexException(IndexException.INVALID_INDEX,
+            "Lucene index '" + dir + "' is no longer active");
+      }
       logger.info("...lucene index does not yet exist, initialize the index now....");
       rebuildIndex(indexDir);
     }
@@ -29,13 +29,21 @@
 
 package org.imixs.workflow.engine.lucene;
 
-import java.text.SimpleDateFormat;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.logging.Logger;
 import javax.inject.Named;
+import org.apache.lucene.document.DoubleDocValuesField;
+import org.apache.lucene.document.DoublePoint;
 import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.NumericDocValuesField;
 import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.StoredField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
 import org.apache.lucene.index.IndexableField;
@@ -50,13 +58,26 @@ import org.imixs.workflow.engine.index.UpdateService;
  * 
  * @see LuceneUdpateService#addItemValues
  * @author rsoika
- * @version 1.1
+ * @version 1.2
  */
 @Named
 public class LuceneItemAdapter {
 
   private static Logger logger = Logger.getLogger(UpdateService.class.getName());
 
+  public static final DateTimeFormatter LUCENE_DATE_FORMAT =
+      DateTimeFormatter.ofPattern("yyyyMMddHHmmss").withZone(ZoneId.systemDefault());
+
+  // type tags of stored item values
+  public static final char TYPE_STRING = 'S';
+  public static final char TYPE_DATE = 'T';
+  public static final char TYPE_INTEGER = 'I';
+  public static final char TYPE_LONG = 'L';
+  public static final char TYPE_DOUBLE = 'D';
+  public static final char TYPE_FLOAT = 'F';
+  public static final char TYPE_DECIMAL = 'N';
+  public static final char TYPE_BOOLEAN = 'B';
+
   /**
    * Creates a Indexable Lucene Field to be added into a Lucene document. The content of the
    * itemValue will be converted. Depending on the parameter doAnalye a TextField or a StringField
@@ -104,6 +125,81 @@ public class LuceneItemAdapter {
     }
   }
 
+  /**
+   * Creates a StoredField holding the item value together with a type tag. The first character of
+   * the stored value is the type tag, followed by the string representation of the value. A date is
+   * stored with its time in milliseconds. The value can be restored by the method
+   * convertStoredValue without parsing.
+   * 
+   * @param itemName  - name of the item will be used as the doc field name
+   * @param itemValue - the item value
+   * @return StoredField
+   */
+  public StoredField adaptStoredItemValue(String itemName, Object itemValue) {
+    char type = TYPE_STRING;
+    String stringValue;
+    Long time = convertDateValue(itemValue);
+    if (time != null) {
+      type = TYPE_DATE;
+      stringValue = time.toString();
+    } else {
+      stringValue = itemValue.toString();
+      if (itemValue instanceof Integer || itemValue instanceof Short || itemValue instanceof Byte) {
+        type = TYPE_INTEGER;
+      } else if (itemValue instanceof Long) {
+        type = TYPE_LONG;
+      } else if (itemValue instanceof Double) {
+        type = TYPE_DOUBLE;
+      } else if (itemValue instanceof Float) {
+        type = TYPE_FLOAT;
+      } else if (itemValue instanceof BigDecimal) {
+        type = TYPE_DECIMAL;
+      } else if (itemValue instanceof Boolean) {
+        type = TYPE_BOOLEAN;
+      }
+    }
+    return new StoredField(itemName, type + stringValue);
+  }
+
+  /**
+   * Converts a stored value created by the method adaptStoredItemValue back into the item value.
+   * 
+   * @param storedValue - type tag and string representation of the value
+   * @return item value
+   */
+  public Object convertStoredValue(String storedValue) {
+    if (storedValue == null || storedValue.isEmpty()) {
+      return storedValue;
+    }
+    String value = storedValue.substring(1);
+    try {
+      switch (storedValue.charAt(0)) {
+        case TYPE_STRING:
+          return value;
+        case TYPE_DATE:
+          return new Date(Long.parseLong(value));
+        case TYPE_INTEGER:
+          return Integer.valueOf(value);
+        case TYPE_LONG:
+          return Long.valueOf(value);
+        case TYPE_DOUBLE:
+          return Double.valueOf(value);
+        case TYPE_FLOAT:
+          return Float.valueOf(value);
+        case TYPE_DECIMAL:
+          return new BigDecimal(value);
+        case TYPE_BOOLEAN:
+          return Boolean.valueOf(value);
+        default:
+          // no type tag
+          return storedValue;
+      }
+    } catch (NumberFormatException e) {
+      logger.warning("...invalid stored value '" + storedValue + "'");
+      return value;
+    }
+  }
+
   /**
    * This method converts an ItemValue into a SortedDocValuesField.
    * 
@@ -117,6 +213,48 @@ public class LuceneItemAdapter {
     return new SortedDocValuesField(itemName, new BytesRef(stringValue));
   }
 
+  /**
+   * Creates a numeric point field for a date or number item. A date is indexed as a LongPoint
+   * holding the time in milliseconds, a number is indexed as a DoublePoint. The point field can be
+   * searched by a range query.
+   * 
+   * @param itemName  - name of the item will be used as the doc field name
+   * @param itemValue - the date or number value
+   * @param isDate    - true if the item is a date field
+   * @return point field or null if the value can not be converted
+   */
+  public IndexableField adaptPointItemValue(String itemName, Object itemValue, boolean isDate) {
+    if (isDate) {
+      Long time = convertDateValue(itemValue);
+      return (time == null) ? null : new LongPoint(itemName, time);
+    }
+    if (itemValue instanceof Number) {
+      return new DoublePoint(itemName, ((Number) itemValue).doubleValue());
+    }
+    return null;
+  }
+
+  /**
+   * Creates a NumericDocValuesField for a date or number item. The field is used to sort a result
+   * by the time value of a date or the value of a number.
+   * 
+   * @param itemName  - name of the item will be used as the doc field name
+   * @param itemValue - the date or number value
+   * @param isDate    - true if the item is a date field
+   * @return sortable field or null if the value can not be converted
+   */
+  public NumericDocValuesField adaptNumericSortableItemValue(String itemName, Object itemValue,
+      boolean isDate) {
+    if (isDate) {
+      Long time = convertDateValue(itemValue);
+      return (time == null) ? null : new NumericDocValuesField(itemName, time);
+    }
+    if (itemValue instanceof Number) {
+      return new DoubleDocValuesField(itemName, ((Number) itemValue).doubleValue());
+    }
+    return null;
+  }
+
   /**
    * This method converts a ItemValue into a indexable text format. This method currently converts
    * only Calendar and Date objects into a Luncene string representation of a date time value
@@ -125,23 +263,29 @@ public class LuceneItemAdapter {
    * @return string value
    */
   public String convertItemValue(Object itemValue) {
-    String convertedValue = "";
-
-    if (itemValue instanceof Calendar || itemValue instanceof Date) {
-      SimpleDateFormat dateformat = new SimpleDateFormat("yyyyMMddHHmmss");
+    Long time = convertDateValue(itemValue);
+    if (time != null) {
+      // convert date to lucene string representation
+      return LUCENE_DATE_FORMAT.format(Instant.ofEpochMilli(time));
+    }
+    // default
+    return itemValue.toString();
+  }
 
-      // convert calendar to lucene string representation
-      String sDateValue;
-      if (itemValue instanceof Calendar) {
-        sDateValue = dateformat.format(((Calendar) itemValue).getTime());
-      } else {
-        sDateValue = dateformat.format((Date) itemValue);
-      }
-      convertedValue = sDateValue;
-    } else {
-      // default
-      convertedValue = itemValue.toString();
+  /**
+   * Returns the time in milliseconds of a Calendar or Date object or null if the value is not a
+   * date.
+   * 
+   * @param itemValue
+   * @return time in milliseconds
+   */
+  public Long convertDateValue(Object itemValue) {
+    if (itemValue instanceof Calendar) {
+      return ((Calendar) itemValue).getTimeInMillis();
+    }
+    if (itemValue instanceof Date) {
+      return ((Date) itemValue).getTime();
     }
-    return convertedValue;
+    return null;
   }
 }
@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * <pre>
+ *  Imixs Workflow 
+ *  Copyright (C) 2001-2020 Imixs Software Solutions GmbH,  
+ *  http://www.imixs.com
+ *  
+ *  This program is free software; you can redistribute it and/or 
+ *  modify it under the terms of the GNU General Public License 
+ *  as published by the Free Software Foundation; either version 2 
+ *  of the License, or (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful, 
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ *  General Public License for more details.
+ *  
+ *  You can receive a copy of the GNU General Public
+ *  License at http://www.gnu.org/licenses/gpl.html
+ *  
+ *  Project: 
+ *      https://www.imixs.org
+ *      https://github.com/imixs/imixs-workflow
+ *  
+ *  Contributors:  
+ *      Imixs Software Solutions GmbH - initial API and implementation
+ *      Ralph Soika - Software Developer
+ * </pre>
+ *******************************************************************************/
+
+package org.imixs.workflow.engine.lucene;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import org.apache.lucene.search.Query;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+/**
+ * The LuceneQueryCache caches the parsed Lucene Query of a search term. The key of a cache entry
+ * is build from the default operator and the search term. The read access restriction is not part
+ * of the cached query, so the entries are shared by all users.
+ * <p>
+ * The max number of cache entries can be set by the property 'lucene.query.cache.size'. The least
+ * recently used entries are removed first. A size of 0 disables the cache.
+ * 
+ * @see LuceneSearchService#parseQuery(String, org.imixs.workflow.engine.index.DefaultOperator)
+ * @author rsoika
+ * @version 1.0
+ */
+@ApplicationScoped
+public class LuceneQueryCache {
+
+  public static final String DEFAULT_CACHE_SIZE = "256";
+
+  @Inject
+  @ConfigProperty(name = "lucene.query.cache.size", defaultValue = DEFAULT_CACHE_SIZE)
+  int cacheSize;
+
+  private Map<String, Query> cache = null;
+
+  private static Logger logger = Logger.getLogger(LuceneQueryCache.class.getName());
+
+  /**
+   * Returns the cached query for a search term or null if no entry exists.
+   * 
+   * @param key - the default operator and the search term
+   * @return query or null
+   */
+  public synchronized Query get(String key) {
+    if (cacheSize <= 0 || cache == null) {
+      return null;
+    }
+    Query result = cache.get(key);
+    if (result != null) {
+      logger.finest("......query found in cache");
+    }
+    return result;
+  }
+
+  /**
+   * Puts a parsed query into the cache.
+   * 
+   * @param key   - the default operator and the search term
+   * @param query - parsed query
+   */
+  public synchronized void put(String key, Query query) {
+    if (cacheSize <= 0) {
+      return;
+    }
+    if (cache == null) {
+      cache = createCache();
+    }
+    cache.put(key, query);
+  }
+
+  /**
+   * Creates a LRU map limited to the configured cache size.
+   */
+  @SuppressWarnings("serial")
+  private Map<String, Query> createCache() {
+    return new LinkedHashMap<String, Query>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Query> eldest) {
+        return size() > cacheSize;
+      }
+    };
+  }
+
+}
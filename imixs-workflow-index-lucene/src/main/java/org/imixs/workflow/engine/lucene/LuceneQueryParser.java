@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * <pre>
+ *  Imixs Workflow 
+ *  Copyright (C) 2001-2020 Imixs Software Solutions GmbH,  
+ *  http://www.imixs.com
+ *  
+ *  This program is free software; you can redistribute it and/or 
+ *  modify it under the terms of the GNU General Public License 
+ *  as published by the Free Software Foundation; either version 2 
+ *  of the License, or (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful, 
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ *  General Public License for more details.
+ *  
+ *  You can receive a copy of the GNU General Public
+ *  License at http://www.gnu.org/licenses/gpl.html
+ *  
+ *  Project: 
+ *      https://www.imixs.org
+ *      https://github.com/imixs/imixs-workflow
+ *  
+ *  Contributors:  
+ *      Imixs Software Solutions GmbH - initial API and implementation
+ *      Ralph Soika - Software Developer
+ * </pre>
+ *******************************************************************************/
+
+package org.imixs.workflow.engine.lucene;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Collection;
+import java.util.logging.Logger;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.document.DoublePoint;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.Query;
+
+/**
+ * The LuceneQueryParser extends the classic QueryParser and rewrites range queries on date and
+ * number fields into point range queries. All other queries are parsed by the classic QueryParser.
+ * <p>
+ * A date range can be given in the lucene date format 'yyyyMMddHHmmss' or 'yyyyMMdd' in the default
+ * time zone:
+ * <p>
+ * <code>$modified:[20200101 TO 20200131235959]</code>
+ * <p>
+ * If a range value can not be converted, the range is parsed as a term range query.
+ * 
+ * @see SchemaService#getFieldListDate()
+ * @see SchemaService#getFieldListNumber()
+ * @author rsoika
+ * @version 1.0
+ */
+public class LuceneQueryParser extends QueryParser {
+
+  private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+  private Collection<String> dateFields;
+  private Collection<String> numberFields;
+
+  private static Logger logger = Logger.getLogger(LuceneQueryParser.class.getName());
+
+  public LuceneQueryParser(String defaultField, Analyzer analyzer, Collection<String> dateFields,
+      Collection<String> numberFields) {
+    super(defaultField, analyzer);
+    this.dateFields = dateFields;
+    this.numberFields = numberFields;
+  }
+
+  @Override
+  protected Query getRangeQuery(String field, String part1, String part2, boolean startInclusive,
+      boolean endInclusive) throws ParseException {
+    try {
+      if (dateFields != null && dateFields.contains(field)) {
+        // an exclusive bound excludes the full period of the given value
+        long lower = Long.MIN_VALUE;
+        if (part1 != null && !"*".equals(part1)) {
+          lower = startInclusive ? parseTime(part1, false) : parseTime(part1, true) + 1;
+        }
+        long upper = Long.MAX_VALUE;
+        if (part2 != null && !"*".equals(part2)) {
+          upper = endInclusive ? parseTime(part2, true) : parseTime(part2, false) - 1;
+        }
+        return LongPoint.newRangeQuery(field, lower, upper);
+      }
+      if (numberFields != null && numberFields.contains(field)) {
+        double lower = (part1 == null || "*".equals(part1)) ? Double.NEGATIVE_INFINITY
+            : Double.parseDouble(part1);
+        double upper = (part2 == null || "*".equals(part2)) ? Double.POSITIVE_INFINITY
+            : Double.parseDouble(part2);
+        if (!startInclusive) {
+          lower = Math.nextUp(lower);
+        }
+        if (!endInclusive) {
+          upper = Math.nextDown(upper);
+        }
+        return DoublePoint.newRangeQuery(field, lower, upper);
+      }
+    } catch (DateTimeParseException | NumberFormatException e) {
+      logger.finest("......unable to convert range of field '" + field + "' - " + e.getMessage());
+    }
+    return super.getRangeQuery(field, part1, part2, startInclusive, endInclusive);
+  }
+
+  /**
+   * Converts a date value in the format 'yyyyMMddHHmmss' or 'yyyyMMdd' into milliseconds. If
+   * 'endOfPeriod' is true, the method returns the last millisecond of the given day or second.
+   */
+  private long parseTime(String value, boolean endOfPeriod) {
+    LocalDateTime dateTime;
+    if (value.length() == 8) {
+      LocalDate day = LocalDate.parse(value, DAY_FORMAT);
+      dateTime = endOfPeriod ? day.plusDays(1).atStartOfDay().minusNanos(1000000)
+          : day.atStartOfDay();
+    } else {
+      dateTime = LocalDateTime.parse(value, LuceneItemAdapter.LUCENE_DATE_FORMAT);
+      if (endOfPeriod) {
+        // include the full second
+        dateTime = dateTime.plusNanos(999000000);
+      }
+    }
+    return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+  }
+}
@@ -34,7 +34,10 @@ import java.nio.file.Paths;
 import java.text.NumberFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
 import java.util.logging.Logger;
 import javax.annotation.security.DeclareRoles;
 import javax.annotation.security.RolesAllowed;
@@ -42,26 +45,41 @@ import javax.ejb.Stateless;
 import javax.inject.Inject;
 import org.apache.lucene.analysis.core.KeywordAnalyzer;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.facet.FacetResult;
+import org.apache.lucene.facet.Facets;
+import org.apache.lucene.facet.FacetsCollector;
+import org.apache.lucene.facet.LabelAndValue;
+import org.apache.lucene.facet.sortedset.DefaultSortedSetDocValuesReaderState;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetCounts;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesReaderState;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.index.Term;
 import org.apache.lucene.queryparser.classic.ParseException;
 import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermInSetQuery;
+import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.TopDocsCollector;
 import org.apache.lucene.search.TopFieldCollector;
 import org.apache.lucene.search.TopScoreDocCollector;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
 import org.imixs.workflow.ItemCollection;
 import org.imixs.workflow.WorkflowKernel;
 import org.imixs.workflow.engine.DocumentService;
 import org.imixs.workflow.engine.index.DefaultOperator;
+import org.imixs.workflow.engine.index.QueryTemplate;
 import org.imixs.workflow.engine.index.SchemaService;
 import org.imixs.workflow.engine.index.SearchService;
 import org.imixs.workflow.exceptions.InvalidAccessException;
@@ -105,6 +123,15 @@ public class LuceneSearchService implements SearchService {
   @Inject
   private SchemaService schemaService;
 
+  @Inject
+  private LuceneHitCountCache hitCountCache;
+
+  @Inject
+  private LuceneItemAdapter luceneItemAdapter;
+
+  @Inject
+  private LuceneQueryCache queryCache;
+
   private static Logger logger = Logger.getLogger(LuceneSearchService.class.getName());
 
   /**
@@ -160,24 +187,84 @@ public class LuceneSearchService implements SearchService {
 
     ArrayList<ItemCollection> workitems = new ArrayList<ItemCollection>();
 
-    searchTerm = schemaService.getExtendedSearchTerm(searchTerm);
     // test if searchtem is provided
     if (searchTerm == null || "".equals(searchTerm)) {
+      logger.warning("No search term provided!");
       return workitems;
     }
 
+    Query query = null;
     try {
-      IndexSearcher searcher = createIndexSearcher();
-      QueryParser parser = createQueryParser(defaultOperator);
+      query = parseQuery(searchTerm, defaultOperator);
+    } catch (ParseException e) {
+      logger.severe("Lucene search error: " + e.getMessage());
+      throw new QueryException(QueryException.QUERY_NOT_UNDERSTANDABLE, e.getMessage(), e);
+    }
+    return search(query, pageSize, pageIndex, sortOrder, loadStubs, ltime);
+  }
 
-      parser.setAllowLeadingWildcard(true);
+  /**
+   * Returns a collection of documents matching the provided QueryTemplate. The Lucene query is
+   * build from TermQueries without parsing a search term. The query is restricted to the documents
+   * readable by the current user.
+   * 
+   * @param template  - the query template
+   * @param pageSize  - docs per page
+   * @param pageIndex - page number
+   * @param sortOrder - optional to sort the result
+   * @param loadStubs - optional indicates of only the lucene document should be returned.
+   * @return collection of search result
+   * @throws QueryException in case the template is empty.
+   */
+  @Override
+  public List<ItemCollection> search(QueryTemplate template, int pageSize, int pageIndex,
+      org.imixs.workflow.engine.index.SortOrder sortOrder, boolean loadStubs)
+      throws QueryException {
+    long ltime = System.currentTimeMillis();
+    if (template == null || template.getClauses().isEmpty()) {
+      throw new QueryException(QueryException.QUERY_NOT_UNDERSTANDABLE, "empty query template");
+    }
+    if (pageSize <= 0) {
+      pageSize = DEFAULT_PAGE_SIZE;
+    }
+    if (pageIndex < 0) {
+      pageIndex = 0;
+    }
+    return search(createTemplateQuery(template), pageSize, pageIndex, sortOrder, loadStubs, ltime);
+  }
 
-      // set default operator?
-      if (defaultOperator == DefaultOperator.OR) {
-        parser.setDefaultOperator(org.apache.lucene.queryparser.classic.QueryParser.Operator.OR);
+  /**
+   * Builds a Lucene query from a QueryTemplate. Each clause is added as a MUST clause. A clause with
+   * more than one field is a BooleanQuery of SHOULD clauses.
+   * 
+   * @param template
+   * @return Lucene query
+   */
+  Query createTemplateQuery(QueryTemplate template) {
+    BooleanQuery.Builder builder = new BooleanQuery.Builder();
+    for (QueryTemplate.Clause clause : template.getClauses()) {
+      if (clause.getFields().size() == 1) {
+        builder.add(new TermQuery(new Term(clause.getFields().get(0), clause.getValue())), Occur.MUST);
       } else {
-        parser.setDefaultOperator(org.apache.lucene.queryparser.classic.QueryParser.Operator.AND);
+        BooleanQuery.Builder fieldBuilder = new BooleanQuery.Builder();
+        for (String field : clause.getFields()) {
+          fieldBuilder.add(new TermQuery(new Term(field, clause.getValue())), Occur.SHOULD);
+        }
+        builder.add(fieldBuilder.build(), Occur.MUST);
       }
+    }
+    return builder.build();
+  }
+
+  /**
+   * Runs a query restricted to the documents readable by the current user and returns one page of
+   * the result.
+   */
+  private List<ItemCollection> search(Query searchQuery, int pageSize, int pageIndex,
+      org.imixs.workflow.engine.index.SortOrder sortOrder, boolean loadStubs, long ltime) {
+    ArrayList<ItemCollection> workitems = new ArrayList<ItemCollection>();
+    try {
+      IndexSearcher searcher = createIndexSearcher();
 
       long lsearchtime = System.currentTimeMillis();
       TopDocs topDocs = null;
@@ -198,7 +285,7 @@ public class LuceneSearchService implements SearchService {
             + ") -> new MAX_SEARCH_RESULT is set to " + maxSearchResult);
       }
 
-      Query query = parser.parse(searchTerm);
+      Query query = createReadAccessQuery(searchQuery, schemaService.getReadAccessList());
       if (sortOrder != null) {
         // sorted by sortoder
         logger.finest("......lucene result sorted by sortOrder= '" + sortOrder + "' ");
@@ -230,6 +317,8 @@ public class LuceneSearchService implements SearchService {
           + (System.currentTimeMillis() - lsearchtime) + " ms - total hits=" + topDocs.totalHits);
 
       SimpleDateFormat luceneDateformat = new SimpleDateFormat("yyyyMMddHHmmss");
+      // the access level of the caller is resolved once for all stubs
+      Predicate<ItemCollection> authorCheck = loadStubs ? documentService.createAuthorCheck() : null;
       for (ScoreDoc scoredoc : scoreDosArray) {
         // Retrieve the matched document and show relevant details
         Document luceneDoc = searcher.doc(scoredoc.doc);
@@ -238,7 +327,7 @@ public class LuceneSearchService implements SearchService {
         ItemCollection imixsDoc = null;
         if (loadStubs) {
           // return only the fields form the Lucene document
-          imixsDoc = convertLuceneDocument(luceneDoc, luceneDateformat);
+          imixsDoc = convertLuceneDocument(luceneDoc, luceneDateformat, authorCheck);
           imixsDoc.replaceItemValue(WorkflowKernel.UNIQUEID, sID);
         } else {
           // load the full imixs document from the database
@@ -268,9 +357,6 @@ public class LuceneSearchService implements SearchService {
       // return an empty result
       logger.severe("Lucene index error: " + e.getMessage());
       throw new InvalidAccessException(InvalidAccessException.INVALID_INDEX, e.getMessage(), e);
-    } catch (ParseException e) {
-      logger.severe("Lucene search error: " + e.getMessage());
-      throw new QueryException(QueryException.QUERY_NOT_UNDERSTANDABLE, e.getMessage(), e);
     }
 
     return workitems;
@@ -280,10 +366,14 @@ public class LuceneSearchService implements SearchService {
    * Returns the total hits for a given search term from the lucene index. The method did not load
    * any data. The provided search term will we extended with a users roles to test the read access
    * level of each workitem matching the search term.
+   * <p>
+   * The hits are counted without scoring the documents. The result is cached for the current index
+   * version. So repeated counts of the same search term are answered without searching the index.
    * 
    * The optional param 'maxResult' can be set to overwrite the DEFAULT_MAX_SEARCH_RESULT.
    * 
    * @see search(String, int, int, Sort, Operator)
+   * @see LuceneHitCountCache
    * 
    * @param sSearchTerm
    * @param maxResult   - max search result
@@ -294,45 +384,34 @@ public class LuceneSearchService implements SearchService {
   public int getTotalHits(final String _searchTerm, final int _maxResult,
       final DefaultOperator defaultOperator) throws QueryException {
     int result;
-    int maxResult = _maxResult;
-
-    if (maxResult <= 0) {
-      maxResult = DEFAULT_MAX_SEARCH_RESULT;
-    }
 
-    String sSearchTerm = schemaService.getExtendedSearchTerm(_searchTerm);
+    String sSearchTerm = _searchTerm;
     // test if searchtem is provided
     if (sSearchTerm == null || "".equals(sSearchTerm)) {
+      logger.warning("No search term provided!");
       return 0;
     }
-
-    try {
-      IndexSearcher searcher = createIndexSearcher();
-      QueryParser parser = createQueryParser(defaultOperator);
-
-      parser.setAllowLeadingWildcard(true);
-
-      // set default operator?
-      if (defaultOperator == DefaultOperator.OR) {
-        parser.setDefaultOperator(org.apache.lucene.queryparser.classic.QueryParser.Operator.OR);
-      } else {
-        parser.setDefaultOperator(org.apache.lucene.queryparser.classic.QueryParser.Operator.AND);
+    List<String> readAccessList = schemaService.getReadAccessList();
+
+    // the cache is verified by the version of the last commit, so no searcher is
+    // opened for a cached hit count
+    String cacheKey = defaultOperator + ":" + readAccessList + ":" + sSearchTerm;
+    long indexVersion = getIndexVersion();
+    if (indexVersion >= 0) {
+      Integer cachedHits = hitCountCache.get(cacheKey, indexVersion);
+      if (cachedHits != null) {
+        return cachedHits;
       }
+    }
 
-      TopDocsCollector<?> collector = null;
-
-      Query query = parser.parse(sSearchTerm);
-      // MAX_SEARCH_RESULT is limiting the total number of hits
-      collector = TopScoreDocCollector.create(maxResult);
-
-      // - ignore time limiting for now
-      // Counter clock = Counter.newCounter(true);
-      // TimeLimitingCollector timeLimitingCollector = new
-      // TimeLimitingCollector(collector, clock, 10);
-
-      // start search....
-      searcher.search(query, collector);
-      result = collector.getTotalHits();
+    IndexSearcher searcher = null;
+    try {
+      searcher = createIndexSearcher();
+      Query query = createReadAccessQuery(parseQuery(sSearchTerm, defaultOperator), readAccessList);
+      // count without scoring and collecting the hits
+      result = searcher.count(query);
+      // the searcher may have opened a newer commit
+      hitCountCache.put(cacheKey, ((DirectoryReader) searcher.getIndexReader()).getVersion(), result);
 
       logger.finest("......lucene count result = " + result);
     } catch (IOException e) {
@@ -343,11 +422,173 @@ public class LuceneSearchService implements SearchService {
     } catch (ParseException e) {
       logger.severe("Lucene search error: " + e.getMessage());
       throw new QueryException(QueryException.QUERY_NOT_UNDERSTANDABLE, e.getMessage(), e);
+    } finally {
+      closeIndexSearcher(searcher);
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the facet counts of a list of fields for a given search term. The counts are computed
+   * in one search from the SortedSetDocValues facets of the index. Only fields defined by the
+   * property 'index.fields.facet' are supported. Other fields are ignored.
+   * 
+   * @see SchemaService#getFieldListFacet()
+   * @param searchTerm
+   * @param fieldNames      - list of facet fields
+   * @param maxValues       - max number of values per field
+   * @param defaultOperator - optional to change the default search operator
+   * @return map of field names and their value counts, ordered by count
+   * @throws QueryException in case the searchterm is not understandable.
+   */
+  @Override
+  public Map<String, Map<String, Integer>> getFacets(String searchTerm, List<String> fieldNames,
+      int maxValues, DefaultOperator defaultOperator) throws QueryException {
+    long ltime = System.currentTimeMillis();
+    Map<String, Map<String, Integer>> result = new LinkedHashMap<String, Map<String, Integer>>();
+
+    if (maxValues <= 0) {
+      maxValues = DEFAULT_MAX_FACET_VALUES;
+    }
+    // test if searchtem is provided
+    if (searchTerm == null || "".equals(searchTerm) || fieldNames == null) {
+      logger.warning("No search term provided!");
+      return result;
     }
 
+    IndexSearcher searcher = null;
+    try {
+      searcher = createIndexSearcher();
+      Query query = createReadAccessQuery(parseQuery(searchTerm, defaultOperator),
+          schemaService.getReadAccessList());
+
+      SortedSetDocValuesReaderState state;
+      try {
+        state = new DefaultSortedSetDocValuesReaderState(searcher.getIndexReader());
+      } catch (IllegalArgumentException e) {
+        // the index contains no facets yet
+        logger.warning("Lucene index contains no facets - index should be rebuilt: " + e.getMessage());
+        return result;
+      }
+      FacetsCollector facetsCollector = new FacetsCollector();
+      searcher.search(query, facetsCollector);
+      Facets facets = new SortedSetDocValuesFacetCounts(state, facetsCollector);
+
+      for (String fieldName : fieldNames) {
+        fieldName = fieldName.toLowerCase().trim();
+        if (!schemaService.getFieldListFacet().contains(fieldName)) {
+          logger.warning("'" + fieldName + "' is not a facet field - see index.fields.facet");
+          continue;
+        }
+        Map<String, Integer> values = new LinkedHashMap<String, Integer>();
+        FacetResult facetResult = null;
+        try {
+          facetResult = facets.getTopChildren(maxValues, fieldName);
+        } catch (IllegalArgumentException e) {
+          // dimension was not indexed yet
+          logger.finest("......no facet values for '" + fieldName + "'");
+        }
+        if (facetResult != null) {
+          for (LabelAndValue labelAndValue : facetResult.labelValues) {
+            values.put(labelAndValue.label, labelAndValue.value.intValue());
+          }
+        }
+        result.put(fieldName, values);
+      }
+      logger.fine("...facets computed in " + (System.currentTimeMillis() - ltime) + " ms");
+    } catch (IOException e) {
+      logger.severe("Lucene index error: " + e.getMessage());
+      throw new InvalidAccessException(InvalidAccessException.INVALID_INDEX, e.getMessage(), e);
+    } catch (ParseException e) {
+      logger.severe("Lucene search error: " + e.getMessage());
+      throw new QueryException(QueryException.QUERY_NOT_UNDERSTANDABLE, e.getMessage(), e);
+    } finally {
+      closeIndexSearcher(searcher);
+    }
     return result;
   }
 
+  /**
+   * Returns the version of the last commit of the lucene index. The version is read from the
+   * segments file without opening an index reader. If the index does not exist the method returns
+   * -1.
+   * 
+   * @return version of the index or -1
+   */
+  @Override
+  public long getIndexVersion() {
+    try (Directory indexDir = createIndexDirectory()) {
+      return SegmentInfos.readLatestCommit(indexDir).getVersion();
+    } catch (IOException e) {
+      logger.warning("Unable to read lucene index version: " + e.getMessage());
+      return -1;
+    }
+  }
+
+  /**
+   * Parses a search term into a Lucene query. The parsed query is cached by the LuceneQueryCache,
+   * so a recurring search term is parsed only once.
+   * 
+   * @see LuceneQueryCache
+   * @param searchTerm
+   * @param defaultOperator
+   * @return parsed query
+   * @throws ParseException
+   */
+  Query parseQuery(String searchTerm, DefaultOperator defaultOperator) throws ParseException {
+    String cacheKey = defaultOperator + ":" + searchTerm;
+    Query query = queryCache.get(cacheKey);
+    if (query == null) {
+      QueryParser parser = createQueryParser(defaultOperator);
+      parser.setAllowLeadingWildcard(true);
+      query = parser.parse(searchTerm);
+      queryCache.put(cacheKey, query);
+    }
+    return query;
+  }
+
+  /**
+   * Restricts a query to the documents readable by the current user. The read access is added as a
+   * non-scoring filter clause with a TermInSetQuery on the field '$readaccess'.
+   * <p>
+   * The filter is not cached between requests. Each search opens a new IndexReader and the query
+   * cache of an IndexSearcher holds its entries per segment of that reader.
+   * 
+   * @see SchemaService#getReadAccessList()
+   * @param query
+   * @param readAccessList - list of read access values, null for a manager
+   * @return the restricted query
+   */
+  Query createReadAccessQuery(Query query, List<String> readAccessList) {
+    if (readAccessList == null) {
+      return query;
+    }
+    List<BytesRef> terms = new ArrayList<BytesRef>();
+    for (String readAccess : readAccessList) {
+      terms.add(new BytesRef(readAccess));
+    }
+    BooleanQuery.Builder builder = new BooleanQuery.Builder();
+    builder.add(query, Occur.MUST);
+    builder.add(new TermInSetQuery("$readaccess", terms), Occur.FILTER);
+    return builder.build();
+  }
+
+  /**
+   * Closes the IndexReader of a IndexSearcher.
+   * 
+   * @param searcher
+   */
+  void closeIndexSearcher(IndexSearcher searcher) {
+    if (searcher != null) {
+      try {
+        searcher.getIndexReader().close();
+      } catch (IOException e) {
+        logger.warning("Unable to close lucene IndexReader: " + e.getMessage());
+      }
+    }
+  }
+
   /**
    * Creates a Lucene FSDirectory Instance. The method uses the proeprty LockFactory to set a custom
    * LockFactory.
@@ -414,7 +655,9 @@ public class LuceneSearchService implements SearchService {
    */
   QueryParser createQueryParser(DefaultOperator defaultOperator) {
     // use the keywordAnalyzer for searching a search term.
-    QueryParser parser = new QueryParser("content", new KeywordAnalyzer());
+    // range queries on date and number fields are rewritten into point queries
+    QueryParser parser = new LuceneQueryParser("content", new KeywordAnalyzer(),
+        schemaService.getFieldListDate(), schemaService.getFieldListNumber());
     // set default operator to 'AND' if not defined by property setting
     // String defaultOperator = prop.getProperty("lucene.defaultOperator");
     if (defaultOperator == DefaultOperator.OR) {
@@ -434,15 +677,35 @@ public class LuceneSearchService implements SearchService {
   /**
    * This method converts a LuceneDocument into a ItemCollection with all stored index fields from
    * the Lucene document.
+   * <p>
+   * Stored values written with a type tag are converted by the LuceneItemAdapter. Documents indexed
+   * by a previous version are converted by parsing the string values.
    * 
    * @param luceneDoc
+   * @param authorCheck - computes the $isauthor flag
    * @return ItemCollection representing the Lucene Document
    */
-  ItemCollection convertLuceneDocument(Document luceneDoc, SimpleDateFormat luceneDateformat) {
+  ItemCollection convertLuceneDocument(Document luceneDoc, SimpleDateFormat luceneDateformat,
+      Predicate<ItemCollection> authorCheck) {
     // load the full imixs document from the database
     ItemCollection imixsDoc = new ItemCollection();
 
     List<IndexableField> fields = luceneDoc.getFields();
+    if (luceneDoc.get(LuceneIndexService.STUB_FORMAT_FIELD) != null) {
+      for (IndexableField indexableField : fields) {
+        String name = indexableField.name();
+        if (LuceneIndexService.STUB_FORMAT_FIELD.equals(name)
+            || WorkflowKernel.UNIQUEID.equals(name)) {
+          continue;
+        }
+        imixsDoc.appendItemValue(name,
+            luceneItemAdapter.convertStoredValue(indexableField.stringValue()));
+      }
+      imixsDoc.replaceItemValue(DocumentService.ISAUTHOR, authorCheck.test(imixsDoc));
+      return imixsDoc;
+    }
+
+    // untyped format
     for (IndexableField indexableField : fields) {
 
       Object objectValue = null;
@@ -475,18 +738,24 @@ public class LuceneSearchService implements SearchService {
     }
 
     // compute $isAuthor flag...
-    imixsDoc.replaceItemValue(DocumentService.ISAUTHOR, documentService.isAuthor(imixsDoc));
+    imixsDoc.replaceItemValue(DocumentService.ISAUTHOR, authorCheck.test(imixsDoc));
 
     return imixsDoc;
   }
 
   private Sort buildLuceneSort(org.imixs.workflow.engine.index.SortOrder sortOrder) {
     Sort sort = null;
+    // date and number fields are sorted by their numeric doc values
+    SortField.Type type = SortField.Type.STRING;
+    if (schemaService.getFieldListDate().contains(sortOrder.getField())) {
+      type = SortField.Type.LONG;
+    } else if (schemaService.getFieldListNumber().contains(sortOrder.getField())) {
+      type = SortField.Type.DOUBLE;
+    }
     // we do not support multi values here - see
     // LuceneUpdateService.addItemValues
     // it would be possible if we use a SortedSetSortField class here
-    sort = new Sort(new SortField[] {
-        new SortField(sortOrder.getField(), SortField.Type.STRING, sortOrder.isReverse())});
+    sort = new Sort(new SortField[] {new SortField(sortOrder.getField(), type, sortOrder.isReverse())});
     return sort;
   }
 
@@ -29,6 +29,7 @@
 
 package org.imixs.workflow.engine.lucene;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.logging.Logger;
 import javax.ejb.Singleton;
@@ -86,6 +87,38 @@ public class LuceneUpdateService implements UpdateService {
 
   }
 
+  /**
+   * This method starts a rebuild into a shadow index directory.
+   * 
+   * @see LuceneIndexService#createShadowIndex()
+   * @return true
+   */
+  @Override
+  public boolean beginRebuild() {
+    try {
+      luceneIndexService.createShadowIndex();
+    } catch (IOException e) {
+      throw new IndexException(IndexException.INVALID_INDEX, "Unable to create shadow index", e);
+    }
+    return true;
+  }
+
+  /**
+   * This method switches the index to the shadow index directory.
+   * 
+   * @see LuceneIndexService#switchShadowIndex()
+   */
+  @Override
+  public void finishRebuild() {
+    // flush the event log into both indexes before switching
+    updateIndex();
+    try {
+      luceneIndexService.switchShadowIndex();
+    } catch (IOException e) {
+      throw new IndexException(IndexException.INVALID_INDEX, "Unable to switch to shadow index", e);
+    }
+  }
+
   /**
    * This method flush the event log.
    */
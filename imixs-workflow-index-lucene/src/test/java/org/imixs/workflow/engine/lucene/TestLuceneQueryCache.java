@@ -0,0 +1,71 @@
+package org.imixs.workflow.engine.lucene;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.junit.Before;
+import org.junit.Test;
+
+import junit.framework.Assert;
+
+/**
+ * Test the LRU eviction of the LuceneQueryCache
+ *
+ * @author rsoika
+ *
+ */
+public class TestLuceneQueryCache {
+
+	LuceneQueryCache queryCache;
+
+	Query queryA = new TermQuery(new Term("type", "a"));
+	Query queryB = new TermQuery(new Term("type", "b"));
+	Query queryC = new TermQuery(new Term("type", "c"));
+
+	@Before
+	public void setUp() {
+		queryCache = new LuceneQueryCache();
+		queryCache.cacheSize = 2;
+	}
+
+	/**
+	 * The least recently used entry is removed first
+	 */
+	@Test
+	public void testEviction() {
+		queryCache.put("OR:a", queryA);
+		queryCache.put("OR:b", queryB);
+		// access a, so b is the least recently used entry
+		Assert.assertSame(queryA, queryCache.get("OR:a"));
+		queryCache.put("OR:c", queryC);
+
+		Assert.assertNull(queryCache.get("OR:b"));
+		Assert.assertSame(queryA, queryCache.get("OR:a"));
+		Assert.assertSame(queryC, queryCache.get("OR:c"));
+	}
+
+	/**
+	 * Without access the eldest entry is removed
+	 */
+	@Test
+	public void testInsertionOrder() {
+		queryCache.put("OR:a", queryA);
+		queryCache.put("OR:b", queryB);
+		queryCache.put("OR:c", queryC);
+
+		Assert.assertNull(queryCache.get("OR:a"));
+		Assert.assertSame(queryB, queryCache.get("OR:b"));
+		Assert.assertSame(queryC, queryCache.get("OR:c"));
+	}
+
+	/**
+	 * A cache size of 0 disables the cache
+	 */
+	@Test
+	public void testDisabled() {
+		queryCache.cacheSize = 0;
+		queryCache.put("OR:a", queryA);
+		Assert.assertNull(queryCache.get("OR:a"));
+	}
+
+}
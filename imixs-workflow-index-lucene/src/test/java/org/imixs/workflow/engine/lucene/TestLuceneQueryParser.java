@@ -0,0 +1,119 @@
+package org.imixs.workflow.engine.lucene;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.apache.lucene.document.DoublePoint;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermRangeQuery;
+import org.junit.Before;
+import org.junit.Test;
+
+import junit.framework.Assert;
+
+/**
+ * Test the conversion of range queries on date and number fields into point
+ * range queries
+ *
+ * @author rsoika
+ *
+ */
+public class TestLuceneQueryParser {
+
+	LuceneQueryParser parser;
+
+	@Before
+	public void setUp() {
+		parser = new LuceneQueryParser("content", new KeywordAnalyzer(), Arrays.asList("$modified"),
+				Arrays.asList("_amount"));
+	}
+
+	/**
+	 * Test a date range in the format 'yyyyMMdd'. An inclusive upper bound includes
+	 * the full day.
+	 */
+	@Test
+	public void testDayRange() throws ParseException {
+		Query query = parser.parse("$modified:[20200101 TO 20200131]");
+		Assert.assertEquals(LongPoint.newRangeQuery("$modified", startOfDay(2020, 1, 1), startOfDay(2020, 2, 1) - 1),
+				query);
+
+		// open bounds
+		query = parser.parse("$modified:[20200101 TO *]");
+		Assert.assertEquals(LongPoint.newRangeQuery("$modified", startOfDay(2020, 1, 1), Long.MAX_VALUE), query);
+		query = parser.parse("$modified:[* TO 20200131]");
+		Assert.assertEquals(LongPoint.newRangeQuery("$modified", Long.MIN_VALUE, startOfDay(2020, 2, 1) - 1), query);
+	}
+
+	/**
+	 * Test a date range with exclusive bounds. An exclusive bound excludes the full
+	 * day.
+	 */
+	@Test
+	public void testExclusiveDayRange() throws ParseException {
+		Query query = parser.parse("$modified:{20200101 TO 20200131}");
+		Assert.assertEquals(
+				LongPoint.newRangeQuery("$modified", startOfDay(2020, 1, 2), startOfDay(2020, 1, 31) - 1), query);
+	}
+
+	/**
+	 * Test a date range in the format 'yyyyMMddHHmmss'. An inclusive upper bound
+	 * includes the full second, an exclusive lower bound excludes it.
+	 */
+	@Test
+	public void testTimeRange() throws ParseException {
+		long start = toMillis(LocalDateTime.of(2020, 1, 1, 12, 0, 0));
+		long end = toMillis(LocalDateTime.of(2020, 1, 1, 12, 30, 0));
+
+		Query query = parser.parse("$modified:[20200101120000 TO 20200101123000]");
+		Assert.assertEquals(LongPoint.newRangeQuery("$modified", start, end + 999), query);
+
+		query = parser.parse("$modified:{20200101120000 TO 20200101123000}");
+		Assert.assertEquals(LongPoint.newRangeQuery("$modified", start + 1000, end - 1), query);
+
+		// mixed formats
+		query = parser.parse("$modified:[20200101 TO 20200101123000]");
+		Assert.assertEquals(LongPoint.newRangeQuery("$modified", startOfDay(2020, 1, 1), end + 999), query);
+	}
+
+	/**
+	 * Test a number range with inclusive and exclusive bounds
+	 */
+	@Test
+	public void testNumberRange() throws ParseException {
+		Query query = parser.parse("_amount:[10 TO 20.5]");
+		Assert.assertEquals(DoublePoint.newRangeQuery("_amount", 10.0, 20.5), query);
+
+		query = parser.parse("_amount:{10 TO 20.5}");
+		Assert.assertEquals(DoublePoint.newRangeQuery("_amount", Math.nextUp(10.0), Math.nextDown(20.5)), query);
+
+		query = parser.parse("_amount:[10 TO *]");
+		Assert.assertEquals(DoublePoint.newRangeQuery("_amount", 10.0, Double.POSITIVE_INFINITY), query);
+	}
+
+	/**
+	 * Test the fallback to a term range query if a value can not be converted or
+	 * the field is neither a date nor a number field
+	 */
+	@Test
+	public void testTermRangeFallback() throws ParseException {
+		Assert.assertTrue(parser.parse("$modified:[2020 TO 2021]") instanceof TermRangeQuery);
+		Assert.assertTrue(parser.parse("$modified:[20201301 TO 20201331]") instanceof TermRangeQuery);
+		Assert.assertTrue(parser.parse("_amount:[abc TO xyz]") instanceof TermRangeQuery);
+		Assert.assertTrue(parser.parse("txtname:[20200101 TO 20200131]") instanceof TermRangeQuery);
+	}
+
+	private static long startOfDay(int year, int month, int day) {
+		return LocalDate.of(year, month, day).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+	}
+
+	private static long toMillis(LocalDateTime dateTime) {
+		return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+	}
+
+}
@@ -0,0 +1,59 @@
+package org.imixs.workflow.engine.lucene;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.imixs.workflow.engine.index.QueryTemplate;
+import org.junit.Before;
+import org.junit.Test;
+
+import junit.framework.Assert;
+
+/**
+ * Test the Lucene query build from a QueryTemplate
+ *
+ * @author rsoika
+ *
+ */
+public class TestTemplateQuery {
+
+	LuceneSearchService luceneSearchService;
+
+	@Before
+	public void setUp() {
+		luceneSearchService = new LuceneSearchService();
+	}
+
+	/**
+	 * Each clause is a MUST clause. A clause with more than one field is a
+	 * BooleanQuery of SHOULD clauses. The values are not analyzed.
+	 */
+	@Test
+	public void testCreateTemplateQuery() {
+		QueryTemplate template = new QueryTemplate().addTerm("workitem", "type").addTerm("Anna Maria", "$owner",
+				"namowner");
+		Query query = luceneSearchService.createTemplateQuery(template);
+
+		BooleanQuery.Builder owner = new BooleanQuery.Builder();
+		owner.add(new TermQuery(new Term("$owner", "Anna Maria")), Occur.SHOULD);
+		owner.add(new TermQuery(new Term("namowner", "Anna Maria")), Occur.SHOULD);
+		BooleanQuery.Builder expected = new BooleanQuery.Builder();
+		expected.add(new TermQuery(new Term("type", "workitem")), Occur.MUST);
+		expected.add(owner.build(), Occur.MUST);
+
+		Assert.assertEquals(expected.build(), query);
+	}
+
+	/**
+	 * An empty template results in an empty BooleanQuery
+	 */
+	@Test
+	public void testEmptyTemplate() {
+		Query query = luceneSearchService.createTemplateQuery(new QueryTemplate());
+		Assert.assertTrue(query instanceof BooleanQuery);
+		Assert.assertEquals(0, ((BooleanQuery) query).clauses().size());
+	}
+
+}
@@ -409,6 +409,40 @@ public class SolrIndexService {
 
   }
 
+  /**
+   * This method posts a facet query and returns the result. The query returns no documents but
+   * the facet counts of the given fields.
+   * 
+   * @param searchTerm
+   * @param fieldNames      - list of Imixs item names
+   * @param maxValues       - max number of values per field
+   * @param defaultOperator
+   * @return solr query response (JSON)
+   * @throws QueryException
+   */
+  public String queryFacets(String searchTerm, List<String> fieldNames, int maxValues,
+      DefaultOperator defaultOperator) throws QueryException {
+    StringBuffer uri = new StringBuffer();
+    try {
+      uri.append(api + "/solr/" + core + "/query");
+      if (defaultOperator == DefaultOperator.OR) {
+        uri.append("?q.op=" + defaultOperator);
+      } else {
+        uri.append("?q.op=AND");
+      }
+      uri.append("&rows=0&facet=true&facet.mincount=1&facet.limit=" + maxValues);
+      for (String fieldName : fieldNames) {
+        uri.append("&facet.field=" + URLEncoder.encode(adaptImixsItemName(fieldName), "UTF-8"));
+      }
+      uri.append("&q=" + URLEncoder.encode(searchTerm, "UTF-8"));
+      logger.finest("...... uri=" + uri.toString());
+      return restClient.get(uri.toString());
+    } catch (RestAPIException | UnsupportedEncodingException e) {
+      logger.severe("Solr search error: " + e.getMessage());
+      throw new QueryException(QueryException.QUERY_NOT_UNDERSTANDABLE, e.getMessage(), e);
+    }
+  }
+
   /**
    * This method adapts an Solr field name to the corresponding Imixs Item name. Because Solr does
    * not accept $ char at the beginning of an field we need to replace starting _ with $ if the item
@@ -33,7 +33,9 @@ import java.io.StringReader;
 import java.text.NumberFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -42,12 +44,17 @@ import javax.annotation.security.RolesAllowed;
 import javax.ejb.Stateless;
 import javax.inject.Inject;
 import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonException;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
 import javax.json.stream.JsonParser;
 import javax.json.stream.JsonParser.Event;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.imixs.workflow.ItemCollection;
 import org.imixs.workflow.engine.DocumentService;
 import org.imixs.workflow.engine.index.DefaultOperator;
+import org.imixs.workflow.engine.index.QueryTemplate;
 import org.imixs.workflow.engine.index.SchemaService;
 import org.imixs.workflow.engine.index.SearchService;
 import org.imixs.workflow.engine.index.SortOrder;
@@ -169,6 +176,19 @@ public class SolrSearchService implements SearchService {
     return workitems;
   }
 
+  /**
+   * Returns a collection of documents matching the provided QueryTemplate. The template is
+   * converted into a search term.
+   * 
+   * @see QueryTemplate#toSearchTerm()
+   */
+  @Override
+  public List<ItemCollection> search(QueryTemplate template, int pageSize, int pageIndex,
+      SortOrder sortOrder, boolean loadStubs) throws QueryException {
+    return search(template.toSearchTerm(), pageSize, pageIndex, sortOrder, DefaultOperator.AND,
+        loadStubs);
+  }
+
   /**
    * Returns the total hits for a given search term from the lucene index. The method did not load
    * any data. The provided search term will we extended with a users roles to test the read access
@@ -198,8 +218,7 @@ public class SolrSearchService implements SearchService {
     // post query with row = 0
     String result = solarIndexService.query(searchTerm, 0, 0, null, defaultOperator, true);
     try {
-      String response = JSONParser.getKey("response", result);
-      hits = Integer.parseInt(JSONParser.getKey("numFound", response));
+      hits = Integer.parseInt(JSONParser.getValue(result, "response", "numFound"));
     } catch (NumberFormatException e) {
       logger.severe("getTotalHits - failed to parse solr result object! - " + e.getMessage());
       hits = 0;
@@ -209,6 +228,62 @@ public class SolrSearchService implements SearchService {
     return hits;
   }
 
+  /**
+   * Returns the facet counts of a list of fields for a given search term. The counts are computed
+   * by one Solr query using the param 'facet.field'.
+   * 
+   * @param searchTerm
+   * @param fieldNames      - list of facet fields
+   * @param maxValues       - max number of values per field
+   * @param defaultOperator - optional to change the default search operator
+   * @return map of field names and their value counts, ordered by count
+   * @throws QueryException in case the searchterm is not understandable.
+   */
+  @Override
+  public Map<String, Map<String, Integer>> getFacets(String _searchTerm, List<String> fieldNames,
+      int maxValues, DefaultOperator defaultOperator) throws QueryException {
+    Map<String, Map<String, Integer>> result = new LinkedHashMap<String, Map<String, Integer>>();
+    if (maxValues <= 0) {
+      maxValues = DEFAULT_MAX_FACET_VALUES;
+    }
+    String searchTerm = adaptSearchTerm(_searchTerm);
+    // test if searchtem is provided
+    if (searchTerm == null || "".equals(searchTerm) || fieldNames == null) {
+      return result;
+    }
+
+    String json = solarIndexService.queryFacets(searchTerm, fieldNames, maxValues, defaultOperator);
+    try (JsonReader reader = Json.createReader(new StringReader(json))) {
+      JsonObject facetFields = reader.readObject().getJsonObject("facet_counts")
+          .getJsonObject("facet_fields");
+      for (String fieldName : fieldNames) {
+        Map<String, Integer> values = new LinkedHashMap<String, Integer>();
+        // the values are returned as a flat list of value and count
+        JsonArray counts = facetFields.getJsonArray(solarIndexService.adaptImixsItemName(fieldName));
+        if (counts != null) {
+          for (int i = 0; i + 1 < counts.size(); i = i + 2) {
+            values.put(counts.getString(i), counts.getInt(i + 1));
+          }
+        }
+        result.put(fieldName, values);
+      }
+    } catch (JsonException | ClassCastException | NullPointerException e) {
+      logger.severe("getFacets - failed to parse solr result object! - " + e.getMessage());
+    }
+    return result;
+  }
+
+  /**
+   * The version of a Solr index is not evaluated. The method always returns -1, so search results
+   * are not validated by the index version.
+   * 
+   * @return -1
+   */
+  @Override
+  public long getIndexVersion() {
+    return -1;
+  }
+
   /**
    * This method extracts the docs from a Solr JSON query result
    * 
@@ -112,4 +112,20 @@ public class SolrUpdateService implements UpdateService {
     }
   }
 
+  /**
+   * A shadow index is not supported by the Solr index. The documents of a rebuild are written
+   * into the current core.
+   * 
+   * @return false
+   */
+  @Override
+  public boolean beginRebuild() {
+    return false;
+  }
+
+  @Override
+  public void finishRebuild() {
+    // no op
+  }
+
 }
@@ -29,16 +29,28 @@
 package org.imixs.workflow.jaxrs;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.StringTokenizer;
 import java.util.Vector;
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
 import javax.inject.Inject;
+import javax.json.JsonException;
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
@@ -51,10 +63,13 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.StreamingOutput;
+import javax.xml.bind.DatatypeConverter;
 import org.imixs.workflow.ItemCollection;
 import org.imixs.workflow.WorkflowKernel;
 import org.imixs.workflow.engine.DocumentService;
@@ -63,6 +78,7 @@ import org.imixs.workflow.engine.index.SearchService;
 import org.imixs.workflow.exceptions.AccessDeniedException;
 import org.imixs.workflow.exceptions.ImixsExceptionHandler;
 import org.imixs.workflow.exceptions.QueryException;
+import org.imixs.workflow.util.ImixsJSONParser;
 import org.imixs.workflow.xml.XMLCount;
 import org.imixs.workflow.xml.XMLDataCollectionAdapter;
 import org.imixs.workflow.xml.XMLDocument;
@@ -88,6 +104,9 @@ public class DocumentRestService {
     @javax.ws.rs.core.Context
     private HttpServletRequest servletRequest;
 
+    @javax.ws.rs.core.Context
+    private Request request;
+
     private static Logger logger = Logger.getLogger(DocumentRestService.class.getName());
 
     @GET
@@ -166,16 +185,27 @@ public class DocumentRestService {
             @QueryParam("format") String format) {
         ItemCollection document = null;
         try {
-            document = documentService.load(uniqueid);
+            if (servletRequest.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+                // validate the cached document by its meta data only
+                Response notModified = evaluateEntityTag(request,
+                        getEntityTag(documentService.load(uniqueid, Arrays.asList(WorkflowKernel.MODIFIED)),
+                                items, format));
+                if (notModified != null) {
+                    return notModified;
+                }
+            }
+            // load only the requested items
+            document = documentService.load(uniqueid, getItemList(items));
         } catch (Exception e) {
             e.printStackTrace();
             return null;
         }
-        return convertResult(document, items, format);
+        return addEntityTag(convertResult(document, items, format), getEntityTag(document, items, format));
     }
 
     /**
-     * Returns a resultset for a lucene Search Query
+     * Returns a resultset for a lucene Search Query. If all requested items are
+     * stored in the index, the result is build from the document stubs.
      * 
      * @param query
      * @param pageSize
@@ -190,24 +220,16 @@ public class DocumentRestService {
             @DefaultValue("0") @QueryParam("pageIndex") int pageIndex, @QueryParam("sortBy") String sortBy,
             @QueryParam("sortReverse") boolean sortReverse, @QueryParam("items") String items,
             @QueryParam("format") String format) {
-        List<ItemCollection> result = null;
-        try {
+        Object[] variant = { "search", query, pageSize, pageIndex, sortBy, sortReverse, items, format };
+        return cachedResult(request, variant, items, true, () -> {
             // decode query...
             String decodedQuery = URLDecoder.decode(query, "UTF-8");
-            result = documentService.find(decodedQuery, pageSize, pageIndex, sortBy, sortReverse);
-
-        } catch (Exception e) {
-            logger.warning("Invalid Search Query: " + e.getMessage());
-
-            ItemCollection error = new ItemCollection();
-            error.setItemValue("$error_message", e.getMessage());
-            error.setItemValue("$error_code", "" + Response.Status.NOT_ACCEPTABLE);
-            return Response.ok(XMLDataCollectionAdapter.getDataCollection(error)).status(Response.Status.NOT_ACCEPTABLE)
-                    .build();
-
-        }
-
-        return convertResultList(result, items, format);
+            if (isStubResult(items)) {
+                // all requested items are stored in the index
+                return documentService.findStubs(decodedQuery, pageSize, pageIndex, sortBy, sortReverse);
+            }
+            return documentService.find(decodedQuery, pageSize, pageIndex, sortBy, sortReverse);
+        }, format);
     }
 
     /**
@@ -329,6 +351,48 @@ public class DocumentRestService {
         }
     }
 
+    /**
+     * Returns the facet counts of a list of fields for a lucene Search Query. Each
+     * value is returned as a document with the items 'field', 'value' and 'count'.
+     * 
+     * @param query
+     * @param fields    - comma separated list of facet fields
+     * @param maxValues - max number of values per field
+     * @param format
+     * @return
+     */
+    @GET
+    @Path("/facets/{query}")
+    public Response getFacetsByQuery(@PathParam("query") String query, @QueryParam("fields") String fields,
+            @DefaultValue("-1") @QueryParam("maxValues") int maxValues, @QueryParam("format") String format) {
+        List<ItemCollection> result = new ArrayList<ItemCollection>();
+        try {
+            // decode query...
+            String decodedQuery = URLDecoder.decode(query, "UTF-8");
+            List<String> fieldNames = getItemList(fields);
+            Map<String, Map<String, Integer>> facets = documentService.getFacets(decodedQuery, fieldNames,
+                    maxValues);
+            for (Map.Entry<String, Map<String, Integer>> facet : facets.entrySet()) {
+                for (Map.Entry<String, Integer> value : facet.getValue().entrySet()) {
+                    ItemCollection facetValue = new ItemCollection();
+                    facetValue.setItemValue("field", facet.getKey());
+                    facetValue.setItemValue("value", value.getKey());
+                    facetValue.setItemValue("count", value.getValue());
+                    result.add(facetValue);
+                }
+            }
+        } catch (UnsupportedEncodingException | QueryException e) {
+            logger.warning("Invalid Search Query: " + e.getMessage());
+
+            ItemCollection error = new ItemCollection();
+            error.setItemValue("$error_message", e.getMessage());
+            error.setItemValue("$error_code", "" + Response.Status.NOT_ACCEPTABLE);
+            return Response.ok(XMLDataCollectionAdapter.getDataCollection(error)).status(Response.Status.NOT_ACCEPTABLE)
+                    .build();
+        }
+        return convertResultList(result, null, format);
+    }
+
     /**
      * The method saves a document provided in xml format. The caller need to be
      * assigned to the access role 'org.imixs.ACCESSLEVEL.MANAGERACCESS'
@@ -403,6 +467,66 @@ public class DocumentRestService {
         }
     }
 
+    /**
+     * The method imports a large collection of documents provided in the Imixs
+     * JSON format. The caller need to be assigned to the access role
+     * 'org.imixs.ACCESSLEVEL.MANAGERACCESS'
+     * <p>
+     * The request body is parsed as a stream. The documents are saved in blocks
+     * as they arrive, each block in a separate transaction. So the collection is
+     * never held in memory completely. Existing documents are replaced.
+     * <p>
+     * The method returns the number of imported documents.
+     * 
+     * @param requestBodyStream - json data collection
+     * @param blockSize         - number of documents saved in one transaction
+     *                          (default 100)
+     * @return
+     */
+    @POST
+    @Path("/bulk")
+    @Produces({ MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON })
+    @Consumes({ MediaType.APPLICATION_JSON })
+    @TransactionAttribute(value = TransactionAttributeType.NOT_SUPPORTED)
+    public Response postDocumentsBulk(InputStream requestBodyStream,
+            @DefaultValue("100") @QueryParam("blocksize") int blockSize) {
+        if (servletRequest.isUserInRole("org.imixs.ACCESSLEVEL.MANAGERACCESS") == false) {
+            return Response.status(Response.Status.UNAUTHORIZED).build();
+        }
+        if (blockSize <= 0) {
+            blockSize = 100;
+        }
+        final int maxBlockSize = blockSize;
+        final List<ItemCollection> block = new ArrayList<ItemCollection>(maxBlockSize);
+        XMLCount xmlcount = new XMLCount();
+        xmlcount.count = 0l;
+        long l = System.currentTimeMillis();
+        try {
+            int parsed = ImixsJSONParser.parse(requestBodyStream, document -> {
+                block.add(document);
+                if (block.size() >= maxBlockSize) {
+                    xmlcount.count += documentService.importDocuments(block);
+                    block.clear();
+                }
+            });
+            if (!block.isEmpty()) {
+                xmlcount.count += documentService.importDocuments(block);
+            }
+            if (parsed < 0) {
+                logger.severe("...bulk import failed - invalid json data structure! " + xmlcount.count
+                        + " documents imported.");
+                return Response.ok(xmlcount).status(Response.Status.NOT_ACCEPTABLE).build();
+            }
+            logger.info("...bulk import of " + xmlcount.count + " documents (" + parsed + " parsed) in "
+                    + (System.currentTimeMillis() - l) + "ms");
+        } catch (ParseException | JsonException e) {
+            logger.severe("...bulk import failed: " + e.getMessage() + " - " + xmlcount.count
+                    + " documents imported.");
+            return Response.ok(xmlcount).status(Response.Status.NOT_ACCEPTABLE).build();
+        }
+        return Response.ok(xmlcount).build();
+    }
+
     /**
      * Delegater putEntity @PUT
      * 
@@ -438,6 +562,31 @@ public class DocumentRestService {
         return Response.status(Response.Status.OK).build();
     }
 
+    /**
+     * This method creates a backup of all documents stored in the database. The
+     * backup can be restored by calling the restore method
+     * 
+     * @param filepath - path in server filesystem
+     * @return
+     */
+    @PUT
+    @Path("/backup")
+    public Response backup(@QueryParam("filepath") String filepath) {
+
+        if (servletRequest.isUserInRole("org.imixs.ACCESSLEVEL.MANAGERACCESS") == false) {
+            return Response.status(Response.Status.UNAUTHORIZED).build();
+        }
+        try {
+            documentService.backup(filepath);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
+        }
+
+        return Response.status(Response.Status.OK).build();
+
+    }
+
     /**
      * This method creates a backup of the result set form a JQPL query. The entity
      * list will be stored into the file system. The backup can be restored by
@@ -538,7 +687,8 @@ public class DocumentRestService {
     /**
      * This method converts a single ItemCollection into a Jax-rs response object.
      * <p>
-     * The method expects optional items and format string (json|xml)
+     * The method expects optional items and format string (json|xml). In case of
+     * json the document is written directly by the JSONDataCollectionWriter.
      * <p>
      * In case the result set is null, than the method returns an empty collection.
      * 
@@ -552,9 +702,12 @@ public class DocumentRestService {
             workitem = new ItemCollection();
         }
         if ("json".equals(format)) {
+            // the document is streamed by the JSONDataCollectionWriter
+            List<ItemCollection> result = new ArrayList<ItemCollection>();
+            result.add(workitem);
             return Response
                     // Set the status and Put your entity here.
-                    .ok(XMLDataCollectionAdapter.getDataCollection(workitem, DocumentRestService.getItemList(items)))
+                    .ok(new JSONDataCollection(result, DocumentRestService.getItemList(items)))
                     // Add the Content-Type header to tell Jersey which format it should marshall
                     // the entity into.
                     .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON).build();
@@ -577,7 +730,8 @@ public class DocumentRestService {
     /**
      * This method converts a ItemCollection List into a Jax-rs response object.
      * <p>
-     * The method expects optional items and format string (json|xml)
+     * The method expects optional items and format string (json|xml). In case of
+     * json the documents are written directly by the JSONDataCollectionWriter.
      * <p>
      * In case the result set is null, than the method returns an empty collection.
      * 
@@ -591,9 +745,10 @@ public class DocumentRestService {
             result = new ArrayList<ItemCollection>();
         }
         if ("json".equals(format)) {
+            // the documents are streamed by the JSONDataCollectionWriter
             return Response
                     // Set the status and Put your entity here.
-                    .ok(XMLDataCollectionAdapter.getDataCollection(result, DocumentRestService.getItemList(items)))
+                    .ok(new JSONDataCollection(result, DocumentRestService.getItemList(items)))
                     // Add the Content-Type header to tell Jersey which format it should marshall
                     // the entity into.
                     .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON).build();
@@ -613,4 +768,203 @@ public class DocumentRestService {
         }
     }
 
+    /**
+     * Returns a weak entity tag for a document representation. The tag is build
+     * from the $modified and $version of the document, the $isauthor flag of the
+     * current user and the requested items and format.
+     * 
+     * @param document - the document or a projection containing the meta data
+     * @param items    - optional item list
+     * @param format   - optional format string (json|xml)
+     * @return entity tag or null if no document is provided
+     */
+    public static EntityTag getEntityTag(ItemCollection document, String items, String format) {
+        if (document == null) {
+            return null;
+        }
+        Date modified = document.getItemValueDate(WorkflowKernel.MODIFIED);
+        if (modified == null) {
+            return null;
+        }
+        return createEntityTag(
+                Long.toHexString(modified.getTime()) + "-" + document.getItemValueInteger(DocumentService.VERSION),
+                document.getItemValueBoolean(DocumentService.ISAUTHOR), items, format);
+    }
+
+    /**
+     * Returns true if a result for the given item list is build from the document
+     * stubs stored in the search index. Only such a result can be validated by the
+     * version of the search index before it is loaded.
+     * 
+     * @param items - optional item list
+     * @return true if all items are stored in the search index
+     */
+    public boolean isStubResult(String items) {
+        return schemaService.isStoredItemList(getItemList(items));
+    }
+
+    /**
+     * Returns a result list including an entity tag. If the result is read from the
+     * search index and all requested items are stored in the index, the request is
+     * validated by the version of the index before the result is loaded. In all
+     * other cases the request is validated by the loaded result. If the entity tag
+     * matches, the response 304 (Not Modified) is returned.
+     * <p>
+     * If the result can not be loaded, the response 406 (Not Acceptable) is
+     * returned.
+     * 
+     * @param request - the current request
+     * @param variant - parameters defining the result (e.g. query, page index and
+     *                items)
+     * @param items   - optional item list
+     * @param indexed - false if the result is not selected by the search index
+     *                (e.g. by the meta columns of the database)
+     * @param loader  - loads the result
+     * @param format  - optional format string (json|xml)
+     * @return the response
+     */
+    public Response cachedResult(Request request, Object[] variant, String items, boolean indexed,
+            Callable<List<ItemCollection>> loader, String format) {
+        EntityTag etag = indexed && isStubResult(items) ? getIndexEntityTag(documentService, variant) : null;
+        Response notModified = evaluateEntityTag(request, etag);
+        if (notModified != null) {
+            return notModified;
+        }
+        List<ItemCollection> result = null;
+        try {
+            result = loader.call();
+        } catch (Exception e) {
+            logger.warning("Invalid Query: " + e.getMessage());
+
+            ItemCollection error = new ItemCollection();
+            error.setItemValue("$error_message", e.getMessage());
+            error.setItemValue("$error_code", "" + Response.Status.NOT_ACCEPTABLE);
+            return Response.ok(XMLDataCollectionAdapter.getDataCollection(error)).status(Response.Status.NOT_ACCEPTABLE)
+                    .build();
+        }
+        if (etag == null) {
+            etag = getResultEntityTag(documentService, result, variant);
+            notModified = evaluateEntityTag(request, etag);
+            if (notModified != null) {
+                return notModified;
+            }
+        }
+        return addEntityTag(convertResultList(result, items, format), etag);
+    }
+
+    /**
+     * Returns a weak entity tag for a search result build from document stubs. The
+     * tag is build from the version of the search index, the user name list of the
+     * current user and the given parameters defining the search result. The tag
+     * changes each time the search index is updated.
+     * <p>
+     * A result loaded from the database must be validated by the method
+     * {@link #getResultEntityTag(DocumentService, List, Object...)}, as the index
+     * is not updated for each modification of a document (index.skipunchanged)
+     * and a worklist may be selected by the meta columns of the database.
+     * 
+     * @param documentService - the document service
+     * @param params          - parameters defining the search result (e.g. query,
+     *                        page index and items)
+     * @return entity tag or null if the version of the index is not available
+     */
+    public static EntityTag getIndexEntityTag(DocumentService documentService, Object... params) {
+        long indexVersion = documentService.getIndexVersion();
+        if (indexVersion < 0) {
+            return null;
+        }
+        return createEntityTag(Long.toHexString(indexVersion), documentService.getUserNameList(),
+                Arrays.asList(params));
+    }
+
+    /**
+     * Returns a weak entity tag for a result loaded from the database. The tag is
+     * build from the latest $modified of the result, the $uniqueid, $modified,
+     * $version and $isauthor of each document, the user name list of the current user and the given
+     * parameters defining the search result.
+     * 
+     * @param documentService - the document service
+     * @param result          - the loaded result
+     * @param params          - parameters defining the search result (e.g. query,
+     *                        page index and items)
+     * @return entity tag or null if a document provides no $modified
+     */
+    public static EntityTag getResultEntityTag(DocumentService documentService, List<ItemCollection> result,
+            Object... params) {
+        if (result == null) {
+            return null;
+        }
+        long lastModified = 0;
+        List<Object> validator = new ArrayList<Object>();
+        for (ItemCollection document : result) {
+            Date modified = document.getItemValueDate(WorkflowKernel.MODIFIED);
+            if (modified == null) {
+                return null;
+            }
+            lastModified = Math.max(lastModified, modified.getTime());
+            validator.add(document.getUniqueID());
+            validator.add(modified.getTime());
+            validator.add(document.getItemValueInteger(DocumentService.VERSION));
+            validator.add(document.getItemValueBoolean(DocumentService.ISAUTHOR));
+        }
+        return createEntityTag(Long.toHexString(lastModified) + "-" + validator,
+                documentService.getUserNameList(), Arrays.asList(params));
+    }
+
+    /**
+     * Creates a weak entity tag from a validator (e.g. a version) and a list of
+     * parameters defining the representation of a resource. The tag is the SHA-256
+     * hash of the validator and the string representation of the parameters.
+     * 
+     * @param validator - version of the resource
+     * @param variant   - parameters defining the representation
+     * @return entity tag
+     */
+    public static EntityTag createEntityTag(String validator, Object... variant) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(validator.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(Arrays.deepToString(variant).getBytes(StandardCharsets.UTF_8));
+            return new EntityTag(DatatypeConverter.printHexBinary(digest.digest()).toLowerCase(), true);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not supported", e);
+        }
+    }
+
+    /**
+     * Evaluates the request header 'If-None-Match' against the given entity tag.
+     * If the tag matches, the method returns the response 304 (Not Modified). In
+     * all other cases the method returns null and the resource has to be build.
+     * 
+     * @param request - the current request
+     * @param etag    - entity tag of the current resource, can be null
+     * @return the response 304 or null
+     */
+    public static Response evaluateEntityTag(Request request, EntityTag etag) {
+        if (etag == null) {
+            return null;
+        }
+        Response.ResponseBuilder builder = request.evaluatePreconditions(etag);
+        if (builder != null) {
+            return builder.header(HttpHeaders.VARY, HttpHeaders.ACCEPT).build();
+        }
+        return null;
+    }
+
+    /**
+     * Adds the header 'ETag' to a successful response. As the representation
+     * depends on the header 'Accept', the header 'Vary' is added too.
+     * 
+     * @param response - the response
+     * @param etag     - entity tag, can be null
+     * @return the response including the entity tag
+     */
+    public static Response addEntityTag(Response response, EntityTag etag) {
+        if (etag == null || response == null || response.getStatus() != Response.Status.OK.getStatusCode()) {
+            return response;
+        }
+        return Response.fromResponse(response).tag(etag).header(HttpHeaders.VARY, HttpHeaders.ACCEPT).build();
+    }
+
 }
@@ -0,0 +1,63 @@
+/*  
+ *  Imixs-Workflow 
+ *  
+ *  Copyright (C) 2001-2020 Imixs Software Solutions GmbH,  
+ *  http://www.imixs.com
+ *  
+ *  This program is free software; you can redistribute it and/or 
+ *  modify it under the terms of the GNU General Public License 
+ *  as published by the Free Software Foundation; either version 2 
+ *  of the License, or (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful, 
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ *  General Public License for more details.
+ *  
+ *  You can receive a copy of the GNU General Public
+ *  License at http://www.gnu.org/licenses/gpl.html
+ *  
+ *  Project: 
+ *      https://www.imixs.org
+ *      https://github.com/imixs/imixs-workflow
+ *  
+ *  Contributors:  
+ *      Imixs Software Solutions GmbH - Project Management
+ *      Ralph Soika - Software Developer
+ */
+
+package org.imixs.workflow.jaxrs;
+
+import java.util.List;
+import org.imixs.workflow.ItemCollection;
+
+/**
+ * The JSONDataCollection wraps a list of ItemCollections to be written as JSON
+ * by the JSONDataCollectionWriter. In difference to a XMLDataCollection the
+ * documents are not converted before they are written into the response.
+ * <p>
+ * The optional item list restricts the items written for each document.
+ * 
+ * @see JSONDataCollectionWriter
+ * @author rsoika
+ *
+ */
+public class JSONDataCollection {
+
+    private List<ItemCollection> documents;
+    private List<String> itemNames;
+
+    public JSONDataCollection(List<ItemCollection> documents, List<String> itemNames) {
+        this.documents = documents;
+        this.itemNames = itemNames;
+    }
+
+    public List<ItemCollection> getDocuments() {
+        return documents;
+    }
+
+    public List<String> getItemNames() {
+        return itemNames;
+    }
+
+}
@@ -0,0 +1,86 @@
+/*  
+ *  Imixs-Workflow 
+ *  
+ *  Copyright (C) 2001-2020 Imixs Software Solutions GmbH,  
+ *  http://www.imixs.com
+ *  
+ *  This program is free software; you can redistribute it and/or 
+ *  modify it under the terms of the GNU General Public License 
+ *  as published by the Free Software Foundation; either version 2 
+ *  of the License, or (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful, 
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+ *  General Public License for more details.
+ *  
+ *  You can receive a copy of the GNU General Public
+ *  License at http://www.gnu.org/licenses/gpl.html
+ *  
+ *  Project: 
+ *      https://www.imixs.org
+ *      https://github.com/imixs/imixs-workflow
+ *  
+ *  Contributors:  
+ *      Imixs Software Solutions GmbH - Project Management
+ *      Ralph Soika - Software Developer
+ */
+
+package org.imixs.workflow.jaxrs;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+import org.imixs.workflow.ItemCollection;
+import org.imixs.workflow.util.ImixsJSONBuilder;
+
+/**
+ * This MessageBodyWriter streams a JSONDataCollection directly into the
+ * response. Each document is written by the ImixsJSONBuilder without creating
+ * a XMLDocument.
+ * <p>
+ * The result has the structure of the Imixs JSON format and can be parsed by the
+ * ImixsJSONParser (e.g. to be posted to the bulk import):
+ * 
+ * <pre>
+ * {"data":[
+ *    {"item":[{"name":"txtname","value":{"@type":"xs:string","$":"Anna"}}, ...]},
+ *    ...
+ * ]}
+ * </pre>
+ * 
+ * @author rsoika
+ *
+ */
+@Provider
+@Produces(MediaType.APPLICATION_JSON)
+public class JSONDataCollectionWriter implements MessageBodyWriter<JSONDataCollection> {
+
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return JSONDataCollection.class.isAssignableFrom(type);
+    }
+
+    public void writeTo(JSONDataCollection dataCollection, Class<?> type, Type genericType,
+            Annotation[] annotations, MediaType mediaType, MultivaluedMap<String, Object> httpHeaders,
+            OutputStream entityStream) throws IOException, WebApplicationException {
+        List<ItemCollection> documents = dataCollection.getDocuments();
+        if (documents == null) {
+            documents = new ArrayList<ItemCollection>();
+        }
+        ImixsJSONBuilder.write(documents, dataCollection.getItemNames(), entityStream);
+    }
+
+    public long getSize(JSONDataCollection arg0, Class<?> arg1, Type arg2, Annotation[] arg3, MediaType arg4) {
+        return -1;
+    }
+
+}
@@ -32,11 +32,11 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.text.SimpleDateFormat;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.StringTokenizer;
 import java.util.Vector;
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import javax.ejb.Stateless;
 import javax.inject.Inject;
@@ -52,7 +52,10 @@ import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
@@ -96,6 +99,9 @@ public class ModelRestService {
     @javax.ws.rs.core.Context
     private HttpServletRequest servletRequest;
 
+    @javax.ws.rs.core.Context
+    private Request request;
+
     @GET
     @Produces({ MediaType.TEXT_HTML })
     public StreamingOutput getModelOverview() {
@@ -223,26 +229,21 @@ public class ModelRestService {
 
     @GET
     @Path("/{version}/tasks/")
-    public XMLDataCollection findAllTasks(@PathParam("version") String version, @QueryParam("items") String items) {
-        Collection<ItemCollection> col = null;
-        try {
-
-            col = modelService.getModel(version).findAllTasks();
-            return XMLDataCollectionAdapter.getDataCollection(col, getItemList(items));
-
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        return new XMLDataCollection();
+    public Response findAllTasks(@PathParam("version") String version, @QueryParam("items") String items) {
+        return cachedModelResult(version,
+                () -> XMLDataCollectionAdapter.getDataCollection(modelService.getModel(version).findAllTasks(),
+                        getItemList(items)),
+                "tasks", items);
     }
 
     @GET
     @Path("/{version}/bpmn")
-    public Response getModelFile(@PathParam("version") String version, @Context UriInfo uriInfo) {
+    public Response getModelFile(@PathParam("version") String version, @Context HttpHeaders httpHeaders,
+            @Context UriInfo uriInfo) {
         ItemCollection modelEntity = modelService.loadModelEntity(version);
         if (modelEntity != null) {
             return workflowRestService.getWorkItemFile(modelEntity.getUniqueID(), modelEntity.getFileNames().get(0),
-                    uriInfo);
+                    request, httpHeaders, uriInfo);
         } else {
             return Response.status(Response.Status.NOT_FOUND).build();
         }
@@ -255,45 +256,31 @@ public class ModelRestService {
      */
     @GET
     @Path("/{version}/definition")
-    public XMLDataCollection getDefiniton(@PathParam("version") String version, @QueryParam("items") String items) {
-        ItemCollection definition = null;
-        try {
-            definition = modelService.getModel(version).getDefinition();
-            return XMLDataCollectionAdapter.getDataCollection(definition, getItemList(items));
-
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        return new XMLDataCollection();
+    public Response getDefiniton(@PathParam("version") String version, @QueryParam("items") String items) {
+        return cachedModelResult(version,
+                () -> XMLDataCollectionAdapter.getDataCollection(modelService.getModel(version).getDefinition(),
+                        getItemList(items)),
+                "definition", items);
     }
 
     @GET
     @Path("/{version}/tasks/{taskid}")
-    public XMLDataCollection getTask(@PathParam("version") String version, @PathParam("taskid") int processid,
+    public Response getTask(@PathParam("version") String version, @PathParam("taskid") int processid,
             @QueryParam("items") String items) {
-        ItemCollection process = null;
-        try {
-            process = modelService.getModel(version).getTask(processid);
-            return XMLDataCollectionAdapter.getDataCollection(process, getItemList(items));
-
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        return new XMLDataCollection();
+        return cachedModelResult(version,
+                () -> XMLDataCollectionAdapter.getDataCollection(modelService.getModel(version).getTask(processid),
+                        getItemList(items)),
+                "task", processid, items);
     }
 
     @GET
     @Path("/{version}/tasks/{taskid}/events")
-    public XMLDataCollection findAllEventsByTask(@PathParam("version") String version,
+    public Response findAllEventsByTask(@PathParam("version") String version,
             @PathParam("taskid") int processid, @QueryParam("items") String items) {
-        Collection<ItemCollection> col = null;
-        try {
-            col = modelService.getModel(version).findAllEventsByTask(processid);
-            return XMLDataCollectionAdapter.getDataCollection(col, getItemList(items));
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        return new XMLDataCollection();
+        return cachedModelResult(version,
+                () -> XMLDataCollectionAdapter.getDataCollection(
+                        modelService.getModel(version).findAllEventsByTask(processid), getItemList(items)),
+                "events", processid, items);
     }
 
     /**
@@ -325,17 +312,12 @@ public class ModelRestService {
      */
     @GET
     @Path("/{version}/groups/{group}")
-    public XMLDataCollection findTasksByGroup(@PathParam("version") String version, @PathParam("group") String group,
+    public Response findTasksByGroup(@PathParam("version") String version, @PathParam("group") String group,
             @QueryParam("items") String items) {
-        Collection<ItemCollection> col = null;
-        try {
-            col = modelService.getModel(version).findTasksByGroup(group);
-            return XMLDataCollectionAdapter.getDataCollection(col, getItemList(items));
-
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        return new XMLDataCollection();
+        return cachedModelResult(version,
+                () -> XMLDataCollectionAdapter.getDataCollection(modelService.getModel(version).findTasksByGroup(group),
+                        getItemList(items)),
+                "group", group, items);
     }
 
     @DELETE
@@ -502,6 +484,46 @@ public class ModelRestService {
         putModel(ecol);
     }
 
+    /**
+     * Returns a model resource including an entity tag. If the entity tag matches,
+     * the response 304 (Not Modified) is returned.
+     * 
+     * @param version - model version
+     * @param loader  - builds the resource
+     * @param params  - parameters defining the resource
+     * @return the response
+     */
+    private Response cachedModelResult(String version, Callable<XMLDataCollection> loader, Object... params) {
+        EntityTag etag = getModelEntityTag(version, params);
+        Response notModified = DocumentRestService.evaluateEntityTag(request, etag);
+        if (notModified != null) {
+            return notModified;
+        }
+        try {
+            return DocumentRestService.addEntityTag(Response.ok(loader.call()).build(), etag);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return Response.ok(new XMLDataCollection()).build();
+    }
+
+    /**
+     * Returns a weak entity tag for a model resource. The tag is build from the time
+     * the model version was loaded into the model store and the given parameters
+     * defining the resource.
+     * 
+     * @param version - model version
+     * @param params  - parameters defining the resource
+     * @return entity tag or null if the model version does not exist
+     */
+    private EntityTag getModelEntityTag(String version, Object... params) {
+        long timestamp = modelService.getModelTimestamp(version);
+        if (timestamp <= 0) {
+            return null;
+        }
+        return DocumentRestService.createEntityTag(Long.toHexString(timestamp), version, Arrays.asList(params));
+    }
+
     /**
      * This method returns a List object from a given comma separated string. The
      * method returns null if no elements are found. The provided parameter looks
@@ -63,12 +63,10 @@ import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.Marshaller;
 import javax.xml.transform.Result;
 import javax.xml.transform.Source;
 import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.sax.SAXResult;
 import javax.xml.transform.stream.StreamSource;
 import org.apache.fop.apps.FOUserAgent;
@@ -79,11 +77,14 @@ import org.imixs.workflow.ItemCollection;
 import org.imixs.workflow.engine.DocumentService;
 import org.imixs.workflow.engine.ReportService;
 import org.imixs.workflow.xml.DocumentTable;
+import org.imixs.workflow.xml.JAXBContextRegistry;
 import org.imixs.workflow.xml.XMLDataCollection;
 import org.imixs.workflow.xml.XMLDataCollectionAdapter;
 import org.imixs.workflow.xml.XMLDocument;
 import org.imixs.workflow.xml.XMLDocumentAdapter;
 import org.imixs.workflow.xml.XSLHandler;
+import org.imixs.workflow.xml.XSLStreamTransformer;
+import org.imixs.workflow.xml.XSLTemplateCache;
 
 /**
  * The WorkflowService Handler supports methods to process different kind of
@@ -186,6 +187,12 @@ public class ReportRestService {
      * ContentType is 'application/pdf' the method will call fopTransofrmation
      * instat of xslTransformation. The FOP API need to be provided by the main
      * application.
+     * <p>
+     * If the query param 'stream' is set to true, the report is executed in a
+     * streaming mode. In this mode the data source is read page by page starting
+     * with the given pageIndex until the last page. Each document is piped directly
+     * through the XSL template into the response. The data source is never hold
+     * completely in memory.
      * 
      * @param name reportname of the report to be executed
      * @return a collection of entiteis
@@ -197,7 +204,7 @@ public class ReportRestService {
             @DefaultValue("1000") @QueryParam("pageSize") int pageSize,
             @DefaultValue("0") @QueryParam("pageIndex") int pageIndex, @QueryParam("sortBy") String sortBy,
             @QueryParam("sortReverse") boolean sortReverse, @DefaultValue("") @QueryParam("encoding") String encoding,
-            @Context UriInfo uriInfo) {
+            @QueryParam("stream") boolean stream, @Context UriInfo uriInfo) {
         Collection<ItemCollection> col = null;
 
         String sXSL;
@@ -227,6 +234,10 @@ public class ReportRestService {
 
             // execute report
             Map<String, String> params = getQueryParams(uriInfo);
+            if (stream && !"".equals(sXSL)) {
+                return Response.ok(streamReport(report, sXSL, sContentType, encoding, pageSize, pageIndex, sortBy,
+                        sortReverse, params), sContentType).build();
+            }
             col = reportService.getDataSource(report, pageSize, pageIndex, sortBy, sortReverse, params);
 
             // if no XSL is provided return standard html format...?
@@ -241,9 +252,7 @@ public class ReportRestService {
 
             StringWriter writer = new StringWriter();
 
-            JAXBContext context = JAXBContext.newInstance(XMLDataCollection.class);
-
-            Marshaller m = context.createMarshaller();
+            Marshaller m = JAXBContextRegistry.getMarshaller(XMLDataCollection.class);
             m.setProperty("jaxb.encoding", encoding);
             m.marshal(xmlCol, writer);
 
@@ -296,8 +305,9 @@ public class ReportRestService {
             @DefaultValue("1000") @QueryParam("pageSize") int pageSize,
             @DefaultValue("0") @QueryParam("pageIndex") int pageIndex, @QueryParam("sortBy") String sortBy,
             @QueryParam("sortReverse") boolean sortReverse, @DefaultValue("") @QueryParam("encoding") String encoding,
-            @Context UriInfo uriInfo) {
-        return this.getExcecuteReport(reportName, pageSize, pageIndex, sortBy, sortReverse, encoding, uriInfo);
+            @QueryParam("stream") boolean stream, @Context UriInfo uriInfo) {
+        return this.getExcecuteReport(reportName, pageSize, pageIndex, sortBy, sortReverse, encoding, stream,
+                uriInfo);
     }
 
     /**
@@ -537,6 +547,60 @@ public class ReportRestService {
         putReport(reportCol);
     }
 
+    /**
+     * Creates a StreamingOutput executing a report page by page. The documents of
+     * each page are transformed by the XSLStreamTransformer and written directly
+     * into the response. In case of the content type 'application/pdf' the result
+     * of the transformation is piped into the FOP processor.
+     * 
+     * @param report      - the report definition
+     * @param xslSource   - XSL template of the report
+     * @param contentType - content type of the report
+     * @param encoding    - encoding
+     * @param pageSize    - number of documents read per page
+     * @param pageIndex   - first page
+     * @param sortBy      - optional sort field
+     * @param sortReverse - optional sort order
+     * @param params      - query params
+     * @return StreamingOutput
+     */
+    private StreamingOutput streamReport(final ItemCollection report, final String xslSource,
+            final String contentType, final String encoding, final int pageSize, final int pageIndex,
+            final String sortBy, final boolean sortReverse, final Map<String, String> params) {
+        return new StreamingOutput() {
+            public void write(OutputStream out) throws IOException, WebApplicationException {
+                try {
+                    XSLStreamTransformer transformer = null;
+                    if ("application/pdf".equals(contentType.toLowerCase())) {
+                        FopFactory fopFactory = FopFactory.newInstance();
+                        FOUserAgent foUserAgent = fopFactory.newFOUserAgent();
+                        foUserAgent.setBaseURL(fopFactory.getBaseURL());
+                        Fop fop = fopFactory.newFop(MimeConstants.MIME_PDF, foUserAgent, out);
+                        transformer = new XSLStreamTransformer(xslSource, encoding,
+                                new SAXResult(fop.getDefaultHandler()));
+                    } else {
+                        transformer = new XSLStreamTransformer(xslSource, encoding, out);
+                    }
+                    transformer.start();
+                    int page = pageIndex;
+                    List<ItemCollection> col = null;
+                    do {
+                        col = reportService.getDataSource(report, pageSize, page, sortBy, sortReverse, params);
+                        for (ItemCollection document : col) {
+                            transformer.write(document);
+                        }
+                        page++;
+                    } while (!col.isEmpty());
+                    transformer.finish();
+                } catch (Exception e) {
+                    logger.severe("Failed to stream report '" + report.getItemValueString("txtname") + "': "
+                            + e.getMessage());
+                    throw new WebApplicationException(e, Response.Status.INTERNAL_SERVER_ERROR);
+                }
+            }
+        };
+    }
+
     /**
      * This method dos a apache FOP transformation using the FopFactory
      * 
@@ -560,12 +624,7 @@ public class ReportRestService {
             Fop fop = fopFactory.newFop(MimeConstants.MIME_PDF, foUserAgent, output);
 
             // Setup XSLT
-            TransformerFactory factory = TransformerFactory.newInstance();
-            ByteArrayInputStream baisXSL = new ByteArrayInputStream(xslSource.getBytes());
-            InputStreamReader isreaderXSL = new InputStreamReader(baisXSL, aEncoding);
-            Source xslSrc = new StreamSource(isreaderXSL);
-
-            Transformer transformer = factory.newTransformer(xslSrc);
+            Transformer transformer = XSLTemplateCache.getTemplates(xslSource, aEncoding).newTransformer();
 
             // Setup input for XSLT transformation
             ByteArrayInputStream baisXML = new ByteArrayInputStream(xmlSource.getBytes());
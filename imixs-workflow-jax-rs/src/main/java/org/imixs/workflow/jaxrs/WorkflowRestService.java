@@ -29,19 +29,29 @@
 package org.imixs.workflow.jaxrs;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
 import java.io.UnsupportedEncodingException;
+import java.io.Writer;
 import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.StringTokenizer;
 import java.util.Vector;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
 import javax.ejb.Stateless;
 import javax.inject.Inject;
+import javax.json.JsonException;
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DefaultValue;
@@ -55,19 +65,28 @@ import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.stream.XMLStreamException;
 import org.imixs.workflow.FileData;
 import org.imixs.workflow.ItemCollection;
 import org.imixs.workflow.WorkflowKernel;
 import org.imixs.workflow.engine.WorkflowService;
+import org.imixs.workflow.engine.attachments.AttachmentService;
 import org.imixs.workflow.exceptions.AccessDeniedException;
 import org.imixs.workflow.exceptions.ImixsExceptionHandler;
 import org.imixs.workflow.exceptions.ModelException;
 import org.imixs.workflow.exceptions.PluginException;
+import org.imixs.workflow.util.ImixsJSONBuilder;
 import org.imixs.workflow.util.ImixsJSONParser;
+import org.imixs.workflow.xml.JAXBContextRegistry;
 import org.imixs.workflow.xml.XMLDataCollection;
 import org.imixs.workflow.xml.XMLDataCollectionAdapter;
 import org.imixs.workflow.xml.XMLDocument;
@@ -91,9 +110,18 @@ public class WorkflowRestService {
     @Inject
     private DocumentRestService documentRestService;
 
+    @Inject
+    private AttachmentService attachmentService;
+
     @javax.ws.rs.core.Context
     private HttpServletRequest servletRequest;
 
+    @javax.ws.rs.core.Context
+    private Request request;
+
+    private static final List<String> BATCH_RESULT_ITEMS = Arrays.asList(WorkflowKernel.UNIQUEID,
+            WorkflowKernel.TASKID, WorkflowKernel.WORKFLOWSTATUS, "$error_code", "$error_message");
+
     private static Logger logger = Logger.getLogger(WorkflowRestService.class.getName());
 
     @GET
@@ -147,7 +175,17 @@ public class WorkflowRestService {
 
         ItemCollection workitem;
         try {
-            workitem = workflowService.getWorkItem(uniqueid);
+            if (servletRequest.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+                // validate the cached workitem by its meta data only
+                Response notModified = DocumentRestService.evaluateEntityTag(request,
+                        DocumentRestService.getEntityTag(workflowService.getDocumentService().load(uniqueid,
+                                Arrays.asList(WorkflowKernel.MODIFIED)), items, format));
+                if (notModified != null) {
+                    return notModified;
+                }
+            }
+            // load only the requested items
+            workitem = workflowService.getDocumentService().load(uniqueid, DocumentRestService.getItemList(items));
             if (workitem == null) {
                 // workitem not found
                 return Response.status(Response.Status.NOT_FOUND).build();
@@ -158,7 +196,8 @@ public class WorkflowRestService {
             workitem = null;
         }
 
-        return documentRestService.convertResult(workitem, items, format);
+        return DocumentRestService.addEntityTag(documentRestService.convertResult(workitem, items, format),
+                DocumentRestService.getEntityTag(workitem, items, format));
     }
 
     /**
@@ -167,24 +206,36 @@ public class WorkflowRestService {
      * <p>
      * The file name will be encoded. With a URLDecode the filename is decoded in
      * different formats and searched in the file list. This is not a nice solution.
+     * <p>
+     * Only the item $file of the workitem is loaded. If the file content is stored
+     * in the AttachmentStore, the content is streamed directly from the store.
+     * <p>
+     * The response is tagged by the checksum of the file content. The method
+     * supports conditional requests and a single byte range requested by the
+     * header 'Range'. In this case only the requested part of the content is
+     * streamed with the status 206 (Partial Content).
      * 
      * @param uniqueid
+     * @param file        - the file name
+     * @param request     - optional request to evaluate the preconditions
+     * @param httpHeaders - optional request headers to evaluate a range request
      * @return
      */
     @GET
     @Path("/workitem/{uniqueid : ([0-9a-f]{8}-.*|[0-9a-f]{11}-.*)}/file/{file}")
     public Response getWorkItemFile(@PathParam("uniqueid") String uniqueid, @PathParam("file") @Encoded String file,
-            @Context UriInfo uriInfo) {
+            @Context Request request, @Context HttpHeaders httpHeaders, @Context UriInfo uriInfo) {
 
         ItemCollection workItem;
         try {
-            workItem = workflowService.getWorkItem(uniqueid);
+            String fileNameUTF8 = URLDecoder.decode(file, "UTF-8");
+            String fileNameISO = URLDecoder.decode(file, "ISO-8859-1");
+            // load only the requested file
+            workItem = workflowService.getDocumentService().loadFileData(uniqueid,
+                    Arrays.asList(fileNameUTF8, fileNameISO, file));
 
             if (workItem != null) {
 
-                String fileNameUTF8 = URLDecoder.decode(file, "UTF-8");
-                String fileNameISO = URLDecoder.decode(file, "ISO-8859-1");
-
                 // fetch FileData object
                 FileData fileData = null;
                 // try to guess encodings.....
@@ -195,10 +246,7 @@ public class WorkflowRestService {
                     fileData = workItem.getFileData(file);
 
                 if (fileData != null) {
-                    // Set content type in order of the contentType stored
-                    // in the $file attribute
-                    Response.ResponseBuilder builder = Response.ok(fileData.getContent(), fileData.getContentType());
-                    return builder.build();
+                    return getFileResponse(fileData, request, httpHeaders);
                 } else {
                     logger.warning("WorklfowRestService unable to open file: '" + file + "' in workitem '" + uniqueid
                             + "' - error: Filename not found!");
@@ -272,21 +320,16 @@ public class WorkflowRestService {
             @DefaultValue("") @QueryParam("sortBy") String sortBy,
             @DefaultValue("false") @QueryParam("sortReverse") Boolean sortReverse, @QueryParam("items") String items,
             @QueryParam("format") String format) {
-        List<ItemCollection> result = null;
-        try {
-            if ("null".equalsIgnoreCase(owner))
-                owner = null;
-
-            // decode URL param
-            if (owner != null)
-                owner = URLDecoder.decode(owner, "UTF-8");
-
-            result = workflowService.getWorkListByOwner(owner, type, pageSize, pageIndex, sortBy, sortReverse);
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-
-        return documentRestService.convertResultList(result, items, format);
+        Object[] variant = { "owner", owner, type, pageIndex, pageSize, sortBy, sortReverse, items, format };
+        return documentRestService.cachedResult(request, variant, items,
+                !workflowService.getDocumentService().isMetaColumnsEnabled(), () -> {
+                    String name = "null".equalsIgnoreCase(owner) ? null : owner;
+                    // decode URL param
+                    if (name != null)
+                        name = URLDecoder.decode(name, "UTF-8");
+                    return workflowService.getWorkListByOwner(name, type, pageSize, pageIndex, sortBy, sortReverse,
+                            DocumentRestService.getItemList(items));
+                }, format);
     }
 
     /**
@@ -306,21 +349,15 @@ public class WorkflowRestService {
             @DefaultValue("") @QueryParam("sortBy") String sortBy,
             @DefaultValue("false") @QueryParam("sortReverse") Boolean sortReverse, @QueryParam("items") String items,
             @QueryParam("format") String format) {
-        List<ItemCollection> result = null;
-        try {
-            if ("null".equalsIgnoreCase(user))
-                user = null;
-
+        Object[] variant = { "author", user, type, pageIndex, pageSize, sortBy, sortReverse, items, format };
+        return documentRestService.cachedResult(request, variant, items, true, () -> {
+            String name = "null".equalsIgnoreCase(user) ? null : user;
             // decode URL param
-            if (user != null)
-                user = URLDecoder.decode(user, "UTF-8");
-
-            result = workflowService.getWorkListByAuthor(user, type, pageSize, pageIndex, sortBy, sortReverse);
-
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        return documentRestService.convertResultList(result, items, format);
+            if (name != null)
+                name = URLDecoder.decode(name, "UTF-8");
+            return workflowService.getWorkListByAuthor(name, type, pageSize, pageIndex, sortBy, sortReverse,
+                    DocumentRestService.getItemList(items));
+        }, format);
     }
 
     @GET
@@ -331,22 +368,15 @@ public class WorkflowRestService {
             @DefaultValue("") @QueryParam("sortBy") String sortBy,
             @DefaultValue("false") @QueryParam("sortReverse") Boolean sortReverse, @QueryParam("items") String items,
             @QueryParam("format") String format) {
-        List<ItemCollection> result = null;
-        try {
-            if ("null".equalsIgnoreCase(creator))
-                creator = null;
-
+        Object[] variant = { "creator", creator, type, pageIndex, pageSize, sortBy, sortReverse, items, format };
+        return documentRestService.cachedResult(request, variant, items, true, () -> {
+            String name = "null".equalsIgnoreCase(creator) ? null : creator;
             // decode URL param
-            if (creator != null)
-                creator = URLDecoder.decode(creator, "UTF-8");
-
-            result = workflowService.getWorkListByCreator(creator, type, pageSize, pageIndex, sortBy, sortReverse);
-
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-
-        return documentRestService.convertResultList(result, items, format);
+            if (name != null)
+                name = URLDecoder.decode(name, "UTF-8");
+            return workflowService.getWorkListByCreator(name, type, pageSize, pageIndex, sortBy, sortReverse,
+                    DocumentRestService.getItemList(items));
+        }, format);
     }
 
     @GET
@@ -357,13 +387,12 @@ public class WorkflowRestService {
             @DefaultValue("") @QueryParam("sortBy") String sortBy,
             @DefaultValue("false") @QueryParam("sortReverse") Boolean sortReverse, @QueryParam("items") String items,
             @QueryParam("format") String format) {
-        List<ItemCollection> result = null;
-        try {
-            result = workflowService.getWorkListByProcessID(processid, type, pageSize, pageIndex, sortBy, sortReverse);
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        return documentRestService.convertResultList(result, items, format);
+        Object[] variant = { "processid", processid, type, pageIndex, pageSize, sortBy, sortReverse, items, format };
+        return documentRestService.cachedResult(request, variant, items,
+                !workflowService.getDocumentService().isMetaColumnsEnabled(),
+                () -> workflowService.getWorkListByProcessID(processid, type, pageSize, pageIndex, sortBy,
+                        sortReverse, DocumentRestService.getItemList(items)),
+                format);
     }
 
     @GET
@@ -374,17 +403,14 @@ public class WorkflowRestService {
             @DefaultValue("") @QueryParam("sortBy") String sortBy,
             @DefaultValue("false") @QueryParam("sortReverse") Boolean sortReverse, @QueryParam("items") String items,
             @QueryParam("format") String format) {
-        List<ItemCollection> result = null;
-        try {
-            // decode URL param
-            if (processgroup != null)
-                processgroup = URLDecoder.decode(processgroup, "UTF-8");
-            result = workflowService.getWorkListByGroup(processgroup, type, pageSize, pageIndex, sortBy, sortReverse);
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-
-        return documentRestService.convertResultList(result, items, format);
+        Object[] variant = { "group", processgroup, type, pageIndex, pageSize, sortBy, sortReverse, items, format };
+        return documentRestService.cachedResult(request, variant, items,
+                !workflowService.getDocumentService().isMetaColumnsEnabled(), () -> {
+                    // decode URL param
+                    String group = processgroup != null ? URLDecoder.decode(processgroup, "UTF-8") : null;
+                    return workflowService.getWorkListByGroup(group, type, pageSize, pageIndex, sortBy, sortReverse,
+                            DocumentRestService.getItemList(items));
+                }, format);
     }
 
     @GET
@@ -395,14 +421,12 @@ public class WorkflowRestService {
             @DefaultValue("") @QueryParam("sortBy") String sortBy,
             @DefaultValue("false") @QueryParam("sortReverse") Boolean sortReverse, @QueryParam("items") String items,
             @QueryParam("format") String format) {
-        List<ItemCollection> result = null;
-        try {
-            result = workflowService.getWorkListByRef(uniqueid, type, pageSize, pageIndex, sortBy, sortReverse);
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-
-        return documentRestService.convertResultList(result, items, format);
+        Object[] variant = { "ref", uniqueid, type, pageIndex, pageSize, sortBy, sortReverse, items, format };
+        return documentRestService.cachedResult(request, variant, items,
+                !workflowService.getDocumentService().isMetaColumnsEnabled(),
+                () -> workflowService.getWorkListByRef(uniqueid, type, pageSize, pageIndex, sortBy, sortReverse,
+                        DocumentRestService.getItemList(items)),
+                format);
     }
 
     /**
@@ -563,6 +587,87 @@ public class WorkflowRestService {
         return postWorkitems(worklist);
     }
 
+    /**
+     * This method processes a stream of workitems in blocks. Each block is
+     * processed by the WorkflowService in one transaction. If the processing of a
+     * block fails, the workitems of this block are processed one by one, so only
+     * invalid workitems are rejected.
+     * <p>
+     * The request stream can be a XMLDataCollection or a typed JSON data
+     * collection. The result of each workitem is streamed back as soon as its
+     * block was processed. Per default the result contains the items $uniqueid,
+     * $taskid, $workflowstatus, $error_code and $error_message. The result is a
+     * XMLDataCollection or a typed JSON data collection if the format 'json' is
+     * requested.
+     * <p>
+     * As the response is streamed, the response status is always 200. An invalid
+     * request stream is reported by a last entry with the error code
+     * 'INVALID_FORMAT'.
+     * 
+     * @param requestBodyStream - xml or json data collection
+     * @param blockSize         - max number of workitems processed in one
+     *                          transaction
+     * @param items             - optional item list to be returned in the result
+     * @param format            - optional format string (json|xml)
+     */
+    @POST
+    @Path("/workitems/batch")
+    @Consumes({ MediaType.APPLICATION_XML, MediaType.TEXT_XML, MediaType.APPLICATION_JSON })
+    public Response postWorkitemsBatch(final InputStream requestBodyStream,
+            @DefaultValue("10") @QueryParam("blocksize") int blockSize, @QueryParam("items") String items,
+            @QueryParam("format") String format) {
+        logger.fine("postWorkitemsBatch @POST /workitems/batch....");
+        final int maxBlockSize = (blockSize > 0) ? blockSize : 10;
+        final boolean jsonRequest = servletRequest.getContentType() != null
+                && servletRequest.getContentType().contains("json");
+        final boolean jsonResult = "json".equals(format);
+        final List<String> itemNames = (items == null || items.isEmpty()) ? BATCH_RESULT_ITEMS
+                : DocumentRestService.getItemList(items);
+
+        StreamingOutput stream = new StreamingOutput() {
+            @Override
+            public void write(OutputStream out) throws IOException, WebApplicationException {
+                long l = System.currentTimeMillis();
+                final Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+                final List<ItemCollection> block = new ArrayList<ItemCollection>(maxBlockSize);
+                final AtomicInteger count = new AtomicInteger();
+                writer.write(jsonResult ? "{\"" + ImixsJSONParser.DATA_ELEMENT + "\":["
+                        : "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?><data>");
+                Consumer<ItemCollection> consumer = workitem -> {
+                    block.add(workitem);
+                    if (block.size() >= maxBlockSize) {
+                        try {
+                            processBatchBlock(block, itemNames, jsonResult, count, writer);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                };
+                try {
+                    int parsed = jsonRequest ? ImixsJSONParser.parse(requestBodyStream, consumer)
+                            : XMLDataCollectionAdapter.readCollection(requestBodyStream, consumer);
+                    processBatchBlock(block, itemNames, jsonResult, count, writer);
+                    if (parsed < 0) {
+                        writeBatchError("invalid json data structure", itemNames, jsonResult, count, writer);
+                    }
+                } catch (ParseException | JsonException | JAXBException | XMLStreamException e) {
+                    // process the documents read so far
+                    processBatchBlock(block, itemNames, jsonResult, count, writer);
+                    writeBatchError(e.getMessage(), itemNames, jsonResult, count, writer);
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+                writer.write(jsonResult ? "]}" : "</data>");
+                writer.flush();
+                logger.info("...batch processing of " + count.get() + " workitems in "
+                        + (System.currentTimeMillis() - l) + "ms");
+            }
+        };
+        return Response.ok(stream)
+                .header(HttpHeaders.CONTENT_TYPE, jsonResult ? MediaType.APPLICATION_JSON : MediaType.APPLICATION_XML)
+                .build();
+    }
+
     /**
      * This method expects JSON in BADGARFISH notation to processed by the
      * WorkflowService EJB.
@@ -783,6 +888,195 @@ public class WorkflowRestService {
         return workitem;
     }
 
+    /**
+     * Creates the response for a file attachment. The content is streamed and
+     * only the requested byte range is written. An invalid or multiple byte range
+     * is ignored and the full content is returned.
+     */
+    private Response getFileResponse(final FileData fileData, Request request, HttpHeaders httpHeaders) {
+        final long size = attachmentService.getContentSize(fileData);
+        String checksum = attachmentService.getContentChecksum(fileData);
+        EntityTag etag = (checksum != null) ? new EntityTag(checksum) : null;
+        if (etag != null && request != null) {
+            Response.ResponseBuilder notModified = request.evaluatePreconditions(etag);
+            if (notModified != null) {
+                return notModified.build();
+            }
+        }
+
+        long[] range = null;
+        if (httpHeaders != null && isRangeValid(httpHeaders.getHeaderString("If-Range"), etag)) {
+            range = parseRange(httpHeaders.getHeaderString("Range"), size);
+        }
+        if (range != null && (range[0] >= size || range[0] > range[1])) {
+            return Response.status(Response.Status.REQUESTED_RANGE_NOT_SATISFIABLE)
+                    .header("Content-Range", "bytes */" + size).build();
+        }
+        final long offset = (range != null) ? range[0] : 0;
+        final long length = (range != null) ? (range[1] - range[0] + 1) : size;
+
+        StreamingOutput stream = new StreamingOutput() {
+            public void write(OutputStream out) throws IOException, WebApplicationException {
+                if (length <= 0) {
+                    return;
+                }
+                if (!attachmentService.isExternal(fileData)) {
+                    // write the content without copying
+                    out.write(fileData.getContent(), (int) offset, (int) length);
+                    return;
+                }
+                try (InputStream in = attachmentService.openContent(fileData, offset)) {
+                    byte[] buffer = new byte[8192];
+                    long remaining = length;
+                    int n;
+                    while (remaining > 0 && (n = in.read(buffer, 0, (int) Math.min(buffer.length, remaining))) != -1) {
+                        out.write(buffer, 0, n);
+                        remaining -= n;
+                    }
+                }
+            }
+        };
+
+        Response.ResponseBuilder builder;
+        if (range != null) {
+            builder = Response.status(Response.Status.PARTIAL_CONTENT).entity(stream)
+                    .header("Content-Range", "bytes " + range[0] + "-" + range[1] + "/" + size);
+        } else {
+            builder = Response.ok(stream);
+        }
+        // Set content type in order of the contentType stored in the $file attribute
+        return builder.type(fileData.getContentType()).header("Content-Length", length)
+                .header("Accept-Ranges", "bytes").tag(etag).build();
+    }
+
+    /**
+     * Returns true if the header 'If-Range' is not set or matches the given entity
+     * tag. Otherwise a range request must be answered with the full content.
+     */
+    private static boolean isRangeValid(String ifRange, EntityTag etag) {
+        if (ifRange == null || ifRange.isEmpty()) {
+            return true;
+        }
+        if (etag == null) {
+            return false;
+        }
+        try {
+            // a date value or a weak tag never matches
+            return etag.equals(EntityTag.valueOf(ifRange));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Parses a single byte range of the header 'Range' (e.g. 'bytes=0-499',
+     * 'bytes=500-' or 'bytes=-500'). The method returns the first and last byte
+     * position of the range. The last position is limited to the given size. If
+     * the range can not be satisfied, the first position is equal or greater than
+     * the size.
+     * 
+     * @param range - the range header
+     * @param size  - the size of the content
+     * @return first and last byte position or null if no valid single byte range
+     *         is given
+     */
+    static long[] parseRange(String range, long size) {
+        if (range == null || !range.startsWith("bytes=") || range.indexOf(',') > -1) {
+            return null;
+        }
+        String spec = range.substring(6).trim();
+        int i = spec.indexOf('-');
+        if (i < 0) {
+            return null;
+        }
+        String first = spec.substring(0, i).trim();
+        String last = spec.substring(i + 1).trim();
+        try {
+            if (first.isEmpty()) {
+                // suffix range - the last n bytes
+                long suffix = Long.parseLong(last);
+                if (suffix < 0) {
+                    return null;
+                }
+                if (suffix == 0) {
+                    return new long[] { size, size - 1 };
+                }
+                return new long[] { Math.max(0, size - suffix), size - 1 };
+            }
+            long start = Long.parseLong(first);
+            long end = size - 1;
+            if (!last.isEmpty()) {
+                end = Long.parseLong(last);
+                if (start < 0 || end < start) {
+                    return null;
+                }
+                end = Math.min(end, size - 1);
+            }
+            if (start < 0) {
+                return null;
+            }
+            return new long[] { start, end };
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Processes a block of workitems of a batch request and writes the results.
+     * The block is cleared afterwards.
+     */
+    private void processBatchBlock(List<ItemCollection> block, List<String> itemNames, boolean json,
+            AtomicInteger count, Writer writer) throws IOException {
+        if (block.isEmpty()) {
+            return;
+        }
+        List<ItemCollection> result = workflowService.processWorkItems(block);
+        block.clear();
+        for (ItemCollection workitem : result) {
+            if (workitem.hasItem("$error_code")) {
+                logger.warning(workitem.getItemValueString("$error_code") + ": "
+                        + workitem.getItemValueString("$error_message"));
+            }
+            writeBatchResult(workitem, itemNames, json, count, writer);
+        }
+        writer.flush();
+    }
+
+    /**
+     * Writes an entry with the error code 'INVALID_FORMAT' into the result of a
+     * batch request.
+     */
+    private void writeBatchError(String message, List<String> itemNames, boolean json, AtomicInteger count,
+            Writer writer) throws IOException {
+        logger.severe("...batch processing failed: " + message);
+        ItemCollection error = new ItemCollection();
+        error.replaceItemValue("$error_code", "INVALID_FORMAT");
+        error.replaceItemValue("$error_message", message);
+        writeBatchResult(error, itemNames, json, count, writer);
+    }
+
+    /**
+     * Writes the result of one workitem into the result of a batch request.
+     */
+    private void writeBatchResult(ItemCollection workitem, List<String> itemNames, boolean json,
+            AtomicInteger count, Writer writer) throws IOException {
+        if (json) {
+            if (count.getAndIncrement() > 0) {
+                writer.write(",");
+            }
+            ImixsJSONBuilder.write(workitem, itemNames, writer);
+        } else {
+            count.incrementAndGet();
+            try {
+                Marshaller m = JAXBContextRegistry.getMarshaller(XMLDocument.class);
+                m.setProperty(Marshaller.JAXB_FRAGMENT, true);
+                m.marshal(XMLDocumentAdapter.getDocument(workitem, itemNames, false), writer);
+            } catch (JAXBException e) {
+                throw new IOException(e);
+            }
+        }
+    }
+
     /**
      * This helper method processes a workitem. The response code of the response
      * object is set to 200 if case the processing was successful. In case of an
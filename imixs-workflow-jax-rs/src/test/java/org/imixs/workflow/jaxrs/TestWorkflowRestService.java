@@ -0,0 +1,54 @@
+package org.imixs.workflow.jaxrs;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test class for WorkflowRestService
+ *
+ * @author rsoika
+ *
+ */
+public class TestWorkflowRestService {
+
+	/**
+	 * test parsing a byte range
+	 */
+	@Test
+	public void testParseRange() {
+		Assert.assertArrayEquals(new long[] { 0, 499 }, WorkflowRestService.parseRange("bytes=0-499", 1000));
+		Assert.assertArrayEquals(new long[] { 500, 999 }, WorkflowRestService.parseRange("bytes=500-", 1000));
+		// suffix range
+		Assert.assertArrayEquals(new long[] { 800, 999 }, WorkflowRestService.parseRange("bytes=-200", 1000));
+		Assert.assertArrayEquals(new long[] { 0, 999 }, WorkflowRestService.parseRange("bytes=-2000", 1000));
+		// last position is limited to the size
+		Assert.assertArrayEquals(new long[] { 900, 999 }, WorkflowRestService.parseRange("bytes=900-5000", 1000));
+	}
+
+	/**
+	 * test a byte range which can not be satisfied
+	 */
+	@Test
+	public void testParseRangeNotSatisfiable() {
+		long[] range = WorkflowRestService.parseRange("bytes=1000-", 1000);
+		Assert.assertNotNull(range);
+		Assert.assertTrue(range[0] >= 1000);
+
+		range = WorkflowRestService.parseRange("bytes=-0", 1000);
+		Assert.assertNotNull(range);
+		Assert.assertTrue(range[0] >= 1000);
+	}
+
+	/**
+	 * test invalid and multiple byte ranges which are ignored
+	 */
+	@Test
+	public void testParseRangeInvalid() {
+		Assert.assertNull(WorkflowRestService.parseRange(null, 1000));
+		Assert.assertNull(WorkflowRestService.parseRange("items=0-10", 1000));
+		Assert.assertNull(WorkflowRestService.parseRange("bytes=10-5", 1000));
+		Assert.assertNull(WorkflowRestService.parseRange("bytes=a-b", 1000));
+		Assert.assertNull(WorkflowRestService.parseRange("bytes=0-10,20-30", 1000));
+	}
+
+}